@@ -0,0 +1,55 @@
+package org.gnucash.apiext;
+
+import java.time.LocalDate;
+
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+
+/**
+ * Books for the JMH benchmarks: the test file, optionally
+ * enlarged by a given no. of synthetic transactions
+ * (cf. {@link SyntheticBookGenerator}).
+ */
+public class BenchBook {
+
+	public static final GCshAcctID BANK_ACCT_ID  = SyntheticBookGenerator.BANK_ACCT_ID;
+	public static final GCshAcctID STOCK_ACCT_ID = new GCshAcctID("b3741e92e3b9475b9d5a2dc8254a8111"); // SAP (with lot)
+	public static final GCshAcctID EXP_ACCT_1_ID = SyntheticBookGenerator.EXP_ACCT_1_ID;
+	public static final GCshAcctID EXP_ACCT_2_ID = SyntheticBookGenerator.EXP_ACCT_2_ID;
+
+	public static final long SEED = 4711;
+
+	public static final LocalDate FIRST_DATE = LocalDate.of(2020, 1, 1);
+	public static final int       NOF_DAYS   = 5 * 365;
+
+	// -----------------------------------------------------------------
+
+	/**
+	 * @return a fresh copy of the test file
+	 */
+	public static GnuCashWritableFileImpl load() throws Exception {
+		return SyntheticBookGenerator.loadTestFile();
+	}
+
+	/**
+	 * @param nofTrx no. of transactions to add to the test file
+	 * @return the generator, after having generated the book:
+	 * the test file, enlarged by the given no. of transactions
+	 * (about 85 % bank/expenses transactions, the rest stock
+	 * buys, dividends and a few stock splits)
+	 */
+	public static SyntheticBookGenerator gen(int nofTrx) throws Exception {
+		SyntheticBookGenerator gen = new SyntheticBookGenerator();
+		gen.seed             = SEED;
+		gen.firstDate        = FIRST_DATE;
+		gen.nofDays          = NOF_DAYS;
+		gen.nofStockSplitTrx = nofTrx / 1000;
+		gen.nofDividTrx      = nofTrx / 25;
+		gen.nofBuyTrx        = nofTrx / 10;
+		gen.nofBankTrx       = nofTrx - gen.nofBuyTrx - gen.nofDividTrx - gen.nofStockSplitTrx;
+
+		gen.generate();
+		return gen;
+	}
+
+}
@@ -0,0 +1,48 @@
+package org.gnucash.apiext.secacct;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.apiext.BenchBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx16g" })
+public class BenchSecuritiesAccountLotManager {
+
+	private GnuCashWritableFileImpl gcshFile  = null;
+	private GnuCashAccount          stockAcct = null;
+
+	// -----------------------------------------------------------------
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		// No synthetic transactions: the generator does not produce
+		// lots, so the only lot is the test file's one
+		gcshFile = BenchBook.load();
+		stockAcct = gcshFile.getAccountByID(BenchBook.STOCK_ACCT_ID);
+	}
+
+	// -----------------------------------------------------------------
+
+	@Benchmark
+	public boolean areLotsOK() throws Exception {
+		return SecuritiesAccountLotManager.areLotsOK(stockAcct);
+	}
+
+}
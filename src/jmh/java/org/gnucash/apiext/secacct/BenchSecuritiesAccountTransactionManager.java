@@ -0,0 +1,66 @@
+package org.gnucash.apiext.secacct;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.apiext.BenchBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/*
+ * Bulk generation: One invocation generates the given no. of
+ * buy transactions on a fresh copy of the test file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx16g" })
+public class BenchSecuritiesAccountTransactionManager {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int nofTrx;
+
+	// -----------------------------------------------------------------
+
+	private GnuCashWritableFileImpl gcshFile = null;
+
+	private FixedPointNumber nofStocks = new FixedPointNumber(15);
+	private FixedPointNumber stockPrc  = new FixedPointNumber("23080/100");
+	private FixedPointNumber taxesFees = new FixedPointNumber("945/100");
+
+	// -----------------------------------------------------------------
+
+	@Setup(Level.Invocation)
+	public void setUp() throws Exception {
+		gcshFile = BenchBook.load();
+	}
+
+	// -----------------------------------------------------------------
+
+	@Benchmark
+	public GnuCashWritableFileImpl genBuyStockTrx() {
+		for ( int i = 0; i < nofTrx; i++ ) {
+			SecuritiesAccountTransactionManager_FP.genBuyStockTrx(gcshFile,
+					BenchBook.STOCK_ACCT_ID, BenchBook.EXP_ACCT_1_ID, BenchBook.BANK_ACCT_ID,
+					nofStocks, stockPrc, taxesFees,
+					BenchBook.FIRST_DATE.plusDays(i % BenchBook.NOF_DAYS), "Buying stocks");
+		}
+
+		return gcshFile;
+	}
+
+}
@@ -0,0 +1,106 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.apiext.BenchBook;
+import org.gnucash.apiext.SyntheticBookGenerator;
+import org.gnucash.apiext.trxmgr.TransactionFilter.SplitLogic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx16g" })
+public class BenchTransactionFinder {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int nofTrx;
+
+	// -----------------------------------------------------------------
+
+	private GnuCashFile       gcshFile = null;
+	private TransactionFinder finder   = null;
+
+	// Typical filters:
+	private TransactionFilter fltDatePosted = null; // one month
+	private TransactionFilter fltAcct       = null; // splits bound to stock account
+	private TransactionFilter fltNofSplt    = null; // three splits or more
+	private TransactionFilter fltDescr      = null; // no index -> full scan
+
+	// -----------------------------------------------------------------
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SyntheticBookGenerator gen = BenchBook.gen(nofTrx);
+		gcshFile = gen.getGnuCashFile();
+		finder = new TransactionFinder(gcshFile);
+
+		fltDatePosted = new TransactionFilter();
+		fltDatePosted.datePostedFrom = LocalDate.of(2022, 6, 1);
+		fltDatePosted.datePostedTo   = LocalDate.of(2022, 6, 30);
+
+		fltAcct = new TransactionFilter();
+		fltAcct.spltFilt.acctID.set(gen.getShareAcctIDs().get(0));
+		fltAcct.spltFilt.action = GnuCashTransactionSplit.Action.BUY;
+
+		fltNofSplt = new TransactionFilter();
+		fltNofSplt.nofSpltFrom = 3;
+		fltNofSplt.spltFilt.acctType = GnuCashAccount.Type.EXPENSE;
+		fltNofSplt.spltFilt.valueFrom = new FixedPointNumber(500);
+
+		fltDescr = new TransactionFilter();
+		fltDescr.descrPart = "stock buy 4";
+
+		// Build the index outside of the measurement
+		finder.find(fltDatePosted, false, SplitLogic.AND);
+	}
+
+	// -----------------------------------------------------------------
+
+	@Benchmark
+	public ArrayList<GnuCashTransaction> findByDatePosted() {
+		return finder.find(fltDatePosted, false, SplitLogic.AND);
+	}
+
+	@Benchmark
+	public ArrayList<GnuCashTransaction> findByAccount() {
+		return finder.find(fltAcct, true, SplitLogic.OR);
+	}
+
+	@Benchmark
+	public ArrayList<GnuCashTransaction> findByNofSplits() {
+		return finder.find(fltNofSplt, true, SplitLogic.OR);
+	}
+
+	@Benchmark
+	public ArrayList<GnuCashTransaction> findByDescr() {
+		return finder.find(fltDescr, false, SplitLogic.AND);
+	}
+
+	@Benchmark
+	public ArrayList<GnuCashTransaction> findByDescrParallel() {
+		return finder.find(fltDescr, false, SplitLogic.AND, Runtime.getRuntime().availableProcessors());
+	}
+
+}
@@ -0,0 +1,74 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.apiext.BenchBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx16g" })
+public class BenchTransactionMerger {
+
+	private static final int NOF_PAIRS = 1000;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int nofTrx;
+
+	// -----------------------------------------------------------------
+
+	private GnuCashWritableFileImpl gcshFile = null;
+	private TransactionMergerBase   merger   = null;
+
+	private GnuCashTransaction[] survivors = null;
+	private GnuCashTransaction[] diers     = null;
+
+	// -----------------------------------------------------------------
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		gcshFile = BenchBook.gen(nofTrx).getGnuCashFile();
+		merger = new TransactionMergerVar1(gcshFile);
+
+		// Neighbours in post date order, spread over the whole book,
+		// so that the pairs are typical merge candidates (close post dates)
+		TransactionIndex idx = TransactionIndex.of(gcshFile);
+		int step = Math.max(( idx.getNofTransactions() - 1 ) / NOF_PAIRS, 1);
+		survivors = new GnuCashTransaction[NOF_PAIRS];
+		diers     = new GnuCashTransaction[NOF_PAIRS];
+		for ( int i = 0; i < NOF_PAIRS; i++ ) {
+			int pos = ( i * step ) % ( idx.getNofTransactions() - 1 );
+			survivors[i] = idx.getTransaction(pos);
+			diers[i]     = idx.getTransaction(pos + 1);
+		}
+	}
+
+	// -----------------------------------------------------------------
+
+	@Benchmark
+	@OperationsPerInvocation(NOF_PAIRS)
+	public void plausiCheck(Blackhole bh) {
+		for ( int i = 0; i < NOF_PAIRS; i++ ) {
+			bh.consume(merger.plausiCheck(survivors[i], diers[i]));
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.apiext.BenchBook;
+import org.gnucash.apiext.SyntheticBookGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx16g" })
+public class BenchTransactionSplitFinder {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int nofTrx;
+
+	// -----------------------------------------------------------------
+
+	private GnuCashFile            gcshFile = null;
+	private TransactionSplitFinder finder   = null;
+
+	// Typical filters:
+	private TransactionSplitFilter_FP fltAcct       = null;
+	private TransactionSplitFilter_FP fltValueRange = null;
+	private TransactionSplitFilter_FP fltAcctType   = null;
+
+	// -----------------------------------------------------------------
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SyntheticBookGenerator gen = BenchBook.gen(nofTrx);
+		gcshFile = gen.getGnuCashFile();
+		finder = new TransactionSplitFinder(gcshFile);
+
+		fltAcct = new TransactionSplitFilter_FP();
+		fltAcct.acctID.set(gen.getShareAcctIDs().get(0));
+
+		fltValueRange = new TransactionSplitFilter_FP();
+		fltValueRange.valueFrom = new FixedPointNumber(100);
+		fltValueRange.valueTo   = new FixedPointNumber(200);
+		fltValueRange.valueAbs  = true;
+
+		fltAcctType = new TransactionSplitFilter_FP();
+		fltAcctType.acctType = GnuCashAccount.Type.EXPENSE;
+		fltAcctType.descrPart = "fee";
+	}
+
+	// -----------------------------------------------------------------
+
+	@Benchmark
+	public ArrayList<GnuCashTransactionSplit> findByAccount() {
+		return finder.find(fltAcct);
+	}
+
+	@Benchmark
+	public ArrayList<GnuCashTransactionSplit> findByValueRange() {
+		return finder.find(fltValueRange);
+	}
+
+	@Benchmark
+	public ArrayList<GnuCashTransactionSplit> findByAcctType() {
+		return finder.find(fltAcctType);
+	}
+
+	@Benchmark
+	public ArrayList<GnuCashTransactionSplit> findByValueRangeParallel() {
+		return finder.find(fltValueRange, Runtime.getRuntime().availableProcessors());
+	}
+
+}
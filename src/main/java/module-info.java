@@ -15,5 +15,6 @@ module gnucash.apiext {
 
 	exports org.gnucash.apiext.secacct;
 	exports org.gnucash.apiext.trxmgr;
+	exports org.gnucash.apiext.trialbal;
 
 }
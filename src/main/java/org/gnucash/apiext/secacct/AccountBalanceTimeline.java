@@ -0,0 +1,449 @@
+package org.gnucash.apiext.secacct;
+
+import java.beans.PropertyChangeListener;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.commons.numbers.fraction.BigFraction;
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.api.write.GnuCashWritableTransaction;
+import org.gnucash.api.write.GnuCashWritableTransactionSplit;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/**
+ * Per-account balance timelines of a GnuCash file, so that
+ * as-of-date balances can be answered by a binary search
+ * instead of a scan over the account's splits.
+ * <br>
+ * For each account, the timeline holds the (ascending, distinct) post
+ * dates of its splits as epoch days and, for each of them, the
+ * cumulative quantity and value of all splits posted on or before
+ * that day. The semantics are the ones of
+ * {@link GnuCashAccount#getBalance(LocalDate)} (i.e., the balance
+ * in the account's own commodity, splits posted on the given
+ * day included).
+ * <br>
+ * A timeline is built lazily, on the first query for its account.
+ * It is maintained incrementally:
+ * <ul>
+ *   <li>Transactions generated by the securities-account transaction
+ *       managers are appended in place if they are not posted before the
+ *       last day of the timeline (the common case); otherwise, the
+ *       timeline is rebuilt on next access.</li>
+ *   <li>A timeline is rebuilt when the no. of splits of its account has
+ *       changed or when one of its (writable) splits or their transactions
+ *       fires a property change.</li>
+ * </ul>
+ * Only the affected account's timeline is rebuilt, never the whole file's.
+ * <br>
+ * The timelines are registered weakly, so that they do not keep the file
+ * alive. They live as long as the listeners on the file's writable splits
+ * or their users (e.g. {@link DepotPositionTable}) do.
+ */
+public class AccountBalanceTimeline {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountBalanceTimeline.class);
+
+    // ---------------------------------------------------------------
+
+    private static final int INITIAL_CAPACITY = 16; // ::MAGIC
+
+    private static final Map<GnuCashFile, WeakReference<AccountBalanceTimeline>> INSTANCES = new WeakHashMap<GnuCashFile, WeakReference<AccountBalanceTimeline>>();
+
+    // ---------------------------------------------------------------
+
+    /*
+     * Timeline of one account. The arrays are over-allocated,
+     * so that appending is amortised O(1); only the first
+     * <size> entries are valid.
+     */
+    private static final class Timeline {
+    	long[]        epochDay;
+    	BigDecimal[]  cumQty;
+    	BigDecimal[]  cumVal;
+    	BigFraction[] cumQtyRat;
+    	BigFraction[] cumValRat;
+    	int           size;
+
+    	int     nofSplits; // no. of splits reflected
+    	boolean stale;
+    	long    stamp;     // changes whenever the timeline changes
+
+    	Timeline(int capacity) {
+    		epochDay  = new long[capacity];
+    		cumQty    = new BigDecimal[capacity];
+    		cumVal    = new BigDecimal[capacity];
+    		cumQtyRat = new BigFraction[capacity];
+    		cumValRat = new BigFraction[capacity];
+    		size      = 0;
+    	}
+
+    	void add(long day, GnuCashTransactionSplit splt) {
+    		BigDecimal  qty    = splt.getQuantity().getBigDecimal();
+    		BigDecimal  val    = splt.getValue().getBigDecimal();
+    		BigFraction qtyRat = splt.getQuantityRat();
+    		BigFraction valRat = splt.getValueRat();
+
+    		if ( size > 0 &&
+    			 epochDay[size - 1] == day ) {
+    			cumQty[size - 1]    = cumQty[size - 1].add(qty);
+    			cumVal[size - 1]    = cumVal[size - 1].add(val);
+    			cumQtyRat[size - 1] = cumQtyRat[size - 1].add(qtyRat);
+    			cumValRat[size - 1] = cumValRat[size - 1].add(valRat);
+    		} else {
+    			if ( size == epochDay.length ) {
+    				int capacity = epochDay.length * 2;
+    				epochDay  = Arrays.copyOf(epochDay, capacity);
+    				cumQty    = Arrays.copyOf(cumQty, capacity);
+    				cumVal    = Arrays.copyOf(cumVal, capacity);
+    				cumQtyRat = Arrays.copyOf(cumQtyRat, capacity);
+    				cumValRat = Arrays.copyOf(cumValRat, capacity);
+    			}
+
+    			epochDay[size]  = day;
+    			cumQty[size]    = ( size == 0 ? qty    : cumQty[size - 1].add(qty) );
+    			cumVal[size]    = ( size == 0 ? val    : cumVal[size - 1].add(val) );
+    			cumQtyRat[size] = ( size == 0 ? qtyRat : cumQtyRat[size - 1].add(qtyRat) );
+    			cumValRat[size] = ( size == 0 ? valRat : cumValRat[size - 1].add(valRat) );
+    			size++;
+    		}
+
+    		nofSplits++;
+    	}
+
+    	long getLastDay() {
+    		return epochDay[size - 1];
+    	}
+
+    	// Index of the last day <= the given one, -1 if there is none
+    	int floorIdx(long day) {
+    		int lo = 0;
+    		int hi = size;
+    		while ( lo < hi ) {
+    			int mid = ( lo + hi ) >>> 1;
+    			if ( epochDay[mid] <= day )
+    				lo = mid + 1;
+    			else
+    				hi = mid;
+    		}
+    		return lo - 1;
+    	}
+    }
+
+    // ---------------------------------------------------------------
+
+	private final HashMap<GCshAcctID, Timeline> timelines;
+
+	// Writable objects that we already listen to
+	// (weak, so that removed objects can be collected)
+	private final Set<Object> listenedTo;
+
+	private int nofBuilds;
+	private int nofAppends;
+
+	private long lastStamp;
+
+    // ---------------------------------------------------------------
+
+	private AccountBalanceTimeline() {
+		this.timelines  = new HashMap<GCshAcctID, Timeline>();
+		this.listenedTo = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Object, Boolean>()));
+	}
+
+	/**
+	 * @param gcshFile GnuCash file
+	 * @return the timelines for the given file
+	 */
+	public static AccountBalanceTimeline of(GnuCashFile gcshFile) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		synchronized ( INSTANCES ) {
+			WeakReference<AccountBalanceTimeline> ref = INSTANCES.get(gcshFile);
+			AccountBalanceTimeline tl = ( ref == null ? null : ref.get() );
+			if ( tl == null ) {
+				tl = new AccountBalanceTimeline();
+				INSTANCES.put(gcshFile, new WeakReference<AccountBalanceTimeline>(tl));
+			}
+
+			return tl;
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param acct account
+	 * @param date date (inclusive)
+	 * @return the account's balance (sum of its splits' quantities)
+	 * as of the given date (a fresh object)
+	 *
+	 * @see GnuCashAccount#getBalance(LocalDate)
+	 */
+	public synchronized FixedPointNumber getBalance(GnuCashAccount acct, LocalDate date) {
+		Timeline tl = getTimeline(acct);
+		int idx = tl.floorIdx(toEpochDay(date));
+		if ( idx < 0 )
+			return new FixedPointNumber();
+
+		return new FixedPointNumber(tl.cumQty[idx]);
+	}
+
+	/**
+	 * @param acct account
+	 * @return the account's balance as of today (a fresh object)
+	 *
+	 * @see GnuCashAccount#getBalance()
+	 */
+	public FixedPointNumber getBalance(GnuCashAccount acct) {
+		return getBalance(acct, LocalDate.now());
+	}
+
+	/**
+	 * @param acct account
+	 * @param date date (inclusive)
+	 * @return the account's balance as of the given date
+	 *
+	 * @see GnuCashAccount#getBalanceRat(LocalDate)
+	 */
+	public synchronized BigFraction getBalanceRat(GnuCashAccount acct, LocalDate date) {
+		Timeline tl = getTimeline(acct);
+		int idx = tl.floorIdx(toEpochDay(date));
+		if ( idx < 0 )
+			return BigFraction.ZERO;
+
+		return tl.cumQtyRat[idx];
+	}
+
+	/**
+	 * @param acct account
+	 * @param date date (inclusive)
+	 * @return the sum of the account's splits' values
+	 * as of the given date (a fresh object)
+	 */
+	public synchronized FixedPointNumber getValue(GnuCashAccount acct, LocalDate date) {
+		Timeline tl = getTimeline(acct);
+		int idx = tl.floorIdx(toEpochDay(date));
+		if ( idx < 0 )
+			return new FixedPointNumber();
+
+		return new FixedPointNumber(tl.cumVal[idx]);
+	}
+
+	public synchronized BigFraction getValueRat(GnuCashAccount acct, LocalDate date) {
+		Timeline tl = getTimeline(acct);
+		int idx = tl.floorIdx(toEpochDay(date));
+		if ( idx < 0 )
+			return BigFraction.ZERO;
+
+		return tl.cumValRat[idx];
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * To be called when a transaction has been generated (after its
+	 * splits and post date have been set). The splits are appended
+	 * to the timelines of their accounts in place, if possible.
+	 * Timelines that have not been built yet are left alone.
+	 *
+	 * @param trx new transaction
+	 */
+	public synchronized void transactionAdded(GnuCashTransaction trx) {
+		if ( trx == null ) {
+			throw new IllegalArgumentException("argument <trx> is null");
+		}
+
+		long day = trx.getDatePosted().toLocalDate().toEpochDay();
+		for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
+			if ( splt.getAccountID() == null )
+				continue;
+
+			Timeline tl = timelines.get(splt.getAccountID());
+			if ( tl == null ||
+				 tl.stale )
+				continue;
+
+			GnuCashAccount acct = splt.getAccount();
+			if ( tl.nofSplits + 1 != acct.getTransactionSplits().size() ||
+				 ( tl.size > 0 && day < tl.getLastDay() ) ) {
+				// Something else has changed as well
+				// resp. we cannot append
+				tl.stale = true;
+				continue;
+			}
+
+			tl.add(day, splt);
+			tl.stamp = ++lastStamp;
+			listenTo(splt);
+			nofAppends++;
+		}
+	}
+
+	/**
+	 * Forces a rebuild of the given account's timeline on next access.
+	 *
+	 * @param acctID account ID
+	 */
+	public synchronized void invalidate(GCshAcctID acctID) {
+		Timeline tl = timelines.get(acctID);
+		if ( tl != null ) {
+			tl.stale = true;
+		}
+	}
+
+	public synchronized void clear() {
+		timelines.clear();
+	}
+
+	/**
+	 * @return no. of timelines (re-)built so far
+	 */
+	public synchronized int getNofBuilds() {
+		return nofBuilds;
+	}
+
+	/**
+	 * @return no. of splits appended in place so far
+	 */
+	public synchronized int getNofAppends() {
+		return nofAppends;
+	}
+
+    // ---------------------------------------------------------------
+
+	/*
+	 * Stamp of the given account's timeline (brought up to date
+	 * if necessary). Changes whenever the timeline changes.
+	 */
+	synchronized long getStamp(GnuCashAccount acct) {
+		return getTimeline(acct).stamp;
+	}
+
+	/*
+	 * Ascending epoch days on which the given account's balance
+	 * switches from <= 0 to > 0 or vice versa (starting with <= 0).
+	 * Thus, the balance as of a date is > 0 iff an odd no. of
+	 * these days is not after that date.
+	 */
+	synchronized long[] getSignChanges(GnuCashAccount acct) {
+		Timeline tl = getTimeline(acct);
+
+		int cnt = 0;
+		long[] result = new long[tl.size];
+		boolean positive = false;
+		for ( int i = 0; i < tl.size; i++ ) {
+			if ( ( tl.cumQty[i].signum() > 0 ) != positive ) {
+				result[cnt++] = tl.epochDay[i];
+				positive = ! positive;
+			}
+		}
+
+		return Arrays.copyOf(result, cnt);
+	}
+
+    // ---------------------------------------------------------------
+
+	private Timeline getTimeline(GnuCashAccount acct) {
+		if ( acct == null ) {
+			throw new IllegalArgumentException("argument <acct> is null");
+		}
+
+		Timeline tl = timelines.get(acct.getID());
+		List<? extends GnuCashTransactionSplit> spltList = acct.getTransactionSplits();
+		if ( tl != null &&
+			 ! tl.stale &&
+			 tl.nofSplits == spltList.size() ) {
+			return tl;
+		}
+
+		tl = build(acct, spltList);
+		// Caller's ID objects are mutable
+		GCshAcctID key = new GCshAcctID();
+		key.set(acct.getID());
+		timelines.put(key, tl);
+		return tl;
+	}
+
+	private Timeline build(GnuCashAccount acct, List<? extends GnuCashTransactionSplit> spltList) {
+		int nofSplits = spltList.size();
+
+		// Sort (post date, index) pairs packed into longs, so that
+		// we do not depend on the account's split order
+		long[] packed = new long[nofSplits];
+		for ( int i = 0; i < nofSplits; i++ ) {
+			long day = spltList.get(i).getTransaction().getDatePosted().toLocalDate().toEpochDay();
+			packed[i] = ( day << 32 ) | i;
+		}
+		Arrays.sort(packed);
+
+		Timeline tl = new Timeline(Math.max(nofSplits, INITIAL_CAPACITY));
+		for ( int i = 0; i < nofSplits; i++ ) {
+			GnuCashTransactionSplit splt = spltList.get((int) packed[i]); // lower 32 bits
+			tl.add(packed[i] >> 32, splt);
+			listenTo(splt);
+		}
+
+		tl.stamp = ++lastStamp;
+		nofBuilds++;
+		LOGGER.debug("build: Built balance timeline for account {}: {} splits, {} days",
+					 acct.getID(), nofSplits, tl.size);
+		return tl;
+	}
+
+	// Only writable objects fire property changes
+	private void listenTo(GnuCashTransactionSplit splt) {
+		if ( splt instanceof GnuCashWritableTransactionSplit wrtblSplt &&
+			 listenedTo.add(splt) ) {
+			wrtblSplt.addPropertyChangeListener(newListener(splt.getAccountID()));
+		}
+
+		GnuCashTransaction trx = splt.getTransaction();
+		if ( trx instanceof GnuCashWritableTransaction wrtblTrx &&
+			 listenedTo.add(trx) ) {
+			// A transaction's post date concerns all of its accounts
+			wrtblTrx.addPropertyChangeListener(evt -> invalidate(wrtblTrx));
+		}
+	}
+
+	private PropertyChangeListener newListener(GCshAcctID acctID) {
+		// Caller's ID objects are mutable
+		final GCshAcctID key = new GCshAcctID();
+		key.set(acctID);
+		return evt -> invalidate(key);
+	}
+
+	private synchronized void invalidate(GnuCashTransaction trx) {
+		for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
+			if ( splt.getAccountID() != null ) {
+				invalidate(splt.getAccountID());
+			}
+		}
+	}
+
+	private static long toEpochDay(LocalDate date) {
+		if ( date == null ) {
+			throw new IllegalArgumentException("argument <date> is null");
+		}
+
+		return date.toEpochDay();
+	}
+
+}
@@ -0,0 +1,67 @@
+package org.gnucash.apiext.secacct;
+
+import java.util.HashMap;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+
+/**
+ * Resolves account IDs to accounts and checks their types,
+ * looking up each distinct account only once.
+ * <br>
+ * Meant to live as long as one (batch) operation on a file:
+ * Accounts that are removed or whose type is changed meanwhile
+ * are not detected.
+ */
+class AccountCache {
+
+	private final GnuCashFile gcshFile;
+	private final HashMap<GCshAcctID, GnuCashAccount> acctMap;
+
+    // ---------------------------------------------------------------
+
+	AccountCache(GnuCashFile gcshFile) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		this.gcshFile = gcshFile;
+		this.acctMap  = new HashMap<GCshAcctID, GnuCashAccount>();
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param acctID account ID
+	 * @param type expected account type
+	 * @return the account with the given ID
+	 * @throws IllegalArgumentException if there is no such account
+	 * or if it is not of the expected type
+	 */
+	GnuCashAccount getAccount(GCshAcctID acctID, GnuCashAccount.Type type) {
+		GnuCashAccount acct = acctMap.get(acctID);
+		if ( acct == null ) {
+			acct = gcshFile.getAccountByID(acctID);
+			if ( acct == null ) {
+				throw new IllegalArgumentException("Could not find account with ID " + acctID);
+			}
+
+			// Caller's ID objects are mutable
+			GCshAcctID key = new GCshAcctID();
+			key.set(acctID);
+			acctMap.put(key, acct);
+		}
+
+		if ( acct.getType() != type ) {
+			throw new IllegalArgumentException("Account with ID " + acctID + " is not of type " + type);
+		}
+
+		return acct;
+	}
+
+	int size() {
+		return acctMap.size();
+	}
+
+}
@@ -0,0 +1,221 @@
+package org.gnucash.apiext.secacct;
+
+import java.lang.ref.WeakReference;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Position table of one depot (investment account): For each share
+ * account below it, the days on which the position switches between
+ * "held" (balance > 0) and "not held", as derived from the account's
+ * balance timeline. Thus, "which share accounts are active
+ * as of date X" is answered by one binary search per share account,
+ * without computing a single balance.
+ *
+ * Maintained incrementally: A row is re-derived only if its account's
+ * timeline has changed (which the transaction generators take care of),
+ * rows are added when share accounts are added to or removed from the depot
+ * (detected by comparing the children's IDs with the rows'). The result
+ * for the last date asked for is cached as long as nothing has changed.
+ *
+ * Registered weakly (it references the file through the depot account):
+ * A table lives as long as its users, i.e. the securities-account
+ * managers.
+ */
+final class DepotPositionTable {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(DepotPositionTable.class);
+
+    // ---------------------------------------------------------------
+
+    private static final Map<GnuCashFile, Map<GCshAcctID, WeakReference<DepotPositionTable>>> INSTANCES = new WeakHashMap<GnuCashFile, Map<GCshAcctID, WeakReference<DepotPositionTable>>>();
+
+    // ---------------------------------------------------------------
+
+    /*
+     * One row: position in one share account
+     */
+    private static final class Position {
+    	final GnuCashAccount acct;
+    	long    stamp = -1; // timeline stamp the row has been derived from
+    	long[]  signChanges;
+    	boolean hidden;
+
+    	Position(GnuCashAccount acct) {
+    		this.acct = acct;
+    	}
+
+    	// Balance > 0 iff an odd no. of sign changes
+    	// is not after the given day
+    	boolean isActive(long day) {
+    		int lo = 0;
+    		int hi = signChanges.length;
+    		while ( lo < hi ) {
+    			int mid = ( lo + hi ) >>> 1;
+    			if ( signChanges[mid] <= day )
+    				lo = mid + 1;
+    			else
+    				hi = mid;
+    		}
+    		return ( lo & 1 ) == 1;
+    	}
+    }
+
+    // ---------------------------------------------------------------
+
+	private final GnuCashAccount         depotAcct;
+	private final AccountBalanceTimeline balTL;
+
+	// In the order of the depot's children
+	private final ArrayList<Position>          positions;
+	private final HashMap<GCshAcctID, Position> posByID;
+
+	// Cached result for <cachedDay>; null: none
+	private long                 cachedDay;
+	private List<GnuCashAccount> cachedActive;
+
+	private int nofRowBuilds;
+
+    // ---------------------------------------------------------------
+
+	private DepotPositionTable(GnuCashAccount depotAcct) {
+		this.depotAcct = depotAcct;
+		this.balTL     = AccountBalanceTimeline.of(depotAcct.getGnuCashFile());
+		this.positions = new ArrayList<Position>();
+		this.posByID   = new HashMap<GCshAcctID, Position>();
+	}
+
+	static DepotPositionTable of(GnuCashAccount depotAcct) {
+		if ( depotAcct == null ) {
+			throw new IllegalArgumentException("argument <depotAcct> is null");
+		}
+
+		synchronized ( INSTANCES ) {
+			Map<GCshAcctID, WeakReference<DepotPositionTable>> tables = INSTANCES.get(depotAcct.getGnuCashFile());
+			if ( tables == null ) {
+				tables = new HashMap<GCshAcctID, WeakReference<DepotPositionTable>>();
+				INSTANCES.put(depotAcct.getGnuCashFile(), tables);
+			}
+
+			WeakReference<DepotPositionTable> ref = tables.get(depotAcct.getID());
+			DepotPositionTable tab = ( ref == null ? null : ref.get() );
+			if ( tab == null ) {
+				tab = new DepotPositionTable(depotAcct);
+				// Caller's ID objects are mutable
+				GCshAcctID key = new GCshAcctID();
+				key.set(depotAcct.getID());
+				tables.put(key, new WeakReference<DepotPositionTable>(tab));
+			}
+
+			return tab;
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	/*
+	 * Unmodifiable, shared list of the non-hidden share accounts with
+	 * a balance > 0 as of the given date (inclusive)
+	 */
+	synchronized List<GnuCashAccount> getActiveShareAccts(LocalDate date) {
+		if ( date == null ) {
+			throw new IllegalArgumentException("argument <date> is null");
+		}
+
+		long day = date.toEpochDay();
+		boolean changed = refresh();
+		if ( ! changed &&
+			 cachedActive != null &&
+			 cachedDay == day )
+			return cachedActive;
+
+		ArrayList<GnuCashAccount> result = new ArrayList<GnuCashAccount>();
+		for ( Position pos : positions ) {
+			if ( ! pos.hidden &&
+				 pos.isActive(day) ) {
+				result.add(pos.acct);
+			}
+		}
+
+		cachedDay    = day;
+		cachedActive = Collections.unmodifiableList(result);
+		return cachedActive;
+	}
+
+	synchronized int getNofRowBuilds() {
+		return nofRowBuilds;
+	}
+
+    // ---------------------------------------------------------------
+
+	/*
+	 * Brings the rows up to date.
+	 * Returns true if anything has changed.
+	 */
+	private boolean refresh() {
+		boolean changed = false;
+
+		// Share accounts added or removed otherwise
+		List<GnuCashAccount> children = depotAcct.getChildren();
+		if ( ! sameAccounts(children) ) {
+			LOGGER.debug("refresh: Children of depot {} have changed", depotAcct.getID());
+			positions.clear();
+			HashMap<GCshAcctID, Position> oldPosByID = new HashMap<GCshAcctID, Position>(posByID);
+			posByID.clear();
+			for ( GnuCashAccount acct : children ) {
+				Position pos = oldPosByID.get(acct.getID());
+				if ( pos == null )
+					pos = new Position(acct);
+				positions.add(pos);
+				// Account's ID object is mutable
+				GCshAcctID key = new GCshAcctID();
+				key.set(acct.getID());
+				posByID.put(key, pos);
+			}
+			changed = true;
+		}
+
+		for ( Position pos : positions ) {
+			long stamp = balTL.getStamp(pos.acct);
+			if ( stamp != pos.stamp ) {
+				pos.signChanges = balTL.getSignChanges(pos.acct);
+				pos.stamp       = stamp;
+				nofRowBuilds++;
+				changed = true;
+			}
+
+			if ( pos.acct.isHidden() != pos.hidden ) {
+				pos.hidden = ! pos.hidden;
+				changed = true;
+			}
+		}
+
+		return changed;
+	}
+
+	// Same accounts in the same order as the rows
+	private boolean sameAccounts(List<GnuCashAccount> children) {
+		if ( children.size() != positions.size() )
+			return false;
+
+		for ( int i = 0; i < children.size(); i++ ) {
+			if ( ! children.get(i).getID().equals(positions.get(i).acct.getID()) )
+				return false;
+		}
+
+		return true;
+	}
+
+}
@@ -0,0 +1,379 @@
+package org.gnucash.apiext.secacct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.api.read.aux.GCshAcctLot;
+import org.gnucash.api.write.GnuCashWritableTransactionSplit;
+import org.gnucash.base.basetypes.simple.GCshIDNotSetException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/**
+ * Incremental variant of {@link SecuritiesAccountLotManager#areLotsOK(GnuCashAccount)}
+ * for repeated checks of the same file.
+ * <br>
+ * The checker caches the split sum of each lot, together with the lot's
+ * no. of splits. On the next check, a lot is only re-evaluated
+ * <ul>
+ *   <li>if one of its (writable) splits has fired a property change
+ *       (e.g. a changed value or quantity) -- the checker listens to the
+ *       splits of each lot it has evaluated --, or</li>
+ *   <li>if its no. of splits has changed.</li>
+ * </ul>
+ * Thus, a check does not touch the splits of unchanged lots.
+ * <br>
+ * Caution: Splits that are not writable objects do not fire property
+ * changes, and a removal followed by an addition of a split does not
+ * change the lot's no. of splits. In these cases, call
+ * {@link #invalidate(GCshAcctLot)} or {@link #invalidate(GnuCashAccount)}
+ * afterwards.
+ * <br>
+ * The checker is thread-safe, but the GnuCash file must not be modified
+ * while a check is running.
+ */
+public class SecuritiesAccountLotChecker {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(SecuritiesAccountLotChecker.class);
+
+    // ---------------------------------------------------------------
+
+    private static final class LotState {
+    	final int nofSplits;
+    	final FixedPointNumber spltSum;
+    	final boolean ok;
+
+    	LotState(int nofSplits, FixedPointNumber spltSum, boolean ok) {
+    		this.nofSplits = nofSplits;
+    		this.spltSum = spltSum;
+    		this.ok = ok;
+    	}
+    }
+
+    /**
+     * A lot that is not OK.
+     */
+    public static class LotIssue {
+    	private final GnuCashAccount acct;
+    	private final GCshAcctLot lot;
+    	private final FixedPointNumber spltSum;
+
+    	LotIssue(GnuCashAccount acct, GCshAcctLot lot, FixedPointNumber spltSum) {
+    		this.acct = acct;
+    		this.lot = lot;
+    		this.spltSum = spltSum;
+    	}
+
+    	public GnuCashAccount getAccount() {
+    		return acct;
+    	}
+
+    	public GCshAcctLot getLot() {
+    		return lot;
+    	}
+
+    	/**
+    	 * @return the sum of the split values (a copy),
+    	 * zero if the lot does not contain any splits
+    	 */
+    	public FixedPointNumber getSplitSum() {
+    		return spltSum.copy();
+    	}
+
+    	@Override
+    	public String toString() {
+    		return "LotIssue [acct=" + acct.getID() + ", lot-title='" + lot.getTitle() + "', splt-sum=" + spltSum + "]";
+    	}
+    }
+
+    /**
+     * Result of a check of several accounts.
+     */
+    public static class Report {
+    	private final List<LotIssue> issues;
+    	private final List<GnuCashAccount> failedAccts;
+    	private final int nofAccts;
+    	private final int nofLots;
+    	private final int nofLotsEvaluated;
+
+    	Report(List<LotIssue> issues, List<GnuCashAccount> failedAccts,
+    		   int nofAccts, int nofLots, int nofLotsEvaluated) {
+    		this.issues = Collections.unmodifiableList(issues);
+    		this.failedAccts = Collections.unmodifiableList(failedAccts);
+    		this.nofAccts = nofAccts;
+    		this.nofLots = nofLots;
+    		this.nofLotsEvaluated = nofLotsEvaluated;
+    	}
+
+    	public boolean isOK() {
+    		return issues.isEmpty() && failedAccts.isEmpty();
+    	}
+
+    	/**
+    	 * @return the lots that are not OK, grouped by account
+    	 */
+    	public List<LotIssue> getIssues() {
+    		return issues;
+    	}
+
+    	/**
+    	 * @return the accounts that could not be checked at all
+    	 * (see log for details)
+    	 */
+    	public List<GnuCashAccount> getFailedAccounts() {
+    		return failedAccts;
+    	}
+
+    	public int getNofAccounts() {
+    		return nofAccts;
+    	}
+
+    	public int getNofLots() {
+    		return nofLots;
+    	}
+
+    	/**
+    	 * @return the no. of lots whose split sum actually had to be
+    	 * computed, as opposed to being taken from the cache
+    	 */
+    	public int getNofLotsEvaluated() {
+    		return nofLotsEvaluated;
+    	}
+
+    	@Override
+    	public String toString() {
+    		return "Report [nof-accts=" + nofAccts + ", nof-lots=" + nofLots +
+    				", nof-lots-evaluated=" + nofLotsEvaluated +
+    				", nof-issues=" + issues.size() + ", nof-failed-accts=" + failedAccts.size() + "]";
+    	}
+    }
+
+    // ---------------------------------------------------------------
+
+    private final ConcurrentHashMap<GCshAcctLot, LotState> cache;
+    private final AtomicInteger nofEvaluated;
+
+    // Writable splits that we already listen to
+    // (weak, so that removed objects can be collected)
+    private final Set<Object> listenedTo;
+
+    // ---------------------------------------------------------------
+
+    public SecuritiesAccountLotChecker() {
+    	this.cache = new ConcurrentHashMap<GCshAcctLot, LotState>();
+    	this.nofEvaluated = new AtomicInteger(0);
+    	this.listenedTo = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Object, Boolean>()));
+    }
+
+    // ---------------------------------------------------------------
+
+    /**
+     * @param acct stock account
+     * @return true if all lots of the account are OK
+     * @throws GCshIDNotSetException
+     *
+     * @see SecuritiesAccountLotManager#areLotsOK(GnuCashAccount)
+     */
+    public boolean areLotsOK(final GnuCashAccount acct) throws GCshIDNotSetException {
+    	checkStockAcct(acct);
+
+    	boolean result = true;
+    	for ( GCshAcctLot lot : acct.getLots() ) {
+    		if ( ! getState(lot).ok ) {
+    			result = false;
+    		}
+    	}
+
+    	if ( ! result ) {
+    		LOGGER.warn("areLotsOK: One or more lots of account {} are not OK", acct.getID());
+    	}
+    	return result;
+    }
+
+    /**
+     * @param lot lot
+     * @return true if the lot is OK
+     * @throws GCshIDNotSetException
+     *
+     * @see SecuritiesAccountLotManager#isLotOK(GCshAcctLot)
+     */
+    public boolean isLotOK(final GCshAcctLot lot) throws GCshIDNotSetException {
+    	if ( lot == null ) {
+    		throw new IllegalArgumentException("argument <lot> is null");
+    	}
+
+    	return getState(lot).ok;
+    }
+
+    /**
+     * Checks all stock accounts of the given file, using the common
+     * fork/join pool.
+     *
+     * @param gcshFile GnuCash file
+     * @return report on all stock accounts
+     *
+     * @see #checkAllStockAccts(GnuCashFile, ForkJoinPool)
+     */
+    public Report checkAllStockAccts(final GnuCashFile gcshFile) {
+    	return checkAllStockAccts(gcshFile, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Checks all stock accounts of the given file, one task per account.
+     * <br>
+     * An account that cannot be checked (e.g., because of a
+     * corrupt lot) does not stop the others; it is reported in
+     * {@link Report#getFailedAccounts()}.
+     *
+     * @param gcshFile GnuCash file
+     * @param pool pool to run the account checks in
+     * @return report on all stock accounts, in the order of
+     * {@link GnuCashFile#getAccounts()}
+     */
+    public Report checkAllStockAccts(final GnuCashFile gcshFile, final ForkJoinPool pool) {
+    	if ( gcshFile == null ) {
+    		throw new IllegalArgumentException("argument <gcshFile> is null");
+    	}
+
+    	if ( pool == null ) {
+    		throw new IllegalArgumentException("argument <pool> is null");
+    	}
+
+    	ArrayList<GnuCashAccount> acctList = new ArrayList<GnuCashAccount>();
+    	for ( GnuCashAccount acct : gcshFile.getAccounts() ) {
+    		if ( acct.getType() == GnuCashAccount.Type.STOCK ) {
+    			acctList.add(acct);
+    		}
+    	}
+
+    	int nofEvaluatedBefore = nofEvaluated.get();
+
+    	ArrayList<Callable<List<LotIssue>>> taskList = new ArrayList<Callable<List<LotIssue>>>(acctList.size());
+    	for ( GnuCashAccount acct : acctList ) {
+    		taskList.add(() -> getIssues(acct));
+    	}
+
+    	ArrayList<LotIssue> issues = new ArrayList<LotIssue>();
+    	ArrayList<GnuCashAccount> failedAccts = new ArrayList<GnuCashAccount>();
+    	int nofLots = 0;
+    	List<Future<List<LotIssue>>> futList = pool.invokeAll(taskList);
+    	for ( int i = 0; i < acctList.size(); i++ ) {
+    		GnuCashAccount acct = acctList.get(i);
+    		try {
+    			issues.addAll(futList.get(i).get());
+    			nofLots += acct.getLots().size();
+    		} catch ( Exception exc ) {
+    			LOGGER.error("checkAllStockAccts: Could not check lots of account {}: {}", acct.getID(), exc.getMessage());
+    			failedAccts.add(acct);
+    		}
+    	}
+
+    	// Not exact if other checks run concurrently on the same checker
+    	int nofLotsEvaluated = nofEvaluated.get() - nofEvaluatedBefore;
+
+    	Report result = new Report(issues, failedAccts, acctList.size(), nofLots, nofLotsEvaluated);
+    	LOGGER.info("checkAllStockAccts: {}", result);
+    	return result;
+    }
+
+    // ---------------------------------------------------------------
+
+    /**
+     * Forces re-evaluation of the given lot on the next check.
+     */
+    public void invalidate(final GCshAcctLot lot) {
+    	cache.remove(lot);
+    }
+
+    /**
+     * Forces re-evaluation of all lots of the given account on the next check.
+     */
+    public void invalidate(final GnuCashAccount acct) {
+    	for ( GCshAcctLot lot : acct.getLots() ) {
+    		cache.remove(lot);
+    	}
+    }
+
+    public void clear() {
+    	cache.clear();
+    }
+
+    public int getNofCachedLots() {
+    	return cache.size();
+    }
+
+    // ---------------------------------------------------------------
+
+    private List<LotIssue> getIssues(final GnuCashAccount acct) throws GCshIDNotSetException {
+    	ArrayList<LotIssue> result = new ArrayList<LotIssue>();
+    	for ( GCshAcctLot lot : acct.getLots() ) {
+    		LotState state = getState(lot);
+    		if ( ! state.ok ) {
+    			result.add(new LotIssue(acct, lot, state.spltSum));
+    		}
+    	}
+
+    	return result;
+    }
+
+    private LotState getState(final GCshAcctLot lot) throws GCshIDNotSetException {
+    	List<? extends GnuCashTransactionSplit> spltList = lot.getTransactionSplits();
+
+    	// Changed splits have removed the entry already
+    	LotState state = cache.get(lot);
+    	if ( state != null &&
+    		 state.nofSplits == spltList.size() ) {
+    		return state;
+    	}
+
+    	for ( GnuCashTransactionSplit splt : spltList ) {
+    		listenTo(splt, lot);
+    	}
+
+    	FixedPointNumber spltSum = SecuritiesAccountLotManager.getSplitSum(lot);
+    	boolean ok = ( spltList.size() > 0 ) &&
+    				 SecuritiesAccountLotManager.isSplitSumOK(spltSum);
+    	if ( ! ok ) {
+    		LOGGER.warn("getState: Lot ID {}, title: '{}' is not OK (split sum: {})", lot.getID(), lot.getTitle(), spltSum);
+    	}
+
+    	state = new LotState(spltList.size(), spltSum, ok);
+    	cache.put(lot, state);
+    	nofEvaluated.incrementAndGet();
+
+    	return state;
+    }
+
+    // Only writable objects fire property changes
+    private void listenTo(final GnuCashTransactionSplit splt, final GCshAcctLot lot) {
+    	if ( splt instanceof GnuCashWritableTransactionSplit wrtblSplt &&
+    		 listenedTo.add(splt) ) {
+    		wrtblSplt.addPropertyChangeListener(evt -> invalidate(lot));
+    	}
+    }
+
+    private static void checkStockAcct(final GnuCashAccount acct) {
+    	if ( acct == null ) {
+    		throw new IllegalArgumentException("argument <acct> is null");
+    	}
+
+    	if ( acct.getType() != GnuCashAccount.Type.STOCK ) {
+    		throw new IllegalArgumentException("given account is not of type '" + GnuCashAccount.Type.STOCK + "'");
+    	}
+    }
+
+}
@@ -16,20 +16,33 @@ import xyz.schnorxoborx.base.numbers.FixedPointNumber;
  * <br>
  * These methods are sort of "macros" for the low-level access functions
  * in the "API" module.
+ *
+ * @see SecuritiesAccountLotChecker
  */
 public class SecuritiesAccountLotManager {
-    
+
     // ---------------------------------------------------------------
-    
+
     // Logger
     private static final Logger LOGGER = LoggerFactory.getLogger(SecuritiesAccountLotManager.class);
-    
+
     // ----------------------------
-    
+
     // ::EMPTY
 
     // ---------------------------------------------------------------
 
+    /**
+     * Checks all lots of the given stock account from scratch.
+     * If you check the same accounts repeatedly, use a
+     * {@link SecuritiesAccountLotChecker} instead.
+     *
+     * @param acct stock account
+     * @return true if all lots of the account are OK
+     * @throws GCshIDNotSetException
+     *
+     * @see #isLotOK(GCshAcctLot)
+     */
     public static boolean areLotsOK(final GnuCashAccount acct) throws GCshIDNotSetException {
     	if ( acct == null ) {
     		throw new IllegalArgumentException("argument <acct> is null");
@@ -38,43 +51,66 @@ public class SecuritiesAccountLotManager {
     	if ( acct.getType() != GnuCashAccount.Type.STOCK ) {
     		throw new IllegalArgumentException("given account is not of type '" + GnuCashAccount.Type.STOCK + "'");
     	}
-    	
+
     	boolean result = true;
-    	LOGGER.debug("No. of lots to check for account " + acct.getID() + ": " + acct.getLots().size()); 
+    	LOGGER.debug("No. of lots to check for account {}: {}", acct.getID(), acct.getLots().size());
     	for ( GCshAcctLot lot : acct.getLots() ) {
-    		LOGGER.debug("Lot: ID " + lot.getID() + ", title: '" + lot.getTitle() + "'");
-    		if ( isLotOK(lot) ) {
+    		LOGGER.debug("Lot: ID {}, title: '{}'", lot.getID(), lot.getTitle());
+    		if ( ! isLotOK(lot) ) {
     			result = false;
     		}
     	}
-    	
-		LOGGER.warn("One or more lots of account " + acct.getID() + " are not OK");
+
+    	if ( ! result ) {
+    		LOGGER.warn("One or more lots of account {} are not OK", acct.getID());
+    	}
     	return result;
     }
 
+    /**
+     * A lot is OK if it contains at least one split and the values
+     * of its splits add up to zero (within tolerance).
+     *
+     * @param lot lot
+     * @return true if the lot is OK
+     * @throws GCshIDNotSetException
+     */
 	public static boolean isLotOK(final GCshAcctLot lot) throws GCshIDNotSetException {
     	if ( lot == null ) {
     		throw new IllegalArgumentException("argument <lot> is null");
     	}
 
     	if ( lot.getTransactionSplits().size() == 0 ) {
-			LOGGER.warn("Lot ID " + lot.getID() + ", title: '" + lot.getTitle() + "' does not contain transaction splits");
+			LOGGER.warn("Lot ID {}, title: '{}' does not contain transaction splits", lot.getID(), lot.getTitle());
 			return false;
     	}
-    	
-		FixedPointNumber spltSum = FixedPointNumber.ZERO.copy();
-		for ( GnuCashTransactionSplit splt : lot.getTransactionSplits() ) {
-			LOGGER.debug("Split: ID " + splt.getID() + ", value: '" + splt.getValueFormatted() + "'");
-			spltSum = splt.getValue();
-		}
-		
-		if ( Math.abs( spltSum.getBigDecimal().doubleValue() ) <= Const.DIFF_TOLERANCE_VALUE ) {
-			LOGGER.debug("Lot ID " + lot.getID() + ", title: '" + lot.getTitle() + "' is OK");
+
+		FixedPointNumber spltSum = getSplitSum(lot);
+		if ( isSplitSumOK(spltSum) ) {
+			LOGGER.debug("Lot ID {}, title: '{}' is OK", lot.getID(), lot.getTitle());
 			return true;
 		} else {
-			LOGGER.warn("Lot ID " + lot.getID() + ", title: '" + lot.getTitle() + "' is not OK");
+			LOGGER.warn("Lot ID {}, title: '{}' is not OK", lot.getID(), lot.getTitle());
 			return false;
 		}
 	}
-        
+
+    // ---------------------------------------------------------------
+
+	static FixedPointNumber getSplitSum(final GCshAcctLot lot) {
+		FixedPointNumber spltSum = FixedPointNumber.ZERO.copy();
+		for ( GnuCashTransactionSplit splt : lot.getTransactionSplits() ) {
+			if ( LOGGER.isDebugEnabled() ) {
+				LOGGER.debug("Split: ID {}, value: '{}'", splt.getID(), splt.getValueFormatted());
+			}
+			spltSum.add(splt.getValue()); // mutable
+		}
+
+		return spltSum;
+	}
+
+	static boolean isSplitSumOK(final FixedPointNumber spltSum) {
+		return Math.abs( spltSum.doubleValue() ) <= Const.DIFF_TOLERANCE_VALUE;
+	}
+
 }
@@ -1,5 +1,6 @@
 package org.gnucash.apiext.secacct;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -9,8 +10,6 @@ import org.gnucash.base.basetypes.simple.GCshAcctID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import xyz.schnorxoborx.base.numbers.FixedPointNumber;
-
 public class SecuritiesAccountManager {
 
     // Logger
@@ -19,6 +18,9 @@ public class SecuritiesAccountManager {
     // ---------------------------------------------------------------
     
     private GnuCashAccount invstAcct = null;
+
+    // Kept, as the table is registered only weakly
+    private DepotPositionTable posTab = null;
     
     // ---------------------------------------------------------------
     
@@ -61,6 +63,7 @@ public class SecuritiesAccountManager {
     	}
 
 		this.invstAcct = acct;
+		this.posTab    = null;
 	}
 
     // ---------------------------------------------------------------
@@ -80,17 +83,46 @@ public class SecuritiesAccountManager {
     	return invstAcct.getChildren();
     }
     
+	/**
+	 * @return the non-hidden share accounts with a balance &gt; 0 as of today
+	 *
+	 * @see #getActiveShareAccts(LocalDate)
+	 */
 	public ArrayList<GnuCashAccount> getActiveShareAccts() {
-    	ArrayList<GnuCashAccount> result = new ArrayList<GnuCashAccount>();
-    	
-    	for ( GnuCashAccount acct : getAllShareAccts() ) {
-    		if ( ! acct.isHidden() &&
-    			 acct.getBalance().isGreaterThan(FixedPointNumber.ZERO) ) {
-    			result.add(acct);
-    		}
-    	}
-    	
-    	return result;
-    }
+		return getActiveShareAccts(LocalDate.now());
+	}
+
+	/**
+	 * @param date date (inclusive)
+	 * @return the non-hidden share accounts with a balance &gt; 0 as of
+	 * the given date (a fresh list)
+	 *
+	 * @see #getActiveShareAcctsView(LocalDate)
+	 */
+	public ArrayList<GnuCashAccount> getActiveShareAccts(LocalDate date) {
+		return new ArrayList<GnuCashAccount>(getActiveShareAcctsView(date));
+	}
+
+	/**
+	 * Same as {@link #getActiveShareAccts(LocalDate)}, but without copying:
+	 * Backed by a per-depot position table that is updated incrementally
+	 * when share accounts are generated or transactions are generated
+	 * for them, so that repeated calls are cheap.
+	 *
+	 * @param date date (inclusive)
+	 * @return the non-hidden share accounts with a balance &gt; 0 as of
+	 * the given date (unmodifiable; cached, shared between calls as
+	 * long as nothing has changed)
+	 */
+	public List<GnuCashAccount> getActiveShareAcctsView(LocalDate date) {
+		if ( date == null ) {
+			throw new IllegalArgumentException("argument <date> is null");
+		}
+
+		if ( posTab == null )
+			posTab = DepotPositionTable.of(invstAcct);
+
+		return posTab.getActiveShareAccts(date);
+	}
 
 }
@@ -5,6 +5,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.commons.numbers.fraction.BigFraction;
 import org.gnucash.api.read.GnuCashAccount;
@@ -181,6 +182,21 @@ public class SecuritiesAccountTransactionManager_BF {
     		throw new IllegalArgumentException("argument <gcshFile> is null");
     	}
 		
+    	checkBuyStockTrxArgs(stockAcctID, expensesAcctAmtList, offsetAcctID,
+    							 nofStocks, stockPrc);
+
+    	return genBuyStockTrxCore(gcshFile, new AccountCache(gcshFile),
+    								  stockAcctID, expensesAcctAmtList, offsetAcctID,
+    								  nofStocks, stockPrc,
+    								  postDate, descr);
+    }
+
+    private static void checkBuyStockTrxArgs(
+    		final GCshAcctID stockAcctID,
+    		final Collection<AcctIDAmountBFPair> expensesAcctAmtList,
+    		final GCshAcctID offsetAcctID,
+    		final BigFraction nofStocks,
+    		final BigFraction stockPrc) {
     	if ( stockAcctID == null ||
     		 offsetAcctID == null ) {
     		throw new IllegalArgumentException("argument <stockAcctID> or <offsetAcctID> is null");
@@ -226,45 +242,47 @@ public class SecuritiesAccountTransactionManager_BF {
     			throw new IllegalArgumentException("element of argument <expensesAcctAmtList> is <= 0.0");
     		}
     	}
+    }
 
-    	LOGGER.debug("genBuyStockTrx: Account 1 name (stock):      '" + gcshFile.getAccountByID(stockAcctID).getQualifiedName() + "'");
-    	int counter = 1;
-    	for ( AcctIDAmountBFPair elt : expensesAcctAmtList ) {
-    		LOGGER.debug("genBuyStockTrx: Account 2." + counter + " name (expenses): '" + gcshFile.getAccountByID(elt.accountID()).getQualifiedName() + "'");
-    		counter++;
-    	}
-    	LOGGER.debug("genBuyStockTrx: Account 3 name (offsetting): '" + gcshFile.getAccountByID(offsetAcctID).getQualifiedName() + "'");
-
+    private static GnuCashWritableStockBuyTransaction genBuyStockTrxCore(
+    		final GnuCashWritableFileImpl gcshFile,
+    		final AccountCache acctCache,
+    		final GCshAcctID stockAcctID,
+    		final Collection<AcctIDAmountBFPair> expensesAcctAmtList,
+    		final GCshAcctID offsetAcctID,
+    		final BigFraction nofStocks,
+    		final BigFraction stockPrc,
+    		final LocalDate postDate,
+    		final String descr) {
     	// ---
     	// Check account types
 
-    	GnuCashAccount stockAcct  = gcshFile.getAccountByID(stockAcctID);
-    	if ( stockAcct.getType() != GnuCashAccount.Type.STOCK ) {
-    		throw new IllegalArgumentException("Account with ID " + stockAcctID + " is not of type " + GnuCashAccount.Type.STOCK);
-    	}
+    	GnuCashAccount stockAcct = acctCache.getAccount(stockAcctID, GnuCashAccount.Type.STOCK);
 
+    	ArrayList<GnuCashAccount> expensesAcctList = new ArrayList<GnuCashAccount>();
     	for ( AcctIDAmountBFPair elt : expensesAcctAmtList ) {
-    		GnuCashAccount expensesAcct = gcshFile.getAccountByID(elt.accountID());
-    		if ( expensesAcct.getType() != GnuCashAccount.Type.EXPENSE ) {
-    			throw new IllegalArgumentException("Account with ID " + elt.accountID() + " is not of type " + GnuCashAccount.Type.EXPENSE);
-    		}
+    		expensesAcctList.add(acctCache.getAccount(elt.accountID(), GnuCashAccount.Type.EXPENSE));
     	}
 
-    	GnuCashAccount offsetAcct = gcshFile.getAccountByID(offsetAcctID);
-    	if ( offsetAcct.getType() != GnuCashAccount.Type.BANK ) {
-    		throw new IllegalArgumentException("Account with ID " + offsetAcctID + " is not of type " + GnuCashAccount.Type.BANK);
+    	GnuCashAccount offsetAcct = acctCache.getAccount(offsetAcctID, GnuCashAccount.Type.BANK);
+
+    	TrxGenTrace trace = TrxGenTrace.start(LOGGER, "genBuyStockTrx");
+    	trace.account("stock", stockAcct);
+    	for ( GnuCashAccount expensesAcct : expensesAcctList ) {
+    		trace.account("expenses", expensesAcct);
     	}
+    	trace.account("offsetting", offsetAcct);
 
     	// ---
 
     	BigFraction amtNet = nofStocks.multiply(stockPrc); // immutable
-    	LOGGER.debug("genBuyStockTrx: Net amount: " + amtNet);
+    	trace.amount("Net amount", amtNet);
 
     	BigFraction amtGross = amtNet;
     	for ( AcctIDAmountBFPair elt : expensesAcctAmtList ) {
     		amtGross = amtGross.add(elt.amount()); // immutable
     	}
-    	LOGGER.debug("genBuyStockTrx: Gross amount: " + amtGross);
+    	trace.amount("Gross amount", amtGross);
 
     	// ---
 
@@ -276,7 +294,7 @@ public class SecuritiesAccountTransactionManager_BF {
     	GnuCashWritableTransactionSplit splt1 = genTrx.createWritableSplit(offsetAcct);
     	splt1.setValue(amtGross.negate());
     	splt1.setQuantity(amtGross.negate());
-    	LOGGER.debug("genBuyStockTrx: Split 1 to write: " + splt1.toString());
+    	trace.split("offsetting", splt1);
 
     	// ---
 	
@@ -284,17 +302,17 @@ public class SecuritiesAccountTransactionManager_BF {
     	splt2.setValue(amtNet);
     	splt2.setQuantity(nofStocks);
     	splt2.setAction(GnuCashTransactionSplit.Action.BUY);
-    	LOGGER.debug("genBuyStockTrx: Split 2 to write: " + splt2.toString());
+    	trace.split("stock", splt2);
 
     	// ---
 
-    	counter = 1;
+    	int counter = 1;
     	for ( AcctIDAmountBFPair elt : expensesAcctAmtList ) {
-    		GnuCashAccount expensesAcct = gcshFile.getAccountByID(elt.accountID());
+    		GnuCashAccount expensesAcct = expensesAcctList.get(counter - 1);
     		GnuCashWritableTransactionSplit splt3 = genTrx.createWritableSplit(expensesAcct);
     		splt3.setValue(elt.amount());
     		splt3.setQuantity(elt.amount());
-    		LOGGER.debug("genBuyStockTrx: Split 3." + counter + " to write: " + splt3.toString());
+    		trace.split("expenses", splt3);
     		counter++;
     	}
 
@@ -302,8 +320,10 @@ public class SecuritiesAccountTransactionManager_BF {
 
     	genTrx.setDatePosted(postDate);
     	genTrx.setDateEntered(LocalDateTime.now());
+    	AccountBalanceTimeline.of(gcshFile).transactionAdded(genTrx);
 
-    	LOGGER.info("genBuyStockTrx: Generated new (generic) Transaction: " + genTrx.getID());
+    	trace.log(LOGGER);
+    	LOGGER.info("genBuyStockTrx: Generated new (generic) Transaction: {}", genTrx.getID());
 
     	// ---
 
@@ -311,16 +331,16 @@ public class SecuritiesAccountTransactionManager_BF {
     	try {
     		specTrxRO = new GnuCashStockBuyTransactionImpl((GnuCashWritableTransactionImpl) genTrx);
     	} catch ( Exception exc ) {
-        	LOGGER.error("genBuyStockTrx: Could not convert generic transaction to specialized one (1): " + genTrx.getID());
+        	LOGGER.error("genBuyStockTrx: Could not convert generic transaction to specialized one (1): {}", genTrx.getID());
         	throw exc;
     	}
     	
     	GnuCashWritableStockBuyTransaction specTrxRW = null;
     	try {
         	specTrxRW = new GnuCashWritableStockBuyTransactionImpl(specTrxRO);
-        	LOGGER.info("genBuyStockTrx: Generated new (specialized) Transaction: " + specTrxRW.getID());
+        	LOGGER.info("genBuyStockTrx: Generated new (specialized) Transaction: {}", specTrxRW.getID());
     	} catch ( Exception exc ) {
-        	LOGGER.error("genBuyStockTrx: Could not convert generic transaction to specialized one (2): " + genTrx.getID());
+        	LOGGER.error("genBuyStockTrx: Could not convert generic transaction to specialized one (2): {}", genTrx.getID());
         	throw exc;
     	}
     	
@@ -417,6 +437,21 @@ public class SecuritiesAccountTransactionManager_BF {
     		throw new IllegalArgumentException("argument <gcshFile> is null");
     	}
 
+    	checkDividDistribTrxArgs(stockAcctID, incomeAcctID, expensesAcctAmtList, offsetAcctID,
+    								 divDistrGross);
+
+    	return genDividDistribTrxCore(gcshFile, new AccountCache(gcshFile),
+    									  stockAcctID, incomeAcctID, expensesAcctAmtList, offsetAcctID,
+    									  spltAct, divDistrGross,
+    									  postDate, descr);
+    }
+
+    private static void checkDividDistribTrxArgs(
+    	    final GCshAcctID stockAcctID,
+    	    final GCshAcctID incomeAcctID,
+    	    final Collection<AcctIDAmountBFPair> expensesAcctAmtList,
+    	    final GCshAcctID offsetAcctID,
+    	    final BigFraction divDistrGross) {
     	if ( stockAcctID == null ||
     	     incomeAcctID == null ||
     	     offsetAcctID == null ) {
@@ -468,40 +503,39 @@ public class SecuritiesAccountTransactionManager_BF {
     	//		throw new IllegalArgumentException("expense <= 0.0 given");
     	//	    }
     	//	}
+    }
 
-    	LOGGER.debug("genDividDistribTrx: Account 1 name (stock):      '" + gcshFile.getAccountByID(stockAcctID).getQualifiedName() + "'");
-    	LOGGER.debug("genDividDistribTrx: Account 2 name (income):     '" + gcshFile.getAccountByID(incomeAcctID).getQualifiedName() + "'");
-    	int counter = 1;
-    	for ( AcctIDAmountBFPair elt : expensesAcctAmtList ) {
-    		LOGGER.debug("genDividDistribTrx: Account 3." + counter + " name (expenses): '" + gcshFile.getAccountByID(elt.accountID()).getQualifiedName() + "'");
-    		counter++;
-    	}
-    	LOGGER.debug("genDividDistribTrx: Account 4 name (offsetting): '" + gcshFile.getAccountByID(offsetAcctID).getQualifiedName() + "'");
-
+    private static GnuCashWritableStockDividendTransaction genDividDistribTrxCore(
+    	    final GnuCashWritableFileImpl gcshFile,
+    	    final AccountCache acctCache,
+    	    final GCshAcctID stockAcctID,
+    	    final GCshAcctID incomeAcctID,
+    	    final Collection<AcctIDAmountBFPair> expensesAcctAmtList,
+    	    final GCshAcctID offsetAcctID,
+    	    final GnuCashTransactionSplit.Action spltAct,
+    	    final BigFraction divDistrGross,
+    	    final LocalDate postDate,
+    	    final String descr) {
     	// ---
     	// Check account types
 
-    	GnuCashAccount stockAcct  = gcshFile.getAccountByID(stockAcctID);
-    	if ( stockAcct.getType() != GnuCashAccount.Type.STOCK ) {
-    		throw new IllegalArgumentException("Account with ID " + stockAcctID + " is not of type " + GnuCashAccount.Type.STOCK);
-    	}
-
-    	GnuCashAccount incomeAcct = gcshFile.getAccountByID(incomeAcctID);
-    	if ( incomeAcct.getType() != GnuCashAccount.Type.INCOME ) {
-    		throw new IllegalArgumentException("Account with ID " + incomeAcct + " is not of type " + GnuCashAccount.Type.INCOME);
-    	}
+    	GnuCashAccount stockAcct  = acctCache.getAccount(stockAcctID, GnuCashAccount.Type.STOCK);
+    	GnuCashAccount incomeAcct = acctCache.getAccount(incomeAcctID, GnuCashAccount.Type.INCOME);
 
+    	ArrayList<GnuCashAccount> expensesAcctList = new ArrayList<GnuCashAccount>();
     	for ( AcctIDAmountBFPair elt : expensesAcctAmtList ) {
-    		GnuCashAccount expensesAcct = gcshFile.getAccountByID(elt.accountID());
-    		if ( expensesAcct.getType() != GnuCashAccount.Type.EXPENSE ) {
-    			throw new IllegalArgumentException("Account with ID " + elt.accountID() + " is not of type " + GnuCashAccount.Type.EXPENSE);
-    		}
+    		expensesAcctList.add(acctCache.getAccount(elt.accountID(), GnuCashAccount.Type.EXPENSE));
     	}
-	
-    	GnuCashAccount offsetAcct = gcshFile.getAccountByID(offsetAcctID);
-    	if ( offsetAcct.getType() != GnuCashAccount.Type.BANK ) {
-    		throw new IllegalArgumentException("Account with ID " + offsetAcctID + " is not of type " + GnuCashAccount.Type.BANK);
+
+    	GnuCashAccount offsetAcct = acctCache.getAccount(offsetAcctID, GnuCashAccount.Type.BANK);
+
+    	TrxGenTrace trace = TrxGenTrace.start(LOGGER, "genDividDistribTrx");
+    	trace.account("stock", stockAcct);
+    	trace.account("income", incomeAcct);
+    	for ( GnuCashAccount expensesAcct : expensesAcctList ) {
+    		trace.account("expenses", expensesAcct);
     	}
+    	trace.account("offsetting", offsetAcct);
 
     	// ---
 
@@ -509,10 +543,10 @@ public class SecuritiesAccountTransactionManager_BF {
     	for ( AcctIDAmountBFPair elt : expensesAcctAmtList ) {
     		expensesSum = expensesSum.add(elt.amount()); // immutable
     	}
-    	LOGGER.debug("genDividDistribTrx: Sum of all expenses: " + expensesSum);
+    	trace.amount("Sum of all expenses", expensesSum);
 
     	BigFraction divDistrNet = divDistrGross.subtract(expensesSum);
-    	LOGGER.debug("genDividDistribTrx: Net dividend: " + divDistrNet);
+    	trace.amount("Net dividend", divDistrNet);
 
     	// ---
 
@@ -525,31 +559,31 @@ public class SecuritiesAccountTransactionManager_BF {
     	splt1.setValue(BigFraction.ZERO);
     	splt1.setQuantity(BigFraction.ZERO);
     	splt1.setAction(spltAct);
-    	LOGGER.debug("genDividDistribTrx: Split 1 to write: " + splt1.toString());
+    	trace.split("stock", splt1);
 
     	// ---
 
     	GnuCashWritableTransactionSplit splt2 = genTrx.createWritableSplit(offsetAcct);
     	splt2.setValue(divDistrNet);
     	splt2.setQuantity(divDistrNet);
-    	LOGGER.debug("genDividDistribTrx: Split 2 to write: " + splt2.toString());
+    	trace.split("offsetting", splt2);
 
     	// ---
 
     	GnuCashWritableTransactionSplit splt3 = genTrx.createWritableSplit(incomeAcct);
     	splt3.setValue(divDistrGross.negate());
     	splt3.setQuantity(divDistrGross.negate());
-    	LOGGER.debug("genDividDistribTrx: Split 3 to write: " + splt3.toString());
+    	trace.split("income", splt3);
 
     	// ---
 
-    	counter = 1;
+    	int counter = 1;
     	for ( AcctIDAmountBFPair elt : expensesAcctAmtList ) {
-    		GnuCashAccount expensesAcct = gcshFile.getAccountByID(elt.accountID());
+    		GnuCashAccount expensesAcct = expensesAcctList.get(counter - 1);
     		GnuCashWritableTransactionSplit splt4 = genTrx.createWritableSplit(expensesAcct);
     		splt4.setValue(elt.amount());
     		splt4.setQuantity(elt.amount());
-    		LOGGER.debug("genDividDistribTrx: Split 4." + counter + " to write: " + splt4.toString());
+    		trace.split("expenses", splt4);
     		counter++;
     	}
 
@@ -557,8 +591,10 @@ public class SecuritiesAccountTransactionManager_BF {
 
     	genTrx.setDatePosted(postDate);
     	genTrx.setDateEntered(LocalDateTime.now());
+    	AccountBalanceTimeline.of(gcshFile).transactionAdded(genTrx);
 
-    	LOGGER.info("genDividDistribTrx: Generated new (generic) Transaction: " + genTrx.getID());
+    	trace.log(LOGGER);
+    	LOGGER.info("genDividDistribTrx: Generated new (generic) Transaction: {}", genTrx.getID());
 
     	// ---
 
@@ -566,16 +602,16 @@ public class SecuritiesAccountTransactionManager_BF {
     	try {
     		specTrxRO = new GnuCashStockDividendTransactionImpl((GnuCashWritableTransactionImpl) genTrx);
     	} catch ( Exception exc ) {
-        	LOGGER.error("genDividDistribTrx: Could not convert generic transaction to specialized one (1): " + genTrx.getID());
+        	LOGGER.error("genDividDistribTrx: Could not convert generic transaction to specialized one (1): {}", genTrx.getID());
         	throw exc;
     	}
     	
     	GnuCashWritableStockDividendTransaction specTrxRW = null;
     	try {
         	specTrxRW = new GnuCashWritableStockDividendTransactionImpl(specTrxRO);
-        	LOGGER.info("genDividDistribTrx: Generated new (specialized) Transaction: " + specTrxRW.getID());
+        	LOGGER.info("genDividDistribTrx: Generated new (specialized) Transaction: {}", specTrxRW.getID());
     	} catch ( Exception exc ) {
-        	LOGGER.error("genDividDistribTrx: Could not convert generic transaction to specialized one (2): " + genTrx.getID());
+        	LOGGER.error("genDividDistribTrx: Could not convert generic transaction to specialized one (2): {}", genTrx.getID());
         	throw exc;
     	}
     	
@@ -637,6 +673,16 @@ public class SecuritiesAccountTransactionManager_BF {
     		throw new IllegalArgumentException("argument <gcshFile> is null");
     	}
 		
+    	checkStockSplitTrxFactorArgs(stockAcctID, factor);
+
+    	return genStockSplitTrx_factorCore(gcshFile, new AccountCache(gcshFile),
+    										   stockAcctID, factor,
+    										   postDate, descr);
+    }
+
+    private static void checkStockSplitTrxFactorArgs(
+    		final GCshAcctID stockAcctID,
+    		final BigFraction factor) {
     	if ( stockAcctID == null  ) {
     		throw new IllegalArgumentException("argument <stockAcctID> is null");
     	}
@@ -665,37 +711,42 @@ public class SecuritiesAccountTransactionManager_BF {
     	if ( SPLIT_FACTOR_MAX.subtract(factor).compareTo(BigFraction.ZERO) < 0 ) {
     		throw new IllegalArgumentException("argument <factor> has unplausible value (greater than " + SPLIT_FACTOR_MAX + ")");
     	}
+    }
 
+    private static GnuCashWritableStockSplitTransaction genStockSplitTrx_factorCore(
+    		final GnuCashWritableFileImpl gcshFile,
+    		final AccountCache acctCache,
+    		final GCshAcctID stockAcctID,
+    		final BigFraction factor,
+    		final LocalDate postDate,
+    		final String descr) {
     	// ---
     	// Check account type
 
-    	GnuCashAccount stockAcct  = gcshFile.getAccountByID(stockAcctID);
-    	if ( stockAcct == null ) {
-    		throw new IllegalStateException("Could not find account with that ID");
-    	}
-
-    	LOGGER.debug("genStockSplitTrx_factor: Stock account name: '" + stockAcct.getQualifiedName() + "'");
-    	if ( stockAcct.getType() != GnuCashAccount.Type.STOCK ) {
-    		throw new IllegalArgumentException("Account with ID " + stockAcctID + " is not of type " + GnuCashAccount.Type.STOCK);
+    	GnuCashAccount stockAcct = acctCache.getAccount(stockAcctID, GnuCashAccount.Type.STOCK);
+    	if ( LOGGER.isDebugEnabled() ) {
+    		LOGGER.debug("genStockSplitTrx_factor: Stock account name: '{}'", stockAcct.getQualifiedName());
     	}
 
     	// ---
     	
-    	BigFraction nofSharesOld = stockAcct.getBalanceRat(postDate);
-    	LOGGER.debug("genStockSplitTrx_factor: Old no. of shares: " + nofSharesOld);
+    	BigFraction nofSharesOld = AccountBalanceTimeline.of(gcshFile).getBalanceRat(stockAcct, postDate);
+    	LOGGER.debug("genStockSplitTrx_factor: Old no. of shares: {}", nofSharesOld);
     	if ( nofSharesOld.equals(BigFraction.ZERO) ) {
     		throw new IllegalStateException("No. of old shares is zero. Cannot carry out a split.");
     	}
     	BigFraction nofSharesNew = nofSharesOld.multiply(factor);
-    	LOGGER.debug("genStockSplitTrx_factor: New no. of shares: " + nofSharesNew);
+    	LOGGER.debug("genStockSplitTrx_factor: New no. of shares: {}", nofSharesNew);
     	BigFraction nofAddShares = nofSharesNew.subtract(nofSharesOld);
-    	LOGGER.debug("genStockSplitTrx_factor: No. of add. shares: " + nofAddShares);
+    	LOGGER.debug("genStockSplitTrx_factor: No. of add. shares: {}", nofAddShares);
     	
     	// ---
 
-    	return genStockSplitTrx_nofShares(gcshFile,
-    									  stockAcctID, nofAddShares,
-    									  postDate, descr);
+    	checkStockSplitTrxNofSharesArgs(stockAcctID, nofAddShares);
+
+    	return genStockSplitTrx_nofSharesCore(gcshFile, acctCache,
+    											  stockAcctID, nofAddShares,
+    											  postDate, descr);
     }
     
     /**
@@ -728,6 +779,16 @@ public class SecuritiesAccountTransactionManager_BF {
     		throw new IllegalArgumentException("argument <gcshFile> is null");
     	}
 		
+    	checkStockSplitTrxNofSharesArgs(stockAcctID, nofAddShares);
+
+    	return genStockSplitTrx_nofSharesCore(gcshFile, new AccountCache(gcshFile),
+    											  stockAcctID, nofAddShares,
+    											  postDate, descr);
+    }
+
+    private static void checkStockSplitTrxNofSharesArgs(
+    	    final GCshAcctID stockAcctID,
+    	    final BigFraction nofAddShares) {
     	if ( stockAcctID == null  ) {
     		throw new IllegalArgumentException("argument <stockAcctID> is null");
     	}
@@ -772,30 +833,34 @@ public class SecuritiesAccountTransactionManager_BF {
 //    	if ( nofAddShares.stripTrailingZeros().scale() <= 0 ) {
 //    		throw new IllegalArgumentException("no. of add. shares given is not integer value");
 //    	}
+    }
 
+    private static GnuCashWritableStockSplitTransaction genStockSplitTrx_nofSharesCore(
+    	    final GnuCashWritableFileImpl gcshFile,
+    	    final AccountCache acctCache,
+    	    final GCshAcctID stockAcctID,
+    	    final BigFraction nofAddShares,
+    	    final LocalDate postDate,
+    	    final String descr) {
     	// ---
     	// Check account type
-    	GnuCashAccount stockAcct  = gcshFile.getAccountByID(stockAcctID);
-    	if ( stockAcct == null ) {
-    		throw new IllegalStateException("Could not find account with that ID");
-    	}
 
-    	LOGGER.debug("genStockSplitTrx_nofShares: Stock account name: '" + stockAcct.getQualifiedName() + "'");
-    	if ( stockAcct.getType() != GnuCashAccount.Type.STOCK ) {
-    		throw new IllegalArgumentException("Account with ID " + stockAcctID + " is not of type " + GnuCashAccount.Type.STOCK);
+    	GnuCashAccount stockAcct = acctCache.getAccount(stockAcctID, GnuCashAccount.Type.STOCK);
+    	if ( LOGGER.isDebugEnabled() ) {
+    		LOGGER.debug("genStockSplitTrx_nofShares: Stock account name: '{}'", stockAcct.getQualifiedName());
     	}
 
     	// ---
     	
-    	BigFraction nofSharesOld = stockAcct.getBalanceRat(postDate);
-    	LOGGER.debug("genStockSplitTrx_nofShares: Old no. of shares: " + nofSharesOld);
+    	BigFraction nofSharesOld = AccountBalanceTimeline.of(gcshFile).getBalanceRat(stockAcct, postDate);
+    	LOGGER.debug("genStockSplitTrx_nofShares: Old no. of shares: {}", nofSharesOld);
     	if ( nofSharesOld.equals(BigFraction.ZERO) ) {
     		throw new IllegalStateException("No. of old shares is zero. Cannot carry out a split.");
     	}
     	BigFraction nofSharesNew = nofSharesOld.add(nofAddShares);
-    	LOGGER.debug("genStockSplitTrx_nofShares: New no. of shares: " + nofSharesNew);
+    	LOGGER.debug("genStockSplitTrx_nofShares: New no. of shares: {}", nofSharesNew);
     	BigFraction factor = nofSharesNew.divide(nofSharesOld);
-    	LOGGER.debug("genStockSplitTrx_nofShares: Factor: " + factor);
+    	LOGGER.debug("genStockSplitTrx_nofShares: Factor: {}", factor);
     	
     	// ---
     	
@@ -815,14 +880,15 @@ public class SecuritiesAccountTransactionManager_BF {
     	splt.setQuantity(nofAddShares);
     	splt.setAction(GnuCashTransactionSplit.Action.SPLIT);
     	splt.setDescription("Generated by SecuritiesAccountTransactionManager, " + LocalDateTime.now());
-    	LOGGER.debug("genStockSplitTrx_nofShares: Split 1 to write: " + splt.toString());
+    	LOGGER.debug("genStockSplitTrx_nofShares: Split 1 to write: {}", splt);
 
     	// ---
 
     	genTrx.setDatePosted(postDate);
     	genTrx.setDateEntered(LocalDateTime.now());
+    	AccountBalanceTimeline.of(gcshFile).transactionAdded(genTrx);
 
-    	LOGGER.info("genStockSplitTrx_factor: Generated new (generic) Transaction: " + genTrx.getID());
+    	LOGGER.info("genStockSplitTrx_nofShares: Generated new (generic) Transaction: {}", genTrx.getID());
 
     	// ---
 
@@ -830,20 +896,294 @@ public class SecuritiesAccountTransactionManager_BF {
     	try {
     		specTrxRO = new GnuCashStockSplitTransactionImpl((GnuCashWritableTransactionImpl) genTrx);
     	} catch ( Exception exc ) {
-        	LOGGER.error("genStockSplitTrx_factor: Could not convert generic transaction to specialized one (1): " + genTrx.getID());
+        	LOGGER.error("genStockSplitTrx_nofShares: Could not convert generic transaction to specialized one (1): {}", genTrx.getID());
         	throw exc;
     	}
     	
     	GnuCashWritableStockSplitTransaction specTrxRW = null;
     	try {
         	specTrxRW = new GnuCashWritableStockSplitTransactionImpl(specTrxRO);
-        	LOGGER.info("genStockSplitTrx_factor: Generated new (specialized) Transaction: " + specTrxRW.getID());
+        	LOGGER.info("genStockSplitTrx_nofShares: Generated new (specialized) Transaction: {}", specTrxRW.getID());
     	} catch ( Exception exc ) {
-        	LOGGER.error("genStockSplitTrx_factor: Could not convert generic transaction to specialized one (2): " + genTrx.getID());
+        	LOGGER.error("genStockSplitTrx_nofShares: Could not convert generic transaction to specialized one (2): {}", genTrx.getID());
         	throw exc;
     	}
     	
     	return specTrxRW;
     }
     
+    // ---------------------------------------------------------------
+    
+    /**
+     * One request for {@link #genTrxBatch(GnuCashWritableFileImpl, Collection)}.
+     * <br>
+     * Only the fields relevant for the respective type have to be set.
+     */
+    public static class BatchItem {
+    	public Type type = null;
+    	public GCshAcctID stockAcctID = null;
+    	public GCshAcctID incomeAcctID = null;
+    	public Collection<AcctIDAmountBFPair> expensesAcctAmtList = null;
+    	public GCshAcctID offsetAcctID = null;
+    	public BigFraction nofStocks = null;
+    	public BigFraction stockPrc = null;
+    	public BigFraction divDistrGross = null;
+    	public StockSplitVar stockSplitVar = null;
+    	public BigFraction factorOfNofAddShares = null;
+    	public LocalDate postDate = null;
+    	public String descr = null;
+    	
+    	public static BatchItem buy(
+    			final GCshAcctID stockAcctID,
+    			final Collection<AcctIDAmountBFPair> expensesAcctAmtList,
+    			final GCshAcctID offsetAcctID,
+    			final BigFraction nofStocks,
+    			final BigFraction stockPrc,
+    			final LocalDate postDate,
+    			final String descr) {
+    		BatchItem result = new BatchItem();
+    		result.type = Type.BUY_STOCK;
+    		result.stockAcctID = stockAcctID;
+    		result.expensesAcctAmtList = expensesAcctAmtList;
+    		result.offsetAcctID = offsetAcctID;
+    		result.nofStocks = nofStocks;
+    		result.stockPrc = stockPrc;
+    		result.postDate = postDate;
+    		result.descr = descr;
+    		return result;
+    	}
+    	
+    	/**
+    	 * @param type {@link Type#DIVIDEND} or {@link Type#DISTRIBUTION}
+    	 */
+    	public static BatchItem dividDistrib(
+    			final Type type,
+    			final GCshAcctID stockAcctID,
+    			final GCshAcctID incomeAcctID,
+    			final Collection<AcctIDAmountBFPair> expensesAcctAmtList,
+    			final GCshAcctID offsetAcctID,
+    			final BigFraction divDistrGross,
+    			final LocalDate postDate,
+    			final String descr) {
+    		BatchItem result = new BatchItem();
+    		result.type = type;
+    		result.stockAcctID = stockAcctID;
+    		result.incomeAcctID = incomeAcctID;
+    		result.expensesAcctAmtList = expensesAcctAmtList;
+    		result.offsetAcctID = offsetAcctID;
+    		result.divDistrGross = divDistrGross;
+    		result.postDate = postDate;
+    		result.descr = descr;
+    		return result;
+    	}
+    	
+    	public static BatchItem stockSplit(
+    			final GCshAcctID stockAcctID,
+    			final StockSplitVar var,
+    			final BigFraction factorOfNofAddShares,
+    			final LocalDate postDate,
+    			final String descr) {
+    		BatchItem result = new BatchItem();
+    		result.type = Type.STOCK_SPLIT;
+    		result.stockAcctID = stockAcctID;
+    		result.stockSplitVar = var;
+    		result.factorOfNofAddShares = factorOfNofAddShares;
+    		result.postDate = postDate;
+    		result.descr = descr;
+    		return result;
+    	}
+    }
+    
+    /**
+     * Outcome of one {@link BatchItem}: Either the generated transaction
+     * or the reason why it has not been generated.
+     */
+    public static class BatchResult {
+    	private final BatchItem item;
+    	private final GnuCashWritableTransaction trx;
+    	private final Exception error;
+    	
+    	BatchResult(BatchItem item, GnuCashWritableTransaction trx, Exception error) {
+    		this.item = item;
+    		this.trx = trx;
+    		this.error = error;
+    	}
+    	
+    	public BatchItem getItem() {
+    		return item;
+    	}
+    	
+    	/**
+    	 * @return the generated transaction (a {@link GnuCashWritableStockBuyTransaction},
+    	 * {@link GnuCashWritableStockDividendTransaction} or {@link GnuCashWritableStockSplitTransaction})
+    	 * or null if the item could not be processed
+    	 */
+    	public GnuCashWritableTransaction getTransaction() {
+    		return trx;
+    	}
+    	
+    	/**
+    	 * @return null if the item has been processed successfully
+    	 */
+    	public Exception getError() {
+    		return error;
+    	}
+    	
+    	public boolean isOK() {
+    		return error == null;
+    	}
+    }
+    
+    /**
+     * Generates the transactions for a whole batch of buys, dividends/distributions
+     * and stock splits, e.g. from a broker's statement.
+     * <br>
+     * As opposed to calling the single-transaction methods in a loop, each distinct
+     * account is looked up and type-checked only once for the whole batch.
+     * All items are validated before the first transaction is generated, 
+     * so that an invalid item is detected before any of its splits has been
+     * written (no half-generated transactions).
+     * The batch is not all-or-nothing, though: Invalid items are skipped
+     * and reported in the result list, the valid ones are generated anyway.
+     * If you need all-or-nothing semantics, check the result list and
+     * remove the generated transactions if one of the items has failed.
+     * <br>
+     * Stock splits given by a factor can only be checked completely at generation
+     * time, as the number of additional shares depends on the stock account's
+     * balance at that point.
+     * 
+     * @param gcshFile GnuCash file
+     * @param itemList the requests, in the order they shall be processed
+     * @return one result per item, in the same order as <code>itemList</code>
+     * 
+     * @see #genBuyStockTrx(GnuCashWritableFileImpl, GCshAcctID, Collection, GCshAcctID, BigFraction, BigFraction, LocalDate, String)
+     * @see #genDividDistribTrx(GnuCashWritableFileImpl, GCshAcctID, GCshAcctID, Collection, GCshAcctID, GnuCashTransactionSplit.Action, BigFraction, LocalDate, String)
+     * @see #genStockSplitTrx(GnuCashWritableFileImpl, GCshAcctID, StockSplitVar, BigFraction, LocalDate, String)
+     */
+    public static List<BatchResult> genTrxBatch(
+    		final GnuCashWritableFileImpl gcshFile,
+    		final Collection<BatchItem> itemList) {
+    	if ( gcshFile == null ) {
+    		throw new IllegalArgumentException("argument <gcshFile> is null");
+    	}
+    	
+    	if ( itemList == null ) {
+    		throw new IllegalArgumentException("argument <itemList> is null");
+    	}
+    	
+    	AccountCache acctCache = new AccountCache(gcshFile);
+    	
+    	// Phase 1: Validate everything
+    	ArrayList<Exception> errList = new ArrayList<Exception>(itemList.size());
+    	int nofErr = 0;
+    	for ( BatchItem item : itemList ) {
+    		try {
+    			checkBatchItem(acctCache, item);
+    			errList.add(null);
+    		} catch ( RuntimeException exc ) {
+    			errList.add(exc);
+    			nofErr++;
+    		}
+    	}
+    	
+    	if ( nofErr > 0 ) {
+    		LOGGER.warn("genTrxBatch: {} of {} items invalid, will be skipped", nofErr, itemList.size());
+    	}
+    	
+    	// Phase 2: Generate
+    	ArrayList<BatchResult> result = new ArrayList<BatchResult>(itemList.size());
+    	int i = 0;
+    	for ( BatchItem item : itemList ) {
+    		Exception err = errList.get(i++);
+    		if ( err != null ) {
+    			result.add(new BatchResult(item, null, err));
+    			continue;
+    		}
+    		
+    		try {
+    			result.add(new BatchResult(item, genBatchItemTrx(gcshFile, acctCache, item), null));
+    		} catch ( RuntimeException exc ) {
+    			LOGGER.error("genTrxBatch: Could not generate transaction for item {}: {}", i - 1, exc.getMessage());
+    			result.add(new BatchResult(item, null, exc));
+    			nofErr++;
+    		}
+    	}
+    	
+    	LOGGER.info("genTrxBatch: Generated {} of {} transactions ({} distinct accounts)",
+    				itemList.size() - nofErr, itemList.size(), acctCache.size());
+    	
+    	return result;
+    }
+    
+    private static void checkBatchItem(
+    		final AccountCache acctCache,
+    		final BatchItem item) {
+    	if ( item == null ) {
+    		throw new IllegalArgumentException("item is null");
+    	}
+    	
+    	if ( item.type == null ) {
+    		throw new IllegalArgumentException("type of item is null");
+    	}
+    	
+    	if ( item.type == Type.BUY_STOCK ) {
+    		checkBuyStockTrxArgs(item.stockAcctID, item.expensesAcctAmtList, item.offsetAcctID,
+    							 item.nofStocks, item.stockPrc);
+    		acctCache.getAccount(item.stockAcctID, GnuCashAccount.Type.STOCK);
+    		for ( AcctIDAmountBFPair elt : item.expensesAcctAmtList ) {
+    			acctCache.getAccount(elt.accountID(), GnuCashAccount.Type.EXPENSE);
+    		}
+    		acctCache.getAccount(item.offsetAcctID, GnuCashAccount.Type.BANK);
+    	} else if ( item.type == Type.DIVIDEND ||
+    				item.type == Type.DISTRIBUTION ) {
+    		checkDividDistribTrxArgs(item.stockAcctID, item.incomeAcctID, item.expensesAcctAmtList, item.offsetAcctID,
+    								 item.divDistrGross);
+    		acctCache.getAccount(item.stockAcctID, GnuCashAccount.Type.STOCK);
+    		acctCache.getAccount(item.incomeAcctID, GnuCashAccount.Type.INCOME);
+    		for ( AcctIDAmountBFPair elt : item.expensesAcctAmtList ) {
+    			acctCache.getAccount(elt.accountID(), GnuCashAccount.Type.EXPENSE);
+    		}
+    		acctCache.getAccount(item.offsetAcctID, GnuCashAccount.Type.BANK);
+    	} else if ( item.type == Type.STOCK_SPLIT ) {
+    		if ( item.stockSplitVar == StockSplitVar.FACTOR ) {
+    			checkStockSplitTrxFactorArgs(item.stockAcctID, item.factorOfNofAddShares);
+    		} else if ( item.stockSplitVar == StockSplitVar.NOF_ADD_SHARES ) {
+    			checkStockSplitTrxNofSharesArgs(item.stockAcctID, item.factorOfNofAddShares);
+    		} else {
+    			throw new IllegalArgumentException("stock split variant of item is null");
+    		}
+    		acctCache.getAccount(item.stockAcctID, GnuCashAccount.Type.STOCK);
+    	}
+    }
+    
+    private static GnuCashWritableTransaction genBatchItemTrx(
+    		final GnuCashWritableFileImpl gcshFile,
+    		final AccountCache acctCache,
+    		final BatchItem item) {
+    	if ( item.type == Type.BUY_STOCK ) {
+    		return genBuyStockTrxCore(gcshFile, acctCache,
+    								  item.stockAcctID, item.expensesAcctAmtList, item.offsetAcctID,
+    								  item.nofStocks, item.stockPrc,
+    								  item.postDate, item.descr);
+    	} else if ( item.type == Type.DIVIDEND ) {
+    		return genDividDistribTrxCore(gcshFile, acctCache,
+    									  item.stockAcctID, item.incomeAcctID, item.expensesAcctAmtList, item.offsetAcctID,
+    									  GnuCashTransactionSplit.Action.DIVIDEND, item.divDistrGross,
+    									  item.postDate, item.descr);
+    	} else if ( item.type == Type.DISTRIBUTION ) {
+    		return genDividDistribTrxCore(gcshFile, acctCache,
+    									  item.stockAcctID, item.incomeAcctID, item.expensesAcctAmtList, item.offsetAcctID,
+    									  GnuCashTransactionSplit.Action.DISTRIBUTION, item.divDistrGross,
+    									  item.postDate, item.descr);
+    	} else if ( item.stockSplitVar == StockSplitVar.FACTOR ) {
+    		return genStockSplitTrx_factorCore(gcshFile, acctCache,
+    										   item.stockAcctID, item.factorOfNofAddShares,
+    										   item.postDate, item.descr);
+    	} else {
+    		return genStockSplitTrx_nofSharesCore(gcshFile, acctCache,
+    											  item.stockAcctID, item.factorOfNofAddShares,
+    											  item.postDate, item.descr);
+    	}
+    }
+    
 }
@@ -0,0 +1,365 @@
+package org.gnucash.apiext.secacct;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashPrice;
+import org.gnucash.base.basetypes.complex.GCshCmdtyCurrID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/**
+ * Price index of a GnuCash file, so that "the latest price of a security
+ * on or before a date" can be answered by a binary search instead of
+ * a scan over the price database.
+ * <br>
+ * For each pair (commodity, currency), there is a {@link PriceSeries}:
+ * the (ascending, distinct) dates of the prices as epoch days and,
+ * for each of them, the price, in primitive arrays. If there are
+ * several prices on the same day, the one that comes last in the
+ * price database wins.
+ * <br>
+ * The index is built once per file, on the first query. Prices added
+ * afterwards are taken into account:
+ * <ul>
+ *   <li>When notified via {@link #priceAdded(GnuCashPrice)}, only the
+ *       affected series is rebuilt.</li>
+ *   <li>When the no. of prices in the file has changed otherwise,
+ *       the whole index is rebuilt on next access.</li>
+ * </ul>
+ * Changes to existing prices are not detected; call {@link #clear()}
+ * after modifying prices.
+ * <br>
+ * Series are immutable snapshots: Valuation code should fetch a
+ * commodity's series once and then do its lookups on it
+ * (lock- and allocation-free).
+ * <br>
+ * The index is registered weakly: Hold on to it while using it,
+ * it does not keep the file alive.
+ */
+public class SecurityPriceIndex {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(SecurityPriceIndex.class);
+
+    // ---------------------------------------------------------------
+
+    private static final String SEP = "|"; // ::MAGIC
+
+    private static final Map<GnuCashFile, WeakReference<SecurityPriceIndex>> INSTANCES = new WeakHashMap<GnuCashFile, WeakReference<SecurityPriceIndex>>();
+
+    // ---------------------------------------------------------------
+
+    /**
+     * Prices of one commodity in one currency, sorted by date.
+     * Immutable.
+     */
+    public static final class PriceSeries {
+
+    	public static final PriceSeries EMPTY = new PriceSeries(new long[0], new BigDecimal[0]);
+
+    	private final long[]       epochDay;
+    	private final double[]     price;
+    	private final BigDecimal[] priceDec; // exact
+
+    	private PriceSeries(long[] epochDay, BigDecimal[] priceDec) {
+    		this.epochDay = epochDay;
+    		this.priceDec = priceDec;
+    		this.price    = new double[priceDec.length];
+    		for ( int i = 0; i < priceDec.length; i++ ) {
+    			price[i] = priceDec[i].doubleValue();
+    		}
+    	}
+
+    	public int size() {
+    		return epochDay.length;
+    	}
+
+    	/**
+    	 * @param day epoch day (inclusive)
+    	 * @return index of the latest price on or before the given day,
+    	 * -1 if there is none
+    	 */
+    	public int floorIdx(long day) {
+    		int lo = 0;
+    		int hi = epochDay.length;
+    		while ( lo < hi ) {
+    			int mid = ( lo + hi ) >>> 1;
+    			if ( epochDay[mid] <= day )
+    				lo = mid + 1;
+    			else
+    				hi = mid;
+    		}
+    		return lo - 1;
+    	}
+
+    	public int floorIdx(LocalDate date) {
+    		if ( date == null ) {
+    			throw new IllegalArgumentException("argument <date> is null");
+    		}
+
+    		return floorIdx(date.toEpochDay());
+    	}
+
+    	public long getEpochDay(int idx) {
+    		return epochDay[idx];
+    	}
+
+    	public double getPriceAsDouble(int idx) {
+    		return price[idx];
+    	}
+
+    	/**
+    	 * @param idx index
+    	 * @return the exact price (a fresh object)
+    	 */
+    	public FixedPointNumber getPrice(int idx) {
+    		return new FixedPointNumber(priceDec[idx]);
+    	}
+
+    	/**
+    	 * @param date date (inclusive)
+    	 * @return the latest price on or before the given date,
+    	 * NaN if there is none
+    	 */
+    	public double getPriceAsDouble(LocalDate date) {
+    		int idx = floorIdx(date);
+    		if ( idx < 0 )
+    			return Double.NaN;
+
+    		return price[idx];
+    	}
+
+    	/**
+    	 * @param date date (inclusive)
+    	 * @return the latest price on or before the given date
+    	 * (a fresh object), null if there is none
+    	 */
+    	public FixedPointNumber getPrice(LocalDate date) {
+    		int idx = floorIdx(date);
+    		if ( idx < 0 )
+    			return null;
+
+    		return getPrice(idx);
+    	}
+    }
+
+    // ---------------------------------------------------------------
+
+	private final GnuCashFile gcshFile;
+
+	// Key: commodity + SEP + currency
+	private final HashMap<String, PriceSeries>             series;
+	private final HashMap<String, ArrayList<GnuCashPrice>> srcPrices; // in price DB order
+
+	private boolean built;
+	private int     nofPrices; // no. of prices reflected
+
+	private int nofBuilds;
+
+    // ---------------------------------------------------------------
+
+	private SecurityPriceIndex(GnuCashFile gcshFile) {
+		this.gcshFile  = gcshFile;
+		this.series    = new HashMap<String, PriceSeries>();
+		this.srcPrices = new HashMap<String, ArrayList<GnuCashPrice>>();
+	}
+
+	/**
+	 * @param gcshFile GnuCash file
+	 * @return the price index for the given file
+	 */
+	public static SecurityPriceIndex of(GnuCashFile gcshFile) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		synchronized ( INSTANCES ) {
+			WeakReference<SecurityPriceIndex> ref = INSTANCES.get(gcshFile);
+			SecurityPriceIndex idx = ( ref == null ? null : ref.get() );
+			if ( idx == null ) {
+				idx = new SecurityPriceIndex(gcshFile);
+				INSTANCES.put(gcshFile, new WeakReference<SecurityPriceIndex>(idx));
+			}
+
+			return idx;
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param cmdtyID commodity (e.g. security) ID
+	 * @param currCode currency code
+	 * @return the commodity's prices in the given currency
+	 * (empty series if there are none)
+	 */
+	public synchronized PriceSeries getSeries(GCshCmdtyCurrID cmdtyID, String currCode) {
+		if ( cmdtyID == null ) {
+			throw new IllegalArgumentException("argument <cmdtyID> is null");
+		}
+
+		if ( currCode == null ) {
+			throw new IllegalArgumentException("argument <currCode> is null");
+		}
+
+		ensureBuilt();
+		PriceSeries result = series.get(toKey(cmdtyID, currCode));
+		return ( result == null ? PriceSeries.EMPTY : result );
+	}
+
+	/**
+	 * @param cmdtyID commodity (e.g. security) ID
+	 * @return the commodity's prices in the file's default currency
+	 * (empty series if there are none)
+	 */
+	public PriceSeries getSeries(GCshCmdtyCurrID cmdtyID) {
+		return getSeries(cmdtyID, gcshFile.getDefaultCurrencyID());
+	}
+
+	/**
+	 * Convenience method for single lookups. For many lookups on the
+	 * same commodity, use {@link #getSeries(GCshCmdtyCurrID)}.
+	 *
+	 * @param cmdtyID commodity (e.g. security) ID
+	 * @param date date (inclusive)
+	 * @return the latest price in the file's default currency on or
+	 * before the given date (a fresh object), null if there is none
+	 */
+	public FixedPointNumber getPrice(GCshCmdtyCurrID cmdtyID, LocalDate date) {
+		return getSeries(cmdtyID).getPrice(date);
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * To be called when a price has been added to the file (after its
+	 * commodity, currency, date and value have been set). Only the
+	 * affected series is rebuilt. If the index has not been built yet,
+	 * nothing happens.
+	 *
+	 * @param prc new price
+	 */
+	public synchronized void priceAdded(GnuCashPrice prc) {
+		if ( prc == null ) {
+			throw new IllegalArgumentException("argument <prc> is null");
+		}
+
+		if ( ! built )
+			return;
+
+		if ( nofPrices + 1 != gcshFile.getPrices().size() ) {
+			// Something else has changed as well
+			built = false;
+			return;
+		}
+
+		nofPrices++;
+		String key = toKey(prc);
+		if ( key == null )
+			return;
+
+		ArrayList<GnuCashPrice> prcList = srcPrices.computeIfAbsent(key, k -> new ArrayList<GnuCashPrice>());
+		prcList.add(prc);
+		series.put(key, buildSeries(prcList));
+	}
+
+	public synchronized void clear() {
+		built = false;
+		series.clear();
+		srcPrices.clear();
+	}
+
+	/**
+	 * @return no. of times the whole index has been built so far
+	 */
+	public synchronized int getNofBuilds() {
+		return nofBuilds;
+	}
+
+    // ---------------------------------------------------------------
+
+	private void ensureBuilt() {
+		if ( built &&
+			 nofPrices == gcshFile.getPrices().size() )
+			return;
+
+		series.clear();
+		srcPrices.clear();
+
+		int cnt = 0;
+		for ( GnuCashPrice prc : gcshFile.getPrices() ) {
+			cnt++;
+			String key = toKey(prc);
+			if ( key == null )
+				continue;
+
+			srcPrices.computeIfAbsent(key, k -> new ArrayList<GnuCashPrice>()).add(prc);
+		}
+
+		for ( Map.Entry<String, ArrayList<GnuCashPrice>> entry : srcPrices.entrySet() ) {
+			series.put(entry.getKey(), buildSeries(entry.getValue()));
+		}
+
+		built     = true;
+		nofPrices = cnt;
+		nofBuilds++;
+		LOGGER.debug("ensureBuilt: Built price index: {} prices, {} series", cnt, series.size());
+	}
+
+	private static PriceSeries buildSeries(ArrayList<GnuCashPrice> prcList) {
+		int nofPrc = prcList.size();
+
+		// Sort (date, index) pairs packed into longs; for equal
+		// dates, the later price comes last and wins
+		long[] packed = new long[nofPrc];
+		for ( int i = 0; i < nofPrc; i++ ) {
+			long day = prcList.get(i).getDate().toEpochDay();
+			packed[i] = ( day << 32 ) | i;
+		}
+		Arrays.sort(packed);
+
+		long[]       days   = new long[nofPrc];
+		BigDecimal[] values = new BigDecimal[nofPrc];
+		int size = 0;
+		for ( int i = 0; i < nofPrc; i++ ) {
+			long day = packed[i] >> 32;
+			BigDecimal val = prcList.get((int) packed[i]).getValue().getBigDecimal(); // lower 32 bits
+			if ( size > 0 &&
+				 days[size - 1] == day ) {
+				values[size - 1] = val;
+			} else {
+				days[size]   = day;
+				values[size] = val;
+				size++;
+			}
+		}
+
+		return new PriceSeries(Arrays.copyOf(days, size), Arrays.copyOf(values, size));
+	}
+
+	// null: incomplete price
+	private static String toKey(GnuCashPrice prc) {
+		if ( prc.getFromCmdtyCurrQualifID() == null ||
+			 prc.getToCurrencyCode() == null ||
+			 prc.getDate() == null ||
+			 prc.getValue() == null )
+			return null;
+
+		return toKey(prc.getFromCmdtyCurrQualifID(), prc.getToCurrencyCode());
+	}
+
+	private static String toKey(GCshCmdtyCurrID cmdtyID, String currCode) {
+		return cmdtyID.getNameSpace() + ":" + cmdtyID.getCode() + SEP + currCode;
+	}
+
+}
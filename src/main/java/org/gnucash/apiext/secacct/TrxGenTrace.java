@@ -0,0 +1,108 @@
+package org.gnucash.apiext.secacct;
+
+import java.util.ArrayList;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.slf4j.Logger;
+
+/**
+ * Debug trace of one generated transaction: the accounts, amounts and
+ * splits involved.
+ * <br>
+ * Only references are collected while the transaction is being generated;
+ * account names and split texts are computed when the trace is
+ * rendered, i.e. only if it is actually logged. If debug logging is off,
+ * {@link #start(Logger, String)} returns a shared no-op instance, so that
+ * the generation code does not need its own level checks.
+ */
+final class TrxGenTrace {
+
+	private static final TrxGenTrace NOP = new TrxGenTrace(null);
+
+	// ---------------------------------------------------------------
+
+	private final String method;
+	private final ArrayList<Object[]> entries;
+
+	// ---------------------------------------------------------------
+
+	private TrxGenTrace(String method) {
+		this.method = method;
+		this.entries = ( method == null ) ? null : new ArrayList<Object[]>();
+	}
+
+	/**
+	 * @param logger the caller's logger
+	 * @param method name of the generating method (used as prefix)
+	 * @return a new trace if <code>logger</code> is enabled for debug level,
+	 * else a no-op instance
+	 */
+	static TrxGenTrace start(Logger logger, String method) {
+		if ( logger.isDebugEnabled() ) {
+			return new TrxGenTrace(method);
+		}
+
+		return NOP;
+	}
+
+	// ---------------------------------------------------------------
+
+	boolean isEnabled() {
+		return entries != null;
+	}
+
+	TrxGenTrace account(String role, GnuCashAccount acct) {
+		if ( entries != null ) {
+			entries.add(new Object[] { "Account (" + role + ")", acct });
+		}
+		return this;
+	}
+
+	TrxGenTrace amount(String name, Object amt) {
+		if ( entries != null ) {
+			// Amounts may be mutable (FixedPointNumber), so take the text now
+			entries.add(new Object[] { name, String.valueOf(amt) });
+		}
+		return this;
+	}
+
+	TrxGenTrace split(String role, GnuCashTransactionSplit splt) {
+		if ( entries != null ) {
+			entries.add(new Object[] { "Split (" + role + ")", splt });
+		}
+		return this;
+	}
+
+	/**
+	 * Logs the whole trace as one debug message.
+	 */
+	void log(Logger logger) {
+		if ( entries != null ) {
+			logger.debug("{}", this);
+		}
+	}
+
+	// ---------------------------------------------------------------
+
+	@Override
+	public String toString() {
+		if ( entries == null ) {
+			return "TrxGenTrace [disabled]";
+		}
+
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(method).append(":");
+		for ( Object[] entr : entries ) {
+			buffer.append("\n  ").append(entr[0]).append(": ");
+			if ( entr[1] instanceof GnuCashAccount acct ) {
+				buffer.append("'").append(acct.getQualifiedName()).append("'");
+			} else {
+				buffer.append(entr[1]);
+			}
+		}
+
+		return buffer.toString();
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.gnucash.apiext.trialbal;
+
+import java.time.LocalDate;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/**
+ * Balance-sheet view of a {@link TrialBalance} as of one of its dates.
+ * <br>
+ * A thin view: Totals and account lines are computed from the
+ * trial balance on demand, nothing is copied. All amounts are values
+ * (i.e. in the transactions' currency), signs are as in GnuCash.
+ * <br>
+ * Note that the balance sheet only balances (assets + liabilities
+ * + equity + retained earnings = 0) if the P&amp;L accounts are taken
+ * into account as retained earnings, cf. {@link #getRetainedEarnings()}.
+ */
+public class BalanceSheet {
+
+	private final TrialBalance trlBal;
+	private final LocalDate    date;
+	private final int          dateIdx;
+
+    // ---------------------------------------------------------------
+
+	BalanceSheet(TrialBalance trlBal, LocalDate date) {
+		this.trlBal  = trlBal;
+		this.date    = date;
+		this.dateIdx = trlBal.getDateIdx(date);
+	}
+
+    // ---------------------------------------------------------------
+
+	public LocalDate getDate() {
+		return date;
+	}
+
+	public FixedPointNumber getAssets() {
+		return TrialBalance.toFP(trlBal.getTotal(TrialBalance.Section.ASSETS, dateIdx));
+	}
+
+	public FixedPointNumber getLiabilities() {
+		return TrialBalance.toFP(trlBal.getTotal(TrialBalance.Section.LIABILITIES, dateIdx));
+	}
+
+	public FixedPointNumber getEquity() {
+		return TrialBalance.toFP(trlBal.getTotal(TrialBalance.Section.EQUITY, dateIdx));
+	}
+
+	/**
+	 * @return the sum of all income and expenses up to the date
+	 * (negative: profit)
+	 */
+	public FixedPointNumber getRetainedEarnings() {
+		return TrialBalance.toFP(trlBal.getTotal(TrialBalance.Section.INCOME, dateIdx)
+									   .add(trlBal.getTotal(TrialBalance.Section.EXPENSES, dateIdx)));
+	}
+
+	/**
+	 * Traverses the accounts of one section of the balance sheet in tree order.
+	 *
+	 * @param sect {@link TrialBalance.Section#ASSETS}, {@link TrialBalance.Section#LIABILITIES}
+	 * or {@link TrialBalance.Section#EQUITY}
+	 * @param visitor visitor
+	 */
+	public void visit(TrialBalance.Section sect, TrialBalance.Visitor visitor) {
+		if ( sect != TrialBalance.Section.ASSETS &&
+			 sect != TrialBalance.Section.LIABILITIES &&
+			 sect != TrialBalance.Section.EQUITY ) {
+			throw new IllegalArgumentException("argument <sect> is not a balance-sheet section: " + sect);
+		}
+
+		trlBal.visit(sect, -1, dateIdx, visitor);
+	}
+
+    // ---------------------------------------------------------------
+
+	@Override
+	public String toString() {
+		return "BalanceSheet [" + 
+					   "date=" + date + ", " +
+				     "assets=" + getAssets() + ", " +
+		        "liabilities=" + getLiabilities() + ", " +
+		             "equity=" + getEquity() + ", " +
+		   "retainedEarnings=" + getRetainedEarnings() + "]";
+	}
+
+}
@@ -0,0 +1,113 @@
+package org.gnucash.apiext.trialbal;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/**
+ * P&amp;L view of a {@link TrialBalance} for the period between
+ * two of its dates.
+ * <br>
+ * A thin view: Totals and account lines are computed from the
+ * trial balance on demand (as differences of the balances as of the
+ * two dates), nothing is copied. All amounts are values (i.e. in the
+ * transactions' currency), signs are as in GnuCash (i.e., income is
+ * negative, expenses are positive).
+ */
+public class ProfitAndLoss {
+
+	private final TrialBalance trlBal;
+	private final LocalDate    from;
+	private final LocalDate    to;
+	private final int          fromIdx; // -1: from the beginning
+	private final int          toIdx;
+
+    // ---------------------------------------------------------------
+
+	ProfitAndLoss(TrialBalance trlBal, LocalDate from, LocalDate to) {
+		this.trlBal  = trlBal;
+		this.from    = from;
+		this.to      = to;
+		this.fromIdx = ( from == null ? -1 : trlBal.getDateIdx(from) );
+		this.toIdx   = trlBal.getDateIdx(to);
+
+		if ( fromIdx > toIdx ) {
+			throw new IllegalArgumentException("argument <from> is after argument <to>");
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @return first day of the period (exclusive), null for "from the beginning"
+	 */
+	public LocalDate getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return last day of the period (inclusive)
+	 */
+	public LocalDate getTo() {
+		return to;
+	}
+
+	public FixedPointNumber getIncome() {
+		return TrialBalance.toFP(getTotal(TrialBalance.Section.INCOME));
+	}
+
+	public FixedPointNumber getExpenses() {
+		return TrialBalance.toFP(getTotal(TrialBalance.Section.EXPENSES));
+	}
+
+	/**
+	 * @return the net income, i.e. the negated sum of income and expenses
+	 * (positive: profit)
+	 */
+	public FixedPointNumber getNetIncome() {
+		return TrialBalance.toFP(getTotal(TrialBalance.Section.INCOME)
+									.add(getTotal(TrialBalance.Section.EXPENSES))
+									.negate());
+	}
+
+	/**
+	 * Traverses the accounts of one section of the P&amp;L statement in tree order.
+	 * The amounts passed are the ones for the period.
+	 *
+	 * @param sect {@link TrialBalance.Section#INCOME} or {@link TrialBalance.Section#EXPENSES}
+	 * @param visitor visitor
+	 */
+	public void visit(TrialBalance.Section sect, TrialBalance.Visitor visitor) {
+		if ( sect != TrialBalance.Section.INCOME &&
+			 sect != TrialBalance.Section.EXPENSES ) {
+			throw new IllegalArgumentException("argument <sect> is not a P&L section: " + sect);
+		}
+
+		trlBal.visit(sect, fromIdx, toIdx, visitor);
+	}
+
+    // ---------------------------------------------------------------
+
+	private BigDecimal getTotal(TrialBalance.Section sect) {
+		BigDecimal result = trlBal.getTotal(sect, toIdx);
+		if ( fromIdx >= 0 ) {
+			result = result.subtract(trlBal.getTotal(sect, fromIdx));
+		}
+
+		return result;
+	}
+
+    // ---------------------------------------------------------------
+
+	@Override
+	public String toString() {
+		return "ProfitAndLoss [" + 
+				    "from=" + from + ", " +
+				      "to=" + to + ", " +
+				  "income=" + getIncome() + ", " +
+		        "expenses=" + getExpenses() + ", " +
+		       "netIncome=" + getNetIncome() + "]";
+	}
+
+}
@@ -0,0 +1,347 @@
+package org.gnucash.apiext.trialbal;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/**
+ * Balances of all accounts of a GnuCash file as of a set of dates,
+ * as computed by {@link TrialBalanceEngine}.
+ * <br>
+ * For each account and date, there are:
+ * <ul>
+ *   <li>the own balance: the sum of the quantities of the account's splits
+ *       posted on or before that date, i.e. the balance in the account's
+ *       own commodity (cf. {@link GnuCashAccount#getBalance(LocalDate)}),</li>
+ *   <li>the own value: likewise, the sum of the splits' values,
+ *       i.e. in the transactions' currency,</li>
+ *   <li>the recursive balance: the own balance plus the recursive balances
+ *       of all sub-accounts in the same commodity (sub-accounts in
+ *       another commodity, e.g. stock accounts below a depot, cannot be
+ *       added up without prices and are left out),</li>
+ *   <li>the recursive value: the own value plus the recursive values
+ *       of all sub-accounts.</li>
+ * </ul>
+ * Signs are as in GnuCash: Debits are positive, credits negative
+ * (thus, liability, equity and income accounts usually have
+ * negative balances).
+ * <br>
+ * Immutable; the amounts returned are fresh objects.
+ *
+ * @see BalanceSheet
+ * @see ProfitAndLoss
+ */
+public class TrialBalance {
+
+	/**
+	 * The parts of the balance sheet and the P&amp;L statement
+	 * that an account type belongs to.
+	 */
+	public enum Section {
+		ASSETS,
+		LIABILITIES,
+		EQUITY,
+		INCOME,
+		EXPENSES;
+
+		/**
+		 * @param type account type
+		 * @return the section that accounts of the given type belong to,
+		 * null for the root and for trading accounts
+		 */
+		public static Section of(GnuCashAccount.Type type) {
+			switch ( type ) {
+				case ASSET:
+				case BANK:
+				case CASH:
+				case STOCK:
+				case MUTUAL:
+				case RECEIVABLE:
+					return ASSETS;
+				case LIABILITY:
+				case CREDIT:
+				case PAYABLE:
+					return LIABILITIES;
+				case EQUITY:
+					return EQUITY;
+				case INCOME:
+					return INCOME;
+				case EXPENSE:
+					return EXPENSES;
+				default:
+					return null;
+			}
+		}
+	}
+
+	/**
+	 * Receives the accounts of a traversal, in tree order
+	 * (parents before their children).
+	 */
+	@FunctionalInterface
+	public interface Visitor {
+		/**
+		 * @param acct account
+		 * @param depth depth in the account tree (top-level accounts: 0)
+		 * @param ownVal own value of the account
+		 * @param recVal recursive value of the account
+		 */
+		void visit(GnuCashAccount acct, int depth, FixedPointNumber ownVal, FixedPointNumber recVal);
+	}
+
+    // ---------------------------------------------------------------
+
+	private final long[]                       days;
+	private final GnuCashAccount[]             accounts;
+	private final HashMap<GCshAcctID, Integer> acctIdx;
+
+	// [account][date]
+	private final BigDecimal[][] ownQty;
+	private final BigDecimal[][] ownVal;
+	private final BigDecimal[][] recQty;
+	private final BigDecimal[][] recVal;
+
+	// Tree order (pre-order), depths and sections, parallel to it
+	private final int[]     treeOrder;
+	private final int[]     depth;
+	private final Section[] section;
+
+    // ---------------------------------------------------------------
+
+	TrialBalance(long[] days, GnuCashAccount[] accounts, HashMap<GCshAcctID, Integer> acctIdx,
+				 BigDecimal[][] ownQty, BigDecimal[][] ownVal) {
+		this.days     = days;
+		this.accounts = accounts;
+		this.acctIdx  = acctIdx;
+		this.ownQty   = ownQty;
+		this.ownVal   = ownVal;
+
+		int nofAccts = accounts.length;
+
+		// Children per account; top-level accounts have no
+		// parent or the root account as parent
+		ArrayList<List<Integer>> children = new ArrayList<List<Integer>>(nofAccts);
+		ArrayList<Integer> roots = new ArrayList<Integer>();
+		for ( int i = 0; i < nofAccts; i++ ) {
+			children.add(new ArrayList<Integer>());
+		}
+		for ( int i = 0; i < nofAccts; i++ ) {
+			Integer parentIdx = ( accounts[i].getParentAccountID() == null ?
+									null :
+									acctIdx.get(accounts[i].getParentAccountID()) );
+			if ( parentIdx == null )
+				roots.add(i);
+			else
+				children.get(parentIdx).add(i);
+		}
+
+		treeOrder = new int[nofAccts];
+		depth     = new int[nofAccts];
+		section   = new Section[nofAccts];
+		int[] pos = new int[] { 0 };
+		for ( int root : roots ) {
+			// The root account itself is not shown
+			int startDepth = ( accounts[root].getType() == GnuCashAccount.Type.ROOT ? -1 : 0 );
+			preOrder(root, startDepth, children, pos);
+		}
+
+		// Roll up: Reverse pre-order visits children before parents
+		recQty = new BigDecimal[nofAccts][];
+		recVal = new BigDecimal[nofAccts][];
+		for ( int k = nofAccts - 1; k >= 0; k-- ) {
+			int i = treeOrder[k];
+			recQty[i] = ownQty[i].clone();
+			recVal[i] = ownVal[i].clone();
+			for ( int child : children.get(i) ) {
+				boolean sameCmdty = Objects.equals(accounts[child].getCmdtyCurrID(), accounts[i].getCmdtyCurrID());
+				for ( int j = 0; j < days.length; j++ ) {
+					if ( sameCmdty )
+						recQty[i][j] = recQty[i][j].add(recQty[child][j]);
+					recVal[i][j] = recVal[i][j].add(recVal[child][j]);
+				}
+			}
+		}
+	}
+
+	private void preOrder(int i, int dpth, ArrayList<List<Integer>> children, int[] pos) {
+		int k = pos[0]++;
+		treeOrder[k] = i;
+		depth[k]     = dpth;
+		section[k]   = Section.of(accounts[i].getType());
+
+		for ( int child : children.get(i) ) {
+			preOrder(child, dpth + 1, children, pos);
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @return the dates, ascending
+	 */
+	public List<LocalDate> getDates() {
+		ArrayList<LocalDate> result = new ArrayList<LocalDate>(days.length);
+		for ( long day : days ) {
+			result.add(LocalDate.ofEpochDay(day));
+		}
+
+		return result;
+	}
+
+	public int getNofAccounts() {
+		return accounts.length;
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param acctID account ID
+	 * @param date one of the dates the trial balance has been computed for
+	 * @return the account's own balance as of the given date
+	 */
+	public FixedPointNumber getBalance(GCshAcctID acctID, LocalDate date) {
+		return toFP(ownQty[getAcctIdx(acctID)][getDateIdx(date)]);
+	}
+
+	/**
+	 * @param acctID account ID
+	 * @param date one of the dates the trial balance has been computed for
+	 * @return the account's balance including all sub-accounts
+	 * in the same commodity as of the given date
+	 */
+	public FixedPointNumber getBalanceRecursive(GCshAcctID acctID, LocalDate date) {
+		return toFP(recQty[getAcctIdx(acctID)][getDateIdx(date)]);
+	}
+
+	public FixedPointNumber getValue(GCshAcctID acctID, LocalDate date) {
+		return toFP(ownVal[getAcctIdx(acctID)][getDateIdx(date)]);
+	}
+
+	public FixedPointNumber getValueRecursive(GCshAcctID acctID, LocalDate date) {
+		return toFP(recVal[getAcctIdx(acctID)][getDateIdx(date)]);
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param sect section
+	 * @param date one of the dates the trial balance has been computed for
+	 * @return the sum of the own values of all accounts in the given
+	 * section as of the given date
+	 */
+	public FixedPointNumber getTotal(Section sect, LocalDate date) {
+		return toFP(getTotal(sect, getDateIdx(date)));
+	}
+
+	/**
+	 * @return a balance sheet view as of the given date
+	 */
+	public BalanceSheet getBalanceSheet(LocalDate date) {
+		return new BalanceSheet(this, date);
+	}
+
+	/**
+	 * @param from one of the dates the trial balance has been computed for
+	 * (exclusive), null for "from the beginning"
+	 * @param to one of the dates the trial balance has been computed for
+	 * (inclusive)
+	 * @return a P&amp;L view for the given period
+	 */
+	public ProfitAndLoss getProfitAndLoss(LocalDate from, LocalDate to) {
+		return new ProfitAndLoss(this, from, to);
+	}
+
+	/**
+	 * Traverses the accounts of the given section in tree order.
+	 * Nothing is collected: The visitor is called directly
+	 * from the traversal.
+	 *
+	 * @param sect section, null for all accounts (except the root account)
+	 * @param date one of the dates the trial balance has been computed for
+	 * @param visitor visitor
+	 */
+	public void visit(Section sect, LocalDate date, Visitor visitor) {
+		visit(sect, -1, getDateIdx(date), visitor);
+	}
+
+    // ---------------------------------------------------------------
+
+	BigDecimal getTotal(Section sect, int dateIdx) {
+		BigDecimal result = BigDecimal.ZERO;
+		for ( int k = 0; k < treeOrder.length; k++ ) {
+			if ( section[k] == sect ) {
+				result = result.add(ownVal[treeOrder[k]][dateIdx]);
+			}
+		}
+
+		return result;
+	}
+
+	/*
+	 * fromIdx: exclusive, -1 for "from the beginning"
+	 */
+	void visit(Section sect, int fromIdx, int toIdx, Visitor visitor) {
+		if ( visitor == null ) {
+			throw new IllegalArgumentException("argument <visitor> is null");
+		}
+
+		for ( int k = 0; k < treeOrder.length; k++ ) {
+			if ( depth[k] < 0 )
+				continue;
+
+			if ( sect != null &&
+				 section[k] != sect )
+				continue;
+
+			int i = treeOrder[k];
+			BigDecimal own = ownVal[i][toIdx];
+			BigDecimal rec = recVal[i][toIdx];
+			if ( fromIdx >= 0 ) {
+				own = own.subtract(ownVal[i][fromIdx]);
+				rec = rec.subtract(recVal[i][fromIdx]);
+			}
+
+			visitor.visit(accounts[i], depth[k], toFP(own), toFP(rec));
+		}
+	}
+
+	int getDateIdx(LocalDate date) {
+		if ( date == null ) {
+			throw new IllegalArgumentException("argument <date> is null");
+		}
+
+		int idx = TrialBalanceEngine.firstIdxNotBefore(days, date.toEpochDay());
+		if ( idx == days.length ||
+			 days[idx] != date.toEpochDay() ) {
+			throw new IllegalArgumentException("trial balance has not been computed for date " + date);
+		}
+
+		return idx;
+	}
+
+	private int getAcctIdx(GCshAcctID acctID) {
+		if ( acctID == null ) {
+			throw new IllegalArgumentException("argument <acctID> is null");
+		}
+
+		Integer idx = acctIdx.get(acctID);
+		if ( idx == null ) {
+			throw new IllegalArgumentException("Could not find account with ID " + acctID);
+		}
+
+		return idx;
+	}
+
+	static FixedPointNumber toFP(BigDecimal amt) {
+		return new FixedPointNumber(amt);
+	}
+
+}
@@ -0,0 +1,267 @@
+package org.gnucash.apiext.trialbal;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes the balances of all accounts of a GnuCash file
+ * as of one or more dates in one go.
+ * <br>
+ * Instead of calling {@link GnuCashAccount#getBalance(LocalDate)} once per
+ * account and date (which scans the account's splits each time),
+ * the engine streams over the splits once: Each split's amounts are added
+ * to the bucket of the first requested date that is not before the split's
+ * post date, then the buckets are accumulated per account. Thus, the cost
+ * is O(splits * log(dates) + accounts * dates).
+ * <br>
+ * Optionally, the accounts are partitioned into fork/join chunks,
+ * each of which streams over its accounts' own splits.
+ * As every account is handled by exactly one chunk,
+ * the result is identical to the one of the sequential variant.
+ * <br>
+ * Caution: The file must not be modified while the computation is running.
+ *
+ * @see TrialBalance
+ */
+public class TrialBalanceEngine {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrialBalanceEngine.class);
+
+    // ---------------------------------------------------------------
+
+	// Below that no. of accounts, forking costs more than it saves
+	static final int DEFAULT_CHUNK_SIZE = 16; // ::MAGIC
+
+    // ---------------------------------------------------------------
+
+	private GnuCashFile gcshFile = null;
+
+    // ---------------------------------------------------------------
+
+	public TrialBalanceEngine(GnuCashFile gcshFile) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		this.gcshFile = gcshFile;
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param dates dates (inclusive) to compute the balances as of
+	 * (in any order, duplicates are ignored)
+	 * @return the balances of all accounts as of the given dates
+	 */
+	public TrialBalance compute(Collection<LocalDate> dates) {
+		long[] days = toEpochDays(dates);
+		Data data = new Data(gcshFile, days);
+
+		LOGGER.debug("compute: Computing trial balance for {} accounts, {} dates", data.accounts.length, days.length);
+		for ( GnuCashTransactionSplit splt : gcshFile.getTransactionSplits() ) {
+			if ( splt.getAccountID() == null )
+				continue;
+
+			Integer acctIdx = data.acctIdx.get(splt.getAccountID());
+			if ( acctIdx != null ) {
+				data.add(acctIdx, splt);
+			}
+		}
+
+		return data.toTrialBalance();
+	}
+
+	public TrialBalance compute(LocalDate... dates) {
+		return compute(Arrays.asList(dates));
+	}
+
+	/**
+	 * Parallel variant of {@link #compute(Collection)}.
+	 *
+	 * @param dates dates (inclusive) to compute the balances as of
+	 * @param parallelism no. of worker threads
+	 * @return the balances of all accounts as of the given dates
+	 */
+	public TrialBalance compute(Collection<LocalDate> dates, int parallelism) {
+		if ( parallelism <= 0 ) {
+			throw new IllegalArgumentException("argument <parallelism> is <= 0");
+		}
+
+		if ( parallelism == 1 ) {
+			return compute(dates);
+		}
+
+		if ( parallelism == ForkJoinPool.commonPool().getParallelism() ) {
+			return compute(dates, ForkJoinPool.commonPool());
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return compute(dates, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Parallel variant of {@link #compute(Collection)},
+	 * using the given fork/join pool.
+	 *
+	 * @param dates dates (inclusive) to compute the balances as of
+	 * @param pool fork/join pool to run the computation in
+	 * @return the balances of all accounts as of the given dates
+	 */
+	public TrialBalance compute(Collection<LocalDate> dates, ForkJoinPool pool) {
+		if ( pool == null ) {
+			throw new IllegalArgumentException("argument <pool> is null");
+		}
+
+		long[] days = toEpochDays(dates);
+		Data data = new Data(gcshFile, days);
+
+		LOGGER.debug("compute: Computing trial balance for {} accounts, {} dates (parallelism: {})", data.accounts.length, days.length, pool.getParallelism());
+		pool.invoke(new AccountChunk(data, 0, data.accounts.length));
+
+		return data.toTrialBalance();
+	}
+
+    // ---------------------------------------------------------------
+
+	/*
+	 * Per-account buckets. Every row is written by one thread only.
+	 */
+	private static final class Data {
+		final long[]                       days;
+		final GnuCashAccount[]             accounts;
+		final HashMap<GCshAcctID, Integer> acctIdx;
+		final BigDecimal[][]               qty; // [account][date]; null: zero
+		final BigDecimal[][]               val;
+
+		Data(GnuCashFile gcshFile, long[] days) {
+			this.days     = days;
+			this.accounts = gcshFile.getAccounts().toArray(new GnuCashAccount[0]);
+			this.acctIdx  = new HashMap<GCshAcctID, Integer>(accounts.length * 2);
+			for ( int i = 0; i < accounts.length; i++ ) {
+				acctIdx.put(accounts[i].getID(), i);
+			}
+			this.qty = new BigDecimal[accounts.length][days.length];
+			this.val = new BigDecimal[accounts.length][days.length];
+		}
+
+		void add(int acctIdx, GnuCashTransactionSplit splt) {
+			long day = splt.getTransaction().getDatePosted().toLocalDate().toEpochDay();
+			int bucket = firstIdxNotBefore(days, day);
+			if ( bucket == days.length ) // after the last date
+				return;
+
+			BigDecimal splQty = splt.getQuantity().getBigDecimal();
+			BigDecimal splVal = splt.getValue().getBigDecimal();
+			BigDecimal[] qtyRow = qty[acctIdx];
+			BigDecimal[] valRow = val[acctIdx];
+			qtyRow[bucket] = ( qtyRow[bucket] == null ? splQty : qtyRow[bucket].add(splQty) );
+			valRow[bucket] = ( valRow[bucket] == null ? splVal : valRow[bucket].add(splVal) );
+		}
+
+		TrialBalance toTrialBalance() {
+			for ( int i = 0; i < accounts.length; i++ ) {
+				accumulate(qty[i]);
+				accumulate(val[i]);
+			}
+
+			return new TrialBalance(days, accounts, acctIdx, qty, val);
+		}
+
+		// Buckets -> running totals
+		private static void accumulate(BigDecimal[] row) {
+			BigDecimal sum = BigDecimal.ZERO;
+			for ( int j = 0; j < row.length; j++ ) {
+				if ( row[j] != null )
+					sum = sum.add(row[j]);
+				row[j] = sum;
+			}
+		}
+	}
+
+	private static final class AccountChunk extends RecursiveAction {
+
+		private static final long serialVersionUID = -6211459018853770524L;
+
+		private final Data data;
+		private final int  lo;
+		private final int  hi;
+
+		AccountChunk(Data data, int lo, int hi) {
+			this.data = data;
+			this.lo   = lo;
+			this.hi   = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if ( hi - lo <= DEFAULT_CHUNK_SIZE ) {
+				for ( int i = lo; i < hi; i++ ) {
+					for ( GnuCashTransactionSplit splt : data.accounts[i].getTransactionSplits() ) {
+						data.add(i, splt);
+					}
+				}
+				return;
+			}
+
+			int mid = ( lo + hi ) >>> 1;
+			invokeAll(new AccountChunk(data, lo, mid),
+					  new AccountChunk(data, mid, hi));
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	private static long[] toEpochDays(Collection<LocalDate> dates) {
+		if ( dates == null ) {
+			throw new IllegalArgumentException("argument <dates> is null");
+		}
+
+		if ( dates.isEmpty() ) {
+			throw new IllegalArgumentException("argument <dates> is empty");
+		}
+
+		long[] result = new long[dates.size()];
+		int i = 0;
+		for ( LocalDate date : dates ) {
+			if ( date == null ) {
+				throw new IllegalArgumentException("element of argument <dates> is null");
+			}
+			result[i++] = date.toEpochDay();
+		}
+
+		Arrays.sort(result);
+		return Arrays.stream(result).distinct().toArray();
+	}
+
+	// Binary search on ascending array
+	static int firstIdxNotBefore(long[] arr, long val) {
+		int lo = 0;
+		int hi = arr.length;
+		while ( lo < hi ) {
+			int mid = ( lo + hi ) >>> 1;
+			if ( arr[mid] < val )
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+}
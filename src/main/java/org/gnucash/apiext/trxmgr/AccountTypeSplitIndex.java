@@ -0,0 +1,314 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.base.basetypes.simple.GCshTrxID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index from account types to splits, one per GnuCash file.
+ * <br>
+ * Contains:
+ * <ul>
+ *   <li>per transaction: a bitmask of the types of the accounts
+ *       that its splits are bound to (bit no. = ordinal of the type),
+ *       so that "does this transaction touch a BANK account?" is a bit test</li>
+ *   <li>per account type: all splits bound to accounts of that type</li>
+ * </ul>
+ * The index is maintained incrementally:
+ * <ul>
+ *   <li>A transaction is (re-)indexed when it is first asked for or when
+ *       its no. of splits has changed.</li>
+ *   <li>A transaction is un-indexed when it or one of its (writable) splits
+ *       fires a property change (e.g. a split moved to another account),
+ *       see {@link TransactionModStamp}.</li>
+ *   <li>Transactions that have been added to or removed from the file are
+ *       (un-)indexed by comparing IDs whenever the file's
+ *       modification stamp has changed.</li>
+ * </ul>
+ * Transactions that are not writable objects do not fire property changes;
+ * if they are modified by other means, call {@link #invalidate(GCshTrxID)}.
+ * <br>
+ * The index is registered weakly and kept alive by its modification
+ * stamp and its users (e.g. {@link TransactionManager}), so that
+ * it does not keep the file alive.
+ */
+public class AccountTypeSplitIndex {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountTypeSplitIndex.class);
+
+    // ---------------------------------------------------------------
+
+    private static final Map<GnuCashFile, WeakReference<AccountTypeSplitIndex>> INSTANCES = new WeakHashMap<GnuCashFile, WeakReference<AccountTypeSplitIndex>>();
+
+    // ---------------------------------------------------------------
+
+    private static final class Entry {
+    	final int  nofSplits;
+    	final long typeMask;
+
+    	Entry(int nofSplits, long typeMask) {
+    		this.nofSplits = nofSplits;
+    		this.typeMask  = typeMask;
+    	}
+    }
+
+    // ---------------------------------------------------------------
+
+	private final GnuCashFile         gcshFile;
+	private final TransactionModStamp modStamp;
+
+	// Stamp of the file at the last sync; -1: never
+	private long syncedStamp;
+
+	private final HashMap<GCshTrxID, Entry> entries;
+	private final EnumMap<GnuCashAccount.Type, LinkedHashMap<GCshTrxID, ArrayList<GnuCashTransactionSplit>>> spltsByType;
+
+    // ---------------------------------------------------------------
+
+	private AccountTypeSplitIndex(GnuCashFile gcshFile) {
+		this.gcshFile    = gcshFile;
+		this.modStamp    = TransactionModStamp.of(gcshFile);
+		this.syncedStamp = -1;
+		this.entries     = new HashMap<GCshTrxID, Entry>();
+		this.spltsByType = new EnumMap<GnuCashAccount.Type, LinkedHashMap<GCshTrxID, ArrayList<GnuCashTransactionSplit>>>(GnuCashAccount.Type.class);
+	}
+
+	/**
+	 * @param gcshFile GnuCash file
+	 * @return the index for the given file
+	 */
+	public static AccountTypeSplitIndex of(GnuCashFile gcshFile) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		synchronized ( INSTANCES ) {
+			WeakReference<AccountTypeSplitIndex> ref = INSTANCES.get(gcshFile);
+			AccountTypeSplitIndex idx = ( ref == null ? null : ref.get() );
+			if ( idx == null ) {
+				idx = new AccountTypeSplitIndex(gcshFile);
+				idx.modStamp.addTransactionListener(idx::invalidate);
+				INSTANCES.put(gcshFile, new WeakReference<AccountTypeSplitIndex>(idx));
+			}
+
+			return idx;
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	public static long getMask(GnuCashAccount.Type acctType) {
+		return 1L << acctType.ordinal();
+	}
+
+	public static long getMask(GnuCashAccount.Type... acctTypes) {
+		long result = 0L;
+		for ( GnuCashAccount.Type type : acctTypes ) {
+			result |= getMask(type);
+		}
+
+		return result;
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param trx transaction
+	 * @return bitmask of the types of the accounts that the
+	 * transaction's splits are bound to
+	 *
+	 * @see #getMask(GnuCashAccount.Type)
+	 */
+	public synchronized long getTypeMask(GnuCashTransaction trx) {
+		return getEntry(trx).typeMask;
+	}
+
+	public boolean hasSplits(GnuCashTransaction trx, GnuCashAccount.Type acctType) {
+		return ( getTypeMask(trx) & getMask(acctType) ) != 0;
+	}
+
+	/**
+	 * @return the splits of the given transaction that are bound to
+	 * accounts of the given type, in the order of the transaction
+	 */
+	public synchronized ArrayList<GnuCashTransactionSplit> getSplits(GnuCashTransaction trx, GnuCashAccount.Type acctType) {
+		getEntry(trx);
+
+		ArrayList<GnuCashTransactionSplit> result = new ArrayList<GnuCashTransactionSplit>();
+		LinkedHashMap<GCshTrxID, ArrayList<GnuCashTransactionSplit>> trxMap = spltsByType.get(acctType);
+		if ( trxMap != null ) {
+			ArrayList<GnuCashTransactionSplit> spltList = trxMap.get(trx.getID());
+			if ( spltList != null ) {
+				result.addAll(spltList);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return all splits in the file that are bound to
+	 * accounts of the given type
+	 */
+	public synchronized ArrayList<GnuCashTransactionSplit> getSplits(GnuCashAccount.Type acctType) {
+		sync();
+
+		ArrayList<GnuCashTransactionSplit> result = new ArrayList<GnuCashTransactionSplit>();
+		LinkedHashMap<GCshTrxID, ArrayList<GnuCashTransactionSplit>> trxMap = spltsByType.get(acctType);
+		if ( trxMap != null ) {
+			for ( ArrayList<GnuCashTransactionSplit> spltList : trxMap.values() ) {
+				result.addAll(spltList);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return the no. of transactions in the file that have at least
+	 * one split bound to an account of one of the types in the mask
+	 */
+	public synchronized int getNofTransactions(long typeMask) {
+		sync();
+
+		int result = 0;
+		for ( Entry entry : entries.values() ) {
+			if ( ( entry.typeMask & typeMask ) != 0 ) {
+				result++;
+			}
+		}
+
+		return result;
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * Forces re-indexing of the given transaction on next access.
+	 */
+	public synchronized void invalidate(GCshTrxID trxID) {
+		unindex(trxID);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		spltsByType.clear();
+		syncedStamp = -1;
+	}
+
+    // ---------------------------------------------------------------
+
+	private Entry getEntry(GnuCashTransaction trx) {
+		if ( trx == null ) {
+			throw new IllegalArgumentException("argument <trx> is null");
+		}
+
+		Entry entry = entries.get(trx.getID());
+		if ( entry != null &&
+			 entry.nofSplits == trx.getSplitsCount() ) {
+			return entry;
+		}
+
+		if ( entry != null ) {
+			unindex(trx.getID());
+		}
+
+		return index(trx);
+	}
+
+	// Adds new (or changed) and removes vanished transactions,
+	// leaves the others alone
+	private void sync() {
+		long stamp = modStamp.get();
+		if ( stamp == syncedStamp ) {
+			return;
+		}
+
+		Collection<? extends GnuCashTransaction> trxList = gcshFile.getTransactions();
+		HashSet<GCshTrxID> seen = new HashSet<GCshTrxID>(trxList.size() * 2);
+		int nofAdded = 0;
+		for ( GnuCashTransaction trx : trxList ) {
+			Entry entry = entries.get(trx.getID());
+			if ( entry == null ||
+				 entry.nofSplits != trx.getSplitsCount() ) {
+				if ( entry != null )
+					unindex(trx.getID());
+				index(trx);
+				nofAdded++;
+			}
+			seen.add(trx.getID());
+		}
+
+		int nofRemoved = 0;
+		for ( Iterator<GCshTrxID> iter = entries.keySet().iterator(); iter.hasNext(); ) {
+			GCshTrxID trxID = iter.next();
+			if ( ! seen.contains(trxID) ) {
+				removeSplits(trxID, entries.get(trxID).typeMask);
+				iter.remove();
+				nofRemoved++;
+			}
+		}
+
+		syncedStamp = stamp;
+		LOGGER.debug("sync: {} transactions (re-)indexed, {} removed", nofAdded, nofRemoved);
+	}
+
+	private Entry index(GnuCashTransaction trx) {
+		modStamp.listenTo(trx);
+
+		// Caller's ID objects are mutable
+		GCshTrxID key = new GCshTrxID();
+		key.set(trx.getID());
+
+		long typeMask = 0L;
+		int cnt = 0;
+		for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
+			GnuCashAccount.Type type = splt.getAccount().getType();
+			typeMask |= getMask(type);
+
+			LinkedHashMap<GCshTrxID, ArrayList<GnuCashTransactionSplit>> trxMap = spltsByType.get(type);
+			if ( trxMap == null ) {
+				trxMap = new LinkedHashMap<GCshTrxID, ArrayList<GnuCashTransactionSplit>>();
+				spltsByType.put(type, trxMap);
+			}
+			trxMap.computeIfAbsent(key, k -> new ArrayList<GnuCashTransactionSplit>(2)).add(splt);
+			cnt++;
+		}
+
+		Entry entry = new Entry(cnt, typeMask);
+		entries.put(key, entry);
+		return entry;
+	}
+
+	private void unindex(GCshTrxID trxID) {
+		Entry entry = entries.remove(trxID);
+		if ( entry != null ) {
+			removeSplits(trxID, entry.typeMask);
+		}
+	}
+
+	private void removeSplits(GCshTrxID trxID, long typeMask) {
+		for ( GnuCashAccount.Type type : GnuCashAccount.Type.values() ) {
+			if ( ( typeMask & getMask(type) ) != 0 ) {
+				spltsByType.get(type).remove(trxID);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,477 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.commons.numbers.fraction.BigFraction;
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.api.read.impl.GnuCashTransactionSplitImpl;
+import org.gnucash.apiext.Const;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/**
+ * Immutable, "compiled" form of a {@link TransactionSplitFilter_FP}
+ * or {@link TransactionSplitFilter_BF}.
+ * <br>
+ * Contains only the criteria that are actually set, ordered
+ * cheapest-first (and, as it happens, most-selective-first):
+ * account ID, action, reconciliation state, account type,
+ * value range, quantity range, description.
+ * Constants (such as the lower-case description part) are prepared once.
+ * Amount ranges are checked exactly, but without creating new number
+ * objects (apart from the one the API hands out per amount): against
+ * bounds that are prepared as BigDecimals, tolerance included (FP), resp.
+ * by cross-multiplying numerators and denominators as longs (BF).
+ * The number classes' own arithmetic is only used for amounts that lie
+ * exactly on a bound (FP) resp. are too large for longs (BF).
+ * <br>
+ * The compiled filter is a snapshot: Later changes to the
+ * original filter do not affect it. It can safely be shared
+ * between threads.
+ *
+ * @see TransactionSplitFilter_FP#compile()
+ * @see TransactionSplitFilter_BF#compile()
+ */
+public final class CompiledSplitFilter implements Predicate<GnuCashTransactionSplit> {
+
+	interface Criterion {
+		boolean matches(GnuCashTransactionSplit splt);
+	}
+
+	// Results of the amount ranges' fast paths
+	private static final int FAIL      = -1;
+	private static final int UNDECIDED = 0;
+	private static final int PASS      = 1;
+
+    // ---------------------------------------------------------------
+
+	private final Criterion[] criteria;
+	private final String      descr;
+
+    // ---------------------------------------------------------------
+
+	private CompiledSplitFilter(List<Criterion> criteria, String descr) {
+		this.criteria = criteria.toArray(new Criterion[criteria.size()]);
+		this.descr    = descr;
+	}
+
+    // ---------------------------------------------------------------
+
+	static CompiledSplitFilter of(TransactionSplitFilter_FP flt) {
+		ArrayList<Criterion> result = new ArrayList<Criterion>();
+
+		addCommonCriteria(result, flt.acctID, flt.action, flt.reconState, flt.acctType);
+
+		boolean valueFromSet = ! flt.valueFrom.equals(TransactionSplitFilter_FP.UNSET_VALUE);
+		boolean valueToSet   = ! flt.valueTo  .equals(TransactionSplitFilter_FP.UNSET_VALUE);
+		if ( valueFromSet || valueToSet ) {
+			result.add(new ValueRangeFP(valueFromSet ? flt.valueFrom.copy() : null,
+									    valueToSet   ? flt.valueTo.copy()   : null,
+									    flt.valueAbs));
+		}
+
+		boolean qtyFromSet = ! flt.quantityFrom.equals(TransactionSplitFilter_FP.UNSET_VALUE);
+		boolean qtyToSet   = ! flt.quantityTo  .equals(TransactionSplitFilter_FP.UNSET_VALUE);
+		if ( qtyFromSet || qtyToSet ) {
+			result.add(new QuantityRangeFP(qtyFromSet ? flt.quantityFrom.copy() : null,
+										   qtyToSet   ? flt.quantityTo.copy()   : null,
+										   flt.quantityAbs));
+		}
+
+		addDescrCriterion(result, flt.descrPart);
+
+		return new CompiledSplitFilter(result, flt.toString());
+	}
+
+	static CompiledSplitFilter of(TransactionSplitFilter_BF flt) {
+		ArrayList<Criterion> result = new ArrayList<Criterion>();
+
+		addCommonCriteria(result, flt.acctID, flt.action, flt.reconState, flt.acctType);
+
+		boolean valueFromSet = ! flt.valueFrom.equals(TransactionSplitFilter_BF.UNSET_VALUE);
+		boolean valueToSet   = ! flt.valueTo  .equals(TransactionSplitFilter_BF.UNSET_VALUE);
+		if ( valueFromSet || valueToSet ) {
+			result.add(new ValueRangeBF(valueFromSet ? flt.valueFrom : null, // immutable
+									    valueToSet   ? flt.valueTo   : null,
+									    flt.valueAbs));
+		}
+
+		boolean qtyFromSet = ! flt.quantityFrom.equals(TransactionSplitFilter_BF.UNSET_VALUE);
+		boolean qtyToSet   = ! flt.quantityTo  .equals(TransactionSplitFilter_BF.UNSET_VALUE);
+		if ( qtyFromSet || qtyToSet ) {
+			result.add(new QuantityRangeBF(qtyFromSet ? flt.quantityFrom : null,
+										   qtyToSet   ? flt.quantityTo   : null,
+										   flt.quantityAbs));
+		}
+
+		addDescrCriterion(result, flt.descrPart);
+
+		return new CompiledSplitFilter(result, flt.toString());
+	}
+
+	private static void addCommonCriteria(List<Criterion> result,
+										  GCshAcctID acctID,
+										  GnuCashTransactionSplit.Action action,
+										  GnuCashTransactionSplit.ReconState reconState,
+										  GnuCashAccount.Type acctType) {
+		if ( acctID.isSet() ) {
+			GCshAcctID acctIDCopy = new GCshAcctID();
+			acctIDCopy.set(acctID);
+			result.add(new AcctIDCrit(acctIDCopy));
+		}
+
+		if ( action != null ) {
+			result.add(new ActionCrit(action));
+		}
+
+		if ( reconState != null ) {
+			result.add(new ReconStateCrit(reconState));
+		}
+
+		if ( acctType != null ) {
+			result.add(new AcctTypeCrit(acctType));
+		}
+	}
+
+	private static void addDescrCriterion(List<Criterion> result, String descrPart) {
+		if ( ! descrPart.isBlank() ) {
+			result.add(new DescrCrit(DescriptionIndex.fold(descrPart.trim())));
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	public boolean matchesCriteria(final GnuCashTransactionSplit splt) {
+		if ( splt == null ) {
+			throw new IllegalArgumentException("argument <splt> is null");
+		}
+
+		for ( Criterion crit : criteria ) {
+			if ( ! crit.matches(splt) ) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean test(GnuCashTransactionSplit splt) {
+		return matchesCriteria(splt);
+	}
+
+	/**
+	 * @return no. of active criteria (0 means: matches every split)
+	 */
+	public int getNofCriteria() {
+		return criteria.length;
+	}
+
+    // ---------------------------------------------------------------
+	// Criteria
+
+	private static final class AcctIDCrit implements Criterion {
+		private final GCshAcctID acctID;
+
+		AcctIDCrit(GCshAcctID acctID) {
+			this.acctID = acctID;
+		}
+
+		public boolean matches(GnuCashTransactionSplit splt) {
+			if ( splt.getAccountID() == null ) // not in any account
+				return false;
+
+			return splt.getAccountID().equals(acctID);
+		}
+	}
+
+	private static final class ActionCrit implements Criterion {
+		private final GnuCashTransactionSplit.Action action;
+
+		ActionCrit(GnuCashTransactionSplit.Action action) {
+			this.action = action;
+		}
+
+		public boolean matches(GnuCashTransactionSplit splt) {
+			// Important pre-check first,
+			// as values returned are *not* standardized:
+			String actionStr = splt.getActionStr();
+			if ( actionStr == null ||
+				 actionStr.isBlank() )
+				return false;
+
+			return splt.getAction() == action;
+		}
+	}
+
+	private static final class ReconStateCrit implements Criterion {
+		private final GnuCashTransactionSplit.ReconState reconState;
+
+		ReconStateCrit(GnuCashTransactionSplit.ReconState reconState) {
+			this.reconState = reconState;
+		}
+
+		public boolean matches(GnuCashTransactionSplit splt) {
+			if ( ((GnuCashTransactionSplitImpl) splt).getReconStateStr() == null )
+				return false;
+
+			return splt.getReconState() == reconState;
+		}
+	}
+
+	private static final class AcctTypeCrit implements Criterion {
+		private final GnuCashAccount.Type acctType;
+
+		AcctTypeCrit(GnuCashAccount.Type acctType) {
+			this.acctType = acctType;
+		}
+
+		public boolean matches(GnuCashTransactionSplit splt) {
+			return splt.getAccount().getType() == acctType;
+		}
+	}
+
+	// ----------------------------
+
+	private static class ValueRangeFP implements Criterion {
+		private final FixedPointNumber from; // null: open
+		private final FixedPointNumber to;   // dto.
+		private final boolean          abs;
+
+		// Bounds with tolerance; null: open
+		private final BigDecimal lo;    // from - tolerance
+		private final BigDecimal hi;    // to + tolerance
+		private final BigDecimal negLo; // -hi, for negative amounts if abs
+		private final BigDecimal negHi; // -lo, dto.
+
+		ValueRangeFP(FixedPointNumber from, FixedPointNumber to, boolean abs) {
+			this.from = from;
+			this.to   = to;
+			this.abs  = abs;
+
+			BigDecimal tol = BigDecimal.valueOf(Const.DIFF_TOLERANCE_VALUE);
+			this.lo    = ( from == null ? null : from.getBigDecimal().subtract(tol) );
+			this.hi    = ( to   == null ? null : to.getBigDecimal().add(tol) );
+			this.negLo = ( hi   == null ? null : hi.negate() );
+			this.negHi = ( lo   == null ? null : lo.negate() );
+		}
+
+		FixedPointNumber getAmount(GnuCashTransactionSplit splt) {
+			return splt.getValue();
+		}
+
+		public boolean matches(GnuCashTransactionSplit splt) {
+			FixedPointNumber amt = getAmount(splt); // fresh object, read once
+
+			// Fast path: |amt| in [lo, hi] <=> amt in [-hi, -lo] for amt < 0,
+			// so that there is no need to negate
+			BigDecimal amtDec = amt.getBigDecimal();
+			int res = ( abs && amtDec.signum() < 0 ) ?
+							check(amtDec, negLo, negHi) :
+							check(amtDec, lo, hi);
+			if ( res != UNDECIDED )
+				return res == PASS;
+
+			// Exactly on a bound: leave it to FixedPointNumber
+			if ( abs &&
+				 amt.isNegative() ) {
+				amt.negate(); // mutable
+			}
+
+			if ( from != null &&
+				 amt.isLessThan(from, Const.DIFF_TOLERANCE_VALUE) )
+				return false;
+
+			if ( to != null &&
+				 amt.isGreaterThan(to, Const.DIFF_TOLERANCE_VALUE) )
+				return false;
+
+			return true;
+		}
+
+		// BigDecimal.compareTo does not allocate for
+		// amounts of usual size (whatever their scale)
+		private static int check(BigDecimal amt, BigDecimal lo, BigDecimal hi) {
+			if ( lo != null ) {
+				int cmp = amt.compareTo(lo);
+				if ( cmp < 0 )
+					return FAIL;
+				if ( cmp == 0 )
+					return UNDECIDED;
+			}
+
+			if ( hi != null ) {
+				int cmp = amt.compareTo(hi);
+				if ( cmp > 0 )
+					return FAIL;
+				if ( cmp == 0 )
+					return UNDECIDED;
+			}
+
+			return PASS;
+		}
+	}
+
+	private static final class QuantityRangeFP extends ValueRangeFP {
+		QuantityRangeFP(FixedPointNumber from, FixedPointNumber to, boolean abs) {
+			super(from, to, abs);
+		}
+
+		@Override
+		FixedPointNumber getAmount(GnuCashTransactionSplit splt) {
+			return splt.getQuantity();
+		}
+	}
+
+	private static class ValueRangeBF implements Criterion {
+		// Beyond that, the products of the fast path might overflow
+		private static final int MAX_BITS = 62; // ::MAGIC
+
+		private final BigFraction from; // null: open
+		private final BigFraction to;   // dto.
+		private final boolean     abs;
+
+		// Bounds as longs, denominators > 0
+		// (the bit lengths are the BigIntegers' ones);
+		// false if one of them is too large
+		private final boolean usable;
+		private final long    fromNum;
+		private final long    fromDen;
+		private final int     fromBits; // max. of numerator and denominator
+		private final long    toNum;
+		private final long    toDen;
+		private final int     toBits;   // dto.
+
+		ValueRangeBF(BigFraction from, BigFraction to, boolean abs) {
+			this.from = from;
+			this.to   = to;
+			this.abs  = abs;
+
+			this.fromBits = ( from == null ? 0 : getBits(from) );
+			this.toBits   = ( to   == null ? 0 : getBits(to) );
+			this.usable   = ( fromBits < MAX_BITS && toBits < MAX_BITS );
+			this.fromNum  = ( usable && from != null ? getNumerator(from) : 0L );
+			this.fromDen  = ( usable && from != null ? getDenominator(from) : 1L );
+			this.toNum    = ( usable && to   != null ? getNumerator(to) : 0L );
+			this.toDen    = ( usable && to   != null ? getDenominator(to) : 1L );
+		}
+
+		BigFraction getAmount(GnuCashTransactionSplit splt) {
+			return splt.getValueRat();
+		}
+
+		public boolean matches(GnuCashTransactionSplit splt) {
+			BigFraction amt = getAmount(splt); // read once
+
+			// Fast path: exact, on longs
+			int res = check(amt.getNumerator(), amt.getDenominator(),
+							abs && amt.signum() < 0);
+			if ( res != UNDECIDED )
+				return res == PASS;
+
+			// Too large for longs
+			if ( abs &&
+				 amt.signum() < 0 ) {
+				amt = amt.negate(); // immutable
+			}
+
+			// CAUTION: Cannot use amt.compareTo(from/to) directly
+			// due to bug in BigFraction.compareTo()
+			if ( from != null &&
+				 from.subtract(amt).signum() > 0 )
+				return false;
+
+			if ( to != null &&
+				 to.subtract(amt).signum() < 0 )
+				return false;
+
+			return true;
+		}
+
+		private int check(BigInteger num, BigInteger den, boolean negate) {
+			// |n * bndDen| and |bndNum * d| < 2^MAX_BITS
+			int bits = Math.max(num.bitLength(), den.bitLength());
+			if ( ! usable ||
+				 bits + Math.max(fromBits, toBits) > MAX_BITS )
+				return UNDECIDED;
+
+			long n = ( negate ? -num.longValue() : num.longValue() );
+			long d = den.longValue();
+
+			if ( from != null &&
+				 compare(n, d, fromNum, fromDen) < 0 )
+				return FAIL;
+
+			if ( to != null &&
+				 compare(n, d, toNum, toDen) > 0 )
+				return FAIL;
+
+			return PASS;
+		}
+
+		// Sign of n/d - bndNum/bndDen (bndDen > 0, d != 0; all of them
+		// small enough for the products not to overflow)
+		private static int compare(long n, long d, long bndNum, long bndDen) {
+			int cmp = Long.compare(n * bndDen, bndNum * d);
+			return ( d < 0 ? -cmp : cmp );
+		}
+
+		private static int getBits(BigFraction bnd) {
+			return Math.max(bnd.getNumerator().bitLength(),
+							bnd.getDenominator().bitLength());
+		}
+
+		private static long getNumerator(BigFraction bnd) {
+			long num = bnd.getNumerator().longValue();
+			return ( bnd.getDenominator().signum() < 0 ? -num : num );
+		}
+
+		private static long getDenominator(BigFraction bnd) {
+			return Math.abs(bnd.getDenominator().longValue());
+		}
+	}
+
+	private static final class QuantityRangeBF extends ValueRangeBF {
+		QuantityRangeBF(BigFraction from, BigFraction to, boolean abs) {
+			super(from, to, abs);
+		}
+
+		@Override
+		BigFraction getAmount(GnuCashTransactionSplit splt) {
+			return splt.getQuantityRat();
+		}
+	}
+
+	// ----------------------------
+
+	private static final class DescrCrit implements Criterion {
+		private final String descrPartFolded; // trimmed, case-folded
+
+		DescrCrit(String descrPartFolded) {
+			this.descrPartFolded = descrPartFolded;
+		}
+
+		public boolean matches(GnuCashTransactionSplit splt) {
+			String descr = splt.getDescription();
+			if ( descr == null )
+				return false;
+
+			return DescriptionIndex.containsFolded(descr, descrPartFolded);
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	@Override
+	public String toString() {
+		return "CompiledSplitFilter [nofCriteria=" + criteria.length + ", " +
+							   "source=" + descr + "]";
+	}
+
+}
@@ -0,0 +1,365 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Case-insensitive substring index over the descriptions of the
+ * transactions and splits of a GnuCash file, used by
+ * {@link TransactionFinder} and {@link TransactionSplitFinder}
+ * when the filter contains a description part.
+ * <br>
+ * The descriptions are normalised (case-folded, see {@link #fold(String)})
+ * once. For each
+ * trigram (three consecutive characters) of a normalised description,
+ * the index holds the ascending positions of all transactions resp.
+ * splits whose description contains it. A search intersects the
+ * posting lists of the search string's trigrams and verifies the
+ * remaining candidates against the normalised descriptions.
+ * Search strings shorter than three characters are resolved
+ * by scanning the normalised descriptions (still without
+ * allocating a single string per candidate).
+ * <br>
+ * The matching semantics are the same as the ones of
+ * {@link TransactionFilter#descrPart} and
+ * {@link TransactionSplitFilter_FP#descrPart}: All of them match
+ * by {@link #containsFolded(String, String)}.
+ * <br>
+ * The transaction positions are the ones of {@link TransactionIndex}'s
+ * posting array; the splits are ordered accordingly. The index is
+ * rebuilt whenever the transaction index has been rebuilt, i.e. whenever
+ * the file's {@link TransactionModStamp} has changed (which includes
+ * changed descriptions of writable transactions and splits).
+ * <br>
+ * Registered weakly (cf. {@link TransactionIndex}): The index lives as
+ * long as someone uses it, e.g. a {@link TransactionFinder}.
+ */
+public class DescriptionIndex {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(DescriptionIndex.class);
+
+    // ---------------------------------------------------------------
+
+    public static final int NGRAM_LEN = 3;
+
+    private static final int[] EMPTY = new int[0];
+
+    private static final Map<GnuCashFile, WeakReference<DescriptionIndex>> INSTANCES = new WeakHashMap<GnuCashFile, WeakReference<DescriptionIndex>>();
+
+    // ---------------------------------------------------------------
+
+	private final TransactionIndex trxIdx;
+
+	// Transactions: normalised descriptions (null if none),
+	// indexed by position in the posting array
+	private final String[]               trxDescr;
+	private final HashMap<Long, int[]>   trxNgrams;
+
+	// Splits
+	private final GnuCashTransactionSplit[] splits;
+	private final int[]                     spltTrxPos; // position of the split's transaction
+	private final String[]                  spltDescr;
+	private final HashMap<Long, int[]>      spltNgrams;
+
+    // ---------------------------------------------------------------
+
+	private DescriptionIndex(TransactionIndex trxIdx) {
+		this.trxIdx = trxIdx;
+
+		int nofTrx = trxIdx.getNofTransactions();
+		trxDescr = new String[nofTrx];
+		HashMap<Long, TransactionIndex.IntArrayBuilder> trxNgramsBld = new HashMap<Long, TransactionIndex.IntArrayBuilder>();
+
+		ArrayList<GnuCashTransactionSplit> spltList = new ArrayList<GnuCashTransactionSplit>(nofTrx * 2);
+		TransactionIndex.IntArrayBuilder spltTrxPosBld = new TransactionIndex.IntArrayBuilder();
+		ArrayList<String> spltDescrList = new ArrayList<String>(nofTrx * 2);
+		HashMap<Long, TransactionIndex.IntArrayBuilder> spltNgramsBld = new HashMap<Long, TransactionIndex.IntArrayBuilder>();
+
+		for ( int i = 0; i < nofTrx; i++ ) {
+			GnuCashTransaction trx = trxIdx.getTransaction(i);
+			trxDescr[i] = normalise(trx.getDescription());
+			addNgrams(trxNgramsBld, trxDescr[i], i);
+
+			for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
+				int j = spltList.size();
+				String descr = normalise(splt.getDescription());
+				spltList.add(splt);
+				spltTrxPosBld.add(i);
+				spltDescrList.add(descr);
+				addNgrams(spltNgramsBld, descr, j);
+			}
+		}
+
+		trxNgrams  = toPostings(trxNgramsBld);
+
+		splits     = spltList.toArray(new GnuCashTransactionSplit[spltList.size()]);
+		spltTrxPos = spltTrxPosBld.toArray();
+		spltDescr  = spltDescrList.toArray(new String[spltDescrList.size()]);
+		spltNgrams = toPostings(spltNgramsBld);
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param gcshFile GnuCash file
+	 * @return the index for the given file, (re-)built if necessary.
+	 */
+	public static DescriptionIndex of(GnuCashFile gcshFile) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		TransactionIndex trxIdx = TransactionIndex.of(gcshFile);
+
+		synchronized ( INSTANCES ) {
+			WeakReference<DescriptionIndex> ref = INSTANCES.get(gcshFile);
+			DescriptionIndex idx = ( ref == null ? null : ref.get() );
+			if ( idx == null ||
+				 idx.trxIdx != trxIdx ) {
+				LOGGER.debug("of: (Re-)building description index");
+				idx = new DescriptionIndex(trxIdx);
+				INSTANCES.put(gcshFile, new WeakReference<DescriptionIndex>(idx));
+				LOGGER.debug("of: Built description index: {} transaction n-grams, {} split n-grams",
+							 idx.trxNgrams.size(), idx.spltNgrams.size());
+			}
+
+			return idx;
+		}
+	}
+
+	/**
+	 * Discards the index for the given file (and the transaction index
+	 * it is based on), so that it will be rebuilt on next access.
+	 *
+	 * @param gcshFile GnuCash file
+	 */
+	public static void invalidate(GnuCashFile gcshFile) {
+		TransactionIndex.invalidate(gcshFile);
+		synchronized ( INSTANCES ) {
+			INSTANCES.remove(gcshFile);
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	public TransactionIndex getTransactionIndex() {
+		return trxIdx;
+	}
+
+	/**
+	 * @param descrPart part of the description (case-insensitive,
+	 * leading and trailing blanks are ignored)
+	 * @return the transactions whose description contains the given part,
+	 * in the order of the transaction index
+	 */
+	public List<GnuCashTransaction> findTransactions(String descrPart) {
+		int[] positions = getTrxPositions(descrPart);
+		return trxIdx.getTransactions(positions, 0, positions.length);
+	}
+
+	/**
+	 * @param descrPart part of the description (case-insensitive,
+	 * leading and trailing blanks are ignored)
+	 * @return the splits whose description contains the given part,
+	 * in the order of the transaction index
+	 */
+	public List<GnuCashTransactionSplit> findSplits(String descrPart) {
+		final int[] positions = getSpltPositions(descrPart);
+		return new AbstractList<GnuCashTransactionSplit>() {
+			@Override
+			public GnuCashTransactionSplit get(int i) {
+				return splits[positions[i]];
+			}
+
+			@Override
+			public int size() {
+				return positions.length;
+			}
+		};
+	}
+
+    // ---------------------------------------------------------------
+
+	/*
+	 * Ascending positions (in the posting array) of all transactions
+	 * whose description contains the given part.
+	 */
+	int[] getTrxPositions(String descrPart) {
+		return search(trxDescr, trxNgrams, normaliseSearch(descrPart));
+	}
+
+	/*
+	 * Ascending positions of all splits whose description
+	 * contains the given part.
+	 */
+	int[] getSpltPositions(String descrPart) {
+		return search(spltDescr, spltNgrams, normaliseSearch(descrPart));
+	}
+
+	/*
+	 * Ascending positions (in the posting array) of all transactions
+	 * that have at least one split whose description contains
+	 * the given part.
+	 */
+	int[] getTrxPositionsBySplitDescr(String descrPart) {
+		int[] spltPos = getSpltPositions(descrPart);
+
+		TransactionIndex.IntArrayBuilder bld = new TransactionIndex.IntArrayBuilder();
+		for ( int pos : spltPos ) {
+			bld.addIfNotLast(spltTrxPos[pos]); // splits are ordered by transaction
+		}
+
+		return bld.toArray();
+	}
+
+    // ---------------------------------------------------------------
+
+	private static int[] search(String[] descr, HashMap<Long, int[]> ngrams, String needle) {
+		if ( needle.isEmpty() ) {
+			throw new IllegalArgumentException("argument <descrPart> is blank");
+		}
+
+		if ( needle.length() < NGRAM_LEN ) {
+			TransactionIndex.IntArrayBuilder bld = new TransactionIndex.IntArrayBuilder();
+			for ( int i = 0; i < descr.length; i++ ) {
+				if ( descr[i] != null &&
+					 descr[i].contains(needle) ) { // both folded
+					bld.add(i);
+				}
+			}
+			return bld.toArray();
+		}
+
+		// Posting lists of all of the needle's n-grams, shortest first
+		int nofNgrams = needle.length() - NGRAM_LEN + 1;
+		int[][] postings = new int[nofNgrams][];
+		for ( int i = 0; i < nofNgrams; i++ ) {
+			postings[i] = ngrams.get(getNgram(needle, i));
+			if ( postings[i] == null ) {
+				return EMPTY;
+			}
+		}
+		Arrays.sort(postings, Comparator.comparingInt((int[] arr) -> arr.length));
+
+		TransactionIndex.IntArrayBuilder bld = new TransactionIndex.IntArrayBuilder();
+		for ( int pos : postings[0] ) {
+			boolean inAll = true;
+			for ( int i = 1; i < nofNgrams && inAll; i++ ) {
+				inAll = ( Arrays.binarySearch(postings[i], pos) >= 0 );
+			}
+
+			// The n-grams may occur in a different order
+			if ( inAll &&
+				 descr[pos].contains(needle) ) { // both folded
+				bld.add(pos);
+			}
+		}
+
+		return bld.toArray();
+	}
+
+	private static void addNgrams(HashMap<Long, TransactionIndex.IntArrayBuilder> ngramsBld, String descr, int pos) {
+		if ( descr == null ) {
+			return;
+		}
+
+		for ( int i = 0; i + NGRAM_LEN <= descr.length(); i++ ) {
+			Long ngram = getNgram(descr, i);
+			TransactionIndex.IntArrayBuilder bld = ngramsBld.get(ngram);
+			if ( bld == null ) {
+				bld = new TransactionIndex.IntArrayBuilder();
+				ngramsBld.put(ngram, bld);
+			}
+			bld.addIfNotLast(pos); // the same n-gram may occur several times in one description
+		}
+	}
+
+	private static HashMap<Long, int[]> toPostings(HashMap<Long, TransactionIndex.IntArrayBuilder> ngramsBld) {
+		HashMap<Long, int[]> result = new HashMap<Long, int[]>(ngramsBld.size() * 2);
+		for ( Map.Entry<Long, TransactionIndex.IntArrayBuilder> entry : ngramsBld.entrySet() ) {
+			result.put(entry.getKey(), entry.getValue().toArray());
+		}
+
+		return result;
+	}
+
+	// Three chars packed into one long
+	private static Long getNgram(String str, int pos) {
+		return ( (long) str.charAt(pos) << 32 ) |
+			   ( (long) str.charAt(pos + 1) << 16 ) |
+			   ( (long) str.charAt(pos + 2) );
+	}
+
+	private static String normalise(String descr) {
+		if ( descr == null ) {
+			return null;
+		}
+
+		return fold(descr);
+	}
+
+	private static String normaliseSearch(String descrPart) {
+		if ( descrPart == null ) {
+			throw new IllegalArgumentException("argument <descrPart> is null");
+		}
+
+		return fold(descrPart.trim());
+	}
+
+    // ---------------------------------------------------------------
+
+	/*
+	 * The case folding of all description matching in this package
+	 * (index, compiled and plain filters alike): char by char, the way
+	 * String.regionMatches(true, ...) compares. Unlike
+	 * String.toLowerCase(), it preserves the length (e.g. for 'İ'),
+	 * so that folded strings can be compared position by position.
+	 */
+	static char fold(char chr) {
+		return Character.toLowerCase(Character.toUpperCase(chr));
+	}
+
+	static String fold(String str) {
+		char[] chars = str.toCharArray();
+		for ( int i = 0; i < chars.length; i++ ) {
+			chars[i] = fold(chars[i]);
+		}
+
+		return new String(chars);
+	}
+
+	/*
+	 * Same as fold(haystack).contains(needleFolded), but without
+	 * allocating a folded copy of the haystack.
+	 */
+	static boolean containsFolded(String haystack, String needleFolded) {
+		int len = needleFolded.length();
+		int max = haystack.length() - len;
+		for ( int i = 0; i <= max; i++ ) {
+			int j = 0;
+			while ( j < len &&
+					fold(haystack.charAt(i + j)) == needleFolded.charAt(j) ) {
+				j++;
+			}
+			if ( j == len )
+				return true;
+		}
+
+		return false;
+	}
+
+}
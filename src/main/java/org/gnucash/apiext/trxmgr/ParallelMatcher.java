@@ -0,0 +1,105 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates a predicate on a list of candidates in fork/join chunks.
+ * <br>
+ * The result preserves the order of the candidate list: Each task
+ * concatenates its left half's result with its right half's result,
+ * so the outcome is identical to a sequential pass, regardless of the
+ * no. of threads.
+ * <br>
+ * Caution: The predicate is called concurrently and thus must not
+ * modify shared state. The GnuCash file must not be modified
+ * while the evaluation is running.
+ */
+class ParallelMatcher<T> extends RecursiveTask<ArrayList<T>> {
+
+	private static final long serialVersionUID = 3547061382943817226L;
+
+	// Below that no. of candidates, forking costs more than it saves
+	static final int DEFAULT_CHUNK_SIZE = 1024; // ::MAGIC
+
+    // ---------------------------------------------------------------
+
+	private final List<? extends T>    candList;
+	private final Predicate<? super T> pred;
+	private final int                  lo;
+	private final int                  hi;
+	private final int                  chunkSize;
+
+    // ---------------------------------------------------------------
+
+	private ParallelMatcher(List<? extends T> candList, Predicate<? super T> pred,
+							int lo, int hi, int chunkSize) {
+		this.candList  = candList;
+		this.pred      = pred;
+		this.lo        = lo;
+		this.hi        = hi;
+		this.chunkSize = chunkSize;
+	}
+
+    // ---------------------------------------------------------------
+
+	static <T> ArrayList<T> match(List<? extends T> candList, Predicate<? super T> pred,
+								  ForkJoinPool pool) {
+		if ( pool == null ) {
+			throw new IllegalArgumentException("argument <pool> is null");
+		}
+
+		// At least a few chunks per thread, so that work-stealing
+		// can even out expensive and cheap chunks
+		int chunkSize = Math.max(DEFAULT_CHUNK_SIZE / 8,
+								 Math.min(DEFAULT_CHUNK_SIZE, candList.size() / ( pool.getParallelism() * 4 ) + 1));
+		return pool.invoke(new ParallelMatcher<T>(candList, pred, 0, candList.size(), chunkSize));
+	}
+
+	static <T> ArrayList<T> match(List<? extends T> candList, Predicate<? super T> pred,
+								  int parallelism) {
+		if ( parallelism <= 0 ) {
+			throw new IllegalArgumentException("argument <parallelism> is <= 0");
+		}
+
+		if ( parallelism == ForkJoinPool.commonPool().getParallelism() ) {
+			return match(candList, pred, ForkJoinPool.commonPool());
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return match(candList, pred, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	@Override
+	protected ArrayList<T> compute() {
+		if ( hi - lo <= chunkSize ) {
+			ArrayList<T> result = new ArrayList<T>();
+			for ( int i = lo; i < hi; i++ ) {
+				T cand = candList.get(i);
+				if ( pred.test(cand) ) {
+					result.add(cand);
+				}
+			}
+			return result;
+		}
+
+		int mid = ( lo + hi ) >>> 1;
+		ParallelMatcher<T> left  = new ParallelMatcher<T>(candList, pred, lo, mid, chunkSize);
+		ParallelMatcher<T> right = new ParallelMatcher<T>(candList, pred, mid, hi, chunkSize);
+		left.fork();
+		ArrayList<T> resultRight = right.compute();
+		ArrayList<T> result = left.join();
+		result.addAll(resultRight);
+		return result;
+	}
+
+}
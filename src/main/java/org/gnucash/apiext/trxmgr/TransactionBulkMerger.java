@@ -0,0 +1,381 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.api.write.GnuCashWritableFile;
+import org.gnucash.api.write.GnuCashWritableTransaction;
+import org.gnucash.apiext.Const;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds and merges duplicate transactions across a whole GnuCash file,
+ * e.g. after importing bank statements that overlap with transactions
+ * that have already been booked.
+ * <br>
+ * Candidate pairs are found without comparing each transaction with
+ * each other one: The transactions are bucketed by a key consisting of
+ * the bank/cash/stock accounts they have splits in and the according
+ * split sums (rounded to cents). Only within a bucket, the transactions
+ * are sorted by post date, and neighbours that are at most
+ * {@link Const#DIFF_TOLERANCE_DAYS} days apart become candidates.
+ * Thus, the search is O(n log n).
+ * <br>
+ * A candidate pair is not necessarily a duplicate: Before merging,
+ * it has to pass the merger's {@link TransactionMergerBase#plausiCheck(GnuCashTransaction, GnuCashTransaction)}
+ * (done once per pair, on the split profiles computed for bucketing; the
+ * actual merge does not repeat it).
+ * Conversely, pairs that would pass the plausi check, but do not have
+ * exactly the same bank/cash/stock accounts, are not found.
+ * <br>
+ * Each transaction is part of at most one candidate pair.
+ */
+public class TransactionBulkMerger {
+
+	/**
+	 * Which transaction of a candidate pair survives.
+	 */
+	public enum SurvivorPolicy {
+		FIRST_ENTERED, // the one that has been in the book before (default)
+		LAST_ENTERED
+	}
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionBulkMerger.class);
+
+    // ---------------------------------------------------------------
+
+    public static final int DEFAULT_BATCH_SIZE = 1000; // ::MAGIC
+
+    private static final GnuCashAccount.Type[] KEY_ACCT_TYPES = {
+    		GnuCashAccount.Type.BANK,
+    		GnuCashAccount.Type.CASH,
+    		GnuCashAccount.Type.STOCK
+    };
+
+    // ---------------------------------------------------------------
+
+    /**
+     * Holds the split profiles that the candidate search has computed anyway,
+     * so that the plausi check does not have to compute them again. 
+     * Thus, the file must not be modified between finding and merging 
+     * the candidates (other than by the merges themselves).
+     */
+    public static class CandidatePair {
+    	private final TransactionSplitProfile survivor;
+    	private final TransactionSplitProfile dier;
+
+    	CandidatePair(TransactionSplitProfile survivor, TransactionSplitProfile dier) {
+    		this.survivor = survivor;
+    		this.dier = dier;
+    	}
+
+    	public GnuCashTransaction getSurvivor() {
+    		return survivor.getTransaction();
+    	}
+
+    	public GnuCashTransaction getDier() {
+    		return dier.getTransaction();
+    	}
+
+    	@Override
+    	public String toString() {
+    		return "CandidatePair [survivor=" + getSurvivor().getID() + ", dier=" + getDier().getID() + "]";
+    	}
+    }
+
+    public static class Result {
+    	private final List<CandidatePair> merged;
+    	private final List<CandidatePair> rejected;
+
+    	Result(List<CandidatePair> merged, List<CandidatePair> rejected) {
+    		this.merged = Collections.unmodifiableList(merged);
+    		this.rejected = Collections.unmodifiableList(rejected);
+    	}
+
+    	/**
+    	 * @return the pairs whose dier has been removed
+    	 */
+    	public List<CandidatePair> getMerged() {
+    		return merged;
+    	}
+
+    	/**
+    	 * @return the pairs that have not passed the plausi check
+    	 * or could not be merged for other reasons (see log)
+    	 */
+    	public List<CandidatePair> getRejected() {
+    		return rejected;
+    	}
+
+    	@Override
+    	public String toString() {
+    		return "Result [nof-merged=" + merged.size() + ", nof-rejected=" + rejected.size() + "]";
+    	}
+    }
+
+    // ---------------------------------------------------------------
+
+	private final GnuCashWritableFile   gcshFile;
+	private final TransactionMergerBase merger;
+
+	private SurvivorPolicy survPolicy = SurvivorPolicy.FIRST_ENTERED;
+	private int            batchSize  = DEFAULT_BATCH_SIZE;
+
+    // ---------------------------------------------------------------
+
+	public TransactionBulkMerger(GnuCashWritableFile gcshFile, TransactionMergerBase.Var var) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		if ( var == null ) {
+			throw new IllegalArgumentException("argument <var> is null");
+		}
+
+		this.gcshFile = gcshFile;
+		if ( var == TransactionMergerBase.Var.VAR_1 ) {
+			this.merger = new TransactionMergerVar1(gcshFile);
+		} else {
+			this.merger = new TransactionMergerVar2(gcshFile);
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	public SurvivorPolicy getSurvivorPolicy() {
+		return survPolicy;
+	}
+
+	public void setSurvivorPolicy(SurvivorPolicy survPolicy) {
+		if ( survPolicy == null ) {
+			throw new IllegalArgumentException("argument <survPolicy> is null");
+		}
+
+		this.survPolicy = survPolicy;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @param batchSize no. of candidate pairs that are plausi-checked
+	 * before the passing ones are merged
+	 */
+	public void setBatchSize(int batchSize) {
+		if ( batchSize <= 0 ) {
+			throw new IllegalArgumentException("argument <batchSize> is <= 0");
+		}
+
+		this.batchSize = batchSize;
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * Finds candidate pairs of duplicate transactions. Does not modify the file.
+	 *
+	 * @return candidate pairs, ordered by the survivor's post date
+	 */
+	public List<CandidatePair> findCandidates() {
+		HashMap<String, ArrayList<TransactionSplitProfile>> buckets = new HashMap<String, ArrayList<TransactionSplitProfile>>();
+		for ( GnuCashTransaction trx : gcshFile.getTransactions() ) {
+			TransactionSplitProfile prof = TransactionSplitProfile.of(trx);
+			String key = getBucketKey(prof);
+			if ( key == null ) {
+				continue;
+			}
+
+			ArrayList<TransactionSplitProfile> bucket = buckets.get(key);
+			if ( bucket == null ) {
+				bucket = new ArrayList<TransactionSplitProfile>(2);
+				buckets.put(key, bucket);
+			}
+			bucket.add(prof);
+		}
+
+		Comparator<GnuCashTransaction> byDatePosted =
+				Comparator.comparingLong((GnuCashTransaction trx) -> trx.getDatePosted().toLocalDate().toEpochDay())
+						  .thenComparing(trx -> trx.getID().toString());
+
+		ArrayList<CandidatePair> result = new ArrayList<CandidatePair>();
+		for ( ArrayList<TransactionSplitProfile> bucket : buckets.values() ) {
+			if ( bucket.size() < 2 ) {
+				continue;
+			}
+
+			bucket.sort(Comparator.comparing(TransactionSplitProfile::getTransaction, byDatePosted));
+			// Greedy: pair each transaction with its next neighbour, if close enough
+			for ( int i = 0; i < bucket.size() - 1; i++ ) {
+				TransactionSplitProfile prof1 = bucket.get(i);
+				TransactionSplitProfile prof2 = bucket.get(i + 1);
+				long diffDays = prof2.getTransaction().getDatePosted().toLocalDate().toEpochDay() -
+								prof1.getTransaction().getDatePosted().toLocalDate().toEpochDay();
+				if ( diffDays <= Const.DIFF_TOLERANCE_DAYS ) {
+					result.add(newPair(prof1, prof2));
+					i++; // prof2 is taken
+				}
+			}
+		}
+
+		result.sort(Comparator.comparing(CandidatePair::getSurvivor, byDatePosted));
+		LOGGER.debug("findCandidates: {} buckets, {} candidate pairs", buckets.size(), result.size());
+
+		return result;
+	}
+
+	/**
+	 * Finds all candidate pairs and merges those that pass the plausi check.
+	 *
+	 * @return outcome per candidate pair
+	 *
+	 * @see #findCandidates()
+	 * @see #mergeCandidates(Collection)
+	 */
+	public Result mergeAll() {
+		return mergeCandidates(findCandidates());
+	}
+
+	/**
+	 * Merges the given candidate pairs, batch by batch: First, all pairs of
+	 * a batch are plausi-checked, then the passing ones are merged.
+	 *
+	 * @param pairList candidate pairs, e.g. a reviewed subset of {@link #findCandidates()}
+	 * @return outcome per candidate pair
+	 */
+	public Result mergeCandidates(final Collection<CandidatePair> pairList) {
+		if ( pairList == null ) {
+			throw new IllegalArgumentException("argument <pairList> is null");
+		}
+
+		ArrayList<CandidatePair> merged   = new ArrayList<CandidatePair>();
+		ArrayList<CandidatePair> rejected = new ArrayList<CandidatePair>();
+
+		ArrayList<CandidatePair> batch = new ArrayList<CandidatePair>(Math.min(batchSize, pairList.size()));
+		for ( CandidatePair pair : pairList ) {
+			batch.add(pair);
+			if ( batch.size() == batchSize ) {
+				mergeBatch(batch, merged, rejected);
+				batch.clear();
+			}
+		}
+		mergeBatch(batch, merged, rejected);
+
+		Result result = new Result(merged, rejected);
+		LOGGER.info("mergeCandidates: {}", result);
+		return result;
+	}
+
+    // ---------------------------------------------------------------
+
+	private void mergeBatch(final List<CandidatePair> batch,
+							final List<CandidatePair> merged,
+							final List<CandidatePair> rejected) {
+		ArrayList<CandidatePair> passed = new ArrayList<CandidatePair>(batch.size());
+		for ( CandidatePair pair : batch ) {
+			if ( merger.plausiCheck(pair.survivor, pair.dier) ) {
+				passed.add(pair);
+			} else {
+				rejected.add(pair);
+			}
+		}
+
+		for ( CandidatePair pair : passed ) {
+			try {
+				mergePair(pair);
+				merged.add(pair);
+			} catch ( Exception exc ) {
+				LOGGER.error("mergeBatch: Could not merge {}: {}", pair, exc.getMessage());
+				rejected.add(pair);
+			}
+		}
+	}
+
+	// Plausi check has been done on the pair's split profiles already
+	private void mergePair(final CandidatePair pair) {
+		GnuCashWritableTransaction dier = gcshFile.getWritableTransactionByID(pair.getDier().getID());
+
+		if ( merger instanceof TransactionMergerVar1 mergerVar1 ) {
+			mergerVar1.mergePreChecked(pair.getSurvivor(), dier);
+			return;
+		}
+
+		// Var. 2 needs to know which bank splits to swap,
+		// which is only obvious if there is exactly one per transaction
+		TransactionMergerVar2 mergerVar2 = (TransactionMergerVar2) merger;
+		List<GnuCashTransactionSplit> survBankSplts = pair.survivor.getSplits(GnuCashAccount.Type.BANK);
+		List<GnuCashTransactionSplit> dierBankSplts = pair.dier.getSplits(GnuCashAccount.Type.BANK);
+		if ( survBankSplts.size() != 1 || dierBankSplts.size() != 1 ) {
+			throw new IllegalStateException("survivor or dier does not have exactly one bank split");
+		}
+
+		mergerVar2.setSurvTrx(gcshFile.getWritableTransactionByID(pair.getSurvivor().getID()));
+		mergerVar2.setZSurvTrxBankSpltBeforeID(survBankSplts.get(0).getID());
+		mergerVar2.setZDierTrxBankSpltID(dierBankSplts.get(0).getID());
+		mergerVar2.mergePreChecked(pair.getSurvivor(), dier);
+	}
+
+	private CandidatePair newPair(final TransactionSplitProfile prof1, final TransactionSplitProfile prof2) {
+		GnuCashTransaction trx1 = prof1.getTransaction();
+		GnuCashTransaction trx2 = prof2.getTransaction();
+		int cmp = 0;
+		if ( trx1.getDateEntered() != null &&
+			 trx2.getDateEntered() != null ) {
+			cmp = trx1.getDateEntered().compareTo(trx2.getDateEntered());
+		}
+		if ( cmp == 0 ) {
+			cmp = trx1.getID().toString().compareTo(trx2.getID().toString());
+		}
+
+		boolean trx1First = ( cmp <= 0 );
+		if ( trx1First == ( survPolicy == SurvivorPolicy.FIRST_ENTERED ) ) {
+			return new CandidatePair(prof1, prof2);
+		} else {
+			return new CandidatePair(prof2, prof1);
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @return the bucket key of the given transaction, or null if it can
+	 * not be a merge candidate (not sane or no split to a bank/cash/stock account)
+	 */
+	static String getBucketKey(final TransactionSplitProfile prof) {
+		if ( ! prof.isSane() ) {
+			return null;
+		}
+
+		StringBuilder buffer = new StringBuilder();
+		for ( GnuCashAccount.Type type : KEY_ACCT_TYPES ) {
+			if ( ! prof.hasSplits(type) ) {
+				continue;
+			}
+
+			TreeSet<String> acctIDs = new TreeSet<String>();
+			for ( GCshAcctID acctID : prof.getAccountIDs(type) ) {
+				acctIDs.add(acctID.toString());
+			}
+			long sumCents = Math.round(prof.getValueSum(type).doubleValue() * 100);
+			buffer.append(type.name().charAt(0)).append(acctIDs).append(sumCents).append(';');
+		}
+
+		if ( buffer.length() == 0 ) {
+			return null;
+		}
+
+		return buffer.toString();
+	}
+
+}
@@ -1,17 +1,22 @@
 package org.gnucash.apiext.trxmgr;
 
 import java.time.LocalDate;
+import java.util.List;
 
+import org.gnucash.api.read.GnuCashAccount;
 import org.gnucash.api.read.GnuCashTransaction;
 import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
 
 import xyz.schnorxoborx.base.dateutils.LocalDateHelpers;
 
 public class TransactionFilter {
 	
 	public enum SplitLogic {
-		AND, // split criteria have to apply to every single split
-		OR   // it's enough if split criteria apply to one or just a few splits
+		AND,        // split criteria have to apply to every single split
+		OR,         // it's enough if split criteria apply to one or just a few splits
+		AT_LEAST_N, // split criteria have to apply to at least <nofMatchingSplt> splits
+		EXACTLY_N   // split criteria have to apply to exactly <nofMatchingSplt> splits
 	}
 	
 	// ---------------------------------------------------------------
@@ -19,6 +24,8 @@ public class TransactionFilter {
 	public static final LocalDate DATE_UNSET     = LocalDateHelpers.DATE_UNSET;
 	public static final int       NOF_SPLT_UNSET = 0;
 	
+	public static final int       NOF_MATCHING_SPLT_DEFAULT = 1;
+	
 	// ---------------------------------------------------------------
 	// Transaction Level
 
@@ -36,11 +43,24 @@ public class TransactionFilter {
 
 	public String descrPart;
 	
+	// Case-folded descrPart, folded once per value, not once per candidate
+	private String descrPartSrc    = null;
+	private String descrPartFolded = null;
+	
+	// The transaction has at least one split bound to 
+	// that account resp. to an account of that type
+	// (regardless of the split criteria below)
+	public GCshAcctID          acctID;
+	public GnuCashAccount.Type acctType;
+	
 	// ----------------------------
 	// Split Level
 
 	public TransactionSplitFilter_FP spltFilt;
 	
+	// Only relevant for SplitLogic.AT_LEAST_N and SplitLogic.EXACTLY_N
+	public int nofMatchingSplt;
+	
 	// ---------------------------------------------------------------
 	
 	public TransactionFilter() {
@@ -64,9 +84,13 @@ public class TransactionFilter {
 
 		descrPart = "";
 		
+		acctID   = new GCshAcctID();
+		acctType = null;
+		
 		// ---
 		
 		spltFilt = new TransactionSplitFilter_FP();
+		nofMatchingSplt = NOF_MATCHING_SPLT_DEFAULT;
 	}
 	
 	public void reset() {
@@ -83,9 +107,13 @@ public class TransactionFilter {
 
 		descrPart = "";
 		
+		acctID.reset();
+		acctType = null;
+		
 		// ---
 		
 		spltFilt.reset();
+		nofMatchingSplt = NOF_MATCHING_SPLT_DEFAULT;
 	}
 	
 	// ---------------------------------------------------------------
@@ -100,6 +128,38 @@ public class TransactionFilter {
 								   final boolean datePostedAlreadyFiltered,
 			                       final boolean withSplits,
 			                       final SplitLogic splitLogic) {
+		return matchesCriteria(trx, datePostedAlreadyFiltered, 
+							   withSplits, splitLogic, 
+							   withSplits ? compileSplitFilter() : null);
+	}
+
+	/*
+	 * Variant for the finders: The split filter is compiled 
+	 * only once per search, not once per transaction.
+	 */
+	boolean matchesCriteria(final GnuCashTransaction trx,
+							final boolean datePostedAlreadyFiltered,
+							final boolean withSplits,
+							final SplitLogic splitLogic,
+							final CompiledSplitFilter spltFiltComp) {
+		return matchesCriteria(trx, datePostedAlreadyFiltered, 
+							   withSplits, splitLogic, spltFiltComp, 
+							   null);
+	}
+
+	/*
+	 * Variant for the combined search: If <matchedSplts> is not null, 
+	 * all splits matching the split criteria are added to it
+	 * (only if the transaction matches as a whole).
+	 * In that case, the split evaluation still stops early on failure, 
+	 * but not on success.
+	 */
+	boolean matchesCriteria(final GnuCashTransaction trx,
+							final boolean datePostedAlreadyFiltered,
+							final boolean withSplits,
+							final SplitLogic splitLogic,
+							final CompiledSplitFilter spltFiltComp,
+							final List<GnuCashTransactionSplit> matchedSplts) {
 		
 		if ( trx == null ) {
 			throw new IllegalArgumentException("argument <trx> is null");
@@ -114,6 +174,24 @@ public class TransactionFilter {
 
 		// ---
 		
+		// Cheapest criteria first: 
+		// no. of splits (int), dates, description
+		
+		int nofSplt = trx.getSplitsCount();
+		if ( nofSpltFrom != NOF_SPLT_UNSET ) {
+			if ( nofSplt < nofSpltFrom ) {
+				return false;
+			}
+		}
+		
+		if ( nofSpltTo != NOF_SPLT_UNSET ) {
+			if ( nofSplt > nofSpltTo ) {
+				return false;
+			}
+		}
+		
+		// ---
+		
 		if ( ! datePostedAlreadyFiltered ) {
 			if ( isDatePostedFromSet() ) {
 				if ( trx.getDatePosted().toLocalDate().isBefore(datePostedFrom) ) {
@@ -144,26 +222,22 @@ public class TransactionFilter {
 			
 		// ---
 		
-		if ( nofSpltFrom != NOF_SPLT_UNSET ) {
-			if ( trx.getSplitsCount() < nofSpltFrom ) {
-				return false;
-			}
-		}
-		
-		if ( nofSpltTo != NOF_SPLT_UNSET ) {
-			if ( trx.getSplitsCount() > nofSpltTo ) {
+		if ( ! descrPart.isBlank() ) {
+			if ( trx.getDescription() != null ) {
+				// No case-folded copy of the description
+				if ( ! DescriptionIndex.containsFolded(trx.getDescription(), getDescrPartFolded()) ) {
+					return false;
+				}
+			} else {
 				return false;
 			}
 		}
 		
 		// ---
 		
-		if ( ! descrPart.isBlank() ) {
-			if ( trx.getDescription() != null ) {
-				if ( ! trx.getDescription().toLowerCase().contains(descrPart.trim().toLowerCase()) ) {
-					return false;
-				}
-			} else {
+		if ( acctID.isSet() || 
+			 acctType != null ) {
+			if ( ! hasSplitInAccount(trx) ) {
 				return false;
 			}
 		}
@@ -172,7 +246,7 @@ public class TransactionFilter {
 		
 		// 2) Split Level
 		if ( withSplits ) {
-			if ( ! splitsMatchCriteria(trx, splitLogic) ) {
+			if ( ! splitsMatchCriteria(trx, splitLogic, spltFiltComp, matchedSplts) ) {
 				return false;
 			}
 		}
@@ -180,33 +254,191 @@ public class TransactionFilter {
 		return true;
 	}
 	
+	private String getDescrPartFolded() {
+		// descrPart is public and may be reassigned between queries
+		if ( descrPart != descrPartSrc ) {
+			descrPartFolded = DescriptionIndex.fold(descrPart.trim());
+			descrPartSrc    = descrPart;
+		}
+		
+		return descrPartFolded;
+	}
+	
+	private boolean hasSplitInAccount(final GnuCashTransaction trx) {
+		for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
+			if ( splt.getAccountID() == null )
+				continue;
+			
+			if ( acctID.isSet() &&
+				 ! splt.getAccountID().equals(acctID) )
+				continue;
+			
+			if ( acctType != null &&
+				 splt.getAccount().getType() != acctType )
+				continue;
+			
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/*
+	 * Evaluates the splits only as far as necessary to decide:
+	 *  - AND:        stops at the first non-matching split
+	 *  - OR:         stops at the first matching split
+	 *  - AT_LEAST_N: stops as soon as N splits match or 
+	 *                too few splits are left
+	 *  - EXACTLY_N:  stops as soon as more than N splits match
+	 *                or too few splits are left
+	 */
 	private boolean splitsMatchCriteria(final GnuCashTransaction trx,
-										final SplitLogic splitLogic) {
-		if ( spltFilt == null ) {
-			throw new IllegalStateException("split-filter is null");
+										final SplitLogic splitLogic,
+										final CompiledSplitFilter spltFiltComp,
+										final List<GnuCashTransactionSplit> matchedSplts) {
+		if ( spltFiltComp == null ) {
+			throw new IllegalStateException("compiled split-filter is null");
 		}
 		
 		if ( splitLogic == SplitLogic.AND ) {
+			if ( spltFiltComp.getNofCriteria() == 0 ) {
+				if ( matchedSplts != null )
+					matchedSplts.addAll(trx.getSplits());
+				return true;
+			}
+			
+			int nofMatchedBefore = ( matchedSplts == null ? 0 : matchedSplts.size() );
 			for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
-				if ( ! spltFilt.matchesCriteria(splt) ) {
+				if ( ! spltFiltComp.matchesCriteria(splt) ) {
+					truncate(matchedSplts, nofMatchedBefore);
 					return false;
 				}
+				
+				if ( matchedSplts != null )
+					matchedSplts.add(splt);
 			}
 			return true;
 		} else if ( splitLogic == SplitLogic.OR ) {
-			boolean oneMatch = false;
-			for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
-				if ( spltFilt.matchesCriteria(splt) ) {
-					oneMatch = true;
+			return nofMatchingSplitsInRange(trx, spltFiltComp, 1, Integer.MAX_VALUE, matchedSplts);
+		} else if ( splitLogic == SplitLogic.AT_LEAST_N ) {
+			checkNofMatchingSplt();
+			return nofMatchingSplitsInRange(trx, spltFiltComp, nofMatchingSplt, Integer.MAX_VALUE, matchedSplts);
+		} else if ( splitLogic == SplitLogic.EXACTLY_N ) {
+			checkNofMatchingSplt();
+			return nofMatchingSplitsInRange(trx, spltFiltComp, nofMatchingSplt, nofMatchingSplt, matchedSplts);
+		} // splitLogic
+		
+		return true; // Compiler happy
+	}
+	
+	/*
+	 * Whether the no. of matching splits is in [min, max].
+	 * Stops evaluating as soon as that is decided -- on success 
+	 * only if the matching splits need not be collected.
+	 */
+	private static boolean nofMatchingSplitsInRange(final GnuCashTransaction trx,
+													final CompiledSplitFilter spltFiltComp,
+													final int min, final int max,
+													final List<GnuCashTransactionSplit> matchedSplts) {
+		int nofLeft = trx.getSplitsCount();
+		if ( nofLeft < min )
+			return false;
+		
+		if ( spltFiltComp.getNofCriteria() == 0 ) { // every split matches
+			if ( nofLeft > max )
+				return false;
+			
+			if ( matchedSplts != null )
+				matchedSplts.addAll(trx.getSplits());
+			return true;
+		}
+		
+		int nofMatchedBefore = ( matchedSplts == null ? 0 : matchedSplts.size() );
+		int cnt = 0;
+		for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
+			if ( spltFiltComp.matchesCriteria(splt) ) {
+				cnt++;
+				if ( cnt > max ) {
+					truncate(matchedSplts, nofMatchedBefore);
+					return false;
 				}
+				
+				if ( matchedSplts != null )
+					matchedSplts.add(splt);
+				else if ( cnt >= min && 
+						  max == Integer.MAX_VALUE )
+					return true;
 			}
-			if ( ! oneMatch )
+			
+			nofLeft--;
+			if ( cnt + nofLeft < min ) {
+				truncate(matchedSplts, nofMatchedBefore);
 				return false;
-			else
-				return true;
-		} // splitLogic
+			}
+		}
 		
-		return true; // Compiler happy
+		return cnt >= min; // cnt + nofLeft >= min, nofLeft == 0
+	}
+	
+	private static void truncate(final List<GnuCashTransactionSplit> matchedSplts, int size) {
+		if ( matchedSplts == null )
+			return;
+		
+		while ( matchedSplts.size() > size ) {
+			matchedSplts.remove(matchedSplts.size() - 1);
+		}
+	}
+	
+	private void checkNofMatchingSplt() {
+		if ( nofMatchingSplt < 0 ) {
+			throw new IllegalStateException("no. of matching splits is < 0");
+		}
+	}
+	
+	/**
+	 * @param splitLogic split logic
+	 * @return true if, with the given split logic, a transaction can only
+	 * match if at least one of its splits matches the split criteria.
+	 * (If so, the split criteria can be used to narrow the candidates.)
+	 */
+	boolean needsMatchingSplit(SplitLogic splitLogic) {
+		if ( splitLogic == SplitLogic.AT_LEAST_N ||
+			 splitLogic == SplitLogic.EXACTLY_N )
+			return nofMatchingSplt >= 1;
+		
+		if ( splitLogic == SplitLogic.AND )
+			// A transaction without splits matches as well,
+			// unless the no. of splits rules it out
+			return nofSpltFrom >= 1;
+		
+		return true;
+	}
+	
+	CompiledSplitFilter compileSplitFilter() {
+		if ( spltFilt == null ) {
+			throw new IllegalStateException("split-filter is null");
+		}
+		
+		return spltFilt.compile();
+	}
+	
+	// ---------------------------------------------------------------
+	
+	/**
+	 * @return immutable snapshot of this filter's criteria
+	 * (incl. the split-level ones)
+	 */
+	public TransactionFilterSpec toSpec() {
+		return TransactionFilterSpec.builder()
+				.datePosted(datePostedFrom, datePostedTo)
+				.dateEntered(dateEnteredFrom, dateEnteredTo)
+				.nofSplits(nofSpltFrom, nofSpltTo)
+				.descrPart(descrPart)
+				.acctID(acctID)
+				.acctType(acctType)
+				.spltFilt(spltFilt.toSpec())
+				.nofMatchingSplits(nofMatchingSplt)
+				.build();
 	}
 	
 	// ---------------------------------------------------------------
@@ -257,8 +489,11 @@ public class TransactionFilter {
 				       "nofSpltTo=" + nofSpltTo   + ( nofSpltTo   == NOF_SPLT_UNSET ? " (unset)" : "" ) + ", " +
 	                 
 	                  "descrPart='" + descrPart + "', " +
+	                     "acctID=" + acctID + ", " +
+	                   "acctType=" + acctType + ", " +
 
-				        "spltFilt=" + spltFilt + "]";
+				        "spltFilt=" + spltFilt + ", " +
+				 "nofMatchingSplt=" + nofMatchingSplt + "]";
 	}
 
 }
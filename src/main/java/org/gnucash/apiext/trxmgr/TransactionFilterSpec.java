@@ -0,0 +1,357 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+
+/**
+ * Immutable counterpart of {@link TransactionFilter}.
+ * <br>
+ * Built with {@link #builder()}. Has value semantics: Two specifications
+ * are equal if they have the same criteria (incl. the split-level ones,
+ * cf. {@link TransactionSplitFilterSpec_FP}). Thus, specifications can be
+ * shared between threads and be used as map keys without defensive copying.
+ * <br>
+ * The split-level criteria are compiled once, on construction.
+ *
+ * @see TransactionFilter#toSpec()
+ */
+public final class TransactionFilterSpec {
+
+	public static final TransactionFilterSpec EMPTY = builder().build();
+
+    // ---------------------------------------------------------------
+
+	// null: unset
+	private final LocalDate datePostedFrom;
+	private final LocalDate datePostedTo;
+
+	private final LocalDate dateEnteredFrom;
+	private final LocalDate dateEnteredTo;
+
+	// TransactionFilter.NOF_SPLT_UNSET: unset
+	private final int nofSpltFrom;
+	private final int nofSpltTo;
+
+	private final String descrPart; // trimmed, case-folded; "" if unset
+
+	private final GCshAcctID          acctID; // null: unset
+	private final GnuCashAccount.Type acctType;
+
+	private final TransactionSplitFilterSpec_FP spltFilt;
+
+	private final int nofMatchingSplt;
+
+	// Private, never changed after construction
+	private final TransactionFilter flt;
+	private final int               hash;
+
+    // ---------------------------------------------------------------
+
+	public static final class Builder {
+
+		private LocalDate datePostedFrom;
+		private LocalDate datePostedTo;
+		private LocalDate dateEnteredFrom;
+		private LocalDate dateEnteredTo;
+		private int       nofSpltFrom = TransactionFilter.NOF_SPLT_UNSET;
+		private int       nofSpltTo   = TransactionFilter.NOF_SPLT_UNSET;
+		private String    descrPart   = "";
+
+		private GCshAcctID          acctID;
+		private GnuCashAccount.Type acctType;
+
+		private TransactionSplitFilterSpec_FP spltFilt = TransactionSplitFilterSpec_FP.EMPTY;
+
+		private int nofMatchingSplt = TransactionFilter.NOF_MATCHING_SPLT_DEFAULT;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param from first post date (inclusive), null for open range
+		 * @param to last post date (inclusive), null for open range
+		 */
+		public Builder datePosted(LocalDate from, LocalDate to) {
+			this.datePostedFrom = canon(from);
+			this.datePostedTo   = canon(to);
+			return this;
+		}
+
+		/**
+		 * @param from first entry date (inclusive), null for open range
+		 * @param to last entry date (inclusive), null for open range
+		 */
+		public Builder dateEntered(LocalDate from, LocalDate to) {
+			this.dateEnteredFrom = canon(from);
+			this.dateEnteredTo   = canon(to);
+			return this;
+		}
+
+		/**
+		 * @param from min. no. of splits, {@link TransactionFilter#NOF_SPLT_UNSET} for open range
+		 * @param to max. no. of splits, {@link TransactionFilter#NOF_SPLT_UNSET} for open range
+		 */
+		public Builder nofSplits(int from, int to) {
+			this.nofSpltFrom = from;
+			this.nofSpltTo   = to;
+			return this;
+		}
+
+		/**
+		 * @param descrPart part of the description (case-insensitive),
+		 * null or blank for "any description"
+		 */
+		public Builder descrPart(String descrPart) {
+			this.descrPart = ( descrPart == null ? "" : DescriptionIndex.fold(descrPart.trim()) );
+			return this;
+		}
+
+		/**
+		 * @param acctID account ID (copied) that at least one split has to be
+		 * bound to, null or unset ID for "any account"
+		 */
+		public Builder acctID(GCshAcctID acctID) {
+			this.acctID = copy(acctID);
+			return this;
+		}
+
+		/**
+		 * @param acctType type of the account that at least one split has to be
+		 * bound to, null for "any type"
+		 */
+		public Builder acctType(GnuCashAccount.Type acctType) {
+			this.acctType = acctType;
+			return this;
+		}
+
+		public Builder spltFilt(TransactionSplitFilterSpec_FP spltFilt) {
+			if ( spltFilt == null ) {
+				throw new IllegalArgumentException("argument <spltFilt> is null");
+			}
+
+			this.spltFilt = spltFilt;
+			return this;
+		}
+
+		/**
+		 * @param nofMatchingSplt no. of matching splits for
+		 * {@link TransactionFilter.SplitLogic#AT_LEAST_N} and
+		 * {@link TransactionFilter.SplitLogic#EXACTLY_N}
+		 */
+		public Builder nofMatchingSplits(int nofMatchingSplt) {
+			if ( nofMatchingSplt < 0 ) {
+				throw new IllegalArgumentException("argument <nofMatchingSplt> is < 0");
+			}
+
+			this.nofMatchingSplt = nofMatchingSplt;
+			return this;
+		}
+
+		public TransactionFilterSpec build() {
+			return new TransactionFilterSpec(this);
+		}
+
+		private static LocalDate canon(LocalDate date) {
+			if ( date == null ||
+				 date.equals(TransactionFilter.DATE_UNSET) )
+				return null;
+			return date;
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	private TransactionFilterSpec(Builder bld) {
+		this.datePostedFrom  = bld.datePostedFrom;
+		this.datePostedTo    = bld.datePostedTo;
+		this.dateEnteredFrom = bld.dateEnteredFrom;
+		this.dateEnteredTo   = bld.dateEnteredTo;
+		this.nofSpltFrom     = bld.nofSpltFrom;
+		this.nofSpltTo       = bld.nofSpltTo;
+		this.descrPart       = bld.descrPart;
+		this.acctID          = bld.acctID;
+		this.acctType        = bld.acctType;
+		this.spltFilt        = bld.spltFilt;
+		this.nofMatchingSplt = bld.nofMatchingSplt;
+
+		this.flt  = toFilter();
+		this.hash = Objects.hash(datePostedFrom, datePostedTo,
+								 dateEnteredFrom, dateEnteredTo,
+								 nofSpltFrom, nofSpltTo,
+								 descrPart, acctID, acctType, spltFilt,
+								 nofMatchingSplt);
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return a builder, pre-set with this specification's criteria
+	 */
+	public Builder toBuilder() {
+		Builder bld = new Builder();
+		bld.datePostedFrom  = datePostedFrom;
+		bld.datePostedTo    = datePostedTo;
+		bld.dateEnteredFrom = dateEnteredFrom;
+		bld.dateEnteredTo   = dateEnteredTo;
+		bld.nofSpltFrom     = nofSpltFrom;
+		bld.nofSpltTo       = nofSpltTo;
+		bld.descrPart       = descrPart;
+		bld.acctID          = copy(acctID);
+		bld.acctType        = acctType;
+		bld.spltFilt        = spltFilt;
+		bld.nofMatchingSplt = nofMatchingSplt;
+		return bld;
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @return first post date, null if unset
+	 */
+	public LocalDate getDatePostedFrom() {
+		return datePostedFrom;
+	}
+
+	public LocalDate getDatePostedTo() {
+		return datePostedTo;
+	}
+
+	public LocalDate getDateEnteredFrom() {
+		return dateEnteredFrom;
+	}
+
+	public LocalDate getDateEnteredTo() {
+		return dateEnteredTo;
+	}
+
+	public int getNofSpltFrom() {
+		return nofSpltFrom;
+	}
+
+	public int getNofSpltTo() {
+		return nofSpltTo;
+	}
+
+	/**
+	 * @return description part (trimmed, lower case), "" if unset
+	 */
+	public String getDescrPart() {
+		return descrPart;
+	}
+
+	/**
+	 * @return account ID (a copy), null if unset
+	 */
+	public GCshAcctID getAcctID() {
+		return copy(acctID);
+	}
+
+	public GnuCashAccount.Type getAcctType() {
+		return acctType;
+	}
+
+	public TransactionSplitFilterSpec_FP getSpltFilt() {
+		return spltFilt;
+	}
+
+	public int getNofMatchingSplt() {
+		return nofMatchingSplt;
+	}
+
+    // ---------------------------------------------------------------
+
+	public boolean matchesCriteria(final GnuCashTransaction trx,
+								   final boolean withSplits,
+								   final TransactionFilter.SplitLogic splitLogic) {
+		return flt.matchesCriteria(trx, false,
+								   withSplits, splitLogic,
+								   withSplits ? spltFilt.compile() : null);
+	}
+
+	/**
+	 * @return a new mutable filter with this specification's criteria
+	 */
+	public TransactionFilter toFilter() {
+		TransactionFilter result = new TransactionFilter();
+		if ( datePostedFrom != null )
+			result.datePostedFrom = datePostedFrom;
+		if ( datePostedTo != null )
+			result.datePostedTo = datePostedTo;
+		if ( dateEnteredFrom != null )
+			result.dateEnteredFrom = dateEnteredFrom;
+		if ( dateEnteredTo != null )
+			result.dateEnteredTo = dateEnteredTo;
+		result.nofSpltFrom = nofSpltFrom;
+		result.nofSpltTo   = nofSpltTo;
+		result.descrPart   = descrPart;
+		if ( acctID != null )
+			result.acctID.set(acctID);
+		result.acctType    = acctType;
+		result.spltFilt    = spltFilt.toFilter();
+		result.nofMatchingSplt = nofMatchingSplt;
+		return result;
+	}
+
+    // ---------------------------------------------------------------
+
+	private static GCshAcctID copy(GCshAcctID acctID) {
+		if ( acctID == null ||
+			 ! acctID.isSet() )
+			return null;
+
+		GCshAcctID result = new GCshAcctID();
+		result.set(acctID);
+		return result;
+	}
+
+    // ---------------------------------------------------------------
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if ( this == obj )
+			return true;
+		if ( ! ( obj instanceof TransactionFilterSpec other ) )
+			return false;
+
+		return hash == other.hash &&
+			   Objects.equals(datePostedFrom, other.datePostedFrom) &&
+			   Objects.equals(datePostedTo, other.datePostedTo) &&
+			   Objects.equals(dateEnteredFrom, other.dateEnteredFrom) &&
+			   Objects.equals(dateEnteredTo, other.dateEnteredTo) &&
+			   nofSpltFrom == other.nofSpltFrom &&
+			   nofSpltTo == other.nofSpltTo &&
+			   descrPart.equals(other.descrPart) &&
+			   Objects.equals(acctID, other.acctID) &&
+			   acctType == other.acctType &&
+			   spltFilt.equals(other.spltFilt) &&
+			   nofMatchingSplt == other.nofMatchingSplt;
+	}
+
+	@Override
+	public String toString() {
+		return "TransactionFilterSpec [" +
+	              "datePostedFrom=" + datePostedFrom + ", " +
+				    "datePostedTo=" + datePostedTo + ", " +
+                 "dateEnteredFrom=" + dateEnteredFrom + ", " +
+                   "dateEnteredTo=" + dateEnteredTo + ", " +
+	                 "nofSpltFrom=" + nofSpltFrom + ", " +
+				       "nofSpltTo=" + nofSpltTo + ", " +
+	                  "descrPart='" + descrPart + "', " +
+	                     "acctID=" + acctID + ", " +
+	                   "acctType=" + acctType + ", " +
+				        "spltFilt=" + spltFilt + ", " +
+				 "nofMatchingSplt=" + nofMatchingSplt + "]";
+	}
+
+}
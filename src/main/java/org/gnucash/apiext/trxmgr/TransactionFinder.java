@@ -1,78 +1,579 @@
 package org.gnucash.apiext.trxmgr;
 
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 import org.gnucash.api.read.GnuCashFile;
 import org.gnucash.api.read.GnuCashTransaction;
-import org.gnucash.apiext.Const;
+import org.gnucash.api.read.GnuCashTransactionSplit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class TransactionFinder {
-	
+
     // Logger
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionFinder.class);
-    
+
     // ---------------------------------------------------------------
-    
+
 	private GnuCashFile gcshFile = null;
-	
+
+	private boolean useDescrIndex  = false;
+	private boolean useResultCache = false;
+
+	// The ones last used; kept, as they are registered only weakly
+	private TransactionIndex      trxIdx     = null;
+	private DescriptionIndex      descrIdx   = null;
+	private TransactionQueryCache queryCache = null;
+
     // ---------------------------------------------------------------
-	
+
 	public TransactionFinder(GnuCashFile gcshFile) {
 		if ( gcshFile == null ) {
 			throw new IllegalArgumentException("argument <gcshFile> is null");
 		}
-		
+
 		this.gcshFile = gcshFile;
 	}
-    
+
+    // ---------------------------------------------------------------
+
+	public boolean isUseDescrIndex() {
+		return useDescrIndex;
+	}
+
+	/**
+	 * If set, description parts (transaction and split level)
+	 * are resolved via the {@link DescriptionIndex} instead of being
+	 * checked on every candidate. Building that index costs one pass
+	 * over all transactions and splits, so this pays off for
+	 * repeated searches (e.g. interactive ones) on the same file.
+	 * <br>
+	 * Default: not set.
+	 *
+	 * @param useDescrIndex whether to use the description index
+	 */
+	public void setUseDescrIndex(boolean useDescrIndex) {
+		this.useDescrIndex = useDescrIndex;
+	}
+
+	public boolean isUseResultCache() {
+		return useResultCache;
+	}
+
+	/**
+	 * If set, the results of the (eager) <code>find</code> methods are
+	 * taken from resp. stored in the file's {@link TransactionQueryCache},
+	 * which is shared by all finders on the same file (thus, the order
+	 * of a cached result is the one of the finder that computed it).
+	 * <br>
+	 * Default: not set.
+	 *
+	 * @param useResultCache whether to use the result cache
+	 */
+	public void setUseResultCache(boolean useResultCache) {
+		this.useResultCache = useResultCache;
+	}
+
     // ---------------------------------------------------------------
-	
+
 	// ::TODO
 	// - Have results writable?
-    
+
 	public ArrayList<GnuCashTransaction> find(TransactionFilter flt,
 			                                  boolean withSplits,
 			                                  TransactionFilter.SplitLogic splitLogic) {
 		if ( flt == null ) {
 			throw new IllegalArgumentException("argument <flt> is null");
 		}
-		
-		LOGGER.debug("find: Searching for Transactions matching filter: " + flt.toString());
+
+		if ( useResultCache ) {
+			return new ArrayList<GnuCashTransaction>(getQueryCache()
+					.get(flt, withSplits, splitLogic, () -> findNoCache(flt, withSplits, splitLogic)));
+		}
+
+		return findNoCache(flt, withSplits, splitLogic);
+	}
+
+	private ArrayList<GnuCashTransaction> findNoCache(TransactionFilter flt,
+													  boolean withSplits,
+													  TransactionFilter.SplitLogic splitLogic) {
+		LOGGER.debug("find: Searching for Transactions matching filter: {}", flt);
 		ArrayList<GnuCashTransaction> result = new ArrayList<GnuCashTransaction>();
+		CompiledSplitFilter spltFiltComp = withSplits ? flt.compileSplitFilter() : null;
+
+		for ( GnuCashTransaction trx : getCandidates(flt, withSplits, splitLogic) ) {
+			if ( flt.matchesCriteria(trx, true, withSplits, splitLogic, spltFiltComp) ) {
+				result.add(trx);
+			}
+		}
+
+		LOGGER.debug("find: Found {} Transactions matching filter", result.size());
+		return result;
+	}
+
+	/**
+	 * Variant of {@link #find(TransactionFilter, boolean, TransactionFilter.SplitLogic)}
+	 * for an immutable filter specification.
+	 *
+	 * @param spec filter specification
+	 * @param withSplits whether to check the split criteria as well
+	 * @param splitLogic cf. {@link TransactionFilter.SplitLogic}
+	 * @return transactions matching the filter
+	 */
+	public ArrayList<GnuCashTransaction> find(TransactionFilterSpec spec,
+											  boolean withSplits,
+											  TransactionFilter.SplitLogic splitLogic) {
+		if ( spec == null ) {
+			throw new IllegalArgumentException("argument <spec> is null");
+		}
+
+		return find(spec.toFilter(), withSplits, splitLogic);
+	}
+
+	/**
+	 * Parallel variant of {@link #find(TransactionFilter, boolean, TransactionFilter.SplitLogic)}.
+	 * <br>
+	 * The candidates are checked in fork/join chunks. The result is
+	 * identical to the one of the sequential variant, including the order.
+	 * <br>
+	 * Caution: The file must not be modified while the search is running.
+	 *
+	 * @param flt filter
+	 * @param withSplits whether to check the split criteria as well
+	 * @param splitLogic cf. {@link TransactionFilter.SplitLogic}
+	 * @param parallelism no. of worker threads
+	 * @return transactions matching the filter
+	 */
+	public ArrayList<GnuCashTransaction> find(TransactionFilter flt,
+            								  boolean withSplits,
+            								  TransactionFilter.SplitLogic splitLogic,
+            								  int parallelism) {
+		if ( parallelism <= 0 ) {
+			throw new IllegalArgumentException("argument <parallelism> is <= 0");
+		}
+
+		if ( parallelism == 1 ) {
+			return find(flt, withSplits, splitLogic);
+		}
+
+		return findParallel(flt, withSplits, splitLogic, null, parallelism);
+	}
+
+	/**
+	 * Parallel variant of {@link #find(TransactionFilter, boolean, TransactionFilter.SplitLogic)},
+	 * using the given fork/join pool.
+	 *
+	 * @param flt filter
+	 * @param withSplits whether to check the split criteria as well
+	 * @param splitLogic cf. {@link TransactionFilter.SplitLogic}
+	 * @param pool fork/join pool to run the evaluation in
+	 * @return transactions matching the filter
+	 *
+	 * @see #find(TransactionFilter, boolean, TransactionFilter.SplitLogic, int)
+	 */
+	public ArrayList<GnuCashTransaction> find(TransactionFilter flt,
+            								  boolean withSplits,
+            								  TransactionFilter.SplitLogic splitLogic,
+            								  ForkJoinPool pool) {
+		if ( pool == null ) {
+			throw new IllegalArgumentException("argument <pool> is null");
+		}
+
+		return findParallel(flt, withSplits, splitLogic, pool, pool.getParallelism());
+	}
+
+	private ArrayList<GnuCashTransaction> findParallel(TransactionFilter flt,
+													   boolean withSplits,
+													   TransactionFilter.SplitLogic splitLogic,
+													   ForkJoinPool pool,
+													   int parallelism) {
+		if ( flt == null ) {
+			throw new IllegalArgumentException("argument <flt> is null");
+		}
+
+		if ( useResultCache ) {
+			return new ArrayList<GnuCashTransaction>(getQueryCache()
+					.get(flt, withSplits, splitLogic, () -> findParallelNoCache(flt, withSplits, splitLogic, pool, parallelism)));
+		}
+
+		return findParallelNoCache(flt, withSplits, splitLogic, pool, parallelism);
+	}
+
+	private ArrayList<GnuCashTransaction> findParallelNoCache(TransactionFilter flt,
+															  boolean withSplits,
+															  TransactionFilter.SplitLogic splitLogic,
+															  ForkJoinPool pool,
+															  int parallelism) {
+		LOGGER.debug("findParallel: Searching for Transactions matching filter: {} (parallelism: {})", flt, parallelism);
+		Collection<? extends GnuCashTransaction> candColl = getCandidates(flt, withSplits, splitLogic);
+		List<? extends GnuCashTransaction> candList = null;
+		if ( candColl instanceof List )
+			candList = (List<? extends GnuCashTransaction>) candColl;
+		else
+			candList = new ArrayList<GnuCashTransaction>(candColl);
+
+		CompiledSplitFilter spltFiltComp = withSplits ? flt.compileSplitFilter() : null; // immutable, thus shareable
+		ArrayList<GnuCashTransaction> result = null;
+		if ( pool != null )
+			result = ParallelMatcher.match(candList, trx -> flt.matchesCriteria(trx, true, withSplits, splitLogic, spltFiltComp), pool);
+		else
+			result = ParallelMatcher.match(candList, trx -> flt.matchesCriteria(trx, true, withSplits, splitLogic, spltFiltComp), parallelism);
+
+		LOGGER.debug("findParallel: Found {} Transactions matching filter", result.size());
+		return result;
+	}
+
+	// ---------------------------------------------------------------
+
+	/**
+	 * Combined search: Finds the transactions matching the filter
+	 * (with split criteria) and, for each of them, the splits matching
+	 * the split criteria -- in one pass, so that each split is evaluated
+	 * at most once. Thus, there is no need for a subsequent
+	 * {@link TransactionSplitFinder} search.
+	 * <br>
+	 * Other than with {@link #find(TransactionFilter, boolean, TransactionFilter.SplitLogic)},
+	 * the split evaluation cannot stop at the first match, because all
+	 * matching splits are collected.
+	 *
+	 * @param flt filter
+	 * @param splitLogic cf. {@link TransactionFilter.SplitLogic}
+	 * @return the matching transactions with their matching splits,
+	 * in the same order as with the plain search
+	 */
+	public ArrayList<TransactionMatch> findWithSplits(TransactionFilter flt,
+													  TransactionFilter.SplitLogic splitLogic) {
+		if ( flt == null ) {
+			throw new IllegalArgumentException("argument <flt> is null");
+		}
+
+		LOGGER.debug("findWithSplits: Searching for Transactions and Splits matching filter: {}", flt);
+		ArrayList<TransactionMatch> result = new ArrayList<TransactionMatch>();
+		CompiledSplitFilter spltFiltComp = flt.compileSplitFilter();
+
+		ArrayList<GnuCashTransactionSplit> matchedSplts = new ArrayList<GnuCashTransactionSplit>();
+		for ( GnuCashTransaction trx : getCandidates(flt, true, splitLogic) ) {
+			matchedSplts.clear();
+			if ( flt.matchesCriteria(trx, true, true, splitLogic, spltFiltComp, matchedSplts) ) {
+				result.add(new TransactionMatch(trx, new ArrayList<GnuCashTransactionSplit>(matchedSplts)));
+			}
+		}
+
+		LOGGER.debug("findWithSplits: Found {} Transactions matching filter", result.size());
+		return result;
+	}
+
+	// ---------------------------------------------------------------
+
+	/**
+	 * Lazy variant of {@link #find(TransactionFilter, boolean, TransactionFilter.SplitLogic)}.
+	 * <br>
+	 * The filter criteria are evaluated only when the stream is consumed,
+	 * one transaction at a time, so that short-circuiting operations
+	 * such as <code>findFirst()</code>, <code>anyMatch()</code> or <code>limit()</code>
+	 * stop scanning as soon as they can. The order is the same as the one
+	 * of the eager variant.
+	 * <br>
+	 * Caution: The filter must not be changed and the file must not be
+	 * modified while the stream is being consumed.
+	 *
+	 * @param flt filter
+	 * @param withSplits whether to check the split criteria as well
+	 * @param splitLogic cf. {@link TransactionFilter.SplitLogic}
+	 * @return (sequential, ordered) stream of transactions matching the filter
+	 */
+	public Stream<GnuCashTransaction> stream(TransactionFilter flt,
+            								 boolean withSplits,
+            								 TransactionFilter.SplitLogic splitLogic) {
+		if ( flt == null ) {
+			throw new IllegalArgumentException("argument <flt> is null");
+		}
+
+		LOGGER.debug("stream: Streaming Transactions matching filter: {}", flt);
+		Collection<? extends GnuCashTransaction> candList = getCandidates(flt, withSplits, splitLogic);
+		CompiledSplitFilter spltFiltComp = withSplits ? flt.compileSplitFilter() : null;
+		return candList.stream()
+					   .filter(trx -> flt.matchesCriteria(trx, true, withSplits, splitLogic, spltFiltComp))
+					   .map(trx -> (GnuCashTransaction) trx);
+	}
+
+	/**
+	 * @param flt filter
+	 * @param withSplits whether to check the split criteria as well
+	 * @param splitLogic cf. {@link TransactionFilter.SplitLogic}
+	 * @return lazy iterator over the transactions matching the filter
+	 *
+	 * @see #stream(TransactionFilter, boolean, TransactionFilter.SplitLogic)
+	 */
+	public Iterator<GnuCashTransaction> iterator(TransactionFilter flt,
+                								 boolean withSplits,
+                								 TransactionFilter.SplitLogic splitLogic) {
+		return stream(flt, withSplits, splitLogic).iterator();
+	}
+
+	/**
+	 * @param flt filter
+	 * @param withSplits whether to check the split criteria as well
+	 * @param splitLogic cf. {@link TransactionFilter.SplitLogic}
+	 * @return the first transaction matching the filter (if any).
+	 * Stops scanning at the first match.
+	 */
+	public Optional<GnuCashTransaction> findFirst(TransactionFilter flt,
+												  boolean withSplits,
+												  TransactionFilter.SplitLogic splitLogic) {
+		return stream(flt, withSplits, splitLogic).findFirst();
+	}
+
+	/**
+	 * @param flt filter
+	 * @param withSplits whether to check the split criteria as well
+	 * @param splitLogic cf. {@link TransactionFilter.SplitLogic}
+	 * @return true if at least one transaction matches the filter.
+	 * Stops scanning at the first match.
+	 */
+	public boolean exists(TransactionFilter flt,
+						  boolean withSplits,
+						  TransactionFilter.SplitLogic splitLogic) {
+		return stream(flt, withSplits, splitLogic).findAny().isPresent();
+	}
+
+	// ---------------------------------------------------------------
+
+	/*
+	 * Returns the candidates, already filtered by date posted (if set),
+	 * in a deterministic order.
+	 *
+	 * Query plan:
+	 *  0) If no criterion is set that the index can narrow the
+	 *     candidate set with, we do a full scan, as today.
+	 *  1) If the split-count histogram says that no transaction has
+	 *     a matching no. of splits, we are done.
+	 *  2) Date range (if set) narrows the posting array to a contiguous
+	 *     sub-range (binary search).
+	 *  3) If the filter pins an account or an account type on the
+	 *     transaction level, that account's (type's) posting list is
+	 *     a superset of the result. It is cut down to the above-mentioned
+	 *     date range. The same applies if split criteria are to be checked
+	 *     and the split filter pins an account or an account type
+	 *     (unless the split logic allows for zero matching splits).
+	 *  4) Likewise for the entry-date range (binary search on the
+	 *     entry-date order, then sorted back into posting-array order)
+	 *     and the description parts (transaction and split level),
+	 *     if the description index is to be used.
+	 *  5) These candidate sets are intersected (smallest first, binary
+	 *     search into the others), and the intersection is then to be
+	 *     checked against the full criteria.
+	 */
+	private Collection<? extends GnuCashTransaction> getCandidates(TransactionFilter flt,
+			   													   boolean withSplits,
+			   													   TransactionFilter.SplitLogic splitLogic) {
+		// Split criteria can only narrow the candidates if a matching
+		// transaction has at least one matching split
+		boolean withSpltCands = withSplits && flt.needsMatchingSplit(splitLogic);
 		
-		Collection<? extends GnuCashTransaction> candList = null;
-		if ( flt.isDatePostedFromSet() ||
-			 flt.isDatePostedToSet() ) {
-			LocalDate fromDate = null;
-			LocalDate toDate = null;
-			
-			if ( flt.isDatePostedFromSet() )
-				fromDate = flt.datePostedFrom;
-			else
-				fromDate = Const.TRX_SUPER_EARLY_DATE;
-			
-			if ( flt.isDatePostedToSet() )
-				toDate = flt.datePostedTo;
-			else
-				toDate = Const.TRX_SUPER_LATE_DATE;
-			
-			candList = gcshFile.getTransactions(fromDate, toDate);
+		if ( ! isIndexable(flt, withSpltCands) ) {
+			return getCandidatesFullScan();
+		}
+
+		boolean withTrxDescr  = useDescrIndex && ! flt.descrPart.isBlank();
+		boolean withSpltDescr = useDescrIndex && withSpltCands && ! flt.spltFilt.descrPart.isBlank();
+
+		DescriptionIndex descrIdx = null;
+		TransactionIndex idx = null;
+		if ( withTrxDescr || withSpltDescr ) {
+			descrIdx = DescriptionIndex.of(gcshFile);
+			idx = descrIdx.getTransactionIndex(); // consistent positions
+			this.descrIdx = descrIdx;
 		} else {
-			candList = gcshFile.getTransactions();
+			idx = TransactionIndex.of(gcshFile);
 		}
-		
-		for ( GnuCashTransaction trx : candList ) {
-			if ( flt.matchesCriteria(trx, withSplits, splitLogic) ) {
-				result.add(trx);
+		this.trxIdx = idx;
+
+		if ( flt.nofSpltFrom != TransactionFilter.NOF_SPLT_UNSET ||
+			 flt.nofSpltTo   != TransactionFilter.NOF_SPLT_UNSET ) {
+			if ( idx.getNofTransactionsByNofSplits(flt.nofSpltFrom, flt.nofSpltTo) == 0 ) {
+				LOGGER.debug("getCandidates: No transaction with matching no. of splits");
+				return new ArrayList<GnuCashTransaction>();
 			}
 		}
-		
-		LOGGER.debug("find: Found " + result.size() + " Transactions matching filter");
-		return result;
+
+		int lo = idx.lowerBound(flt.isDatePostedFromSet() ? flt.datePostedFrom : null);
+		int hi = idx.upperBound(flt.isDatePostedToSet()   ? flt.datePostedTo   : null);
+		if ( lo >= hi ) {
+			return new ArrayList<GnuCashTransaction>();
+		}
+
+		ArrayList<int[]>  postingsList = new ArrayList<int[]>();
+		ArrayList<String> planList     = new ArrayList<String>();
+		if ( flt.isDateEnteredFromSet() ||
+			 flt.isDateEnteredToSet() ) {
+			postingsList.add(idx.getPositionsByDateEntered(flt.isDateEnteredFromSet() ? flt.dateEnteredFrom : null,
+														   flt.isDateEnteredToSet()   ? flt.dateEnteredTo   : null));
+			planList.add("date entered");
+		}
+
+		if ( flt.acctID.isSet() ) {
+			postingsList.add(idx.getAcctPostings(flt.acctID));
+			planList.add("account posting list");
+		}
+
+		if ( flt.acctType != null ) {
+			postingsList.add(idx.getAcctTypePostings(flt.acctType));
+			planList.add("account-type posting list");
+		}
+
+		if ( withSpltCands &&
+			 flt.spltFilt.acctID.isSet() ) {
+			postingsList.add(idx.getAcctPostings(flt.spltFilt.acctID));
+			planList.add("split account posting list");
+		}
+
+		if ( withSpltCands &&
+			 flt.spltFilt.acctType != null ) {
+			postingsList.add(idx.getAcctTypePostings(flt.spltFilt.acctType));
+			planList.add("split account-type posting list");
+		}
+
+		if ( withTrxDescr ) {
+			postingsList.add(descrIdx.getTrxPositions(flt.descrPart));
+			planList.add("description index");
+		}
+
+		if ( withSpltDescr ) {
+			postingsList.add(descrIdx.getTrxPositionsBySplitDescr(flt.spltFilt.descrPart));
+			planList.add("split description index");
+		}
+
+		// Cut the posting lists down to the date range,
+		// then intersect them, smallest first
+		int nofLists = postingsList.size();
+		int[] from = new int[nofLists];
+		int[] to   = new int[nofLists];
+		Integer[] order = new Integer[nofLists];
+		for ( int i = 0; i < nofLists; i++ ) {
+			from[i]  = firstIdxNotBelow(postingsList.get(i), lo);
+			to[i]    = firstIdxNotBelow(postingsList.get(i), hi);
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingInt(i -> to[i] - from[i]));
+
+		int[] candPos = null;
+		for ( int i : order ) {
+			if ( candPos == null )
+				candPos = Arrays.copyOfRange(postingsList.get(i), from[i], to[i]);
+			else
+				candPos = intersect(candPos, postingsList.get(i), from[i], to[i]);
+
+			if ( candPos.length == 0 )
+				break;
+		}
+
+		if ( candPos != null &&
+			 candPos.length < hi - lo ) {
+			LOGGER.debug("getCandidates: Plan: {} (intersected), {} candidates", planList, candPos.length);
+			return idx.getTransactions(candPos, 0, candPos.length);
+		}
+
+		LOGGER.debug("getCandidates: Plan: date range, {} candidates", hi - lo);
+		return idx.getTransactions(lo, hi);
+	}
+
+	// Open-ended date ranges are handled by the index,
+	// so no date criterion is set here
+	private TransactionQueryCache getQueryCache() {
+		if ( queryCache == null )
+			queryCache = TransactionQueryCache.of(gcshFile);
+
+		return queryCache;
+	}
+
+	private Collection<? extends GnuCashTransaction> getCandidatesFullScan() {
+		return gcshFile.getTransactions();
+	}
+
+	// ---------------------------------------------------------------
+
+	/*
+	 * Whether at least one criterion is set that the index
+	 * can narrow the candidate set with. If not, we do a full scan,
+	 * so building the index is not worth it.
+	 */
+	private boolean isIndexable(TransactionFilter flt, boolean withSplits) {
+		if ( flt.isDatePostedFromSet() ||
+			 flt.isDatePostedToSet() )
+			return true;
+
+		if ( flt.isDateEnteredFromSet() ||
+			 flt.isDateEnteredToSet() )
+			return true;
+
+		if ( flt.acctID.isSet() ||
+			 flt.acctType != null )
+			return true;
+
+		if ( withSplits &&
+			 ( flt.spltFilt.acctID.isSet() ||
+			   flt.spltFilt.acctType != null ) )
+			return true;
+
+		if ( flt.nofSpltFrom != TransactionFilter.NOF_SPLT_UNSET ||
+			 flt.nofSpltTo   != TransactionFilter.NOF_SPLT_UNSET )
+			return true;
+
+		if ( useDescrIndex &&
+			 ! flt.descrPart.isBlank() )
+			return true;
+
+		if ( useDescrIndex &&
+			 withSplits &&
+			 ! flt.spltFilt.descrPart.isBlank() )
+			return true;
+
+		return false;
+	}
+
+	/*
+	 * Elements of the ascending array <small> that are also contained in
+	 * large[from..to) (ascending as well). O(k log m) for k = small.length,
+	 * m = to - from.
+	 */
+	private static int[] intersect(int[] small, int[] large, int from, int to) {
+		int[] result = new int[small.length];
+		int cnt = 0;
+		int lo = from;
+		for ( int val : small ) {
+			int idx = Arrays.binarySearch(large, lo, to, val);
+			if ( idx >= 0 ) {
+				result[cnt++] = val;
+				lo = idx + 1;
+			} else {
+				lo = -idx - 1;
+			}
+		}
+
+		return Arrays.copyOf(result, cnt);
+	}
+
+	// Binary search on ascending array
+	private static int firstIdxNotBelow(int[] arr, int val) {
+		int lo = 0;
+		int hi = arr.length;
+		while ( lo < hi ) {
+			int mid = ( lo + hi ) >>> 1;
+			if ( arr[mid] < val )
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
 	}
 
 }
@@ -0,0 +1,437 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.lang.ref.WeakReference;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Secondary indices over the transactions of a GnuCash file,
+ * used by {@link TransactionFinder} to plan a query before
+ * evaluating the filter criteria on the remaining candidates.
+ * <br>
+ * Contains:
+ * <ul>
+ *   <li>all transactions, sorted by post date (the "posting array")</li>
+ *   <li>the positions in the posting array, sorted by entry date</li>
+ *   <li>per account: the (ascending) positions in the posting array of all
+ *       transactions that have at least one split bound to that account</li>
+ *   <li>likewise per account type</li>
+ *   <li>a histogram of the transactions' no. of splits</li>
+ * </ul>
+ * The index is built once per file and re-used. It is rebuilt
+ * when the file's {@link TransactionModStamp} has changed, i.e. when
+ * transactions have been added or removed or a (writable) transaction
+ * or split has been modified. Transactions that are modified by other
+ * means than the writable API are not detected automatically -- in that
+ * case, call {@link #invalidate(GnuCashFile)}.
+ * <br>
+ * The index references the file (through its transactions), so it is
+ * registered only weakly: It lives as long as someone uses it (e.g. a
+ * {@link TransactionFinder}) and never keeps the file alive.
+ */
+public class TransactionIndex {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionIndex.class);
+
+    // ---------------------------------------------------------------
+
+    // Histogram: the last bucket collects all transactions
+    // with that many splits or more
+    public static final int NOF_SPLT_HISTO_MAX = 32; // ::MAGIC
+
+    private static final int[] EMPTY = new int[0];
+
+    private static final Map<GnuCashFile, WeakReference<TransactionIndex>> INSTANCES = new WeakHashMap<GnuCashFile, WeakReference<TransactionIndex>>();
+
+    // ---------------------------------------------------------------
+
+	// Kept, so that the stamp lives at least as long as the index
+	private final TransactionModStamp modStamp;
+	private final long                stamp; // of the file at build time
+
+	private final int nofTrx;
+
+	private final GnuCashTransaction[] trxByDatePosted;
+	private final long[]               datePostedEpochDay;
+
+	private final int[]  posByDateEntered;
+	private final long[] dateEnteredEpochDay; // sorted, parallel to posByDateEntered
+
+	private final HashMap<GCshAcctID, int[]> acctPostings;
+	private final EnumMap<GnuCashAccount.Type, int[]> acctTypePostings;
+
+	private final int[] nofSpltHisto;
+
+    // ---------------------------------------------------------------
+
+	private TransactionIndex(GnuCashFile gcshFile, TransactionModStamp modStamp, long stamp) {
+		this.modStamp = modStamp;
+		this.stamp    = stamp;
+
+		Collection<? extends GnuCashTransaction> trxList = gcshFile.getTransactions();
+
+		nofTrx = trxList.size();
+		trxByDatePosted = trxList.toArray(new GnuCashTransaction[nofTrx]);
+		// Secondary order by ID, so that the index is deterministic
+		Arrays.sort(trxByDatePosted,
+					Comparator.comparingLong((GnuCashTransaction trx) -> trx.getDatePosted().toLocalDate().toEpochDay())
+							  .thenComparing(trx -> trx.getID().toString()));
+
+		datePostedEpochDay = new long[nofTrx];
+		nofSpltHisto = new int[NOF_SPLT_HISTO_MAX + 1];
+		HashMap<GCshAcctID, IntArrayBuilder> acctPostingsBld = new HashMap<GCshAcctID, IntArrayBuilder>();
+		EnumMap<GnuCashAccount.Type, IntArrayBuilder> acctTypePostingsBld = new EnumMap<GnuCashAccount.Type, IntArrayBuilder>(GnuCashAccount.Type.class);
+
+		for ( int i = 0; i < nofTrx; i++ ) {
+			GnuCashTransaction trx = trxByDatePosted[i];
+			datePostedEpochDay[i] = trx.getDatePosted().toLocalDate().toEpochDay();
+			nofSpltHisto[Math.min(trx.getSplitsCount(), NOF_SPLT_HISTO_MAX)]++;
+
+			for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
+				if ( splt.getAccountID() == null )
+					continue;
+
+				IntArrayBuilder bld = acctPostingsBld.get(splt.getAccountID());
+				if ( bld == null ) {
+					bld = new IntArrayBuilder();
+					acctPostingsBld.put(splt.getAccountID(), bld);
+				}
+				bld.addIfNotLast(i); // several splits of one trx may point to the same account
+
+				GnuCashAccount.Type type = splt.getAccount().getType();
+				bld = acctTypePostingsBld.get(type);
+				if ( bld == null ) {
+					bld = new IntArrayBuilder();
+					acctTypePostingsBld.put(type, bld);
+				}
+				bld.addIfNotLast(i);
+			}
+		}
+
+		acctPostings = new HashMap<GCshAcctID, int[]>(acctPostingsBld.size() * 2);
+		for ( Map.Entry<GCshAcctID, IntArrayBuilder> entry : acctPostingsBld.entrySet() ) {
+			acctPostings.put(entry.getKey(), entry.getValue().toArray());
+		}
+
+		acctTypePostings = new EnumMap<GnuCashAccount.Type, int[]>(GnuCashAccount.Type.class);
+		for ( Map.Entry<GnuCashAccount.Type, IntArrayBuilder> entry : acctTypePostingsBld.entrySet() ) {
+			acctTypePostings.put(entry.getKey(), entry.getValue().toArray());
+		}
+
+		// Sort (entry date, position) pairs packed into longs, so that
+		// we do not have to sort boxed integers. Epoch days fit
+		// easily into the upper 32 bits.
+		long[] packed = new long[nofTrx];
+		for ( int i = 0; i < nofTrx; i++ ) {
+			long epochDay = trxByDatePosted[i].getDateEntered().toLocalDate().toEpochDay();
+			packed[i] = ( epochDay << 32 ) | i;
+		}
+		Arrays.sort(packed);
+
+		posByDateEntered = new int[nofTrx];
+		dateEnteredEpochDay = new long[nofTrx];
+		for ( int i = 0; i < nofTrx; i++ ) {
+			posByDateEntered[i] = (int) packed[i]; // lower 32 bits
+			dateEnteredEpochDay[i] = packed[i] >> 32;
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param gcshFile GnuCash file
+	 * @return the index for the given file, (re-)built if necessary.
+	 */
+	public static TransactionIndex of(GnuCashFile gcshFile) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		// Also registers the change listeners on new objects
+		TransactionModStamp modStamp = TransactionModStamp.of(gcshFile);
+		long stamp = modStamp.get();
+
+		synchronized ( INSTANCES ) {
+			WeakReference<TransactionIndex> ref = INSTANCES.get(gcshFile);
+			TransactionIndex idx = ( ref == null ? null : ref.get() );
+			if ( idx == null ||
+				 idx.stamp != stamp ) {
+				LOGGER.debug("of: (Re-)building transaction index");
+				idx = new TransactionIndex(gcshFile, modStamp, stamp);
+				INSTANCES.put(gcshFile, new WeakReference<TransactionIndex>(idx));
+				LOGGER.debug("of: Built transaction index for {} transactions, {} accounts",
+							 idx.nofTrx, idx.acctPostings.size());
+			}
+
+			return idx;
+		}
+	}
+
+	/**
+	 * Discards the index for the given file, so that it
+	 * will be rebuilt on next access.
+	 *
+	 * @param gcshFile GnuCash file
+	 */
+	public static void invalidate(GnuCashFile gcshFile) {
+		synchronized ( INSTANCES ) {
+			INSTANCES.remove(gcshFile);
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	public int getNofTransactions() {
+		return nofTrx;
+	}
+
+	/**
+	 * @param pos position in the posting array
+	 * @return the transaction at that position
+	 */
+	public GnuCashTransaction getTransaction(int pos) {
+		return trxByDatePosted[pos];
+	}
+
+	/**
+	 * @param lo first position (inclusive)
+	 * @param hi last position (exclusive)
+	 * @return read-only view of the posting array's given range
+	 */
+	public List<GnuCashTransaction> getTransactions(int lo, int hi) {
+		return Collections.unmodifiableList(Arrays.asList(trxByDatePosted).subList(lo, hi));
+	}
+
+	/*
+	 * Read-only view of the transactions at the given positions
+	 * (i.e., a posting list's given range), without copying.
+	 */
+	List<GnuCashTransaction> getTransactions(final int[] positions, final int from, final int to) {
+		return new AbstractList<GnuCashTransaction>() {
+			@Override
+			public GnuCashTransaction get(int i) {
+				return trxByDatePosted[positions[from + i]];
+			}
+
+			@Override
+			public int size() {
+				return to - from;
+			}
+		};
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param from first post date (inclusive), may be null (open range)
+	 * @return position of the first transaction in the posting array
+	 * that has been posted on or after the given date
+	 */
+	public int lowerBound(LocalDate from) {
+		if ( from == null )
+			return 0;
+
+		return firstPosNotBefore(from.toEpochDay());
+	}
+
+	/**
+	 * @param to last post date (inclusive), may be null (open range)
+	 * @return position of the first transaction in the posting array
+	 * that has been posted after the given date
+	 */
+	public int upperBound(LocalDate to) {
+		if ( to == null )
+			return nofTrx;
+
+		return firstPosNotBefore(to.toEpochDay() + 1);
+	}
+
+	private int firstPosNotBefore(long epochDay) {
+		return firstIdxNotBefore(datePostedEpochDay, epochDay);
+	}
+
+	// Binary search on ascending array
+	private static int firstIdxNotBefore(long[] epochDays, long epochDay) {
+		int lo = 0;
+		int hi = epochDays.length;
+		while ( lo < hi ) {
+			int mid = ( lo + hi ) >>> 1;
+			if ( epochDays[mid] < epochDay )
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param from first entry date (inclusive), may be null (open range)
+	 * @param to last entry date (inclusive), may be null (open range)
+	 * @return read-only view of all transactions that have been entered
+	 * in the given date range, sorted by entry date
+	 * (and, secondarily, by post date)
+	 */
+	public List<GnuCashTransaction> getTransactionsByDateEntered(LocalDate from, LocalDate to) {
+		int lo = lowerBoundEntered(from);
+		int hi = upperBoundEntered(to);
+		if ( lo >= hi )
+			return Collections.emptyList();
+
+		return Collections.unmodifiableList(getTransactions(posByDateEntered, lo, hi));
+	}
+
+	public int getNofTransactionsByDateEntered(LocalDate from, LocalDate to) {
+		return Math.max(upperBoundEntered(to) - lowerBoundEntered(from), 0);
+	}
+
+	/*
+	 * Ascending positions (in the posting array) of all transactions
+	 * that have been entered in the given date range (inclusive,
+	 * null for open range).
+	 * O(log n + k log k) for k results.
+	 */
+	int[] getPositionsByDateEntered(LocalDate from, LocalDate to) {
+		int lo = lowerBoundEntered(from);
+		int hi = upperBoundEntered(to);
+		if ( lo >= hi )
+			return EMPTY;
+
+		int[] result = Arrays.copyOfRange(posByDateEntered, lo, hi);
+		Arrays.sort(result);
+		return result;
+	}
+
+	private int lowerBoundEntered(LocalDate from) {
+		if ( from == null )
+			return 0;
+
+		return firstIdxNotBefore(dateEnteredEpochDay, from.toEpochDay());
+	}
+
+	private int upperBoundEntered(LocalDate to) {
+		if ( to == null )
+			return nofTrx;
+
+		return firstIdxNotBefore(dateEnteredEpochDay, to.toEpochDay() + 1);
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * @param acctID account ID
+	 * @return ascending positions (in the posting array) of all transactions
+	 * that have at least one split bound to the given account.
+	 * <br>
+	 * Caution: The array is shared; do not modify it.
+	 */
+	int[] getAcctPostings(GCshAcctID acctID) {
+		int[] result = acctPostings.get(acctID);
+		if ( result == null )
+			return EMPTY;
+
+		return result;
+	}
+
+	public int getNofTransactions(GCshAcctID acctID) {
+		return getAcctPostings(acctID).length;
+	}
+
+	/**
+	 * @param acctType account type
+	 * @return ascending positions (in the posting array) of all transactions
+	 * that have at least one split bound to an account of the given type.
+	 * <br>
+	 * Caution: The array is shared; do not modify it.
+	 */
+	int[] getAcctTypePostings(GnuCashAccount.Type acctType) {
+		int[] result = acctTypePostings.get(acctType);
+		if ( result == null )
+			return EMPTY;
+
+		return result;
+	}
+
+	public int getNofTransactions(GnuCashAccount.Type acctType) {
+		return getAcctTypePostings(acctType).length;
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * The histogram's last bucket collects all transactions with
+	 * {@link #NOF_SPLT_HISTO_MAX} or more splits. Thus, for ranges
+	 * reaching up to or beyond that, the result is an upper bound
+	 * (i.e., it is exact if it is 0).
+	 *
+	 * @param nofSpltFrom min. no. of splits, {@link TransactionFilter#NOF_SPLT_UNSET} for open range
+	 * @param nofSpltTo max. no. of splits, {@link TransactionFilter#NOF_SPLT_UNSET} for open range
+	 * @return no. of transactions whose no. of splits is in the given range
+	 */
+	public int getNofTransactionsByNofSplits(int nofSpltFrom, int nofSpltTo) {
+		int from = ( nofSpltFrom == TransactionFilter.NOF_SPLT_UNSET ? 0 : nofSpltFrom );
+		int to   = ( nofSpltTo   == TransactionFilter.NOF_SPLT_UNSET ? Integer.MAX_VALUE : nofSpltTo );
+		if ( from > to )
+			return 0;
+
+		int result = 0;
+		for ( int i = Math.min(Math.max(from, 0), NOF_SPLT_HISTO_MAX); i <= Math.min(to, NOF_SPLT_HISTO_MAX); i++ ) {
+			result += nofSpltHisto[i];
+		}
+
+		return result;
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * Minimal growable int array, so that the posting lists
+	 * do not have to be built from boxed integers.
+	 */
+	static class IntArrayBuilder {
+
+		private int[] data = new int[8];
+		private int   size = 0;
+
+		void add(int val) {
+			if ( size == data.length )
+				data = Arrays.copyOf(data, size * 2);
+			data[size++] = val;
+		}
+
+		void addIfNotLast(int val) {
+			if ( size > 0 && data[size - 1] == val )
+				return;
+			add(val);
+		}
+
+		int size() {
+			return size;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+
+	}
+
+}
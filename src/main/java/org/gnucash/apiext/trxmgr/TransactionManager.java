@@ -1,18 +1,16 @@
 package org.gnucash.apiext.trxmgr;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import org.gnucash.api.read.GnuCashAccount;
 import org.gnucash.api.read.GnuCashTransaction;
 import org.gnucash.api.read.GnuCashTransactionSplit;
 import org.gnucash.api.write.GnuCashWritableFile;
-import org.gnucash.apiext.Const;
 import org.gnucash.base.basetypes.simple.GCshTrxID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import xyz.schnorxoborx.base.numbers.FixedPointNumber;
-
 public class TransactionManager {
 	
     // Logger
@@ -21,11 +19,17 @@ public class TransactionManager {
     // ---------------------------------------------------------------
     
 	private GnuCashWritableFile gcshFile = null;
+
+	// Kept, as they are registered only weakly
+	private final TransactionSanityCache sanityCache;
+	private final AccountTypeSplitIndex  acctTypeIdx;
 	
     // ---------------------------------------------------------------
 	
 	public TransactionManager(GnuCashWritableFile gcshFile) {
-		this.gcshFile = gcshFile;
+		this.gcshFile    = gcshFile;
+		this.sanityCache = TransactionSanityCache.of(gcshFile);
+		this.acctTypeIdx = AccountTypeSplitIndex.of(gcshFile);
 	}
     
     // ---------------------------------------------------------------
@@ -35,40 +39,40 @@ public class TransactionManager {
 		return isSane(trx);
 	}
 
+	/**
+	 * The result is cached per file, see {@link TransactionSanityCache}.
+	 */
 	public boolean isSane(GnuCashTransaction trx) {
-		if ( trx.getSplits().size() == 0 )
-			return false;
-		
-		FixedPointNumber sum = new FixedPointNumber();
-		for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
-			sum.add(splt.getValue());
-		}
-		
-		if ( sum.abs().doubleValue() > Const.DIFF_TOLERANCE_VALUE ) {
-			LOGGER.warn("isSane: abs. value of sum greater than tolerance: " + sum);
-			return false;
-		}
-		
-		return true;
+		return sanityCache.isSane(trx);
+	}
+	
+	/**
+	 * Checks all transactions of the file in parallel.
+	 * 
+	 * @return IDs of all transactions that are not sane
+	 * 
+	 * @see TransactionSanityCache#checkAllSane()
+	 */
+	public List<GCshTrxID> checkAllSane() {
+		return sanityCache.checkAllSane();
 	}
 	
+	/**
+	 * Bit test against the per-file index, see {@link AccountTypeSplitIndex}.
+	 */
 	public boolean hasSplitBoundToAccounttType(GnuCashTransaction trx, GnuCashAccount.Type acctType) {
-		for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
-			if ( splt.getAccount().getType() == acctType )
-				return true;
-		}
-		
-		return false;
+		return acctTypeIdx.hasSplits(trx, acctType);
 	}
 
 	public ArrayList<GnuCashTransactionSplit> getSplitsBoundToAccounttType(GnuCashTransaction trx, GnuCashAccount.Type acctType) {
-		ArrayList<GnuCashTransactionSplit> result = new ArrayList<GnuCashTransactionSplit>();
-		
-		for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
-			if ( splt.getAccount().getType() == acctType )
-				result.add(splt);
-		}
-		
-		return result;
+		return acctTypeIdx.getSplits(trx, acctType);
+	}
+
+	/**
+	 * @return all splits in the file that are bound to accounts
+	 * of the given type
+	 */
+	public ArrayList<GnuCashTransactionSplit> getSplitsBoundToAccounttType(GnuCashAccount.Type acctType) {
+		return acctTypeIdx.getSplits(acctType);
 	}
 }
@@ -0,0 +1,48 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+
+/**
+ * A transaction matching a {@link TransactionFilter}, together with
+ * those of its splits that match the filter's split criteria.
+ *
+ * @see TransactionFinder#findWithSplits(TransactionFilter, TransactionFilter.SplitLogic)
+ */
+public final class TransactionMatch {
+
+	private final GnuCashTransaction            trx;
+	private final List<GnuCashTransactionSplit> splits;
+
+    // ---------------------------------------------------------------
+
+	TransactionMatch(GnuCashTransaction trx, List<GnuCashTransactionSplit> splits) {
+		this.trx    = trx;
+		this.splits = Collections.unmodifiableList(splits);
+	}
+
+    // ---------------------------------------------------------------
+
+	public GnuCashTransaction getTransaction() {
+		return trx;
+	}
+
+	/**
+	 * @return the matching splits, in the order of the transaction (unmodifiable)
+	 */
+	public List<GnuCashTransactionSplit> getSplits() {
+		return splits;
+	}
+
+    // ---------------------------------------------------------------
+
+	@Override
+	public String toString() {
+		return "TransactionMatch [trx=" + trx.getID() + ", " +
+							  "nofSplits=" + splits.size() + "]";
+	}
+
+}
@@ -1,12 +1,13 @@
 package org.gnucash.apiext.trxmgr;
 
-import java.util.ArrayList;
+import java.util.Set;
 
 import org.gnucash.api.read.GnuCashAccount;
 import org.gnucash.api.read.GnuCashTransaction;
 import org.gnucash.api.read.GnuCashTransactionSplit;
 import org.gnucash.api.write.GnuCashWritableFile;
 import org.gnucash.apiext.Const;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +24,13 @@ public abstract class TransactionMergerBase {
     // Logger
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionMergerBase.class);
     
+    // Account types whose splits have to match in survivor and dier
+    private static final GnuCashAccount.Type[] CHECK_ACCT_TYPES = {
+    		GnuCashAccount.Type.BANK,
+    		GnuCashAccount.Type.CASH,
+    		GnuCashAccount.Type.STOCK
+    };
+    
     // ---------------------------------------------------------------
     
 	protected GnuCashWritableFile gcshFile = null;
@@ -47,12 +55,21 @@ public abstract class TransactionMergerBase {
     // ---------------------------------------------------------------
 	
 	public boolean plausiCheck(GnuCashTransaction survivor, GnuCashTransaction dier) {
+		return plausiCheck(TransactionSplitProfile.of(survivor), TransactionSplitProfile.of(dier));
+	}
+	
+	/**
+	 * Same as {@link #plausiCheck(GnuCashTransaction, GnuCashTransaction)},
+	 * but on split profiles that the caller may already have computed,
+	 * e.g. for checking a transaction against several others.
+	 */
+	public boolean plausiCheck(TransactionSplitProfile survivor, TransactionSplitProfile dier) {
 		// Level 1:
 		double survDateFromJul = 0.0;
 		double dierDateToJul   = 0.0;
 		try {
-			survDateFromJul = JulianDate.toJulian(survivor.getDatePosted().toLocalDate());
-			dierDateToJul   = JulianDate.toJulian(dier.getDatePosted().toLocalDate());
+			survDateFromJul = JulianDate.toJulian(survivor.getTransaction().getDatePosted().toLocalDate());
+			dierDateToJul   = JulianDate.toJulian(dier.getTransaction().getDatePosted().toLocalDate());
 		} catch ( Exception exc ) {
 			// pro forma
 			exc.printStackTrace();
@@ -60,103 +77,45 @@ public abstract class TransactionMergerBase {
 		
 		if ( Math.abs( survDateFromJul - dierDateToJul ) > Const.DIFF_TOLERANCE_DAYS ) {
 			LOGGER.warn("plausiCheck: Survivor- and dier-transaction do not have the same post-date");
-			LOGGER.debug("plausiCheck: Survivor-date: " + survivor.getDatePosted());
-			LOGGER.debug("plausiCheck: Dier-date: " + dier.getDatePosted());
+			LOGGER.debug("plausiCheck: Survivor-date: {}", survivor.getTransaction().getDatePosted());
+			LOGGER.debug("plausiCheck: Dier-date: {}", dier.getTransaction().getDatePosted());
 			return false;
 		}
 
-		TransactionManager trxMgr = new TransactionManager(gcshFile);
-		if ( ! trxMgr.isSane(survivor) ) {
+		if ( ! survivor.isSane() ) {
 			LOGGER.warn("plausiCheck: Survivor-transaction is not sane");
 			return false;
 		}
 		
-		if ( ! trxMgr.isSane(dier) ) {
+		if ( ! dier.isSane() ) {
 			LOGGER.warn("plausiCheck: Dier-transaction is not sane");
 			return false;
 		}
 		
-		if ( ! ( trxMgr.hasSplitBoundToAccounttType(survivor, GnuCashAccount.Type.BANK) &&
-			     trxMgr.hasSplitBoundToAccounttType(dier, GnuCashAccount.Type.BANK) 
-			     ||
-			     trxMgr.hasSplitBoundToAccounttType(survivor, GnuCashAccount.Type.CASH) &&
-			     trxMgr.hasSplitBoundToAccounttType(dier, GnuCashAccount.Type.CASH)
-			     ||
-			     trxMgr.hasSplitBoundToAccounttType(survivor, GnuCashAccount.Type.STOCK) &&
-			     trxMgr.hasSplitBoundToAccounttType(dier, GnuCashAccount.Type.STOCK) 
-			   ) ) {
+		boolean hasCommonType = false;
+		for ( GnuCashAccount.Type type : CHECK_ACCT_TYPES ) {
+			if ( survivor.hasSplits(type) && dier.hasSplits(type) ) {
+				hasCommonType = true;
+			}
+		}
+		
+		if ( ! hasCommonType ) {
 			LOGGER.warn("plausiCheck: One or both transactions has/have no split belonging to bank/cash/stock account");
 			return false;
 		}
 		
 		// Level 2:
 		// Splits belong to the same accounts -- per account type
-		ArrayList<GnuCashTransactionSplit> spltListSurvBank = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.BANK);
-		ArrayList<GnuCashTransactionSplit> spltListDierBank = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.BANK);
-		if ( trxMgr.hasSplitBoundToAccounttType(survivor, GnuCashAccount.Type.BANK) &&
-			 trxMgr.hasSplitBoundToAccounttType(dier, GnuCashAccount.Type.BANK) ) {
-			spltListSurvBank = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.BANK);
-			spltListDierBank = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.BANK);
-			
-			for ( GnuCashTransactionSplit spltSurv : spltListSurvBank ) {
-				boolean accountInBothLists = false;
-				
-				for ( GnuCashTransactionSplit spltDier : spltListDierBank ) {
-					if ( spltSurv.getAccount().getID().equals(spltDier.getAccount().getID() ) ) {
-						accountInBothLists = true;
-					}
-				}
-				
-				if ( ! accountInBothLists ) {
-					LOGGER.warn("plausiCheck: Survivor-split " + spltSurv.getID() + " has no according dier-split sibling (bank accounts)");
-					return false;
-				}
+		for ( GnuCashAccount.Type type : CHECK_ACCT_TYPES ) {
+			if ( ! ( survivor.hasSplits(type) && dier.hasSplits(type) ) ) {
+				continue;
 			}
-		} 
-
-		// sic, no else-if!
-		ArrayList<GnuCashTransactionSplit> spltListSurvCash = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.CASH);
-		ArrayList<GnuCashTransactionSplit> spltListDierCash = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.CASH);
-		if ( trxMgr.hasSplitBoundToAccounttType(survivor, GnuCashAccount.Type.CASH) &&
-			 trxMgr.hasSplitBoundToAccounttType(dier, GnuCashAccount.Type.CASH) ) {
-			spltListSurvCash = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.CASH);
-			spltListDierCash = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.CASH);
 			
-			for ( GnuCashTransactionSplit spltSurv : spltListSurvCash ) {
-				boolean accountInBothLists = false;
-				
-				for ( GnuCashTransactionSplit spltDier : spltListDierCash ) {
-					if ( spltSurv.getAccount().getID().equals(spltDier.getAccount().getID() ) ) {
-						accountInBothLists = true;
-					}
-				}
-				
-				if ( ! accountInBothLists ) {
-					LOGGER.warn("plausiCheck: Survivor-split " + spltSurv.getID() + " has no according dier-split sibling (cash accounts)");
-					return false;
-				}
-			}
-		}
-		
-		// sic, no else-if!
-		ArrayList<GnuCashTransactionSplit> spltListSurvStock = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.STOCK);
-		ArrayList<GnuCashTransactionSplit> spltListDierStock = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.STOCK);
-		if ( trxMgr.hasSplitBoundToAccounttType(survivor, GnuCashAccount.Type.STOCK) &&
-			 trxMgr.hasSplitBoundToAccounttType(dier, GnuCashAccount.Type.STOCK) ) {
-			spltListSurvStock = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.STOCK);
-			spltListDierStock = trxMgr.getSplitsBoundToAccounttType(dier, GnuCashAccount.Type.STOCK);
-			
-			for ( GnuCashTransactionSplit spltSurv : spltListSurvStock ) {
-				boolean accountInBothLists = false;
-				
-				for ( GnuCashTransactionSplit spltDier : spltListDierStock ) {
-					if ( spltSurv.getAccount().getID().equals(spltDier.getAccount().getID() ) ) {
-						accountInBothLists = true;
-					}
-				}
-				
-				if ( ! accountInBothLists ) {
-					LOGGER.warn("plausiCheck: Survivor-split " + spltSurv.getID() + " has no according dier-split sibling (stock accounts)");
+			Set<GCshAcctID> dierAcctIDs = dier.getAccountIDs(type);
+			for ( GnuCashTransactionSplit spltSurv : survivor.getSplits(type) ) {
+				if ( ! dierAcctIDs.contains(spltSurv.getAccountID()) ) {
+					LOGGER.warn("plausiCheck: Survivor-split {} has no according dier-split sibling ({} accounts)", 
+								spltSurv.getID(), type.toString().toLowerCase());
 					return false;
 				}
 			}
@@ -164,62 +123,17 @@ public abstract class TransactionMergerBase {
 		
 		// Level 3:
 		// Split values are identical
-		FixedPointNumber sumSurv = new FixedPointNumber();
-		for ( GnuCashTransactionSplit elt : spltListSurvBank ) {
-			sumSurv = sumSurv.add(elt.getValue());
-		}
-		
-		FixedPointNumber sumDier = new FixedPointNumber();
-		for ( GnuCashTransactionSplit elt : spltListDierBank ) {
-			sumDier = sumDier.add(elt.getValue());
-		}
-		
-		if ( Math.abs( sumSurv.getBigDecimal().doubleValue() - 
-				       sumDier.getBigDecimal().doubleValue() ) > Const.DIFF_TOLERANCE_VALUE ) {
-			LOGGER.warn("plausiCheck: Split-sums over survivor- and dier-splits are unequal (bank accounts)");
-			LOGGER.debug("plausiCheck: sumSurv: " + sumSurv.getBigDecimal());
-			LOGGER.debug("plausiCheck: sumDier: " + sumDier.getBigDecimal());
-			return false;
-		}
-		
-		// ---
-		
-		sumSurv = new FixedPointNumber();
-		for ( GnuCashTransactionSplit elt : spltListSurvCash ) {
-			sumSurv = sumSurv.add(elt.getValue());
-		}
-		
-		sumDier = new FixedPointNumber();
-		for ( GnuCashTransactionSplit elt : spltListDierCash ) {
-			sumDier = sumDier.add(elt.getValue());
-		}
-		
-		if ( Math.abs( sumSurv.getBigDecimal().doubleValue() - 
-				       sumDier.getBigDecimal().doubleValue() ) > Const.DIFF_TOLERANCE_VALUE ) {
-			LOGGER.warn("plausiCheck: Split-sums over survivor- and dier-splits are unequal (cash accounts)");
-			LOGGER.debug("plausiCheck: sumSurv: " + sumSurv.getBigDecimal());
-			LOGGER.debug("plausiCheck: sumDier: " + sumDier.getBigDecimal());
-			return false;
-		}
-		
-		// ---
-		
-		sumSurv = new FixedPointNumber();
-		for ( GnuCashTransactionSplit elt : spltListSurvStock ) {
-			sumSurv = sumSurv.add(elt.getValue());
-		}
-		
-		sumDier = new FixedPointNumber();
-		for ( GnuCashTransactionSplit elt : spltListDierStock ) {
-			sumDier = sumDier.add(elt.getValue());
-		}
-		
-		if ( Math.abs( sumSurv.getBigDecimal().doubleValue() - 
-				       sumDier.getBigDecimal().doubleValue() ) > Const.DIFF_TOLERANCE_VALUE ) {
-			LOGGER.warn("plausiCheck: Split-sums over survivor- and dier-splits are unequal (stock accounts)");
-			LOGGER.debug("plausiCheck: sumSurv: " + sumSurv.getBigDecimal());
-			LOGGER.debug("plausiCheck: sumDier: " + sumDier.getBigDecimal());
-			return false;
+		for ( GnuCashAccount.Type type : CHECK_ACCT_TYPES ) {
+			FixedPointNumber sumSurv = survivor.getValueSum(type);
+			FixedPointNumber sumDier = dier.getValueSum(type);
+			if ( Math.abs( sumSurv.doubleValue() - 
+					       sumDier.doubleValue() ) > Const.DIFF_TOLERANCE_VALUE ) {
+				LOGGER.warn("plausiCheck: Split-sums over survivor- and dier-splits are unequal ({} accounts)", 
+							type.toString().toLowerCase());
+				LOGGER.debug("plausiCheck: sumSurv: {}", sumSurv);
+				LOGGER.debug("plausiCheck: sumDier: {}", sumDier);
+				return false;
+			}
 		}
 		
 		return true;
@@ -35,10 +35,22 @@ public class TransactionMergerVar1 extends TransactionMergerBase
 			throw new MergePlausiCheckException();
 		}
 		
-		// 2) If OK, remove dier
+		// 2) If OK, merge
+		mergePreChecked(survivor, dier);
+	}
+
+	/*
+	 * Same as merge(), but without the plausi check: 
+	 * The caller (cf. TransactionBulkMerger) has already done it.
+	 */
+	void mergePreChecked(GnuCashTransaction survivor, GnuCashWritableTransaction dier) {
 		GCshTrxID dierID = dier.getID();
 		gcshFile.removeTransaction(dier);
 		LOGGER.info("merge: Transaction " + dierID + " (dier) removed");
+
+		// Transaction removed: the no. of transactions alone does
+		// not tell the indices if others are added afterwards
+		TransactionModStamp.of(gcshFile).touch();
 	}
 
 }
@@ -101,6 +101,44 @@ public class TransactionMergerVar2 extends TransactionMergerBase
 	}
 
 	public void merge(GnuCashTransaction survivor, GnuCashWritableTransaction dier) throws MergePlausiCheckException {
+		checkState();
+		
+		// 1) Perform plausi checks
+		if ( ! plausiCheck(survivor, dier) ) {
+			LOGGER.error("merge: survivor-dier-pair did not pass plausi check: " + survivor.getID() + "/" + dier.getID());
+			throw new MergePlausiCheckException();
+		}
+
+		// 2) If OK, merge
+		mergePreChecked(survivor, dier);
+	}
+
+	/*
+	 * Same as merge(), but without the plausi check: 
+	 * The caller (cf. TransactionBulkMerger) has already done it.
+	 */
+	void mergePreChecked(GnuCashTransaction survivor, GnuCashWritableTransaction dier) {
+		checkState();
+
+		GnuCashWritableTransactionSplit zSurvBankTrxSpltAfter = copyBankTrxSplt();
+		LOGGER.info("merge: Transaction Split " + zDierTrxBankSpltID + " copied to new Splt " + zSurvBankTrxSpltAfter.getID());
+		
+		GnuCashWritableTransactionSplit zSurvBankTrxSpltBefore = gcshFile.getWritableTransactionSplitByID(zSurvTrxBankSpltBeforeID);
+		survTrx.remove(zSurvBankTrxSpltBefore);
+		LOGGER.info("merge: Removed Transaction Split " + zSurvTrxBankSpltBeforeID);
+
+		GCshTrxID dierID = dier.getID();
+		gcshFile.removeTransaction(dier);
+		LOGGER.info("merge: Transaction " + dierID + " (dier) removed");
+
+		// Transaction removed: the no. of transactions alone does
+		// not tell the indices if others are added afterwards
+		TransactionModStamp.of(gcshFile).touch();
+	}
+
+    // ---------------------------------------------------------------
+	
+	private void checkState() {
 		if ( zDierTrxBankSpltID == null ) {
 			throw new IllegalStateException("Z dier Trx bank Split ID is null");
 		}
@@ -128,28 +166,7 @@ public class TransactionMergerVar2 extends TransactionMergerBase
 		if ( zDierTrxBankSpltID.equals(zSurvTrxBankSpltBeforeID) ) {
 			throw new IllegalStateException("IDs of Z dier Trx bank Split and Z survivor Trx bank Split (before) are identical");
 		}
-		
-		// ---
-		
-		// 1) Perform plausi checks
-		if ( ! plausiCheck(survivor, dier) ) {
-			LOGGER.error("merge: survivor-dier-pair did not pass plausi check: " + survivor.getID() + "/" + dier.getID());
-			throw new MergePlausiCheckException();
-		}
-
-		GnuCashWritableTransactionSplit zSurvBankTrxSpltAfter = copyBankTrxSplt();
-		LOGGER.info("merge: Transaction Split " + zDierTrxBankSpltID + " copied to new Splt " + zSurvBankTrxSpltAfter.getID());
-		
-		GnuCashWritableTransactionSplit zSurvBankTrxSpltBefore = gcshFile.getWritableTransactionSplitByID(zSurvTrxBankSpltBeforeID);
-		survTrx.remove(zSurvBankTrxSpltBefore);
-		LOGGER.info("merge: Removed Transaction Split " + zSurvTrxBankSpltBeforeID);
-
-		GCshTrxID dierID = dier.getID();
-		gcshFile.removeTransaction(dier);
-		LOGGER.info("merge: Transaction " + dierID + " (dier) removed");
 	}
-
-    // ---------------------------------------------------------------
 	
 	private GnuCashWritableTransactionSplit copyBankTrxSplt() {
 		GnuCashWritableTransactionSplit copy = survTrx.createWritableSplit(zDierTrxBankSplt.getAccount());
@@ -0,0 +1,240 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.api.write.GnuCashWritableTransaction;
+import org.gnucash.api.write.GnuCashWritableTransactionSplit;
+import org.gnucash.base.basetypes.simple.GCshTrxID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Modification stamp of the transactions and splits of a GnuCash file,
+ * one per file, shared by the indices and caches of this package
+ * ({@link TransactionIndex}, {@link DescriptionIndex},
+ * {@link AccountTypeSplitIndex}, {@link TransactionQueryCache}):
+ * Whatever they have derived from the file is valid as long as the
+ * stamp has not changed.
+ * <br>
+ * The stamp changes
+ * <ul>
+ *   <li>when a (writable) transaction or split fires a property change
+ *       (e.g. a changed post date, description, amount or account,
+ *       or splits added to or removed from a transaction);
+ *       the listeners are registered once per object,</li>
+ *   <li>when the no. of transactions in the file has changed
+ *       (checked on {@link #get()} -- in constant time, as long as
+ *       nothing has changed),</li>
+ *   <li>explicitly, by {@link #touch()}.</li>
+ * </ul>
+ * Thus, {@link #get()} does not look at the single transactions. If
+ * transactions are removed from the file and others added, so that their
+ * no. does not change (the mergers of this package take care of that
+ * themselves), or if transactions are modified by other means than the
+ * writable API, call {@link #touch()}.
+ * <br>
+ * Stamps are unique across all files and instances, so that a stamp
+ * from a discarded instance never matches a current one.
+ * <br>
+ * Like the indices and caches, the stamp is registered per file only
+ * weakly, so that none of them keeps the file alive (they reference it,
+ * directly or through its objects). The listeners on the file's writable
+ * objects keep the stamp alive as long as the file; otherwise, it lives
+ * as long as one of its users.
+ */
+public class TransactionModStamp {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionModStamp.class);
+
+    // ---------------------------------------------------------------
+
+    private static final Map<GnuCashFile, WeakReference<TransactionModStamp>> INSTANCES = new WeakHashMap<GnuCashFile, WeakReference<TransactionModStamp>>();
+
+    private static final AtomicLong NEXT_STAMP = new AtomicLong();
+
+    // ---------------------------------------------------------------
+
+	private final GnuCashFile gcshFile;
+
+	private volatile long stamp;
+
+	// No. of transactions at the last check
+	private int nofTrx;
+
+	// Whether the listeners have to be registered on new objects
+	private boolean rescan;
+
+	private int nofScans;
+
+	// Writable objects that we already listen to
+	// (weak, so that removed objects can be collected)
+	private final Set<Object> listenedTo;
+
+	// Notified (with the transaction's ID) on every property change
+	private final CopyOnWriteArrayList<Consumer<GCshTrxID>> trxListeners;
+
+    // ---------------------------------------------------------------
+
+	private TransactionModStamp(GnuCashFile gcshFile) {
+		this.gcshFile     = gcshFile;
+		this.stamp        = NEXT_STAMP.incrementAndGet();
+		this.nofTrx       = -1;
+		this.rescan       = true;
+		this.listenedTo   = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Object, Boolean>()));
+		this.trxListeners = new CopyOnWriteArrayList<Consumer<GCshTrxID>>();
+	}
+
+	/**
+	 * @param gcshFile GnuCash file
+	 * @return the modification stamp for the given file
+	 */
+	public static TransactionModStamp of(GnuCashFile gcshFile) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		synchronized ( INSTANCES ) {
+			WeakReference<TransactionModStamp> ref = INSTANCES.get(gcshFile);
+			TransactionModStamp modStamp = ( ref == null ? null : ref.get() );
+			if ( modStamp == null ) {
+				modStamp = new TransactionModStamp(gcshFile);
+				INSTANCES.put(gcshFile, new WeakReference<TransactionModStamp>(modStamp));
+			}
+
+			return modStamp;
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * Checks the file's no. of transactions, then returns the stamp.
+	 * <br>
+	 * Only if it has changed (or after {@link #touch()}), the transactions
+	 * are scanned once, so that the listeners are registered on new objects.
+	 *
+	 * @return the current stamp
+	 */
+	public synchronized long get() {
+		Collection<? extends GnuCashTransaction> trxList = gcshFile.getTransactions();
+
+		if ( trxList.size() != nofTrx ) {
+			if ( nofTrx >= 0 ) {
+				LOGGER.debug("get: No. of transactions of file has changed: {} -> {}", nofTrx, trxList.size());
+			}
+			nofTrx = trxList.size();
+			rescan = true;
+			advance();
+		}
+
+		if ( rescan ) {
+			listenToAll(trxList);
+			rescan = false;
+			nofScans++;
+		}
+
+		return stamp;
+	}
+
+	/*
+	 * The stamp as it is, without checking the no. of transactions.
+	 * Only good for detecting property changes within a short time
+	 * span (e.g. while a search is running).
+	 */
+	long peek() {
+		return stamp;
+	}
+
+	/**
+	 * Advances the stamp, e.g. after transactions have been removed
+	 * and added or modified by other means than the writable API.
+	 */
+	public synchronized void touch() {
+		rescan = true;
+		advance();
+	}
+
+	/*
+	 * No. of scans over the file's transactions so far
+	 */
+	synchronized int getNofScans() {
+		return nofScans;
+	}
+
+    // ---------------------------------------------------------------
+
+	/*
+	 * Registers the listeners on the given transaction and
+	 * its splits (if not done yet).
+	 */
+	void listenTo(GnuCashTransaction trx) {
+		if ( ! ( trx instanceof GnuCashWritableTransaction wrtblTrx ) ) {
+			return;
+		}
+
+		// Caller's ID objects are mutable
+		GCshTrxID key = null;
+		if ( listenedTo.add(trx) ) {
+			key = copy(trx.getID());
+			final GCshTrxID trxKey = key;
+			wrtblTrx.addPropertyChangeListener(evt -> modified(trxKey));
+		}
+
+		for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
+			if ( splt instanceof GnuCashWritableTransactionSplit wrtblSplt &&
+				 listenedTo.add(splt) ) {
+				if ( key == null )
+					key = copy(trx.getID());
+				final GCshTrxID trxKey = key;
+				wrtblSplt.addPropertyChangeListener(evt -> modified(trxKey));
+			}
+		}
+	}
+
+	/*
+	 * The given consumer is notified (with the ID of the
+	 * transaction concerned) whenever a transaction or split
+	 * that we listen to fires a property change.
+	 */
+	void addTransactionListener(Consumer<GCshTrxID> lstnr) {
+		trxListeners.add(lstnr);
+	}
+
+    // ---------------------------------------------------------------
+
+	private void listenToAll(Collection<? extends GnuCashTransaction> trxList) {
+		for ( GnuCashTransaction trx : trxList ) {
+			listenTo(trx);
+		}
+	}
+
+	private void modified(GCshTrxID trxID) {
+		advance();
+		for ( Consumer<GCshTrxID> lstnr : trxListeners ) {
+			lstnr.accept(trxID);
+		}
+	}
+
+	private void advance() {
+		stamp = NEXT_STAMP.incrementAndGet();
+	}
+
+	private static GCshTrxID copy(GCshTrxID trxID) {
+		GCshTrxID result = new GCshTrxID();
+		result.set(trxID);
+		return result;
+	}
+
+}
@@ -0,0 +1,254 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Results of {@link TransactionFinder#find(TransactionFilter, boolean, TransactionFilter.SplitLogic)},
+ * one cache per GnuCash file.
+ * <br>
+ * The results are keyed by the filter's immutable specification
+ * (cf. {@link TransactionFilter#toSpec()}), <code>withSplits</code> and the split logic, so that
+ * equivalent filter configurations share one entry and later changes
+ * to the (mutable) filter object do not affect the cache.
+ * <br>
+ * The cache is bounded; the least recently used entry is evicted first.
+ * All entries are discarded
+ * <ul>
+ *   <li>when the file's {@link TransactionModStamp} has changed (i.e.,
+ *       a transaction or split has been modified through the writable
+ *       API, or transactions have been added or removed),</li>
+ *   <li>explicitly, by {@link #invalidate()}.</li>
+ * </ul>
+ * A result is only stored if the stamp has not changed while it was
+ * being computed.
+ * <br>
+ * Registered weakly: The cache lives as long as its users (e.g. a
+ * {@link TransactionFinder}) and does not keep the file alive.
+ *
+ * @see TransactionFinder#setUseResultCache(boolean)
+ */
+public class TransactionQueryCache {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionQueryCache.class);
+
+    // ---------------------------------------------------------------
+
+    public static final int DEFAULT_MAX_SIZE = 64; // ::MAGIC
+
+    private static final Map<GnuCashFile, WeakReference<TransactionQueryCache>> INSTANCES = new WeakHashMap<GnuCashFile, WeakReference<TransactionQueryCache>>();
+
+    // ---------------------------------------------------------------
+
+	/*
+	 * Canonical snapshot of the query. Without splits,
+	 * the split-level criteria are irrelevant.
+	 * (So is the no. of matching splits for AND and OR,
+	 * but we do not care about that.)
+	 */
+	private static final class Key {
+		private final TransactionFilterSpec        spec;
+		private final boolean                      withSplits;
+		private final TransactionFilter.SplitLogic splitLogic;
+
+		Key(TransactionFilterSpec spec, boolean withSplits, TransactionFilter.SplitLogic splitLogic) {
+			if ( withSplits ) {
+				this.spec       = spec;
+				this.splitLogic = splitLogic;
+			} else {
+				this.spec       = spec.getSpltFilt().equals(TransactionSplitFilterSpec_FP.EMPTY) ?
+									spec :
+									spec.toBuilder().spltFilt(TransactionSplitFilterSpec_FP.EMPTY).build();
+				this.splitLogic = null;
+			}
+			this.withSplits = withSplits;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(spec, withSplits, splitLogic);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( this == obj )
+				return true;
+			if ( ! ( obj instanceof Key other ) )
+				return false;
+			return spec.equals(other.spec) &&
+				   withSplits == other.withSplits &&
+				   splitLogic == other.splitLogic;
+		}
+
+		@Override
+		public String toString() {
+			return "Key [spec=" + spec + ", withSplits=" + withSplits + ", splitLogic=" + splitLogic + "]";
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	private final TransactionModStamp modStamp;
+
+	private int maxSize;
+	private final LinkedHashMap<Key, List<GnuCashTransaction>> entries;
+
+	// Stamp of the file at the time the entries were computed
+	private long stamp;
+	// Incremented on every invalidation, so that results that were
+	// being computed while the file changed are not stored
+	private long generation;
+
+	private final AtomicLong nofHits;
+	private final AtomicLong nofMisses;
+
+    // ---------------------------------------------------------------
+
+	private TransactionQueryCache(GnuCashFile gcshFile) {
+		this.modStamp   = TransactionModStamp.of(gcshFile);
+		this.maxSize    = DEFAULT_MAX_SIZE;
+		this.entries    = new LinkedHashMap<Key, List<GnuCashTransaction>>(16, 0.75f, true); // access order
+		this.stamp      = -1;
+		this.generation = 0;
+		this.nofHits    = new AtomicLong();
+		this.nofMisses  = new AtomicLong();
+	}
+
+	/**
+	 * @param gcshFile GnuCash file
+	 * @return the cache for the given file
+	 */
+	public static TransactionQueryCache of(GnuCashFile gcshFile) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		synchronized ( INSTANCES ) {
+			WeakReference<TransactionQueryCache> ref = INSTANCES.get(gcshFile);
+			TransactionQueryCache cache = ( ref == null ? null : ref.get() );
+			if ( cache == null ) {
+				cache = new TransactionQueryCache(gcshFile);
+				INSTANCES.put(gcshFile, new WeakReference<TransactionQueryCache>(cache));
+			}
+
+			return cache;
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * Returns the cached result for the given query or, if there is none,
+	 * computes and caches it. The computation runs outside of the cache's lock.
+	 *
+	 * @param flt filter (only read; a snapshot is taken)
+	 * @param withSplits whether the split criteria are checked as well
+	 * @param splitLogic cf. {@link TransactionFilter.SplitLogic}
+	 * @param search the actual search
+	 * @return the (unmodifiable) result
+	 */
+	public List<GnuCashTransaction> get(TransactionFilter flt,
+										boolean withSplits,
+										TransactionFilter.SplitLogic splitLogic,
+										Supplier<? extends List<GnuCashTransaction>> search) {
+		if ( flt == null ) {
+			throw new IllegalArgumentException("argument <flt> is null");
+		}
+
+		if ( search == null ) {
+			throw new IllegalArgumentException("argument <search> is null");
+		}
+
+		Key key = new Key(flt.toSpec(), withSplits, splitLogic);
+		long currStamp = modStamp.get();
+		long gen = 0;
+		synchronized ( this ) {
+			if ( currStamp != stamp ) {
+				invalidate();
+				stamp = currStamp;
+			}
+			List<GnuCashTransaction> result = entries.get(key);
+			if ( result != null ) {
+				nofHits.incrementAndGet();
+				return result;
+			}
+			gen = generation;
+		}
+
+		nofMisses.incrementAndGet();
+		LOGGER.debug("get: Cache miss for {}", key);
+		List<GnuCashTransaction> result = Collections.unmodifiableList(new ArrayList<GnuCashTransaction>(search.get()));
+
+		synchronized ( this ) {
+			// Not if the file has been modified in the meantime
+			if ( gen == generation &&
+				 modStamp.peek() == currStamp ) {
+				entries.put(key, result);
+				while ( entries.size() > maxSize ) {
+					Key eldest = entries.keySet().iterator().next();
+					entries.remove(eldest);
+				}
+			}
+		}
+
+		return result;
+	}
+
+    // ---------------------------------------------------------------
+
+	public synchronized void invalidate() {
+		if ( ! entries.isEmpty() ) {
+			LOGGER.debug("invalidate: Discarding {} entries", entries.size());
+		}
+		entries.clear();
+		generation++;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized void setMaxSize(int maxSize) {
+		if ( maxSize <= 0 ) {
+			throw new IllegalArgumentException("argument <maxSize> is <= 0");
+		}
+
+		this.maxSize = maxSize;
+		while ( entries.size() > maxSize ) {
+			Key eldest = entries.keySet().iterator().next();
+			entries.remove(eldest);
+		}
+	}
+
+	public long getNofHits() {
+		return nofHits.get();
+	}
+
+	public long getNofMisses() {
+		return nofMisses.get();
+	}
+
+	public void resetCounters() {
+		nofHits.set(0);
+		nofMisses.set(0);
+	}
+
+}
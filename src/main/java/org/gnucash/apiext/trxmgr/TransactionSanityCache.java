@@ -0,0 +1,239 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.beans.PropertyChangeListener;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.api.write.GnuCashWritableTransaction;
+import org.gnucash.api.write.GnuCashWritableTransactionSplit;
+import org.gnucash.apiext.Const;
+import org.gnucash.base.basetypes.simple.GCshTrxID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/**
+ * Memoised results of {@link TransactionManager#isSane(GnuCashTransaction)},
+ * one cache per GnuCash file.
+ * <br>
+ * An entry is discarded
+ * <ul>
+ *   <li>when the transaction or one of its splits fires a property change
+ *       (i.e., is modified through the writable API),</li>
+ *   <li>when splits are added to or removed from the transaction (detected
+ *       by a fingerprint of the split objects on each access),</li>
+ *   <li>explicitly, by {@link #invalidate(GCshTrxID)} or {@link #clear()}.</li>
+ * </ul>
+ * Transactions that are not writable objects do not fire property changes;
+ * if they are modified by other means, invalidate them explicitly.
+ * <br>
+ * The cache is registered weakly; it is kept alive by the listeners on
+ * the file's writable objects and by its users (e.g. {@link TransactionManager}),
+ * but it never keeps the file alive.
+ */
+public class TransactionSanityCache {
+
+    // Logger
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionSanityCache.class);
+
+    // ---------------------------------------------------------------
+
+    private static final Map<GnuCashFile, WeakReference<TransactionSanityCache>> INSTANCES = new WeakHashMap<GnuCashFile, WeakReference<TransactionSanityCache>>();
+
+    // ---------------------------------------------------------------
+
+    private static final class Entry {
+    	final int nofSplits;
+    	final int fingerprint;
+    	final FixedPointNumber sum;
+    	final boolean sane;
+
+    	Entry(int nofSplits, int fingerprint, FixedPointNumber sum, boolean sane) {
+    		this.nofSplits = nofSplits;
+    		this.fingerprint = fingerprint;
+    		this.sum = sum;
+    		this.sane = sane;
+    	}
+    }
+
+    // ---------------------------------------------------------------
+
+	private final GnuCashFile gcshFile;
+
+	private final ConcurrentHashMap<GCshTrxID, Entry> entries;
+
+	// Writable objects that we already listen to
+	// (weak, so that removed objects can be collected)
+	private final Set<Object> listenedTo;
+
+    // ---------------------------------------------------------------
+
+	private TransactionSanityCache(GnuCashFile gcshFile) {
+		this.gcshFile   = gcshFile;
+		this.entries    = new ConcurrentHashMap<GCshTrxID, Entry>();
+		this.listenedTo = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Object, Boolean>()));
+	}
+
+	/**
+	 * @param gcshFile GnuCash file
+	 * @return the cache for the given file
+	 */
+	public static TransactionSanityCache of(GnuCashFile gcshFile) {
+		if ( gcshFile == null ) {
+			throw new IllegalArgumentException("argument <gcshFile> is null");
+		}
+
+		synchronized ( INSTANCES ) {
+			WeakReference<TransactionSanityCache> ref = INSTANCES.get(gcshFile);
+			TransactionSanityCache cache = ( ref == null ? null : ref.get() );
+			if ( cache == null ) {
+				cache = new TransactionSanityCache(gcshFile);
+				INSTANCES.put(gcshFile, new WeakReference<TransactionSanityCache>(cache));
+			}
+
+			return cache;
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	/**
+	 * A transaction is sane if it has splits and the sum of their values
+	 * is zero (within tolerance).
+	 *
+	 * @param trx transaction
+	 * @return true if the transaction is sane
+	 */
+	public boolean isSane(GnuCashTransaction trx) {
+		return getEntry(trx).sane;
+	}
+
+	/**
+	 * @param trx transaction
+	 * @return sum of the values of all splits (a copy)
+	 */
+	public FixedPointNumber getBalance(GnuCashTransaction trx) {
+		return getEntry(trx).sum.copy();
+	}
+
+	/**
+	 * Checks all transactions of the file, using the common fork/join pool.
+	 *
+	 * @return IDs of all transactions that are not sane
+	 *
+	 * @see #checkAllSane(ForkJoinPool)
+	 */
+	public List<GCshTrxID> checkAllSane() {
+		return checkAllSane(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Checks all transactions of the file in parallel.
+	 * The file must not be modified while the check is running.
+	 *
+	 * @param pool pool to run the check in
+	 * @return IDs of all transactions that are not sane,
+	 * in the order of {@link GnuCashFile#getTransactions()}
+	 */
+	public List<GCshTrxID> checkAllSane(ForkJoinPool pool) {
+		ArrayList<GnuCashTransaction> trxList = new ArrayList<GnuCashTransaction>(gcshFile.getTransactions());
+		ArrayList<GnuCashTransaction> insaneList = ParallelMatcher.match(trxList, trx -> ! isSane(trx), pool);
+
+		ArrayList<GCshTrxID> result = new ArrayList<GCshTrxID>(insaneList.size());
+		for ( GnuCashTransaction trx : insaneList ) {
+			result.add(trx.getID());
+		}
+
+		LOGGER.info("checkAllSane: {} of {} transactions are not sane", result.size(), trxList.size());
+		return result;
+	}
+
+    // ---------------------------------------------------------------
+
+	public void invalidate(GCshTrxID trxID) {
+		entries.remove(trxID);
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+    // ---------------------------------------------------------------
+
+	private Entry getEntry(GnuCashTransaction trx) {
+		if ( trx == null ) {
+			throw new IllegalArgumentException("argument <trx> is null");
+		}
+
+		List<? extends GnuCashTransactionSplit> spltList = trx.getSplits();
+
+		// Cheap: no amounts involved
+		int fingerprint = 1;
+		for ( GnuCashTransactionSplit splt : spltList ) {
+			fingerprint = 31 * fingerprint + System.identityHashCode(splt);
+		}
+
+		Entry entry = entries.get(trx.getID());
+		if ( entry != null &&
+			 entry.nofSplits == spltList.size() &&
+			 entry.fingerprint == fingerprint ) {
+			return entry;
+		}
+
+		// Caller's ID objects are mutable
+		GCshTrxID key = new GCshTrxID();
+		key.set(trx.getID());
+		listen(trx, key);
+
+		FixedPointNumber sum = new FixedPointNumber();
+		for ( GnuCashTransactionSplit splt : spltList ) {
+			listen(splt, key);
+			sum.add(splt.getValue());
+		}
+
+		boolean sane = true;
+		if ( spltList.size() == 0 ) {
+			sane = false;
+		} else if ( Math.abs(sum.doubleValue()) > Const.DIFF_TOLERANCE_VALUE ) {
+			LOGGER.warn("isSane: abs. value of sum greater than tolerance: {}", sum);
+			sane = false;
+		}
+
+		entry = new Entry(spltList.size(), fingerprint, sum, sane);
+		entries.put(key, entry);
+
+		return entry;
+	}
+
+	private void listen(Object obj, GCshTrxID key) {
+		if ( obj instanceof GnuCashWritableTransaction trx ) {
+			if ( listenedTo.add(obj) ) {
+				trx.addPropertyChangeListener(newListener(key));
+			}
+		} else if ( obj instanceof GnuCashWritableTransactionSplit splt ) {
+			if ( listenedTo.add(obj) ) {
+				splt.addPropertyChangeListener(newListener(key));
+			}
+		}
+	}
+
+	private PropertyChangeListener newListener(GCshTrxID key) {
+		return evt -> entries.remove(key);
+	}
+
+}
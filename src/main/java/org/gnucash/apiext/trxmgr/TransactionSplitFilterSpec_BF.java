@@ -0,0 +1,330 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.util.Objects;
+
+import org.apache.commons.numbers.fraction.BigFraction;
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+
+/**
+ * Immutable counterpart of {@link TransactionSplitFilter_BF}.
+ * <br>
+ * Built with {@link #builder()}. Has value semantics: Two specifications
+ * are equal if they have the same criteria (descriptions are compared
+ * the way they are matched, i.e. trimmed and lower-cased; amounts by value).
+ * Thus, specifications can be shared between threads and be used as
+ * map keys without defensive copying.
+ * <br>
+ * The compiled form is created once, on construction.
+ *
+ * @see TransactionSplitFilter_BF#toSpec()
+ */
+public final class TransactionSplitFilterSpec_BF {
+
+	public static final TransactionSplitFilterSpec_BF EMPTY = builder().build();
+
+    // ---------------------------------------------------------------
+
+	private final GnuCashTransactionSplit.Action     action;
+	private final GnuCashTransactionSplit.ReconState reconState;
+
+	private final GCshAcctID acctID; // null: unset
+
+	private final GnuCashAccount.Type acctType;
+
+	// null: unset (immutable)
+	private final BigFraction valueFrom;
+	private final BigFraction valueTo;
+	private final boolean     valueAbs;
+
+	private final BigFraction quantityFrom;
+	private final BigFraction quantityTo;
+	private final boolean     quantityAbs;
+
+	private final String descrPart; // trimmed, case-folded; "" if unset
+
+	private final CompiledSplitFilter compiled;
+	private final int                 hash;
+
+    // ---------------------------------------------------------------
+
+	public static final class Builder {
+
+		private GnuCashTransactionSplit.Action     action;
+		private GnuCashTransactionSplit.ReconState reconState;
+		private GCshAcctID                         acctID;
+		private GnuCashAccount.Type                acctType;
+		private BigFraction                        valueFrom;
+		private BigFraction                        valueTo;
+		private boolean                            valueAbs;
+		private BigFraction                        quantityFrom;
+		private BigFraction                        quantityTo;
+		private boolean                            quantityAbs;
+		private String                             descrPart = "";
+
+		private Builder() {
+		}
+
+		public Builder action(GnuCashTransactionSplit.Action action) {
+			this.action = action;
+			return this;
+		}
+
+		public Builder reconState(GnuCashTransactionSplit.ReconState reconState) {
+			this.reconState = reconState;
+			return this;
+		}
+
+		/**
+		 * @param acctID account ID (copied), null or unset ID for "any account"
+		 */
+		public Builder acctID(GCshAcctID acctID) {
+			this.acctID = copy(acctID);
+			return this;
+		}
+
+		public Builder acctType(GnuCashAccount.Type acctType) {
+			this.acctType = acctType;
+			return this;
+		}
+
+		/**
+		 * @param from lower bound, null for open range
+		 * @param to upper bound, null for open range
+		 * @param abs whether to compare the absolute value
+		 */
+		public Builder value(BigFraction from, BigFraction to, boolean abs) {
+			this.valueFrom = canon(from);
+			this.valueTo   = canon(to);
+			this.valueAbs  = abs;
+			return this;
+		}
+
+		/**
+		 * @param from lower bound, null for open range
+		 * @param to upper bound, null for open range
+		 * @param abs whether to compare the absolute value
+		 */
+		public Builder quantity(BigFraction from, BigFraction to, boolean abs) {
+			this.quantityFrom = canon(from);
+			this.quantityTo   = canon(to);
+			this.quantityAbs  = abs;
+			return this;
+		}
+
+		/**
+		 * @param descrPart part of the description (case-insensitive),
+		 * null or blank for "any description"
+		 */
+		public Builder descrPart(String descrPart) {
+			this.descrPart = ( descrPart == null ? "" : DescriptionIndex.fold(descrPart.trim()) );
+			return this;
+		}
+
+		public TransactionSplitFilterSpec_BF build() {
+			return new TransactionSplitFilterSpec_BF(this);
+		}
+
+		private static BigFraction canon(BigFraction amt) {
+			if ( amt == null ||
+				 amt.equals(TransactionSplitFilter_BF.UNSET_VALUE) )
+				return null;
+			return amt; // immutable
+		}
+	}
+
+    // ---------------------------------------------------------------
+
+	private TransactionSplitFilterSpec_BF(Builder bld) {
+		this.action       = bld.action;
+		this.reconState   = bld.reconState;
+		this.acctID       = bld.acctID;
+		this.acctType     = bld.acctType;
+		this.valueFrom    = bld.valueFrom;
+		this.valueTo      = bld.valueTo;
+		this.valueAbs     = bld.valueAbs;
+		this.quantityFrom = bld.quantityFrom;
+		this.quantityTo   = bld.quantityTo;
+		this.quantityAbs  = bld.quantityAbs;
+		this.descrPart    = bld.descrPart;
+
+		this.compiled = toFilter().compile();
+		this.hash     = Objects.hash(action, reconState, acctID, acctType,
+									 valueFrom, valueTo, valueAbs,
+									 quantityFrom, quantityTo, quantityAbs,
+									 descrPart);
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return a builder, pre-set with this specification's criteria
+	 */
+	public Builder toBuilder() {
+		Builder bld = new Builder();
+		bld.action       = action;
+		bld.reconState   = reconState;
+		bld.acctID       = copy(acctID);
+		bld.acctType     = acctType;
+		bld.valueFrom    = valueFrom;
+		bld.valueTo      = valueTo;
+		bld.valueAbs     = valueAbs;
+		bld.quantityFrom = quantityFrom;
+		bld.quantityTo   = quantityTo;
+		bld.quantityAbs  = quantityAbs;
+		bld.descrPart    = descrPart;
+		return bld;
+	}
+
+    // ---------------------------------------------------------------
+
+	public GnuCashTransactionSplit.Action getAction() {
+		return action;
+	}
+
+	public GnuCashTransactionSplit.ReconState getReconState() {
+		return reconState;
+	}
+
+	/**
+	 * @return account ID (a copy), null if unset
+	 */
+	public GCshAcctID getAcctID() {
+		return copy(acctID);
+	}
+
+	public GnuCashAccount.Type getAcctType() {
+		return acctType;
+	}
+
+	/**
+	 * @return lower bound of the value, null if unset
+	 */
+	public BigFraction getValueFrom() {
+		return valueFrom;
+	}
+
+	public BigFraction getValueTo() {
+		return valueTo;
+	}
+
+	public boolean isValueAbs() {
+		return valueAbs;
+	}
+
+	public BigFraction getQuantityFrom() {
+		return quantityFrom;
+	}
+
+	public BigFraction getQuantityTo() {
+		return quantityTo;
+	}
+
+	public boolean isQuantityAbs() {
+		return quantityAbs;
+	}
+
+	/**
+	 * @return description part (trimmed, lower case), "" if unset
+	 */
+	public String getDescrPart() {
+		return descrPart;
+	}
+
+    // ---------------------------------------------------------------
+
+	public boolean matchesCriteria(final GnuCashTransactionSplit splt) {
+		return compiled.matchesCriteria(splt);
+	}
+
+	/**
+	 * @return compiled form of this specification (shared, immutable)
+	 */
+	public CompiledSplitFilter compile() {
+		return compiled;
+	}
+
+	/**
+	 * @return a new mutable filter with this specification's criteria
+	 */
+	public TransactionSplitFilter_BF toFilter() {
+		TransactionSplitFilter_BF flt = new TransactionSplitFilter_BF();
+		flt.action     = action;
+		flt.reconState = reconState;
+		if ( acctID != null )
+			flt.acctID.set(acctID);
+		flt.acctType   = acctType;
+		if ( valueFrom != null )
+			flt.valueFrom = valueFrom;
+		if ( valueTo != null )
+			flt.valueTo = valueTo;
+		flt.valueAbs   = valueAbs;
+		if ( quantityFrom != null )
+			flt.quantityFrom = quantityFrom;
+		if ( quantityTo != null )
+			flt.quantityTo = quantityTo;
+		flt.quantityAbs = quantityAbs;
+		flt.descrPart   = descrPart;
+		return flt;
+	}
+
+    // ---------------------------------------------------------------
+
+	private static GCshAcctID copy(GCshAcctID acctID) {
+		if ( acctID == null ||
+			 ! acctID.isSet() )
+			return null;
+
+		GCshAcctID result = new GCshAcctID();
+		result.set(acctID);
+		return result;
+	}
+
+    // ---------------------------------------------------------------
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if ( this == obj )
+			return true;
+		if ( ! ( obj instanceof TransactionSplitFilterSpec_BF other ) )
+			return false;
+
+		return hash == other.hash &&
+			   action == other.action &&
+			   reconState == other.reconState &&
+			   Objects.equals(acctID, other.acctID) &&
+			   acctType == other.acctType &&
+			   Objects.equals(valueFrom, other.valueFrom) &&
+			   Objects.equals(valueTo, other.valueTo) &&
+			   valueAbs == other.valueAbs &&
+			   Objects.equals(quantityFrom, other.quantityFrom) &&
+			   Objects.equals(quantityTo, other.quantityTo) &&
+			   quantityAbs == other.quantityAbs &&
+			   descrPart.equals(other.descrPart);
+	}
+
+	@Override
+	public String toString() {
+		return "TransactionSplitFilterSpec_BF [" +
+	                 "action=" + action + ", " +
+		         "recon-state=" + reconState + ", " +
+				     "acctID=" + acctID + ", " +
+	               "acctType=" + acctType + ", " +
+				  "valueFrom=" + valueFrom + ", " +
+	                "valueTo=" + valueTo + ", " +
+	               "valueAbs=" + valueAbs + ", " +
+			   "quantityFrom=" + quantityFrom + ", " +
+	             "quantityTo=" + quantityTo + ", " +
+	            "quantityAbs=" + quantityAbs + ", " +
+			      "descrPart='" + descrPart + "']";
+	}
+
+}
@@ -10,7 +10,7 @@ import org.gnucash.base.basetypes.simple.GCshAcctID;
 public class TransactionSplitFilter_BF {
 	
 	// a bit bulky, I admit...
-	private static final BigFraction UNSET_VALUE = TransactionSplitFilter_FP.UNSET_VALUE.toBigFraction();
+	static final BigFraction UNSET_VALUE = TransactionSplitFilter_FP.UNSET_VALUE.toBigFraction();
 
 	// ---------------------------------------------------------------
 
@@ -31,6 +31,10 @@ public class TransactionSplitFilter_BF {
 	
 	public String descrPart;
 	
+	// Case-folded descrPart, folded once per value, not once per candidate
+	private String descrPartSrc    = null;
+	private String descrPartFolded = null;
+	
 	// ---------------------------------------------------------------
 	
 	public TransactionSplitFilter_BF() {
@@ -123,10 +127,10 @@ public class TransactionSplitFilter_BF {
 		// ---
 		
 		if ( acctID.isSet() ) {
-			if ( splt.getAccountID() != null ) { // not important
-				if ( ! splt.getAccount().getID().equals(acctID) ) {
-					return false;
-				}
+			// A split without account is not in any account
+			if ( splt.getAccountID() == null ||
+				 ! splt.getAccountID().equals(acctID) ) {
+				return false;
 			}
 		}
 		
@@ -206,7 +210,7 @@ public class TransactionSplitFilter_BF {
 		
 		if ( ! descrPart.isBlank() ) {
 			if ( splt.getDescription() != null ) {
-				if ( ! splt.getDescription().toLowerCase().contains(descrPart.trim().toLowerCase()) ) {
+				if ( ! DescriptionIndex.containsFolded(splt.getDescription(), getDescrPartFolded()) ) {
 					return false;
 				}
 			} else {
@@ -217,6 +221,47 @@ public class TransactionSplitFilter_BF {
 		return true;
 	}
 	
+	private String getDescrPartFolded() {
+		// descrPart is public and may be reassigned between queries
+		if ( descrPart != descrPartSrc ) {
+			descrPartFolded = DescriptionIndex.fold(descrPart.trim());
+			descrPartSrc    = descrPart;
+		}
+		
+		return descrPartFolded;
+	}
+	
+	// ---------------------------------------------------------------
+	
+	/**
+	 * "Compiles" the filter into an immutable predicate chain that 
+	 * contains only the criteria that are set, cheapest first.
+	 * <br>
+	 * Use this when checking a large no. of splits against the 
+	 * same filter. The result is a snapshot: Later changes to this 
+	 * filter do not affect it.
+	 * 
+	 * @return compiled form of this filter
+	 */
+	public CompiledSplitFilter compile() {
+		return CompiledSplitFilter.of(this);
+	}
+	
+	/**
+	 * @return immutable snapshot of this filter's criteria
+	 */
+	public TransactionSplitFilterSpec_BF toSpec() {
+		return TransactionSplitFilterSpec_BF.builder()
+				.action(action)
+				.reconState(reconState)
+				.acctID(acctID)
+				.acctType(acctType)
+				.value(valueFrom, valueTo, valueAbs)
+				.quantity(quantityFrom, quantityTo, quantityAbs)
+				.descrPart(descrPart)
+				.build();
+	}
+	
 	// ---------------------------------------------------------------
 	
 	@Override
@@ -2,9 +2,16 @@ package org.gnucash.apiext.trxmgr;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
+import org.gnucash.api.read.GnuCashAccount;
 import org.gnucash.api.read.GnuCashFile;
 import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,6 +24,11 @@ public class TransactionSplitFinder {
     
 	private GnuCashFile gcshFile = null;
 	
+	private boolean useDescrIndex = false;
+
+	// The one last used; kept, as it is registered only weakly
+	private DescriptionIndex descrIdx = null;
+	
     // ---------------------------------------------------------------
 	
 	public TransactionSplitFinder(GnuCashFile gcshFile) {
@@ -27,6 +39,28 @@ public class TransactionSplitFinder {
 		this.gcshFile = gcshFile;
 	}
     
+    // ---------------------------------------------------------------
+
+	public boolean isUseDescrIndex() {
+		return useDescrIndex;
+	}
+
+	/**
+	 * If set, a description part is resolved via the 
+	 * {@link DescriptionIndex} instead of being checked on every split.
+	 * In that case, the results are ordered as in the index 
+	 * (i.e., by the transactions' post date).
+	 * <br>
+	 * Default: not set.
+	 * 
+	 * @param useDescrIndex whether to use the description index
+	 * 
+	 * @see TransactionFinder#setUseDescrIndex(boolean)
+	 */
+	public void setUseDescrIndex(boolean useDescrIndex) {
+		this.useDescrIndex = useDescrIndex;
+	}
+    
     // ---------------------------------------------------------------
 	
 	// ::TODO
@@ -37,18 +71,276 @@ public class TransactionSplitFinder {
 			throw new IllegalArgumentException("argument <flt> is null");
 		}
 		
-		LOGGER.debug("find: Searching for Transaction-Splits matching filter: " + flt.toString());
+		LOGGER.debug("find: Searching for Transaction-Splits matching filter: {}", flt);
 		ArrayList<GnuCashTransactionSplit> result = new ArrayList<GnuCashTransactionSplit>();
 		
-		Collection<GnuCashTransactionSplit> candList = gcshFile.getTransactionSplits();
+		Collection<? extends GnuCashTransactionSplit> candList = getCandidates(flt);
+		CompiledSplitFilter fltComp = flt.compile();
 		
 		for ( GnuCashTransactionSplit splt : candList ) {
-			if ( flt.matchesCriteria(splt) ) {
+			if ( fltComp.matchesCriteria(splt) ) {
 				result.add(splt);
 			}
 		}
 
-		LOGGER.debug("find: Found " + result.size() + " Transaction-Splits matching filter");
+		LOGGER.debug("find: Found {} Transaction-Splits matching filter", result.size());
+		return result;
+	}
+
+	/**
+	 * Variant of {@link #find(TransactionSplitFilter_FP)}
+	 * for an immutable filter specification.
+	 *
+	 * @param spec filter specification
+	 * @return transaction splits matching the filter
+	 */
+	public ArrayList<GnuCashTransactionSplit> find(TransactionSplitFilterSpec_FP spec) {
+		if ( spec == null ) {
+			throw new IllegalArgumentException("argument <spec> is null");
+		}
+
+		return find(spec.toFilter());
+	}
+
+	/**
+	 * Variant of {@link #find(TransactionSplitFilter_FP)}
+	 * for the exact (big-fraction) filter.
+	 *
+	 * @param flt filter
+	 * @return transaction splits matching the filter
+	 */
+	public ArrayList<GnuCashTransactionSplit> find(TransactionSplitFilter_BF flt) {
+		if ( flt == null ) {
+			throw new IllegalArgumentException("argument <flt> is null");
+		}
+
+		LOGGER.debug("find: Searching for Transaction-Splits matching filter: {}", flt);
+		return find(getCandidates(flt.acctID, flt.acctType, flt.descrPart), flt.compile());
+	}
+
+	/**
+	 * Variant of {@link #find(TransactionSplitFilter_BF)}
+	 * for an immutable filter specification.
+	 *
+	 * @param spec filter specification
+	 * @return transaction splits matching the filter
+	 */
+	public ArrayList<GnuCashTransactionSplit> find(TransactionSplitFilterSpec_BF spec) {
+		if ( spec == null ) {
+			throw new IllegalArgumentException("argument <spec> is null");
+		}
+
+		LOGGER.debug("find: Searching for Transaction-Splits matching filter: {}", spec);
+		GCshAcctID acctID = spec.getAcctID();
+		return find(getCandidates(( acctID == null ? new GCshAcctID() : acctID ), spec.getAcctType(), spec.getDescrPart()),
+					spec.compile());
+	}
+
+	private ArrayList<GnuCashTransactionSplit> find(Collection<? extends GnuCashTransactionSplit> candList,
+													CompiledSplitFilter fltComp) {
+		ArrayList<GnuCashTransactionSplit> result = new ArrayList<GnuCashTransactionSplit>();
+		for ( GnuCashTransactionSplit splt : candList ) {
+			if ( fltComp.matchesCriteria(splt) ) {
+				result.add(splt);
+			}
+		}
+
+		LOGGER.debug("find: Found {} Transaction-Splits matching filter", result.size());
+		return result;
+	}
+
+	/**
+	 * Parallel variant of {@link #find(TransactionSplitFilter_FP)}.
+	 * <br>
+	 * The candidates are checked in fork/join chunks. The result is
+	 * identical to the one of the sequential variant, including the order.
+	 * <br>
+	 * Caution: The file must not be modified while the search is running.
+	 *
+	 * @param flt filter
+	 * @param parallelism no. of worker threads
+	 * @return transaction splits matching the filter
+	 */
+	public ArrayList<GnuCashTransactionSplit> find(TransactionSplitFilter_FP flt, int parallelism) {
+		if ( parallelism <= 0 ) {
+			throw new IllegalArgumentException("argument <parallelism> is <= 0");
+		}
+
+		if ( parallelism == 1 ) {
+			return find(flt);
+		}
+
+		return findParallel(flt, null, parallelism);
+	}
+
+	/**
+	 * Parallel variant of {@link #find(TransactionSplitFilter_FP)},
+	 * using the given fork/join pool.
+	 *
+	 * @param flt filter
+	 * @param pool fork/join pool to run the evaluation in
+	 * @return transaction splits matching the filter
+	 *
+	 * @see #find(TransactionSplitFilter_FP, int)
+	 */
+	public ArrayList<GnuCashTransactionSplit> find(TransactionSplitFilter_FP flt, ForkJoinPool pool) {
+		if ( pool == null ) {
+			throw new IllegalArgumentException("argument <pool> is null");
+		}
+
+		return findParallel(flt, pool, pool.getParallelism());
+	}
+
+	private ArrayList<GnuCashTransactionSplit> findParallel(TransactionSplitFilter_FP flt,
+															ForkJoinPool pool,
+															int parallelism) {
+		if ( flt == null ) {
+			throw new IllegalArgumentException("argument <flt> is null");
+		}
+
+		LOGGER.debug("findParallel: Searching for Transaction-Splits matching filter: {} (parallelism: {})", flt, parallelism);
+		Collection<? extends GnuCashTransactionSplit> candColl = getCandidates(flt);
+		List<? extends GnuCashTransactionSplit> candList = null;
+		if ( candColl instanceof List )
+			candList = (List<? extends GnuCashTransactionSplit>) candColl;
+		else
+			candList = new ArrayList<GnuCashTransactionSplit>(candColl);
+
+		CompiledSplitFilter fltComp = flt.compile(); // immutable, thus shareable
+		ArrayList<GnuCashTransactionSplit> result = null;
+		if ( pool != null )
+			result = ParallelMatcher.match(candList, fltComp, pool);
+		else
+			result = ParallelMatcher.match(candList, fltComp, parallelism);
+
+		LOGGER.debug("findParallel: Found {} Transaction-Splits matching filter", result.size());
+		return result;
+	}
+
+	// ---------------------------------------------------------------
+
+	/**
+	 * Lazy variant of {@link #find(TransactionSplitFilter_FP)}.
+	 * <br>
+	 * The filter criteria are evaluated only when the stream is consumed,
+	 * one split at a time, so that short-circuiting operations
+	 * such as <code>findFirst()</code>, <code>anyMatch()</code> or <code>limit()</code>
+	 * stop scanning as soon as they can.
+	 * <br>
+	 * Caution: The filter must not be changed and the file must not be
+	 * modified while the stream is being consumed.
+	 *
+	 * @param flt filter
+	 * @return (sequential, ordered) stream of transaction splits matching the filter
+	 */
+	public Stream<GnuCashTransactionSplit> stream(TransactionSplitFilter_FP flt) {
+		if ( flt == null ) {
+			throw new IllegalArgumentException("argument <flt> is null");
+		}
+
+		LOGGER.debug("stream: Streaming Transaction-Splits matching filter: {}", flt);
+		Collection<? extends GnuCashTransactionSplit> candList = getCandidates(flt);
+		return candList.stream()
+					   .filter(flt.compile())
+					   .map(splt -> (GnuCashTransactionSplit) splt);
+	}
+
+	/**
+	 * @param flt filter
+	 * @return lazy iterator over the transaction splits matching the filter
+	 *
+	 * @see #stream(TransactionSplitFilter_FP)
+	 */
+	public Iterator<GnuCashTransactionSplit> iterator(TransactionSplitFilter_FP flt) {
+		return stream(flt).iterator();
+	}
+
+	/**
+	 * @param flt filter
+	 * @return the first transaction split matching the filter (if any).
+	 * Stops scanning at the first match.
+	 */
+	public Optional<GnuCashTransactionSplit> findFirst(TransactionSplitFilter_FP flt) {
+		return stream(flt).findFirst();
+	}
+
+	/**
+	 * @param flt filter
+	 * @return true if at least one transaction split matches the filter.
+	 * Stops scanning at the first match.
+	 */
+	public boolean exists(TransactionSplitFilter_FP flt) {
+		return stream(flt).findAny().isPresent();
+	}
+
+	// ---------------------------------------------------------------
+
+	/*
+	 * Query plan:
+	 *  1) If the filter pins an account, that account's own
+	 *     split list is a superset of the result.
+	 *  2) Else, if the filter pins an account type, so is the
+	 *     union of the split lists of all accounts of that type.
+	 *  3) If the description index is to be used, its result
+	 *     is a superset as well.
+	 *  4) The smallest one of these candidate sets is then to be
+	 *     checked against the full criteria. If there is none,
+	 *     we do a full scan.
+	 * In cases 1) and 2), the candidates are ordered by account,
+	 * then as in the account's split list.
+	 */
+	private Collection<? extends GnuCashTransactionSplit> getCandidates(TransactionSplitFilter_FP flt) {
+		return getCandidates(flt.acctID, flt.acctType, flt.descrPart);
+	}
+
+	private Collection<? extends GnuCashTransactionSplit> getCandidates(GCshAcctID acctID,
+																		GnuCashAccount.Type acctType,
+																		String descrPart) {
+		List<? extends GnuCashTransactionSplit> acctCands = null;
+		if ( acctID.isSet() ) {
+			acctCands = getCandidatesByAccount(acctID);
+			LOGGER.debug("getCandidates: Account split list: {} candidates", acctCands.size());
+		} else if ( acctType != null ) {
+			acctCands = getCandidatesByAccountType(acctType);
+			LOGGER.debug("getCandidates: Account-type split lists: {} candidates", acctCands.size());
+		}
+
+		if ( useDescrIndex &&
+			 ! descrPart.isBlank() ) {
+			descrIdx = DescriptionIndex.of(gcshFile);
+			List<GnuCashTransactionSplit> descrCands = descrIdx.findSplits(descrPart);
+			if ( acctCands == null ||
+				 descrCands.size() < acctCands.size() ) {
+				LOGGER.debug("getCandidates: Plan: description index, {} candidates", descrCands.size());
+				return descrCands;
+			}
+		}
+
+		if ( acctCands != null ) {
+			LOGGER.debug("getCandidates: Plan: account split lists");
+			return acctCands;
+		}
+
+		return gcshFile.getTransactionSplits();
+	}
+
+	private List<? extends GnuCashTransactionSplit> getCandidatesByAccount(GCshAcctID acctID) {
+		GnuCashAccount acct = gcshFile.getAccountByID(acctID);
+		if ( acct == null ) {
+			return new ArrayList<GnuCashTransactionSplit>();
+		}
+
+		return acct.getTransactionSplits();
+	}
+
+	private List<GnuCashTransactionSplit> getCandidatesByAccountType(GnuCashAccount.Type acctType) {
+		ArrayList<GnuCashTransactionSplit> result = new ArrayList<GnuCashTransactionSplit>();
+		for ( GnuCashAccount acct : gcshFile.getAccounts() ) {
+			if ( acct.getType() == acctType ) {
+				result.addAll(acct.getTransactionSplits());
+			}
+		}
+
 		return result;
 	}
 
@@ -0,0 +1,159 @@
+package org.gnucash.apiext.trxmgr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.apiext.Const;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/**
+ * The splits of one transaction, classified by the type of the
+ * account they are bound to, in one pass.
+ * <br>
+ * Per account type, the profile holds the splits, the sum of their
+ * values and the IDs of the accounts. Thus, checks that look at
+ * the same transaction several times (e.g.
+ * {@link TransactionMergerBase#plausiCheck(GnuCashTransaction, GnuCashTransaction)})
+ * do not have to re-scan its splits and re-resolve their accounts.
+ * <br>
+ * A profile is a snapshot: It does not reflect later changes
+ * of the transaction.
+ */
+public class TransactionSplitProfile {
+
+	private static final List<GnuCashTransactionSplit> NO_SPLITS = Collections.emptyList();
+	private static final Set<GCshAcctID> NO_ACCT_IDS = Collections.emptySet();
+
+    // ---------------------------------------------------------------
+
+	private final GnuCashTransaction trx;
+	private final int                nofSplits;
+	private final FixedPointNumber   valueSum;
+
+	private final EnumMap<GnuCashAccount.Type, ArrayList<GnuCashTransactionSplit>> spltsByType;
+	private final EnumMap<GnuCashAccount.Type, FixedPointNumber>                   valueSumByType;
+	private final EnumMap<GnuCashAccount.Type, HashSet<GCshAcctID>>                acctIDsByType;
+
+    // ---------------------------------------------------------------
+
+	private TransactionSplitProfile(GnuCashTransaction trx) {
+		this.trx = trx;
+		this.spltsByType    = new EnumMap<GnuCashAccount.Type, ArrayList<GnuCashTransactionSplit>>(GnuCashAccount.Type.class);
+		this.valueSumByType = new EnumMap<GnuCashAccount.Type, FixedPointNumber>(GnuCashAccount.Type.class);
+		this.acctIDsByType  = new EnumMap<GnuCashAccount.Type, HashSet<GCshAcctID>>(GnuCashAccount.Type.class);
+
+		FixedPointNumber sum = FixedPointNumber.ZERO.copy();
+		int cnt = 0;
+		for ( GnuCashTransactionSplit splt : trx.getSplits() ) {
+			GnuCashAccount.Type type = splt.getAccount().getType();
+			FixedPointNumber value = splt.getValue();
+
+			ArrayList<GnuCashTransactionSplit> spltList = spltsByType.get(type);
+			if ( spltList == null ) {
+				spltList = new ArrayList<GnuCashTransactionSplit>(2);
+				spltsByType.put(type, spltList);
+				valueSumByType.put(type, FixedPointNumber.ZERO.copy());
+				acctIDsByType.put(type, new HashSet<GCshAcctID>());
+			}
+			spltList.add(splt);
+			valueSumByType.get(type).add(value); // mutable
+			acctIDsByType.get(type).add(splt.getAccountID());
+
+			sum.add(value); // mutable
+			cnt++;
+		}
+
+		this.nofSplits = cnt;
+		this.valueSum  = sum;
+	}
+
+	public static TransactionSplitProfile of(GnuCashTransaction trx) {
+		if ( trx == null ) {
+			throw new IllegalArgumentException("argument <trx> is null");
+		}
+
+		return new TransactionSplitProfile(trx);
+	}
+
+    // ---------------------------------------------------------------
+
+	public GnuCashTransaction getTransaction() {
+		return trx;
+	}
+
+	public int getNofSplits() {
+		return nofSplits;
+	}
+
+	/**
+	 * @return sum of the values of all splits (a copy)
+	 */
+	public FixedPointNumber getValueSum() {
+		return valueSum.copy();
+	}
+
+	/**
+	 * Same criteria as {@link TransactionManager#isSane(GnuCashTransaction)}.
+	 *
+	 * @return true if the transaction has splits and they are balanced
+	 */
+	public boolean isSane() {
+		return nofSplits > 0 &&
+			   Math.abs(valueSum.doubleValue()) <= Const.DIFF_TOLERANCE_VALUE;
+	}
+
+    // ---------------------------------------------------------------
+
+	public boolean hasSplits(GnuCashAccount.Type acctType) {
+		return spltsByType.containsKey(acctType);
+	}
+
+	/**
+	 * @return the splits bound to accounts of the given type,
+	 * in the order of the transaction (unmodifiable)
+	 */
+	public List<GnuCashTransactionSplit> getSplits(GnuCashAccount.Type acctType) {
+		ArrayList<GnuCashTransactionSplit> spltList = spltsByType.get(acctType);
+		if ( spltList == null ) {
+			return NO_SPLITS;
+		}
+
+		return Collections.unmodifiableList(spltList);
+	}
+
+	/**
+	 * @return sum of the values of the splits bound to accounts
+	 * of the given type (a copy), zero if there are none
+	 */
+	public FixedPointNumber getValueSum(GnuCashAccount.Type acctType) {
+		FixedPointNumber sum = valueSumByType.get(acctType);
+		if ( sum == null ) {
+			return FixedPointNumber.ZERO.copy();
+		}
+
+		return sum.copy();
+	}
+
+	/**
+	 * @return IDs of the accounts of the given type that the
+	 * transaction has splits in (unmodifiable)
+	 */
+	public Set<GCshAcctID> getAccountIDs(GnuCashAccount.Type acctType) {
+		HashSet<GCshAcctID> acctIDs = acctIDsByType.get(acctType);
+		if ( acctIDs == null ) {
+			return NO_ACCT_IDS;
+		}
+
+		return Collections.unmodifiableSet(acctIDs);
+	}
+
+}
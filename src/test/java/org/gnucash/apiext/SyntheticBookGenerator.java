@@ -0,0 +1,317 @@
+package org.gnucash.apiext;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashCommodity;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.api.write.GnuCashWritableAccount;
+import org.gnucash.api.write.GnuCashWritableTransaction;
+import org.gnucash.api.write.GnuCashWritableTransactionSplit;
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.apiext.secacct.SecuritiesAccountTransactionManager_FP;
+import org.gnucash.apiext.secacct.WritableSecuritiesAccountManager;
+import org.gnucash.base.basetypes.complex.GCshCmdtyID;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+/**
+ * Deterministic generator for large, synthetic books, based on the test file,
+ * for load and scaling tests as well as benchmarks.
+ * <br>
+ * Adds to the test file:
+ * <ul>
+ *   <li>expenses accounts (siblings of "Bankprovision")</li>
+ *   <li>investment accounts (siblings of "Depot RaiBa"), each with one stock
+ *       account per security in the file (via {@link WritableSecuritiesAccountManager#genShareAcct(GnuCashCommodity)})</li>
+ *   <li>simple bank transactions (bank account vs. one or two expenses accounts)</li>
+ *   <li>buy, dividend and stock split transactions (via {@link SecuritiesAccountTransactionManager_FP})</li>
+ * </ul>
+ * The transactions are randomly distributed over the given period, but generated in
+ * post date order, so that dividends and stock splits only occur for stock accounts
+ * with a positive no. of shares at that date.
+ * <br>
+ * Same parameters and same seed yield the same book (up to the generated IDs).
+ * <br>
+ * Caution: Lots are not generated, as the API does not offer a way to do so.
+ */
+public class SyntheticBookGenerator {
+
+	public static final GCshAcctID BANK_ACCT_ID   = new GCshAcctID("bbf77a599bd24a3dbfec3dd1d0bb9f5c"); // Giro RaiBa
+	public static final GCshAcctID DEPOT_ACCT_ID  = new GCshAcctID("cc2c4709633943c39293bfd73de88c9b"); // Depot RaiBa
+	public static final GCshAcctID EXP_ACCT_1_ID  = new GCshAcctID("7d4b851a3f704c4695d5d466b28cdc55"); // Bankprovision
+	public static final GCshAcctID EXP_ACCT_2_ID  = new GCshAcctID("2a195872e24048a0a6228107ca8b6a52"); // Kapitalertragsteuer
+	public static final GCshAcctID INCOME_ACCT_ID = new GCshAcctID("d7c384bfc136464490965f3f254313b1"); // Inland
+
+	// cf. SecuritiesAccountTransactionManager_FP
+	private static final long MAX_NOF_ADD_SHARES = 99999;
+
+	private enum TrxType {
+		BANK,
+		BUY_STOCK,
+		DIVIDEND,
+		STOCK_SPLIT
+	}
+
+	// -----------------------------------------------------------------
+
+	public long      seed       = 4711;
+
+	public int       nofExpAccts   = 10;
+	public int       nofInvstAccts = 2;
+
+	public int       nofBankTrx       = 1000;
+	public int       nofBuyTrx        = 100;
+	public int       nofDividTrx      = 20;
+	public int       nofStockSplitTrx = 2;
+
+	public LocalDate firstDate  = LocalDate.of(2020, 1, 1);
+	public int       nofDays    = 5 * 365;
+
+	// ----------------------------
+
+	private GnuCashWritableFileImpl gcshFile     = null;
+	private ArrayList<GCshAcctID>   expAcctIDs   = null;
+	private ArrayList<GCshAcctID>   invstAcctIDs = null;
+	private ArrayList<GCshAcctID>   shareAcctIDs = null;
+
+	// -----------------------------------------------------------------
+
+	/**
+	 * @return a fresh copy of the test file
+	 */
+	public static GnuCashWritableFileImpl loadTestFile() throws Exception {
+		ClassLoader classLoader = SyntheticBookGenerator.class.getClassLoader();
+		File gcshFileRaw = new File(classLoader.getResource(ConstTest.GCSH_FILENAME).getFile());
+		return new GnuCashWritableFileImpl(gcshFileRaw);
+	}
+
+	/**
+	 * Generates the book according to the parameters.
+	 *
+	 * @return the generated book (a fresh copy of the test file, enlarged)
+	 */
+	public GnuCashWritableFileImpl generate() throws Exception {
+		if ( nofExpAccts < 0 || nofInvstAccts < 0 ||
+			 nofBankTrx < 0 || nofBuyTrx < 0 || nofDividTrx < 0 || nofStockSplitTrx < 0 ) {
+			throw new IllegalStateException("negative numbers are not allowed");
+		}
+
+		if ( nofDays <= 0 ) {
+			throw new IllegalStateException("no. of days is <= 0");
+		}
+
+		if ( nofInvstAccts == 0 &&
+			 nofBuyTrx + nofDividTrx + nofStockSplitTrx > 0 ) {
+			throw new IllegalStateException("stock transactions require at least one investment account");
+		}
+
+		Random rnd = new Random(seed);
+		gcshFile = loadTestFile();
+
+		genAccounts();
+		genTransactions(rnd);
+
+		return gcshFile;
+	}
+
+	// -----------------------------------------------------------------
+
+	private void genAccounts() {
+		expAcctIDs   = new ArrayList<GCshAcctID>();
+		invstAcctIDs = new ArrayList<GCshAcctID>();
+		shareAcctIDs = new ArrayList<GCshAcctID>();
+
+		expAcctIDs.add(EXP_ACCT_1_ID);
+		GnuCashAccount expAcctTmpl = gcshFile.getAccountByID(EXP_ACCT_1_ID);
+		for ( int i = 0; i < nofExpAccts; i++ ) {
+			GnuCashWritableAccount acct = gcshFile.createWritableAccount(GnuCashAccount.Type.EXPENSE,
+																		 expAcctTmpl.getCmdtyCurrID(),
+																		 expAcctTmpl.getParentAccountID(),
+																		 "Synthetic expenses " + i);
+			expAcctIDs.add(acct.getID());
+		}
+
+		ArrayList<GnuCashCommodity> secList = new ArrayList<GnuCashCommodity>();
+		for ( GnuCashCommodity cmdty : gcshFile.getCommodities() ) {
+			if ( cmdty.getQualifID().getType() == GCshCmdtyID.Type.SECURITY &&
+				 ! cmdty.getXCode().equals("template") ) { // GnuCash-internal pseudo-commodity
+				secList.add(cmdty);
+			}
+		}
+
+		GnuCashAccount invstAcctTmpl = gcshFile.getAccountByID(DEPOT_ACCT_ID);
+		for ( int i = 0; i < nofInvstAccts; i++ ) {
+			GnuCashWritableAccount invstAcct = gcshFile.createWritableAccount(GnuCashAccount.Type.ASSET,
+																			  invstAcctTmpl.getCmdtyCurrID(),
+																			  invstAcctTmpl.getParentAccountID(),
+																			  "Synthetic depot " + i);
+			invstAcctIDs.add(invstAcct.getID());
+
+			WritableSecuritiesAccountManager secAcctMgr = new WritableSecuritiesAccountManager(invstAcct);
+			for ( GnuCashCommodity sec : secList ) {
+				shareAcctIDs.add(secAcctMgr.genShareAcct(sec).getID());
+			}
+		}
+	}
+
+	private void genTransactions(Random rnd) {
+		// Types in random order, dates in ascending order
+		ArrayList<TrxType> typeList = new ArrayList<TrxType>();
+		typeList.addAll(Collections.nCopies(nofBankTrx, TrxType.BANK));
+		typeList.addAll(Collections.nCopies(nofBuyTrx, TrxType.BUY_STOCK));
+		typeList.addAll(Collections.nCopies(nofDividTrx, TrxType.DIVIDEND));
+		typeList.addAll(Collections.nCopies(nofStockSplitTrx, TrxType.STOCK_SPLIT));
+		Collections.shuffle(typeList, rnd);
+
+		int[] dayList = new int[typeList.size()];
+		for ( int i = 0; i < dayList.length; i++ ) {
+			dayList[i] = rnd.nextInt(nofDays);
+		}
+		Arrays.sort(dayList);
+
+		// No. of shares per stock account, so that we do not
+		// have to ask the book for the balance
+		long[] nofShares = new long[shareAcctIDs.size()];
+
+		GnuCashAccount bankAcct = gcshFile.getAccountByID(BANK_ACCT_ID);
+		ArrayList<GnuCashAccount> expAcctList = new ArrayList<GnuCashAccount>();
+		for ( GCshAcctID acctID : expAcctIDs ) {
+			expAcctList.add(gcshFile.getAccountByID(acctID));
+		}
+
+		for ( int i = 0; i < typeList.size(); i++ ) {
+			LocalDate datePosted = firstDate.plusDays(dayList[i]);
+
+			TrxType type = typeList.get(i);
+			int shareAcctIdx = -1;
+			if ( type == TrxType.DIVIDEND ||
+				 type == TrxType.STOCK_SPLIT ) {
+				shareAcctIdx = pickHeldShareAcct(rnd, nofShares);
+				if ( shareAcctIdx < 0 )
+					type = TrxType.BUY_STOCK; // nothing held yet
+			}
+
+			switch ( type ) {
+			case BANK:
+				genBankTrx(rnd, i, datePosted, bankAcct, expAcctList);
+				break;
+			case BUY_STOCK:
+				shareAcctIdx = rnd.nextInt(shareAcctIDs.size());
+				nofShares[shareAcctIdx] += genBuyStockTrx(rnd, i, datePosted, shareAcctIDs.get(shareAcctIdx));
+				break;
+			case DIVIDEND:
+				genDividTrx(rnd, i, datePosted, shareAcctIDs.get(shareAcctIdx));
+				break;
+			case STOCK_SPLIT:
+				nofShares[shareAcctIdx] += genStockSplitTrx(rnd, i, datePosted, shareAcctIDs.get(shareAcctIdx), nofShares[shareAcctIdx]);
+				break;
+			}
+		}
+	}
+
+	private int pickHeldShareAcct(Random rnd, long[] nofShares) {
+		int start = rnd.nextInt(nofShares.length);
+		for ( int j = 0; j < nofShares.length; j++ ) {
+			int idx = ( start + j ) % nofShares.length;
+			if ( nofShares[idx] > 0 )
+				return idx;
+		}
+
+		return -1;
+	}
+
+	// -----------------------------------------------------------------
+
+	private void genBankTrx(Random rnd, int i, LocalDate datePosted,
+							GnuCashAccount bankAcct, List<GnuCashAccount> expAcctList) {
+		GnuCashWritableTransaction trx = gcshFile.createWritableTransaction();
+		trx.setDescription("Generated trx " + i);
+		trx.setDatePosted(datePosted);
+
+		FixedPointNumber amt1 = new FixedPointNumber(rnd.nextInt(100000)).divide(new FixedPointNumber(100));
+		FixedPointNumber amt2 = new FixedPointNumber(rnd.nextInt(1000)).divide(new FixedPointNumber(100));
+		FixedPointNumber amtTotal = amt1.copy().add(amt2);
+
+		GnuCashWritableTransactionSplit splt1 = trx.createWritableSplit(bankAcct);
+		splt1.setValue(amtTotal.copy().negate());
+		splt1.setQuantity(amtTotal.copy().negate());
+
+		GnuCashWritableTransactionSplit splt2 = trx.createWritableSplit(expAcctList.get(rnd.nextInt(expAcctList.size())));
+		if ( rnd.nextBoolean() ) {
+			splt2.setValue(amt1);
+			splt2.setQuantity(amt1);
+
+			GnuCashWritableTransactionSplit splt3 = trx.createWritableSplit(expAcctList.get(rnd.nextInt(expAcctList.size())));
+			splt3.setValue(amt2);
+			splt3.setQuantity(amt2);
+		} else {
+			splt2.setValue(amtTotal);
+			splt2.setQuantity(amtTotal);
+		}
+	}
+
+	private long genBuyStockTrx(Random rnd, int i, LocalDate datePosted, GCshAcctID shareAcctID) {
+		long nofStocks = 1 + rnd.nextInt(100);
+		SecuritiesAccountTransactionManager_FP.genBuyStockTrx(gcshFile,
+				shareAcctID, EXP_ACCT_1_ID, BANK_ACCT_ID,
+				new FixedPointNumber(nofStocks),
+				new FixedPointNumber(1000 + rnd.nextInt(20000)).divide(new FixedPointNumber(100)),
+				new FixedPointNumber(100 + rnd.nextInt(1000)).divide(new FixedPointNumber(100)),
+				datePosted, "Generated stock buy " + i);
+		return nofStocks;
+	}
+
+	private void genDividTrx(Random rnd, int i, LocalDate datePosted, GCshAcctID shareAcctID) {
+		FixedPointNumber gross = new FixedPointNumber(1000 + rnd.nextInt(100000)).divide(new FixedPointNumber(100));
+		FixedPointNumber taxes = gross.copy().multiply(new FixedPointNumber("25/100"));
+		SecuritiesAccountTransactionManager_FP.genDividDistribTrx(gcshFile,
+				shareAcctID, INCOME_ACCT_ID, EXP_ACCT_2_ID, BANK_ACCT_ID,
+				GnuCashTransactionSplit.Action.DIVIDEND, gross, taxes,
+				datePosted, "Generated dividend " + i);
+	}
+
+	private long genStockSplitTrx(Random rnd, int i, LocalDate datePosted, GCshAcctID shareAcctID, long nofSharesOld) {
+		long factor = 2 + rnd.nextInt(2);
+		// Stay within the plausibility limit of the transaction manager
+		long nofAddShares = Math.min(nofSharesOld * ( factor - 1 ), MAX_NOF_ADD_SHARES);
+		SecuritiesAccountTransactionManager_FP.genStockSplitTrx_nofShares(gcshFile,
+				shareAcctID, new FixedPointNumber(nofAddShares),
+				datePosted, "Generated stock split " + i);
+		return nofAddShares;
+	}
+
+	// -----------------------------------------------------------------
+
+	public GnuCashWritableFileImpl getGnuCashFile() {
+		return gcshFile;
+	}
+
+	/**
+	 * @return IDs of the expenses accounts used for the bank transactions
+	 * (including the pre-existing one)
+	 */
+	public List<GCshAcctID> getExpAcctIDs() {
+		return expAcctIDs;
+	}
+
+	public List<GCshAcctID> getInvstAcctIDs() {
+		return invstAcctIDs;
+	}
+
+	public List<GCshAcctID> getShareAcctIDs() {
+		return shareAcctIDs;
+	}
+
+	public int getNofTransactions() {
+		return nofBankTrx + nofBuyTrx + nofDividTrx + nofStockSplitTrx;
+	}
+
+}
@@ -0,0 +1,78 @@
+package org.gnucash.apiext;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+
+public class TestSyntheticBookGenerator {
+
+	private static final int NOF_TRX_TEST_FILE = 17;
+
+	// -----------------------------------------------------------------
+
+	public static void main(String[] args) throws Exception {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	@SuppressWarnings("exports")
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TestSyntheticBookGenerator.class);
+	}
+
+	// -----------------------------------------------------------------
+
+	@Test
+	public void test01() throws Exception {
+		SyntheticBookGenerator gen = new SyntheticBookGenerator();
+		GnuCashFile gcshFile = gen.generate();
+
+		assertEquals(NOF_TRX_TEST_FILE + gen.getNofTransactions(), gcshFile.getTransactions().size());
+		assertEquals(gen.nofExpAccts + 1, gen.getExpAcctIDs().size());
+		assertEquals(gen.nofInvstAccts, gen.getInvstAcctIDs().size());
+		assertEquals(0, gen.getShareAcctIDs().size() % gen.nofInvstAccts);
+		assertEquals(true, gen.getShareAcctIDs().size() > 0);
+
+		for ( GCshAcctID acctID : gen.getShareAcctIDs() ) {
+			GnuCashAccount acct = gcshFile.getAccountByID(acctID);
+			assertEquals(GnuCashAccount.Type.STOCK, acct.getType());
+			// No sells, so no stock account can have a negative balance
+			assertEquals(false, acct.getBalance().isNegative());
+		}
+	}
+
+	// Same seed, same book
+	@Test
+	public void test02() throws Exception {
+		SyntheticBookGenerator gen1 = new SyntheticBookGenerator();
+		SyntheticBookGenerator gen2 = new SyntheticBookGenerator();
+		assertEquals(getTrxSignatures(gen1.generate()), getTrxSignatures(gen2.generate()));
+
+		SyntheticBookGenerator gen3 = new SyntheticBookGenerator();
+		gen3.seed = gen1.seed + 1;
+		assertEquals(false, getTrxSignatures(gen1.getGnuCashFile()).equals(getTrxSignatures(gen3.generate())));
+	}
+
+	// -----------------------------------------------------------------
+
+	// Everything but the (random) IDs
+	private ArrayList<String> getTrxSignatures(GnuCashFile gcshFile) {
+		ArrayList<String> result = new ArrayList<String>();
+		for ( GnuCashTransaction trx : gcshFile.getTransactions() ) {
+			result.add(trx.getDatePosted().toLocalDate() + "/" +
+					   trx.getDescription() + "/" +
+					   trx.getSplitsCount());
+		}
+
+		result.sort(null);
+		return result;
+	}
+
+}
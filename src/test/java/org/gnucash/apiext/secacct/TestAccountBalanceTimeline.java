@@ -0,0 +1,139 @@
+package org.gnucash.apiext.secacct;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.net.URL;
+import java.time.LocalDate;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.apiext.ConstTest;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+public class TestAccountBalanceTimeline {
+
+	private static GCshAcctID STOCK_ACCT_ID  = new GCshAcctID("b3741e92e3b9475b9d5a2dc8254a8111");
+	private static GCshAcctID OFFSET_ACCT_ID = new GCshAcctID("bbf77a599bd24a3dbfec3dd1d0bb9f5c");
+	private static GCshAcctID EXP_ACCT_ID    = new GCshAcctID("7d4b851a3f704c4695d5d466b28cdc55"); // Bankprovision
+
+	private static LocalDate[] DATES = new LocalDate[] {
+			LocalDate.of(2000, 1, 1),
+			LocalDate.of(2023, 1, 1),
+			LocalDate.of(2023, 6, 30),
+			LocalDate.of(2023, 12, 31),
+			LocalDate.of(2024, 3, 1),
+			LocalDate.of(2025, 12, 31),
+			LocalDate.of(2099, 12, 31)
+	};
+
+	// -----------------------------------------------------------------
+
+	private GnuCashWritableFileImpl gcshFile = null;
+
+	// -----------------------------------------------------------------
+
+	public static void main(String[] args) throws Exception {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	@SuppressWarnings("exports")
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TestAccountBalanceTimeline.class);
+	}
+
+	@Before
+	public void initialize() throws Exception {
+		ClassLoader classLoader = getClass().getClassLoader();
+		URL gcshFileURL = null;
+		File gcshFileRaw = null;
+		try {
+			gcshFileURL = classLoader.getResource(ConstTest.GCSH_FILENAME);
+			gcshFileRaw = new File(gcshFileURL.getFile());
+		} catch (Exception exc) {
+			System.err.println("Cannot generate input stream from resource");
+			return;
+		}
+
+		try {
+			gcshFile = new GnuCashWritableFileImpl(gcshFileRaw);
+		} catch (Exception exc) {
+			System.err.println("Cannot parse GnuCash file");
+			exc.printStackTrace();
+		}
+	}
+
+	// -----------------------------------------------------------------
+
+	// Same results as the account's own (scanning) methods
+	@Test
+	public void test01() throws Exception {
+		AccountBalanceTimeline balTL = AccountBalanceTimeline.of(gcshFile);
+
+		for ( GnuCashAccount acct : gcshFile.getAccounts() ) {
+			for ( LocalDate date : DATES ) {
+				assertEquals(acct.getBalance(date).doubleValue(),
+							 balTL.getBalance(acct, date).doubleValue(),
+							 ConstTest.DIFF_TOLERANCE);
+				assertEquals(acct.getBalanceRat(date).doubleValue(),
+							 balTL.getBalanceRat(acct, date).doubleValue(),
+							 ConstTest.DIFF_TOLERANCE);
+			}
+		}
+
+		// Built once per account
+		int nofBuilds = balTL.getNofBuilds();
+		for ( GnuCashAccount acct : gcshFile.getAccounts() ) {
+			balTL.getBalance(acct, DATES[3]);
+		}
+		assertEquals(nofBuilds, balTL.getNofBuilds());
+	}
+
+	// Incremental maintenance
+	@Test
+	public void test02() throws Exception {
+		AccountBalanceTimeline balTL = AccountBalanceTimeline.of(gcshFile);
+		GnuCashAccount stockAcct = gcshFile.getAccountByID(STOCK_ACCT_ID);
+		LocalDate lastDate = DATES[DATES.length - 1];
+
+		FixedPointNumber balBefore = balTL.getBalance(stockAcct, lastDate);
+		int nofBuilds  = balTL.getNofBuilds();
+		int nofAppends = balTL.getNofAppends();
+
+		// Posted after all other transactions: appended in place
+		SecuritiesAccountTransactionManager_FP
+			.genBuyStockTrx(gcshFile,
+							STOCK_ACCT_ID, EXP_ACCT_ID, OFFSET_ACCT_ID,
+							new FixedPointNumber(10), new FixedPointNumber("100"), new FixedPointNumber("5"),
+							LocalDate.of(2098, 1, 1), "Buying stocks");
+
+		assertEquals(balBefore.doubleValue() + 10.0,
+					 balTL.getBalance(stockAcct, lastDate).doubleValue(),
+					 ConstTest.DIFF_TOLERANCE);
+		assertEquals(balBefore.doubleValue(),
+					 balTL.getBalance(stockAcct, LocalDate.of(2097, 12, 31)).doubleValue(),
+					 ConstTest.DIFF_TOLERANCE);
+		assertEquals(nofBuilds, balTL.getNofBuilds());
+		assertEquals(nofAppends + 1, balTL.getNofAppends());
+
+		// Back-dated: rebuilt
+		SecuritiesAccountTransactionManager_FP
+			.genBuyStockTrx(gcshFile,
+							STOCK_ACCT_ID, EXP_ACCT_ID, OFFSET_ACCT_ID,
+							new FixedPointNumber(5), new FixedPointNumber("100"), new FixedPointNumber("5"),
+							LocalDate.of(2001, 1, 1), "Buying stocks");
+
+		for ( LocalDate date : DATES ) {
+			assertEquals(stockAcct.getBalance(date).doubleValue(),
+						 balTL.getBalance(stockAcct, date).doubleValue(),
+						 ConstTest.DIFF_TOLERANCE);
+		}
+		assertEquals(nofBuilds + 1, balTL.getNofBuilds());
+	}
+
+}
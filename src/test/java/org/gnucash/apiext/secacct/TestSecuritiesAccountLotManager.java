@@ -7,6 +7,8 @@ import java.io.File;
 import java.net.URL;
 
 import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.aux.GCshAcctLot;
+import org.gnucash.api.write.GnuCashWritableTransactionSplit;
 import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
 import org.gnucash.apiext.ConstTest;
 import org.gnucash.base.basetypes.simple.GCshAcctID;
@@ -16,6 +18,7 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import junit.framework.JUnit4TestAdapter;
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
 
 public class TestSecuritiesAccountLotManager {
 
@@ -73,6 +76,57 @@ public class TestSecuritiesAccountLotManager {
 		assertNotEquals(null, acct.getLots());
 		assertEquals(1, acct.getLots().size());
 		
-		assertEquals(true, SecuritiesAccountLotManager.areLotsOK(acct));
+		// The lot is still open (5 of 15 shares left),
+		// so its split values do not add up to zero
+		assertEquals(false, SecuritiesAccountLotManager.areLotsOK(acct));
+		assertEquals(false, SecuritiesAccountLotManager.isLotOK(acct.getLots().iterator().next()));
+	}
+
+	@Test
+	public void test02() throws Exception {
+		GnuCashAccount acct = gcshInFile.getAccountByID(STOCK_ACCT_ID);
+		SecuritiesAccountLotChecker checker = new SecuritiesAccountLotChecker();
+
+		assertEquals(SecuritiesAccountLotManager.areLotsOK(acct), checker.areLotsOK(acct));
+		assertEquals(1, checker.getNofCachedLots());
+
+		SecuritiesAccountLotChecker.Report rep = checker.checkAllStockAccts(gcshInFile);
+		assertEquals(true, rep.getNofAccounts() >= 1);
+		assertEquals(0, rep.getFailedAccounts().size());
+		assertEquals(1, rep.getNofLots());
+		// Already evaluated above
+		assertEquals(0, rep.getNofLotsEvaluated());
+		assertEquals(false, rep.isOK());
+		assertEquals(1, rep.getIssues().size());
+		assertEquals(acct.getID(), rep.getIssues().get(0).getAccount().getID());
+		assertEquals(625.0, rep.getIssues().get(0).getSplitSum().doubleValue(), ConstTest.DIFF_TOLERANCE);
+
+		checker.invalidate(acct);
+		assertEquals(0, checker.getNofCachedLots());
+		rep = checker.checkAllStockAccts(gcshInFile);
+		assertEquals(1, rep.getNofLotsEvaluated());
+	}
+
+	@Test
+	public void test03() throws Exception {
+		GnuCashAccount acct = gcshInFile.getAccountByID(STOCK_ACCT_ID);
+		GCshAcctLot lot = acct.getLots().iterator().next();
+		SecuritiesAccountLotChecker checker = new SecuritiesAccountLotChecker();
+
+		SecuritiesAccountLotChecker.Report rep = checker.checkAllStockAccts(gcshInFile);
+		assertEquals(1, rep.getNofLotsEvaluated());
+		assertEquals(625.0, rep.getIssues().get(0).getSplitSum().doubleValue(), ConstTest.DIFF_TOLERANCE);
+
+		// Nothing changed -> taken from the cache
+		rep = checker.checkAllStockAccts(gcshInFile);
+		assertEquals(0, rep.getNofLotsEvaluated());
+
+		// Changed value (same splits) -> re-evaluated
+		GnuCashWritableTransactionSplit splt = gcshInFile.getWritableTransactionSplitByID(lot.getTransactionSplits().get(0).getID());
+		splt.setValue(splt.getValue().copy().add(new FixedPointNumber(100)));
+		rep = checker.checkAllStockAccts(gcshInFile);
+		assertEquals(1, rep.getNofLotsEvaluated());
+		assertEquals(725.0, rep.getIssues().get(0).getSplitSum().doubleValue(), ConstTest.DIFF_TOLERANCE);
+		assertEquals(SecuritiesAccountLotManager.areLotsOK(acct), checker.areLotsOK(acct));
 	}
 }
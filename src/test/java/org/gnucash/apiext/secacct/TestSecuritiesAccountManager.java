@@ -0,0 +1,145 @@
+package org.gnucash.apiext.secacct;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.apiext.ConstTest;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+public class TestSecuritiesAccountManager {
+
+	private static GCshAcctID STOCK_ACCT_ID  = new GCshAcctID("b3741e92e3b9475b9d5a2dc8254a8111"); // SAP
+	private static GCshAcctID OFFSET_ACCT_ID = new GCshAcctID("bbf77a599bd24a3dbfec3dd1d0bb9f5c");
+	private static GCshAcctID EXP_ACCT_ID    = new GCshAcctID("7d4b851a3f704c4695d5d466b28cdc55"); // Bankprovision
+
+	private static LocalDate[] DATES = new LocalDate[] {
+			LocalDate.of(2000, 1, 1),
+			LocalDate.of(2023, 1, 1),
+			LocalDate.of(2023, 6, 30),
+			LocalDate.of(2023, 12, 31),
+			LocalDate.of(2024, 3, 1),
+			LocalDate.of(2025, 12, 31),
+			LocalDate.of(2099, 12, 31)
+	};
+
+	// -----------------------------------------------------------------
+
+	private GnuCashWritableFileImpl gcshFile = null;
+
+	// -----------------------------------------------------------------
+
+	public static void main(String[] args) throws Exception {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	@SuppressWarnings("exports")
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TestSecuritiesAccountManager.class);
+	}
+
+	@Before
+	public void initialize() throws Exception {
+		ClassLoader classLoader = getClass().getClassLoader();
+		URL gcshFileURL = null;
+		File gcshFileRaw = null;
+		try {
+			gcshFileURL = classLoader.getResource(ConstTest.GCSH_FILENAME);
+			gcshFileRaw = new File(gcshFileURL.getFile());
+		} catch (Exception exc) {
+			System.err.println("Cannot generate input stream from resource");
+			return;
+		}
+
+		try {
+			gcshFile = new GnuCashWritableFileImpl(gcshFileRaw);
+		} catch (Exception exc) {
+			System.err.println("Cannot parse GnuCash file");
+			exc.printStackTrace();
+		}
+	}
+
+	// -----------------------------------------------------------------
+
+	// Same results as a scan over the share accounts' balances
+	@Test
+	public void test01() throws Exception {
+		GnuCashAccount stockAcct = gcshFile.getAccountByID(STOCK_ACCT_ID);
+		SecuritiesAccountManager secAcctMgr = new SecuritiesAccountManager(gcshFile, stockAcct.getParentAccountID());
+
+		for ( LocalDate date : DATES ) {
+			assertEquals(getActiveShareAcctsScan(secAcctMgr, date),
+						 secAcctMgr.getActiveShareAccts(date));
+		}
+		assertEquals(getActiveShareAcctsScan(secAcctMgr, LocalDate.now()),
+					 secAcctMgr.getActiveShareAccts());
+
+		// Cached: same list, no rows re-derived
+		DepotPositionTable posTab = DepotPositionTable.of(secAcctMgr.getInvstAcct());
+		int nofRowBuilds = posTab.getNofRowBuilds();
+		List<GnuCashAccount> active = secAcctMgr.getActiveShareAcctsView(DATES[4]);
+		assertSame(active, secAcctMgr.getActiveShareAcctsView(DATES[4]));
+		assertEquals(nofRowBuilds, posTab.getNofRowBuilds());
+
+		// ... but the caller's list is a copy
+		List<GnuCashAccount> activeCopy = secAcctMgr.getActiveShareAccts(DATES[4]);
+		assertEquals(active, activeCopy);
+		assertNotSame(active, activeCopy);
+	}
+
+	// Incremental maintenance
+	@Test
+	public void test02() throws Exception {
+		GnuCashAccount stockAcct = gcshFile.getAccountByID(STOCK_ACCT_ID);
+		SecuritiesAccountManager secAcctMgr = new SecuritiesAccountManager(gcshFile, stockAcct.getParentAccountID());
+		LocalDate buyDate = LocalDate.of(1999, 1, 1);
+
+		assertTrue(! secAcctMgr.getActiveShareAccts(buyDate).contains(stockAcct));
+		DepotPositionTable posTab = DepotPositionTable.of(secAcctMgr.getInvstAcct());
+		int nofRowBuilds = posTab.getNofRowBuilds();
+
+		SecuritiesAccountTransactionManager_FP
+			.genBuyStockTrx(gcshFile,
+							STOCK_ACCT_ID, EXP_ACCT_ID, OFFSET_ACCT_ID,
+							new FixedPointNumber(10), new FixedPointNumber("100"), new FixedPointNumber("5"),
+							buyDate, "Buying stocks");
+
+		assertTrue(secAcctMgr.getActiveShareAccts(buyDate).contains(stockAcct));
+		for ( LocalDate date : DATES ) {
+			assertEquals(getActiveShareAcctsScan(secAcctMgr, date),
+						 secAcctMgr.getActiveShareAccts(date));
+		}
+
+		// Only the stock account's row has been re-derived
+		assertEquals(nofRowBuilds + 1, posTab.getNofRowBuilds());
+	}
+
+	// -----------------------------------------------------------------
+
+	private static List<GnuCashAccount> getActiveShareAcctsScan(SecuritiesAccountManager secAcctMgr, LocalDate date) {
+		ArrayList<GnuCashAccount> result = new ArrayList<GnuCashAccount>();
+		for ( GnuCashAccount acct : secAcctMgr.getAllShareAccts() ) {
+			if ( ! acct.isHidden() &&
+				 acct.getBalance(date).isGreaterThan(FixedPointNumber.ZERO) ) {
+				result.add(acct);
+			}
+		}
+
+		return result;
+	}
+
+}
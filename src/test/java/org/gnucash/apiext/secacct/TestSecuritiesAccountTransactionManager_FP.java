@@ -595,6 +595,57 @@ public class TestSecuritiesAccountTransactionManager_FP {
 		assertEquals(true, splt1.getDescription().startsWith("Generated by SecuritiesAccountTransactionManager"));
 	}
 
+	// Batch: valid items are generated, invalid ones are reported, not thrown
+	@Test
+	public void test04() throws Exception {
+		List<AcctIDAmountFPPair> buyExpList = new ArrayList<AcctIDAmountFPPair>();
+		buyExpList.add(new AcctIDAmountFPPair(BUY_EXP_ACCT_1_ID, BUY_EXP_1));
+
+		List<AcctIDAmountFPPair> divExpList = new ArrayList<AcctIDAmountFPPair>();
+		divExpList.add(new AcctIDAmountFPPair(DIV_EXP_ACCT_1_ID, DIV_EXP_1));
+
+		List<SecuritiesAccountTransactionManager_FP.BatchItem> itemList = new ArrayList<SecuritiesAccountTransactionManager_FP.BatchItem>();
+		itemList.add(SecuritiesAccountTransactionManager_FP.BatchItem
+						.buy(STOCK_ACCT_ID, buyExpList, OFFSET_ACCT_ID,
+							 BUY_NOF_STOCKS, BUY_STOCK_PRC,
+							 BUY_DATE_POSTED, BUY_DESCR));
+		// Wrong type of income account
+		itemList.add(SecuritiesAccountTransactionManager_FP.BatchItem
+						.dividDistrib(SecuritiesAccountTransactionManager_FP.Type.DIVIDEND,
+									  STOCK_ACCT_ID, OFFSET_ACCT_ID, divExpList, OFFSET_ACCT_ID,
+									  DIV_GROSS,
+									  DIV_DATE_POSTED, DIV_DESCR));
+		itemList.add(SecuritiesAccountTransactionManager_FP.BatchItem
+						.dividDistrib(SecuritiesAccountTransactionManager_FP.Type.DIVIDEND,
+									  STOCK_ACCT_ID, INCOME_ACCT_ID, divExpList, OFFSET_ACCT_ID,
+									  DIV_GROSS,
+									  DIV_DATE_POSTED, DIV_DESCR));
+		// Implausible no. of add. shares
+		itemList.add(SecuritiesAccountTransactionManager_FP.BatchItem
+						.stockSplit(STOCK_ACCT_ID,
+									SecuritiesAccountTransactionManager_FP.StockSplitVar.NOF_ADD_SHARES, new FixedPointNumber("1000000"),
+									SPLT_DATE_POSTED, SPLT_DESCR));
+
+		int nofTrxBefore = gcshInFile.getTransactions().size();
+
+		List<SecuritiesAccountTransactionManager_FP.BatchResult> resList =
+				SecuritiesAccountTransactionManager_FP.genTrxBatch(gcshInFile, itemList);
+
+		assertEquals(itemList.size(), resList.size());
+		assertEquals(true, resList.get(0).isOK());
+		assertEquals(false, resList.get(1).isOK());
+		assertEquals(IllegalArgumentException.class, resList.get(1).getError().getClass());
+		assertEquals(true, resList.get(2).isOK());
+		assertEquals(false, resList.get(3).isOK());
+		assertEquals(null, resList.get(3).getTransaction());
+
+		assertEquals(true, resList.get(0).getTransaction() instanceof GnuCashWritableStockBuyTransaction);
+		assertEquals(true, resList.get(2).getTransaction() instanceof GnuCashWritableStockDividendTransaction);
+		assertEquals(itemList.get(2), resList.get(2).getItem());
+
+		assertEquals(nofTrxBefore + 2, gcshInFile.getTransactions().size());
+	}
+
 	// ---------------------------------------------------------------
 	
 	// 
@@ -0,0 +1,175 @@
+package org.gnucash.apiext.secacct;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.time.LocalDate;
+
+import org.gnucash.api.read.GnuCashPrice;
+import org.gnucash.api.write.GnuCashWritablePrice;
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.apiext.ConstTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+public class TestSecurityPriceIndex {
+
+	private static LocalDate[] DATES = new LocalDate[] {
+			LocalDate.of(2000, 1, 1),
+			LocalDate.of(2023, 1, 1),
+			LocalDate.of(2023, 6, 30),
+			LocalDate.of(2023, 12, 31),
+			LocalDate.of(2024, 3, 1),
+			LocalDate.of(2025, 12, 31),
+			LocalDate.of(2099, 12, 31)
+	};
+
+	// -----------------------------------------------------------------
+
+	private GnuCashWritableFileImpl gcshFile = null;
+
+	// -----------------------------------------------------------------
+
+	public static void main(String[] args) throws Exception {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	@SuppressWarnings("exports")
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TestSecurityPriceIndex.class);
+	}
+
+	@Before
+	public void initialize() throws Exception {
+		ClassLoader classLoader = getClass().getClassLoader();
+		URL gcshFileURL = null;
+		File gcshFileRaw = null;
+		try {
+			gcshFileURL = classLoader.getResource(ConstTest.GCSH_FILENAME);
+			gcshFileRaw = new File(gcshFileURL.getFile());
+		} catch (Exception exc) {
+			System.err.println("Cannot generate input stream from resource");
+			return;
+		}
+
+		try {
+			gcshFile = new GnuCashWritableFileImpl(gcshFileRaw);
+		} catch (Exception exc) {
+			System.err.println("Cannot parse GnuCash file");
+			exc.printStackTrace();
+		}
+	}
+
+	// -----------------------------------------------------------------
+
+	// Same results as a scan over the price database
+	@Test
+	public void test01() throws Exception {
+		SecurityPriceIndex prcIdx = SecurityPriceIndex.of(gcshFile);
+		assertTrue(gcshFile.getPrices().size() > 0);
+
+		for ( GnuCashPrice prc : gcshFile.getPrices() ) {
+			SecurityPriceIndex.PriceSeries prices = prcIdx.getSeries(prc.getFromCmdtyCurrQualifID(), prc.getToCurrencyCode());
+
+			// The price's own date
+			assertEquals(getPriceScan(prc, prc.getDate()).doubleValue(),
+						 prices.getPriceAsDouble(prc.getDate()),
+						 ConstTest.DIFF_TOLERANCE);
+
+			for ( LocalDate date : DATES ) {
+				GnuCashPrice latest = getPriceScan(prc, date);
+				if ( latest == null ) {
+					assertNull(prices.getPrice(date));
+					assertTrue(Double.isNaN(prices.getPriceAsDouble(date)));
+				} else {
+					assertEquals(latest.getValue().doubleValue(),
+								 prices.getPrice(date).doubleValue(),
+								 ConstTest.DIFF_TOLERANCE);
+				}
+			}
+		}
+
+		// Built once
+		assertEquals(1, prcIdx.getNofBuilds());
+	}
+
+	// Notified price addition: only the affected series is rebuilt
+	@Test
+	public void test02() throws Exception {
+		SecurityPriceIndex prcIdx = SecurityPriceIndex.of(gcshFile);
+		GnuCashPrice ref = gcshFile.getPrices().iterator().next();
+		SecurityPriceIndex.PriceSeries pricesBefore = prcIdx.getSeries(ref.getFromCmdtyCurrQualifID(), ref.getToCurrencyCode());
+		assertEquals(1, prcIdx.getNofBuilds());
+
+		GnuCashWritablePrice prc = newPrice(ref, LocalDate.of(2030, 1, 1), new FixedPointNumber("123.45"));
+		prcIdx.priceAdded(prc);
+
+		SecurityPriceIndex.PriceSeries prices = prcIdx.getSeries(ref.getFromCmdtyCurrQualifID(), ref.getToCurrencyCode());
+		assertEquals(pricesBefore.size() + 1, prices.size());
+		assertEquals(123.45, prices.getPrice(LocalDate.of(2030, 6, 30)).doubleValue(), ConstTest.DIFF_TOLERANCE);
+		assertEquals(getPriceScan(ref, LocalDate.of(2029, 12, 31)).getValue().doubleValue(),
+					 prices.getPrice(LocalDate.of(2029, 12, 31)).doubleValue(),
+					 ConstTest.DIFF_TOLERANCE);
+
+		// No full rebuild
+		assertEquals(1, prcIdx.getNofBuilds());
+	}
+
+	// Price additions that the index has not been notified of:
+	// full rebuild
+	@Test
+	public void test03() throws Exception {
+		SecurityPriceIndex prcIdx = SecurityPriceIndex.of(gcshFile);
+		GnuCashPrice ref = gcshFile.getPrices().iterator().next();
+		prcIdx.getSeries(ref.getFromCmdtyCurrQualifID(), ref.getToCurrencyCode());
+		assertEquals(1, prcIdx.getNofBuilds());
+
+		newPrice(ref, LocalDate.of(2030, 1, 1), new FixedPointNumber("123.45"));
+		GnuCashWritablePrice prc = newPrice(ref, LocalDate.of(2031, 1, 1), new FixedPointNumber("234.56"));
+		prcIdx.priceAdded(prc); // two new prices, one notification
+
+		SecurityPriceIndex.PriceSeries prices = prcIdx.getSeries(ref.getFromCmdtyCurrQualifID(), ref.getToCurrencyCode());
+		assertEquals(123.45, prices.getPrice(LocalDate.of(2030, 6, 30)).doubleValue(), ConstTest.DIFF_TOLERANCE);
+		assertEquals(234.56, prices.getPrice(LocalDate.of(2031, 6, 30)).doubleValue(), ConstTest.DIFF_TOLERANCE);
+		assertEquals(2, prcIdx.getNofBuilds());
+	}
+
+	// -----------------------------------------------------------------
+
+	// New price with the same commodity and currency as the given one
+	private GnuCashWritablePrice newPrice(GnuCashPrice ref, LocalDate date, FixedPointNumber value) {
+		GnuCashWritablePrice prc = gcshFile.createWritablePrice();
+		prc.setFromCmdtyCurrQualifID(ref.getFromCmdtyCurrQualifID());
+		prc.setToCurrencyCode(ref.getToCurrencyCode());
+		prc.setDate(date);
+		prc.setValue(value);
+		return prc;
+	}
+
+	// Latest price on or before the given date with the same
+	// commodity and currency as the given one; on equal dates,
+	// the later one wins
+	private GnuCashPrice getPriceScan(GnuCashPrice ref, LocalDate date) {
+		GnuCashPrice result = null;
+		for ( GnuCashPrice prc : gcshFile.getPrices() ) {
+			if ( ! prc.getFromCmdtyCurrQualifID().toString().equals(ref.getFromCmdtyCurrQualifID().toString()) ||
+				 ! prc.getToCurrencyCode().equals(ref.getToCurrencyCode()) ||
+				 prc.getDate().isAfter(date) )
+				continue;
+
+			if ( result == null ||
+				 ! prc.getDate().isBefore(result.getDate()) ) {
+				result = prc;
+			}
+		}
+
+		return result;
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.gnucash.apiext.trialbal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.impl.GnuCashFileImpl;
+import org.gnucash.apiext.ConstTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+
+public class TestTrialBalanceEngine {
+
+	private static List<LocalDate> DATES = Arrays.asList(
+			LocalDate.of(2023, 12, 31), // deliberately unsorted
+			LocalDate.of(2000, 1, 1),
+			LocalDate.of(2023, 6, 30),
+			LocalDate.of(2024, 12, 31),
+			LocalDate.of(2099, 12, 31));
+
+	// -----------------------------------------------------------------
+
+	private GnuCashFile gcshFile = null;
+	private TrialBalanceEngine engine = null;
+
+	// -----------------------------------------------------------------
+
+	public static void main(String[] args) throws Exception {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	@SuppressWarnings("exports")
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TestTrialBalanceEngine.class);
+	}
+
+	@Before
+	public void initialize() throws Exception {
+		ClassLoader classLoader = getClass().getClassLoader();
+		URL gcshFileURL = null;
+		File gcshFileRaw = null;
+		try {
+			gcshFileURL = classLoader.getResource(ConstTest.GCSH_FILENAME);
+			gcshFileRaw = new File(gcshFileURL.getFile());
+		} catch (Exception exc) {
+			System.err.println("Cannot generate input stream from resource");
+			return;
+		}
+
+		try {
+			gcshFile = new GnuCashFileImpl(gcshFileRaw);
+		} catch (Exception exc) {
+			System.err.println("Cannot parse GnuCash file");
+			exc.printStackTrace();
+		}
+
+		engine = new TrialBalanceEngine(gcshFile);
+	}
+
+	// -----------------------------------------------------------------
+
+	// Same results as the accounts' own (scanning) methods
+	@Test
+	public void test01() throws Exception {
+		TrialBalance trlBal = engine.compute(DATES);
+		assertEquals(gcshFile.getAccounts().size(), trlBal.getNofAccounts());
+		assertEquals(DATES.size(), trlBal.getDates().size());
+		assertEquals(LocalDate.of(2000, 1, 1), trlBal.getDates().get(0));
+
+		for ( GnuCashAccount acct : gcshFile.getAccounts() ) {
+			for ( LocalDate date : DATES ) {
+				assertEquals(acct.getBalance(date).doubleValue(),
+							 trlBal.getBalance(acct.getID(), date).doubleValue(),
+							 ConstTest.DIFF_TOLERANCE);
+			}
+		}
+	}
+
+	// Parallel variant yields the same result
+	@Test
+	public void test02() throws Exception {
+		TrialBalance trlBalSeq = engine.compute(DATES);
+		TrialBalance trlBalPar = engine.compute(DATES, 4);
+		TrialBalance trlBalCmn = engine.compute(DATES, ForkJoinPool.commonPool());
+
+		for ( GnuCashAccount acct : gcshFile.getAccounts() ) {
+			for ( LocalDate date : DATES ) {
+				assertEquals(trlBalSeq.getBalance(acct.getID(), date), trlBalPar.getBalance(acct.getID(), date));
+				assertEquals(trlBalSeq.getValueRecursive(acct.getID(), date), trlBalPar.getValueRecursive(acct.getID(), date));
+				assertEquals(trlBalSeq.getBalanceRecursive(acct.getID(), date), trlBalCmn.getBalanceRecursive(acct.getID(), date));
+			}
+		}
+	}
+
+	// Views
+	@Test
+	public void test03() throws Exception {
+		TrialBalance trlBal = engine.compute(DATES);
+		LocalDate from = LocalDate.of(2023, 6, 30);
+		LocalDate to   = LocalDate.of(2023, 12, 31);
+
+		for ( GnuCashAccount acct : gcshFile.getAccounts() ) {
+			// Double entry: everything adds up to zero
+			if ( acct.getType() == GnuCashAccount.Type.ROOT ) {
+				assertEquals(0.0, trlBal.getValueRecursive(acct.getID(), to).doubleValue(), ConstTest.DIFF_TOLERANCE);
+			}
+		}
+
+		BalanceSheet balSheet = trlBal.getBalanceSheet(to);
+		ProfitAndLoss pnlTotal = trlBal.getProfitAndLoss(null, to);
+		assertEquals(-balSheet.getRetainedEarnings().doubleValue(),
+					 pnlTotal.getNetIncome().doubleValue(),
+					 ConstTest.DIFF_TOLERANCE);
+
+		ProfitAndLoss pnl1 = trlBal.getProfitAndLoss(null, from);
+		ProfitAndLoss pnl2 = trlBal.getProfitAndLoss(from, to);
+		assertEquals(pnlTotal.getNetIncome().doubleValue(),
+					 pnl1.getNetIncome().doubleValue() + pnl2.getNetIncome().doubleValue(),
+					 ConstTest.DIFF_TOLERANCE);
+
+		// Visitor: top-level accounts add up to the section total
+		double[] sum = new double[] { 0.0 };
+		pnl2.visit(TrialBalance.Section.EXPENSES, (acct, depth, ownVal, recVal) -> {
+			if ( depth == 0 ) {
+				sum[0] += recVal.doubleValue();
+			}
+		});
+		assertEquals(pnl2.getExpenses().doubleValue(), sum[0], ConstTest.DIFF_TOLERANCE);
+	}
+
+}
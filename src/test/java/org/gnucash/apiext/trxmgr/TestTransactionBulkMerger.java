@@ -0,0 +1,170 @@
+package org.gnucash.apiext.trxmgr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.write.GnuCashWritableTransaction;
+import org.gnucash.api.write.GnuCashWritableTransactionSplit;
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.apiext.ConstTest;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.gnucash.base.basetypes.simple.GCshTrxID;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+public class TestTransactionBulkMerger {
+
+	private static final GCshAcctID BANK_ACCT_ID  = new GCshAcctID("bbf77a599bd24a3dbfec3dd1d0bb9f5c"); // Giro RaiBa
+	private static final GCshAcctID EXP_ACCT_1_ID = new GCshAcctID("7d4b851a3f704c4695d5d466b28cdc55"); // Bankprovision
+
+	private static final FixedPointNumber AMOUNT = new FixedPointNumber("123456/100");
+
+	// -----------------------------------------------------------------
+
+	private GnuCashWritableFileImpl gcshFile = null;
+
+	// -----------------------------------------------------------------
+
+	public static void main(String[] args) throws Exception {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	@SuppressWarnings("exports")
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TestTransactionBulkMerger.class);
+	}
+
+	@Before
+	public void initialize() throws Exception {
+		ClassLoader classLoader = getClass().getClassLoader();
+		URL gcshFileURL = null;
+		File gcshFileRaw = null;
+		try {
+			gcshFileURL = classLoader.getResource(ConstTest.GCSH_FILENAME);
+			gcshFileRaw = new File(gcshFileURL.getFile());
+		} catch (Exception exc) {
+			System.err.println("Cannot generate input stream from resource");
+			return;
+		}
+
+		try {
+			gcshFile = new GnuCashWritableFileImpl(gcshFileRaw);
+		} catch (Exception exc) {
+			System.err.println("Cannot parse GnuCash file");
+			exc.printStackTrace();
+		}
+	}
+
+	// -----------------------------------------------------------------
+
+	@Test
+	public void test01() throws Exception {
+		TransactionBulkMerger bulkMerger = new TransactionBulkMerger(gcshFile, TransactionMergerBase.Var.VAR_1);
+		int nofCandBefore = bulkMerger.findCandidates().size();
+
+		// Same bank payment, booked twice, one day apart
+		GCshTrxID trxID1 = genBankTrx(LocalDate.of(2024, 5, 2), LocalDateTime.of(2024, 5, 3, 10, 0), AMOUNT);
+		GCshTrxID trxID2 = genBankTrx(LocalDate.of(2024, 5, 3), LocalDateTime.of(2024, 5, 6, 10, 0), AMOUNT);
+		// Same accounts, but different amount
+		genBankTrx(LocalDate.of(2024, 5, 3), LocalDateTime.of(2024, 5, 6, 10, 0), AMOUNT.copy().add(new FixedPointNumber(1)));
+		// Same accounts and amount, but too late
+		genBankTrx(LocalDate.of(2024, 5, 30), LocalDateTime.of(2024, 5, 30, 10, 0), AMOUNT);
+
+		List<TransactionBulkMerger.CandidatePair> candList = bulkMerger.findCandidates();
+		assertEquals(nofCandBefore + 1, candList.size());
+
+		TransactionBulkMerger.CandidatePair pair = null;
+		for ( TransactionBulkMerger.CandidatePair elt : candList ) {
+			if ( elt.getSurvivor().getID().equals(trxID1) ) {
+				pair = elt;
+			}
+		}
+		assertEquals(true, pair != null);
+		assertEquals(trxID2, pair.getDier().getID());
+
+		// ---
+
+		int nofTrxBefore = gcshFile.getTransactions().size();
+		List<TransactionBulkMerger.CandidatePair> pairList = new ArrayList<TransactionBulkMerger.CandidatePair>();
+		pairList.add(pair);
+		TransactionBulkMerger.Result res = bulkMerger.mergeCandidates(pairList);
+
+		assertEquals(1, res.getMerged().size());
+		assertEquals(0, res.getRejected().size());
+		assertEquals(nofTrxBefore - 1, gcshFile.getTransactions().size());
+		assertEquals(null, gcshFile.getTransactionByID(trxID2));
+		assertEquals(trxID1, gcshFile.getTransactionByID(trxID1).getID());
+	}
+
+	@Test
+	public void test02() throws Exception {
+		GCshTrxID trxID1 = genBankTrx(LocalDate.of(2024, 5, 2), LocalDateTime.of(2024, 5, 3, 10, 0), AMOUNT);
+		GCshTrxID trxID2 = genBankTrx(LocalDate.of(2024, 5, 3), LocalDateTime.of(2024, 5, 6, 10, 0), AMOUNT);
+
+		TransactionBulkMerger bulkMerger = new TransactionBulkMerger(gcshFile, TransactionMergerBase.Var.VAR_1);
+		bulkMerger.setSurvivorPolicy(TransactionBulkMerger.SurvivorPolicy.LAST_ENTERED);
+
+		boolean found = false;
+		for ( TransactionBulkMerger.CandidatePair elt : bulkMerger.findCandidates() ) {
+			if ( elt.getSurvivor().getID().equals(trxID2) ) {
+				assertEquals(trxID1, elt.getDier().getID());
+				found = true;
+			}
+		}
+		assertEquals(true, found);
+	}
+
+	@Test
+	public void test03() throws Exception {
+		GCshTrxID trxID1 = genBankTrx(LocalDate.of(2024, 5, 2), LocalDateTime.of(2024, 5, 3, 10, 0), AMOUNT);
+		GCshTrxID trxID2 = genBankTrx(LocalDate.of(2024, 5, 3), LocalDateTime.of(2024, 5, 6, 10, 0), AMOUNT.copy().add(new FixedPointNumber(1)));
+
+		TransactionSplitProfile prof1 = TransactionSplitProfile.of(gcshFile.getTransactionByID(trxID1));
+		assertEquals(2, prof1.getNofSplits());
+		assertEquals(true, prof1.isSane());
+		assertEquals(true, prof1.hasSplits(GnuCashAccount.Type.BANK));
+		assertEquals(false, prof1.hasSplits(GnuCashAccount.Type.STOCK));
+		assertEquals(1, prof1.getSplits(GnuCashAccount.Type.BANK).size());
+		assertEquals(true, prof1.getAccountIDs(GnuCashAccount.Type.BANK).contains(BANK_ACCT_ID));
+		assertEquals(AMOUNT.copy().negate().doubleValue(), prof1.getValueSum(GnuCashAccount.Type.BANK).doubleValue(), ConstTest.DIFF_TOLERANCE);
+		assertEquals(AMOUNT.doubleValue(), prof1.getValueSum(GnuCashAccount.Type.EXPENSE).doubleValue(), ConstTest.DIFF_TOLERANCE);
+
+		// Bank split sums differ
+		TransactionMergerVar1 merger = new TransactionMergerVar1(gcshFile);
+		assertEquals(false, merger.plausiCheck(gcshFile.getTransactionByID(trxID1), gcshFile.getTransactionByID(trxID2)));
+		assertEquals(true, merger.plausiCheck(gcshFile.getTransactionByID(trxID1), gcshFile.getTransactionByID(trxID1)));
+	}
+
+	// -----------------------------------------------------------------
+
+	private GCshTrxID genBankTrx(LocalDate datePosted, LocalDateTime dateEntered, FixedPointNumber amt) {
+		GnuCashAccount bankAcct = gcshFile.getAccountByID(BANK_ACCT_ID);
+		GnuCashAccount expAcct  = gcshFile.getAccountByID(EXP_ACCT_1_ID);
+
+		GnuCashWritableTransaction trx = gcshFile.createWritableTransaction();
+		trx.setDescription("Bulk merger test");
+		trx.setDatePosted(datePosted);
+		trx.setDateEntered(dateEntered);
+
+		GnuCashWritableTransactionSplit splt1 = trx.createWritableSplit(bankAcct);
+		splt1.setValue(amt.copy().negate());
+		splt1.setQuantity(amt.copy().negate());
+
+		GnuCashWritableTransactionSplit splt2 = trx.createWritableSplit(expAcct);
+		splt2.setValue(amt.copy());
+		splt2.setQuantity(amt.copy());
+
+		return trx.getID();
+	}
+
+}
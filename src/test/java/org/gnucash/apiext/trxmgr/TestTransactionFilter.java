@@ -6,6 +6,7 @@ import java.io.File;
 import java.net.URL;
 import java.time.LocalDate;
 
+import org.gnucash.api.read.GnuCashAccount;
 import org.gnucash.api.read.GnuCashFile;
 import org.gnucash.api.read.GnuCashTransaction;
 import org.gnucash.api.read.impl.GnuCashFileImpl;
@@ -142,4 +143,105 @@ public class TestTransactionFilter {
 		flt.nofSpltTo = 3;
 		assertEquals(true, flt.matchesCriteria(trx, true, SplitLogic.OR));
 	}
+
+	@Test
+	public void test05() throws Exception {
+		flt = new TransactionFilter();
+		flt.spltFilt.acctID.set(ACCT_1_ID);
+		flt.descrPart = "MBG";
+		trx = gcshFile.getTransactionByID(TRX_1_ID);
+
+		TransactionFilterSpec spec = flt.toSpec();
+		assertEquals(true, spec.matchesCriteria(trx, true, SplitLogic.OR));
+		assertEquals(false, spec.matchesCriteria(trx, true, SplitLogic.AND));
+
+		// Snapshot: later changes of the filter do not affect the spec
+		flt.descrPart = "SAP";
+		assertEquals(true, spec.matchesCriteria(trx, true, SplitLogic.OR));
+		assertEquals(false, spec.equals(flt.toSpec()));
+
+		// Value semantics
+		TransactionFilterSpec spec2 = TransactionFilterSpec.builder()
+				.descrPart(" mbg ")
+				.spltFilt(TransactionSplitFilterSpec_FP.builder()
+						.acctID(ACCT_1_ID)
+						.build())
+				.build();
+		assertEquals(spec, spec2);
+		assertEquals(spec.hashCode(), spec2.hashCode());
+		assertEquals(false, spec.equals(spec2.toBuilder().nofSplits(1, 3).build()));
+
+		// Round trip
+		assertEquals(spec, spec.toFilter().toSpec());
+	}
+
+	@Test
+	public void test06() throws Exception {
+		flt = new TransactionFilter();
+		trx = gcshFile.getTransactionByID(TRX_1_ID); // 3 splits
+		
+		// No split criteria: every split matches
+		flt.nofMatchingSplt = 3;
+		assertEquals(true, flt.matchesCriteria(trx, true, SplitLogic.AT_LEAST_N));
+		assertEquals(true, flt.matchesCriteria(trx, true, SplitLogic.EXACTLY_N));
+		
+		flt.nofMatchingSplt = 4;
+		assertEquals(false, flt.matchesCriteria(trx, true, SplitLogic.AT_LEAST_N));
+		assertEquals(false, flt.matchesCriteria(trx, true, SplitLogic.EXACTLY_N));
+		
+		flt.nofMatchingSplt = 2;
+		assertEquals(true, flt.matchesCriteria(trx, true, SplitLogic.AT_LEAST_N));
+		assertEquals(false, flt.matchesCriteria(trx, true, SplitLogic.EXACTLY_N));
+		
+		// Some, but not all splits match
+		flt.spltFilt.acctID.set(ACCT_1_ID);
+		flt.nofMatchingSplt = 1;
+		assertEquals(true, flt.matchesCriteria(trx, true, SplitLogic.AT_LEAST_N));
+		
+		flt.nofMatchingSplt = 3;
+		assertEquals(false, flt.matchesCriteria(trx, true, SplitLogic.AT_LEAST_N));
+		assertEquals(false, flt.matchesCriteria(trx, true, SplitLogic.EXACTLY_N));
+		
+		flt.nofMatchingSplt = 0;
+		assertEquals(true, flt.matchesCriteria(trx, true, SplitLogic.AT_LEAST_N));
+		assertEquals(false, flt.matchesCriteria(trx, true, SplitLogic.EXACTLY_N));
+		
+		flt.spltFilt.acctID.set(ACCT_2_ID);
+		assertEquals(true, flt.matchesCriteria(trx, true, SplitLogic.EXACTLY_N));
+	}
+	
+	@Test
+	public void test07() throws Exception {
+		flt = new TransactionFilter();
+		trx = gcshFile.getTransactionByID(TRX_1_ID);
+		
+		// Transaction-level account criterion: 
+		// independent of the split criteria
+		flt.acctID.set(ACCT_1_ID);
+		assertEquals(true, flt.matchesCriteria(trx, false, SplitLogic.AND));
+		
+		flt.spltFilt.acctID.set(ACCT_2_ID);
+		assertEquals(true, flt.matchesCriteria(trx, false, SplitLogic.AND));
+		assertEquals(false, flt.matchesCriteria(trx, true, SplitLogic.OR));
+		
+		flt.spltFilt.acctID.reset();
+		flt.acctID.set(ACCT_2_ID);
+		assertEquals(false, flt.matchesCriteria(trx, false, SplitLogic.AND));
+		
+		// Account type
+		flt.acctID.reset();
+		flt.acctType = GnuCashAccount.Type.BANK;
+		assertEquals(true, flt.matchesCriteria(trx, false, SplitLogic.AND));
+		
+		flt.acctType = GnuCashAccount.Type.ROOT; // no split is bound to the root account
+		assertEquals(false, flt.matchesCriteria(trx, false, SplitLogic.AND));
+		
+		// Both
+		flt.acctID.set(ACCT_1_ID);
+		flt.acctType = GnuCashAccount.Type.BANK;
+		assertEquals(true, flt.matchesCriteria(trx, false, SplitLogic.AND));
+		
+		flt.acctType = GnuCashAccount.Type.EXPENSE;
+		assertEquals(false, flt.matchesCriteria(trx, false, SplitLogic.AND));
+	}
 }
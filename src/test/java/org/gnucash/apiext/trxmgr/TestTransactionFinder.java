@@ -0,0 +1,687 @@
+package org.gnucash.apiext.trxmgr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.read.GnuCashFile;
+import org.gnucash.api.read.GnuCashTransaction;
+import org.gnucash.api.read.GnuCashTransactionSplit;
+import org.gnucash.api.read.impl.GnuCashFileImpl;
+import org.gnucash.api.write.GnuCashWritableTransaction;
+import org.gnucash.api.write.GnuCashWritableTransactionSplit;
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.apiext.ConstTest;
+import org.gnucash.apiext.SyntheticBookGenerator;
+import org.gnucash.apiext.trxmgr.TransactionFilter.SplitLogic;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.gnucash.base.basetypes.simple.GCshTrxID;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+public class TestTransactionFinder {
+
+    private static final GCshAcctID ACCT_1_ID = TestTransactionFilter.ACCT_1_ID;
+    private static final GCshAcctID ACCT_8_ID = TestTransactionFilter.ACCT_8_ID;
+
+    private static final GCshAcctID EXP_ACCT_1_ID = new GCshAcctID("7d4b851a3f704c4695d5d466b28cdc55"); // Bankprovision
+
+    private static final int  LARGE_BOOK_NOF_TRX = 20000;
+    private static final long LARGE_BOOK_SEED    = 4711;
+
+	// -----------------------------------------------------------------
+
+	private GnuCashFile gcshFile = null;
+	private TransactionFinder finder = null;
+	private TransactionFilter flt = null;
+
+	// -----------------------------------------------------------------
+
+	public static void main(String[] args) throws Exception {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	@SuppressWarnings("exports")
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TestTransactionFinder.class);
+	}
+
+	@Before
+	public void initialize() throws Exception {
+		ClassLoader classLoader = getClass().getClassLoader();
+		// URL gcshFileURL = classLoader.getResource(Const.GCSH_FILENAME);
+		// System.err.println("GnuCash test file resource: '" + gcshFileURL + "'");
+		URL gcshFileURL = null;
+		File gcshFileRaw = null;
+		try {
+			gcshFileURL = classLoader.getResource(ConstTest.GCSH_FILENAME);
+			gcshFileRaw = new File(gcshFileURL.getFile());
+		} catch (Exception exc) {
+			System.err.println("Cannot generate input stream from resource");
+			return;
+		}
+
+		try {
+			gcshFile = new GnuCashFileImpl(gcshFileRaw);
+		} catch (Exception exc) {
+			System.err.println("Cannot parse GnuCash file");
+			exc.printStackTrace();
+		}
+
+		finder = new TransactionFinder(gcshFile);
+	}
+
+	// -----------------------------------------------------------------
+
+	// Index-based query plans must yield the same result as
+	// checking every single transaction
+
+	@Test
+	public void test01() throws Exception {
+		flt = new TransactionFilter();
+		flt.spltFilt.acctID.set(ACCT_1_ID);
+
+		checkAgainstFullScan(flt, true, SplitLogic.OR);
+		checkAgainstFullScan(flt, true, SplitLogic.AND);
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.spltFilt.acctID.set(ACCT_8_ID);
+		checkAgainstFullScan(flt, true, SplitLogic.OR);
+
+		// Zero matching splits: account posting list must not be used
+		flt.nofMatchingSplt = 0;
+		checkAgainstFullScan(flt, true, SplitLogic.EXACTLY_N);
+		checkAgainstFullScan(flt, true, SplitLogic.AT_LEAST_N);
+
+		flt.nofMatchingSplt = 1;
+		checkAgainstFullScan(flt, true, SplitLogic.EXACTLY_N);
+		checkAgainstFullScan(flt, true, SplitLogic.AT_LEAST_N);
+
+		// Transaction without splits: matches with AND, so the
+		// account posting list must not be used
+		GnuCashWritableFileImpl wrtblFile = loadWritableFile();
+		gcshFile = wrtblFile;
+		finder = new TransactionFinder(gcshFile);
+		GnuCashWritableTransaction trx = wrtblFile.createWritableTransaction();
+		trx.setDatePosted(LocalDate.of(2023, 8, 1));
+
+		flt.reset();
+		flt.spltFilt.acctID.set(ACCT_1_ID);
+		assertEquals(true, finder.find(flt, true, SplitLogic.AND).contains(trx));
+		checkAgainstFullScan(flt, true, SplitLogic.AND);
+		checkAgainstFullScan(flt, true, SplitLogic.OR);
+
+		// ... unless the no. of splits rules it out
+		flt.nofSpltFrom = 1;
+		assertEquals(false, finder.find(flt, true, SplitLogic.AND).contains(trx));
+		checkAgainstFullScan(flt, true, SplitLogic.AND);
+	}
+
+	@Test
+	public void test02() throws Exception {
+		flt = new TransactionFilter();
+		flt.datePostedFrom = LocalDate.of(2023, 7, 1);
+		flt.datePostedTo = LocalDate.of(2023, 12, 31);
+
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.spltFilt.acctID.set(ACCT_1_ID);
+		checkAgainstFullScan(flt, true, SplitLogic.OR);
+
+		flt.datePostedFrom = TransactionFilter.DATE_UNSET;
+		checkAgainstFullScan(flt, true, SplitLogic.OR);
+
+		flt.datePostedFrom = LocalDate.of(2023, 7, 20);
+		flt.datePostedTo = LocalDate.of(2023, 7, 1);
+		assertEquals(0, finder.find(flt, true, SplitLogic.OR).size());
+	}
+
+	@Test
+	public void test03() throws Exception {
+		flt = new TransactionFilter();
+		flt.nofSpltFrom = 3;
+		flt.nofSpltTo = 3;
+
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.nofSpltFrom = 1000;
+		flt.nofSpltTo = 2000;
+		assertEquals(0, finder.find(flt, false, SplitLogic.OR).size());
+	}
+
+	// Parallel evaluation must yield exactly the same result
+	// (including the order) as the sequential one
+
+	@Test
+	public void test04() throws Exception {
+		flt = new TransactionFilter();
+		checkParallel(gcshFile, flt, false, SplitLogic.OR);
+
+		flt.spltFilt.acctID.set(ACCT_1_ID);
+		checkParallel(gcshFile, flt, true, SplitLogic.OR);
+		checkParallel(gcshFile, flt, true, SplitLogic.AND);
+
+		flt.reset();
+		flt.datePostedFrom = LocalDate.of(2023, 7, 1);
+		flt.descrPart = "a";
+		checkParallel(gcshFile, flt, false, SplitLogic.OR);
+
+		TransactionSplitFilter_FP spltFlt = new TransactionSplitFilter_FP();
+		spltFlt.acctID.set(ACCT_1_ID);
+		checkParallel(gcshFile, spltFlt);
+	}
+
+	@Test
+	public void test05() throws Exception {
+		SyntheticBookGenerator gen = new SyntheticBookGenerator();
+		gen.seed = LARGE_BOOK_SEED;
+		gen.nofBankTrx = LARGE_BOOK_NOF_TRX;
+		GnuCashFile largeFile = gen.generate();
+		assertEquals(true, largeFile.getTransactions().size() >= LARGE_BOOK_NOF_TRX);
+
+		flt = new TransactionFilter();
+		checkParallel(largeFile, flt, false, SplitLogic.OR);
+
+		flt.spltFilt.acctID.set(EXP_ACCT_1_ID);
+		checkParallel(largeFile, flt, true, SplitLogic.OR);
+
+		flt.spltFilt.acctID.set(gen.getShareAcctIDs().get(0));
+		checkParallel(largeFile, flt, true, SplitLogic.AND);
+
+		flt.reset();
+		flt.datePostedFrom = LocalDate.of(2021, 1, 1);
+		flt.datePostedTo = LocalDate.of(2022, 6, 30);
+		flt.descrPart = "trx 1";
+		checkParallel(largeFile, flt, false, SplitLogic.OR);
+
+		flt.reset();
+		flt.spltFilt.valueFrom = new FixedPointNumber("100");
+		flt.spltFilt.valueTo = new FixedPointNumber("500");
+		checkParallel(largeFile, flt, true, SplitLogic.OR);
+
+		TransactionSplitFilter_FP spltFlt = new TransactionSplitFilter_FP();
+		spltFlt.acctID.set(gen.getExpAcctIDs().get(1));
+		checkParallel(largeFile, spltFlt);
+
+		spltFlt.reset();
+		spltFlt.valueFrom = new FixedPointNumber("-300");
+		spltFlt.valueTo = new FixedPointNumber("300");
+		spltFlt.valueAbs = true;
+		checkParallel(largeFile, spltFlt);
+	}
+
+	// Lazy evaluation must yield the same result (including the order)
+	// as the eager one
+
+	@Test
+	public void test06() throws Exception {
+		flt = new TransactionFilter();
+		flt.spltFilt.acctID.set(ACCT_1_ID);
+
+		ArrayList<GnuCashTransaction> resultEager = finder.find(flt, true, SplitLogic.OR);
+		assertEquals(true, resultEager.size() >= 2);
+
+		assertEquals(resultEager, finder.stream(flt, true, SplitLogic.OR).collect(Collectors.toList()));
+		assertEquals(resultEager.subList(0, 2), finder.stream(flt, true, SplitLogic.OR).limit(2).collect(Collectors.toList()));
+		assertEquals(resultEager.get(0), finder.findFirst(flt, true, SplitLogic.OR).get());
+		assertEquals(true, finder.exists(flt, true, SplitLogic.OR));
+
+		Iterator<GnuCashTransaction> iter = finder.iterator(flt, true, SplitLogic.OR);
+		for ( GnuCashTransaction trx : resultEager ) {
+			assertEquals(true, iter.hasNext());
+			assertEquals(trx, iter.next());
+		}
+		assertEquals(false, iter.hasNext());
+
+		flt.descrPart = "no such description, not at all";
+		assertEquals(false, finder.exists(flt, true, SplitLogic.OR));
+		assertEquals(false, finder.findFirst(flt, true, SplitLogic.OR).isPresent());
+
+		// ---
+
+		TransactionSplitFinder spltFinder = new TransactionSplitFinder(gcshFile);
+		TransactionSplitFilter_FP spltFlt = new TransactionSplitFilter_FP();
+		spltFlt.acctID.set(ACCT_1_ID);
+
+		ArrayList<GnuCashTransactionSplit> spltResultEager = spltFinder.find(spltFlt);
+		assertEquals(spltResultEager, spltFinder.stream(spltFlt).collect(Collectors.toList()));
+		assertEquals(spltResultEager.get(0), spltFinder.findFirst(spltFlt).get());
+		assertEquals(true, spltFinder.exists(spltFlt));
+	}
+
+	// Description index must yield the same result as
+	// checking every single transaction/split
+
+	@Test
+	public void test07() throws Exception {
+		finder.setUseDescrIndex(true);
+
+		flt = new TransactionFilter();
+		flt.descrPart = "a";
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.descrPart = " AKTIE ";
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.datePostedFrom = LocalDate.of(2023, 7, 1);
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.descrPart = "no such description, not at all";
+		assertEquals(0, finder.find(flt, false, SplitLogic.OR).size());
+
+		flt.reset();
+		flt.spltFilt.descrPart = "ab";
+		checkAgainstFullScan(flt, true, SplitLogic.OR);
+
+		// ---
+
+		TransactionSplitFinder spltFinder = new TransactionSplitFinder(gcshFile);
+		TransactionSplitFinder spltFinderIdx = new TransactionSplitFinder(gcshFile);
+		spltFinderIdx.setUseDescrIndex(true);
+		TransactionSplitFilter_FP spltFlt = new TransactionSplitFilter_FP();
+
+		for ( String descrPart : new String[] { "a", "ab", "kauf", "no such description" } ) {
+			spltFlt.descrPart = descrPart;
+			HashSet<GnuCashTransactionSplit> expected = new HashSet<GnuCashTransactionSplit>(spltFinder.find(spltFlt));
+			ArrayList<GnuCashTransactionSplit> actual = spltFinderIdx.find(spltFlt);
+			assertEquals(expected.size(), actual.size());
+			assertEquals(expected, new HashSet<GnuCashTransactionSplit>(actual));
+		}
+	}
+
+	@Test
+	public void test08() throws Exception {
+		flt = new TransactionFilter();
+		flt.dateEnteredFrom = LocalDate.of(2023, 7, 1);
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.dateEnteredTo = LocalDate.of(2023, 12, 31);
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.dateEnteredFrom = TransactionFilter.DATE_UNSET;
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.datePostedFrom = LocalDate.of(2023, 1, 1);
+		flt.spltFilt.acctID.set(ACCT_1_ID);
+		checkAgainstFullScan(flt, true, SplitLogic.OR);
+
+		flt.reset();
+		flt.dateEnteredFrom = LocalDate.of(2023, 7, 20);
+		flt.dateEnteredTo = LocalDate.of(2023, 7, 1);
+		assertEquals(0, finder.find(flt, false, SplitLogic.OR).size());
+
+		// ---
+
+		TransactionIndex idx = TransactionIndex.of(gcshFile);
+		assertEquals(gcshFile.getTransactions().size(), idx.getTransactionsByDateEntered(null, null).size());
+
+		LocalDate prevDate = null;
+		for ( GnuCashTransaction trx : idx.getTransactionsByDateEntered(LocalDate.of(2023, 1, 1), null) ) {
+			LocalDate date = trx.getDateEntered().toLocalDate();
+			assertEquals(false, date.isBefore(LocalDate.of(2023, 1, 1)));
+			assertEquals(true, prevDate == null || ! date.isBefore(prevDate));
+			prevDate = date;
+		}
+	}
+
+	@Test
+	public void test09() throws Exception {
+		finder.setUseResultCache(true);
+		TransactionQueryCache cache = TransactionQueryCache.of(gcshFile);
+
+		flt = new TransactionFilter();
+		flt.descrPart = "a";
+		ArrayList<GnuCashTransaction> result1 = finder.find(flt, false, SplitLogic.OR);
+		assertEquals(0, cache.getNofHits());
+		assertEquals(1, cache.getNofMisses());
+
+		// Equivalent filter (other object, same criteria)
+		TransactionFilter flt2 = new TransactionFilter();
+		flt2.descrPart = " A ";
+		flt2.spltFilt.acctID.set(ACCT_1_ID); // irrelevant without splits
+		assertEquals(result1, finder.find(flt2, false, SplitLogic.OR));
+		assertEquals(1, cache.getNofHits());
+		assertEquals(1, cache.getNofMisses());
+
+		// Changing the filter after the search does not affect the cached result
+		flt.descrPart = "no such description, not at all";
+		assertEquals(0, finder.find(flt, false, SplitLogic.OR).size());
+		assertEquals(2, cache.getNofMisses());
+		assertEquals(2, cache.size());
+
+		// LRU eviction
+		cache.setMaxSize(1);
+		assertEquals(1, cache.size());
+		finder.find(flt2, false, SplitLogic.OR);
+		assertEquals(3, cache.getNofMisses());
+
+		cache.invalidate();
+		assertEquals(0, cache.size());
+	}
+
+	// Combined search must yield the same result as
+	// transaction search plus split search
+
+	@Test
+	public void test10() throws Exception {
+		flt = new TransactionFilter();
+		flt.spltFilt.acctID.set(ACCT_1_ID);
+		flt.datePostedFrom = LocalDate.of(2023, 1, 1);
+
+		for ( SplitLogic splitLogic : SplitLogic.values() ) {
+			ArrayList<GnuCashTransaction> trxList = finder.find(flt, true, splitLogic);
+			ArrayList<TransactionMatch> matchList = finder.findWithSplits(flt, splitLogic);
+			assertEquals(trxList.size(), matchList.size());
+
+			for ( int i = 0; i < trxList.size(); i++ ) {
+				TransactionMatch match = matchList.get(i);
+				assertEquals(trxList.get(i), match.getTransaction());
+
+				ArrayList<GnuCashTransactionSplit> expected = new ArrayList<GnuCashTransactionSplit>();
+				for ( GnuCashTransactionSplit splt : match.getTransaction().getSplits() ) {
+					if ( flt.spltFilt.matchesCriteria(splt) ) {
+						expected.add(splt);
+					}
+				}
+				assertEquals(expected, match.getSplits());
+			}
+		}
+	}
+
+	// Account pushdown, transaction and split level
+
+	@Test
+	public void test11() throws Exception {
+		flt = new TransactionFilter();
+		flt.acctID.set(ACCT_1_ID);
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.datePostedFrom = LocalDate.of(2023, 7, 1);
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.reset();
+		flt.acctType = GnuCashAccount.Type.BANK;
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.spltFilt.acctType = GnuCashAccount.Type.EXPENSE;
+		checkAgainstFullScan(flt, true, SplitLogic.OR);
+		checkAgainstFullScan(flt, true, SplitLogic.AND);
+		flt.nofMatchingSplt = 0;
+		checkAgainstFullScan(flt, true, SplitLogic.EXACTLY_N);
+
+		// ---
+
+		TransactionSplitFinder spltFinder = new TransactionSplitFinder(gcshFile);
+		TransactionSplitFilter_FP spltFlt = new TransactionSplitFilter_FP();
+		spltFlt.acctID.set(ACCT_1_ID);
+		checkAgainstFullScan(spltFinder, spltFlt);
+
+		spltFlt.acctType = GnuCashAccount.Type.EXPENSE; // contradiction
+		checkAgainstFullScan(spltFinder, spltFlt);
+
+		spltFlt.acctID.reset();
+		checkAgainstFullScan(spltFinder, spltFlt);
+
+		spltFlt.descrPart = "a";
+		spltFinder.setUseDescrIndex(true);
+		checkAgainstFullScan(spltFinder, spltFlt);
+
+		spltFlt.reset();
+		spltFlt.acctID.set(EXP_ACCT_1_ID);
+		assertEquals(gcshFile.getAccountByID(EXP_ACCT_1_ID).getTransactionSplits().size(),
+					 spltFinder.find(spltFlt).size());
+	}
+
+	// Index must follow modifications of the file
+
+	@Test
+	public void test12() throws Exception {
+		GnuCashWritableFileImpl wrtblFile = loadWritableFile();
+		gcshFile = wrtblFile;
+		finder = new TransactionFinder(gcshFile);
+
+		flt = new TransactionFilter();
+		flt.datePostedFrom = LocalDate.of(2023, 7, 1);
+		flt.datePostedTo = LocalDate.of(2023, 12, 31);
+		ArrayList<GnuCashTransaction> resultBefore = finder.find(flt, false, SplitLogic.OR);
+		assertEquals(true, resultBefore.size() >= 2);
+
+		// Changed post date
+		GnuCashWritableTransaction trx1 = wrtblFile.getWritableTransactionByID(resultBefore.get(0).getID());
+		trx1.setDatePosted(LocalDate.of(2020, 1, 1));
+		assertEquals(false, finder.find(flt, false, SplitLogic.OR).contains(trx1));
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		// Removal followed by an addition (same no. of transactions,
+		// announced by touching the stamp)
+		int nofTrx = wrtblFile.getTransactions().size();
+		wrtblFile.removeTransaction(wrtblFile.getWritableTransactionByID(resultBefore.get(1).getID()));
+		TransactionModStamp.of(wrtblFile).touch();
+		GnuCashWritableTransaction trx2 = wrtblFile.createWritableTransaction();
+		trx2.setDatePosted(LocalDate.of(2023, 8, 1));
+		trx2.setDateEntered(LocalDateTime.of(2023, 8, 1, 12, 0));
+		GnuCashWritableTransactionSplit splt = trx2.createWritableSplit(wrtblFile.getAccountByID(ACCT_1_ID));
+		splt.setValue(new FixedPointNumber());
+		splt.setQuantity(new FixedPointNumber());
+		assertEquals(nofTrx, wrtblFile.getTransactions().size());
+
+		assertEquals(true, finder.find(flt, false, SplitLogic.OR).contains(trx2));
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		// Split moved to another account
+		flt.reset();
+		flt.acctID.set(EXP_ACCT_1_ID);
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+		splt.setAccount(wrtblFile.getAccountByID(EXP_ACCT_1_ID));
+		assertEquals(true, finder.find(flt, false, SplitLogic.OR).contains(trx2));
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+	}
+
+	// Split-count histogram: last bucket means "that many or more"
+
+	@Test
+	public void test13() throws Exception {
+		GnuCashWritableFileImpl wrtblFile = loadWritableFile();
+		gcshFile = wrtblFile;
+		finder = new TransactionFinder(gcshFile);
+
+		GnuCashWritableTransaction trx = wrtblFile.createWritableTransaction();
+		trx.setDatePosted(LocalDate.of(2024, 6, 1));
+		for ( int i = 0; i < 40; i++ ) {
+			GnuCashWritableTransactionSplit splt = trx.createWritableSplit(wrtblFile.getAccountByID(ACCT_1_ID));
+			splt.setValue(new FixedPointNumber());
+			splt.setQuantity(new FixedPointNumber());
+		}
+
+		flt = new TransactionFilter();
+		flt.nofSpltFrom = 33;
+		assertEquals(true, finder.find(flt, false, SplitLogic.OR).contains(trx));
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.nofSpltTo = 40;
+		assertEquals(true, finder.find(flt, false, SplitLogic.OR).contains(trx));
+
+		flt.nofSpltFrom = 41;
+		flt.nofSpltTo = TransactionFilter.NOF_SPLT_UNSET;
+		assertEquals(false, finder.find(flt, false, SplitLogic.OR).contains(trx));
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+	}
+
+	// -----------------------------------------------------------------
+
+	// Result cache and writes
+	@Test
+	public void test14() throws Exception {
+		GnuCashWritableFileImpl wrtblFile = loadWritableFile();
+		gcshFile = wrtblFile;
+		finder = new TransactionFinder(gcshFile);
+		finder.setUseResultCache(true);
+		TransactionQueryCache cache = TransactionQueryCache.of(gcshFile);
+
+		flt = new TransactionFilter();
+		flt.datePostedFrom = LocalDate.of(2023, 7, 1);
+		flt.datePostedTo = LocalDate.of(2023, 12, 31);
+		ArrayList<GnuCashTransaction> resultBefore = finder.find(flt, false, SplitLogic.OR);
+		assertEquals(resultBefore, finder.find(flt, false, SplitLogic.OR));
+		assertEquals(1, cache.getNofHits());
+		assertEquals(1, cache.getNofMisses());
+
+		// Changed post date -> cache and index invalidated
+		GnuCashWritableTransaction trx1 = wrtblFile.getWritableTransactionByID(resultBefore.get(0).getID());
+		trx1.setDatePosted(LocalDate.of(2020, 1, 1));
+		ArrayList<GnuCashTransaction> resultAfter = finder.find(flt, false, SplitLogic.OR);
+		assertEquals(2, cache.getNofMisses());
+		assertEquals(resultBefore.size() - 1, resultAfter.size());
+		assertEquals(false, resultAfter.contains(trx1));
+
+		// Nothing changed since -> hit
+		assertEquals(resultAfter, finder.find(flt, false, SplitLogic.OR));
+		assertEquals(2, cache.getNofHits());
+		assertEquals(2, cache.getNofMisses());
+	}
+
+	// Description index: case folding, changed descriptions
+	@Test
+	public void test15() throws Exception {
+		GnuCashWritableFileImpl wrtblFile = loadWritableFile();
+		gcshFile = wrtblFile;
+		finder = new TransactionFinder(gcshFile);
+		finder.setUseDescrIndex(true);
+
+		GnuCashWritableTransaction trx = wrtblFile.createWritableTransaction();
+		trx.setDatePosted(LocalDate.of(2023, 8, 1));
+		trx.setDescription("Fahrt nach \u0130zmir"); // capital I with dot above
+		GnuCashWritableTransactionSplit splt = trx.createWritableSplit(wrtblFile.getAccountByID(ACCT_1_ID));
+		splt.setValue(new FixedPointNumber());
+		splt.setQuantity(new FixedPointNumber());
+
+		// Index and scan agree (String.toLowerCase() would turn the
+		// capital I with dot above into two chars)
+		flt = new TransactionFilter();
+		flt.descrPart = "IZMIR";
+		assertEquals(true, finder.find(flt, false, SplitLogic.OR).contains(trx));
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.descrPart = "zm";
+		assertEquals(true, finder.find(flt, false, SplitLogic.OR).contains(trx));
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		// Changed description
+		trx.setDescription("Fahrt nach Ankara");
+		flt.descrPart = "izmir";
+		assertEquals(false, finder.find(flt, false, SplitLogic.OR).contains(trx));
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+
+		flt.descrPart = "ankara";
+		assertEquals(true, finder.find(flt, false, SplitLogic.OR).contains(trx));
+		checkAgainstFullScan(flt, false, SplitLogic.OR);
+	}
+
+	// Unmodified file: repeated queries do not rescan the transactions
+	@Test
+	public void test16() throws Exception {
+		GnuCashWritableFileImpl wrtblFile = loadWritableFile();
+		gcshFile = wrtblFile;
+		finder = new TransactionFinder(gcshFile);
+		finder.setUseDescrIndex(true);
+		TransactionModStamp modStamp = TransactionModStamp.of(gcshFile);
+
+		flt = new TransactionFilter();
+		flt.spltFilt.acctID.set(ACCT_1_ID);
+		ArrayList<GnuCashTransaction> result = finder.find(flt, true, SplitLogic.OR);
+		TransactionIndex idx = TransactionIndex.of(gcshFile);
+		int nofScans = modStamp.getNofScans();
+
+		for ( int i = 0; i < 10; i++ ) {
+			assertEquals(result, finder.find(flt, true, SplitLogic.OR));
+
+			TransactionFilter flt2 = new TransactionFilter();
+			flt2.descrPart = "aktie";
+			flt2.dateEnteredFrom = LocalDate.of(2023, 1, 1);
+			finder.find(flt2, false, SplitLogic.OR);
+		}
+
+		assertEquals(nofScans, modStamp.getNofScans());
+		assertSame(idx, TransactionIndex.of(gcshFile));
+
+		// New transaction: one rescan
+		GnuCashWritableTransaction trx = wrtblFile.createWritableTransaction();
+		trx.setDatePosted(LocalDate.of(2023, 8, 1));
+		GnuCashWritableTransactionSplit splt = trx.createWritableSplit(wrtblFile.getAccountByID(ACCT_1_ID));
+		splt.setValue(new FixedPointNumber());
+		splt.setQuantity(new FixedPointNumber());
+
+		assertEquals(true, finder.find(flt, true, SplitLogic.OR).contains(trx));
+		assertEquals(true, finder.find(flt, true, SplitLogic.OR).contains(trx));
+		assertEquals(nofScans + 1, modStamp.getNofScans());
+	}
+
+	private GnuCashWritableFileImpl loadWritableFile() throws Exception {
+		ClassLoader classLoader = getClass().getClassLoader();
+		URL gcshFileURL = classLoader.getResource(ConstTest.GCSH_FILENAME);
+		return new GnuCashWritableFileImpl(new File(gcshFileURL.getFile()));
+	}
+
+	private void checkAgainstFullScan(TransactionFilter flt, boolean withSplits, SplitLogic splitLogic) {
+		HashSet<GCshTrxID> expected = new HashSet<GCshTrxID>();
+		for ( GnuCashTransaction trx : gcshFile.getTransactions() ) {
+			if ( flt.matchesCriteria(trx, false, withSplits, splitLogic) ) {
+				expected.add(trx.getID());
+			}
+		}
+
+		ArrayList<GnuCashTransaction> result = finder.find(flt, withSplits, splitLogic);
+		HashSet<GCshTrxID> actual = new HashSet<GCshTrxID>();
+		for ( GnuCashTransaction trx : result ) {
+			actual.add(trx.getID());
+		}
+
+		assertEquals(expected.size(), result.size());
+		assertEquals(expected, actual);
+	}
+
+	private void checkAgainstFullScan(TransactionSplitFinder spltFinder, TransactionSplitFilter_FP spltFlt) {
+		HashSet<GnuCashTransactionSplit> expected = new HashSet<GnuCashTransactionSplit>();
+		for ( GnuCashTransactionSplit splt : gcshFile.getTransactionSplits() ) {
+			if ( spltFlt.matchesCriteria(splt) ) {
+				expected.add(splt);
+			}
+		}
+
+		ArrayList<GnuCashTransactionSplit> result = spltFinder.find(spltFlt);
+		assertEquals(expected.size(), result.size());
+		assertEquals(expected, new HashSet<GnuCashTransactionSplit>(result));
+	}
+
+	private void checkParallel(GnuCashFile file, TransactionFilter flt, boolean withSplits, SplitLogic splitLogic) {
+		TransactionFinder fnd = new TransactionFinder(file);
+		ArrayList<GnuCashTransaction> resultSeq = fnd.find(flt, withSplits, splitLogic);
+
+		assertEquals(resultSeq, fnd.find(flt, withSplits, splitLogic, 1));
+		assertEquals(resultSeq, fnd.find(flt, withSplits, splitLogic, 4));
+		assertEquals(resultSeq, fnd.find(flt, withSplits, splitLogic, ForkJoinPool.commonPool()));
+	}
+
+	private void checkParallel(GnuCashFile file, TransactionSplitFilter_FP flt) {
+		TransactionSplitFinder fnd = new TransactionSplitFinder(file);
+		ArrayList<GnuCashTransactionSplit> resultSeq = fnd.find(flt);
+
+		assertEquals(resultSeq, fnd.find(flt, 1));
+		assertEquals(resultSeq, fnd.find(flt, 4));
+		assertEquals(resultSeq, fnd.find(flt, ForkJoinPool.commonPool()));
+	}
+
+}
@@ -0,0 +1,186 @@
+package org.gnucash.apiext.trxmgr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.gnucash.api.read.GnuCashAccount;
+import org.gnucash.api.write.GnuCashWritableTransaction;
+import org.gnucash.api.write.GnuCashWritableTransactionSplit;
+import org.gnucash.api.write.impl.GnuCashWritableFileImpl;
+import org.gnucash.apiext.ConstTest;
+import org.gnucash.base.basetypes.simple.GCshAcctID;
+import org.gnucash.base.basetypes.simple.GCshTrxID;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+import xyz.schnorxoborx.base.numbers.FixedPointNumber;
+
+public class TestTransactionManager {
+
+	private static final GCshAcctID BANK_ACCT_ID  = new GCshAcctID("bbf77a599bd24a3dbfec3dd1d0bb9f5c"); // Giro RaiBa
+	private static final GCshAcctID EXP_ACCT_1_ID = new GCshAcctID("7d4b851a3f704c4695d5d466b28cdc55"); // Bankprovision
+
+	// -----------------------------------------------------------------
+
+	private GnuCashWritableFileImpl gcshFile = null;
+
+	// -----------------------------------------------------------------
+
+	public static void main(String[] args) throws Exception {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	@SuppressWarnings("exports")
+	public static junit.framework.Test suite() {
+		return new JUnit4TestAdapter(TestTransactionManager.class);
+	}
+
+	@Before
+	public void initialize() throws Exception {
+		ClassLoader classLoader = getClass().getClassLoader();
+		URL gcshFileURL = null;
+		File gcshFileRaw = null;
+		try {
+			gcshFileURL = classLoader.getResource(ConstTest.GCSH_FILENAME);
+			gcshFileRaw = new File(gcshFileURL.getFile());
+		} catch (Exception exc) {
+			System.err.println("Cannot generate input stream from resource");
+			return;
+		}
+
+		try {
+			gcshFile = new GnuCashWritableFileImpl(gcshFileRaw);
+		} catch (Exception exc) {
+			System.err.println("Cannot parse GnuCash file");
+			exc.printStackTrace();
+		}
+	}
+
+	// -----------------------------------------------------------------
+
+	@Test
+	public void test01() throws Exception {
+		TransactionManager trxMgr = new TransactionManager(gcshFile);
+		List<GCshTrxID> insaneBefore = trxMgr.checkAllSane();
+
+		GnuCashAccount bankAcct = gcshFile.getAccountByID(BANK_ACCT_ID);
+		GnuCashAccount expAcct  = gcshFile.getAccountByID(EXP_ACCT_1_ID);
+		FixedPointNumber amt = new FixedPointNumber("4711/100");
+
+		GnuCashWritableTransaction trx = gcshFile.createWritableTransaction();
+		trx.setDatePosted(LocalDate.of(2024, 6, 1));
+		GnuCashWritableTransactionSplit splt1 = trx.createWritableSplit(bankAcct);
+		splt1.setValue(amt.copy().negate());
+		splt1.setQuantity(amt.copy().negate());
+		GnuCashWritableTransactionSplit splt2 = trx.createWritableSplit(expAcct);
+		splt2.setValue(amt.copy());
+		splt2.setQuantity(amt.copy());
+
+		assertEquals(true, trxMgr.isSane(trx));
+		assertEquals(true, trxMgr.isSane(trx)); // cached
+		assertEquals(0.0, TransactionSanityCache.of(gcshFile).getBalance(trx).doubleValue(), ConstTest.DIFF_TOLERANCE);
+
+		// Additional split -> unbalanced
+		GnuCashWritableTransactionSplit splt3 = trx.createWritableSplit(expAcct);
+		splt3.setValue(amt.copy());
+		splt3.setQuantity(amt.copy());
+
+		assertEquals(false, trxMgr.isSane(trx));
+		assertEquals(amt.doubleValue(), TransactionSanityCache.of(gcshFile).getBalance(trx).doubleValue(), ConstTest.DIFF_TOLERANCE);
+
+		List<GCshTrxID> insaneAfter = trxMgr.checkAllSane();
+		assertEquals(insaneBefore.size() + 1, insaneAfter.size());
+		assertEquals(true, insaneAfter.contains(trx.getID()));
+	}
+
+	@Test
+	public void test02() throws Exception {
+		TransactionManager trxMgr = new TransactionManager(gcshFile);
+		AccountTypeSplitIndex idx = AccountTypeSplitIndex.of(gcshFile);
+		int nofBankSpltBefore = trxMgr.getSplitsBoundToAccounttType(GnuCashAccount.Type.BANK).size();
+		int nofBankTrxBefore  = idx.getNofTransactions(AccountTypeSplitIndex.getMask(GnuCashAccount.Type.BANK));
+
+		GnuCashAccount bankAcct = gcshFile.getAccountByID(BANK_ACCT_ID);
+		GnuCashAccount expAcct  = gcshFile.getAccountByID(EXP_ACCT_1_ID);
+		FixedPointNumber amt = new FixedPointNumber("4711/100");
+
+		GnuCashWritableTransaction trx = gcshFile.createWritableTransaction();
+		trx.setDatePosted(LocalDate.of(2024, 6, 1));
+		GnuCashWritableTransactionSplit splt1 = trx.createWritableSplit(bankAcct);
+		splt1.setValue(amt.copy().negate());
+		splt1.setQuantity(amt.copy().negate());
+
+		assertEquals(true, trxMgr.hasSplitBoundToAccounttType(trx, GnuCashAccount.Type.BANK));
+		assertEquals(false, trxMgr.hasSplitBoundToAccounttType(trx, GnuCashAccount.Type.EXPENSE));
+
+		// Additional split -> re-indexed
+		GnuCashWritableTransactionSplit splt2 = trx.createWritableSplit(expAcct);
+		splt2.setValue(amt.copy());
+		splt2.setQuantity(amt.copy());
+
+		assertEquals(true, trxMgr.hasSplitBoundToAccounttType(trx, GnuCashAccount.Type.EXPENSE));
+		assertEquals(false, trxMgr.hasSplitBoundToAccounttType(trx, GnuCashAccount.Type.STOCK));
+		assertEquals(AccountTypeSplitIndex.getMask(GnuCashAccount.Type.BANK, GnuCashAccount.Type.EXPENSE), idx.getTypeMask(trx));
+		assertEquals(1, trxMgr.getSplitsBoundToAccounttType(trx, GnuCashAccount.Type.EXPENSE).size());
+
+		assertEquals(nofBankSpltBefore + 1, trxMgr.getSplitsBoundToAccounttType(GnuCashAccount.Type.BANK).size());
+		assertEquals(nofBankTrxBefore + 1, idx.getNofTransactions(AccountTypeSplitIndex.getMask(GnuCashAccount.Type.BANK)));
+
+		// Removed transaction -> un-indexed
+		gcshFile.removeTransaction(trx);
+		assertEquals(nofBankSpltBefore, trxMgr.getSplitsBoundToAccounttType(GnuCashAccount.Type.BANK).size());
+		assertEquals(nofBankTrxBefore, idx.getNofTransactions(AccountTypeSplitIndex.getMask(GnuCashAccount.Type.BANK)));
+	}
+
+	@Test
+	public void test03() throws Exception {
+		TransactionManager trxMgr = new TransactionManager(gcshFile);
+		AccountTypeSplitIndex idx = AccountTypeSplitIndex.of(gcshFile);
+
+		GnuCashAccount bankAcct = gcshFile.getAccountByID(BANK_ACCT_ID);
+		GnuCashAccount expAcct  = gcshFile.getAccountByID(EXP_ACCT_1_ID);
+		FixedPointNumber amt = new FixedPointNumber("4711/100");
+
+		GnuCashWritableTransaction trx = gcshFile.createWritableTransaction();
+		trx.setDatePosted(LocalDate.of(2024, 6, 1));
+		GnuCashWritableTransactionSplit splt1 = trx.createWritableSplit(bankAcct);
+		splt1.setValue(amt.copy().negate());
+		splt1.setQuantity(amt.copy().negate());
+		GnuCashWritableTransactionSplit splt2 = trx.createWritableSplit(expAcct);
+		splt2.setValue(amt.copy());
+		splt2.setQuantity(amt.copy());
+
+		int nofBankSplt = trxMgr.getSplitsBoundToAccounttType(GnuCashAccount.Type.BANK).size();
+		int nofExpSplt  = trxMgr.getSplitsBoundToAccounttType(GnuCashAccount.Type.EXPENSE).size();
+		assertEquals(1, trxMgr.getSplitsBoundToAccounttType(trx, GnuCashAccount.Type.EXPENSE).size());
+
+		// Split moved to another account (same no. of splits) -> re-indexed
+		splt2.setAccount(bankAcct);
+		assertEquals(false, trxMgr.hasSplitBoundToAccounttType(trx, GnuCashAccount.Type.EXPENSE));
+		assertEquals(AccountTypeSplitIndex.getMask(GnuCashAccount.Type.BANK), idx.getTypeMask(trx));
+		assertEquals(2, trxMgr.getSplitsBoundToAccounttType(trx, GnuCashAccount.Type.BANK).size());
+		assertEquals(nofBankSplt + 1, trxMgr.getSplitsBoundToAccounttType(GnuCashAccount.Type.BANK).size());
+		assertEquals(nofExpSplt - 1, trxMgr.getSplitsBoundToAccounttType(GnuCashAccount.Type.EXPENSE).size());
+
+		// Removed and added transaction (same no. of transactions,
+		// announced by touching the stamp) -> both detected
+		int nofExpTrx = idx.getNofTransactions(AccountTypeSplitIndex.getMask(GnuCashAccount.Type.EXPENSE));
+		gcshFile.removeTransaction(trx);
+		TransactionModStamp.of(gcshFile).touch();
+		GnuCashWritableTransaction trx2 = gcshFile.createWritableTransaction();
+		trx2.setDatePosted(LocalDate.of(2024, 6, 2));
+		GnuCashWritableTransactionSplit splt3 = trx2.createWritableSplit(expAcct);
+		splt3.setValue(amt.copy());
+		splt3.setQuantity(amt.copy());
+
+		assertEquals(nofBankSplt - 1, trxMgr.getSplitsBoundToAccounttType(GnuCashAccount.Type.BANK).size());
+		assertEquals(nofExpSplt, trxMgr.getSplitsBoundToAccounttType(GnuCashAccount.Type.EXPENSE).size());
+		assertEquals(nofExpTrx + 1, idx.getNofTransactions(AccountTypeSplitIndex.getMask(GnuCashAccount.Type.EXPENSE)));
+	}
+
+}
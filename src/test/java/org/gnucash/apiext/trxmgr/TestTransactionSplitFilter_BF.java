@@ -3,7 +3,10 @@ package org.gnucash.apiext.trxmgr;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.math.BigInteger;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
 
 import org.apache.commons.numbers.fraction.BigFraction;
 import org.gnucash.api.read.GnuCashFile;
@@ -219,4 +222,181 @@ public class TestTransactionSplitFilter_BF {
 		flt.descrPart = "Poop";
 		assertEquals(false, flt.matchesCriteria(splt));
 	}
+
+	// The compiled form must decide exactly as the filter itself,
+	// for every single split
+	@Test
+	public void test06() throws Exception {
+		flt = new TransactionSplitFilter_BF();
+		checkCompiled(flt);
+
+		flt.acctID.set(ACCT_7_ID);
+		checkCompiled(flt);
+
+		flt.action = GnuCashTransactionSplit.Action.BUY;
+		checkCompiled(flt);
+
+		flt.reset();
+		flt.valueFrom = BigFraction.of(-225300, 100);
+		flt.valueTo = BigFraction.of(225300, 100);
+		checkCompiled(flt);
+
+		flt.valueAbs = true;
+		checkCompiled(flt);
+
+		// CAUTION: tolerance
+		flt.valueFrom = BigFraction.of(22530001, 10000);
+		flt.valueTo = BigFraction.of(2254);
+		checkCompiled(flt);
+
+		flt.reset();
+		flt.quantityFrom = BigFraction.of(9999, 100);
+		flt.quantityTo = BigFraction.of(1000001, 10000);
+		checkCompiled(flt);
+
+		flt.reset();
+		flt.descrPart = " Poop ";
+		checkCompiled(flt);
+	}
+
+	// Bounds close to the actual values (fast path vs. exact fallback)
+	@Test
+	public void test07() throws Exception {
+		flt = new TransactionSplitFilter_BF();
+
+		BigFraction[] deltas = { BigFraction.ZERO,
+								 BigFraction.of(1, 1000000), BigFraction.of(-1, 1000000),
+								 BigFraction.of(1, 100), BigFraction.of(-1, 100) };
+
+		for ( GnuCashTransactionSplit splt : gcshFile.getTransactionSplits() ) {
+			for ( BigFraction delta : deltas ) {
+				flt.reset();
+				flt.valueFrom = splt.getValueRat().add(delta);
+				checkCompiled(flt);
+
+				flt.reset();
+				flt.valueTo = splt.getValueRat().add(delta);
+				checkCompiled(flt);
+
+				flt.reset();
+				flt.quantityFrom = splt.getQuantityRat().abs().add(delta);
+				flt.quantityAbs = true;
+				checkCompiled(flt);
+			}
+		}
+	}
+
+	// Bounds too large for the fast path's longs
+	@Test
+	public void test08() throws Exception {
+		flt = new TransactionSplitFilter_BF();
+		BigInteger big = BigInteger.TEN.pow(30);
+
+		flt.valueFrom = BigFraction.of(big.negate().subtract(BigInteger.ONE), big); // slightly below -1
+		flt.valueTo = BigFraction.of(big.multiply(BigInteger.valueOf(1000)).add(BigInteger.ONE), big);
+		checkCompiled(flt);
+
+		flt.valueAbs = true;
+		checkCompiled(flt);
+
+		flt.reset();
+		flt.quantityTo = BigFraction.of(big, BigInteger.ONE);
+		checkCompiled(flt);
+	}
+
+	// Specification: snapshot, value semantics, round trip
+	@Test
+	public void test09() throws Exception {
+		flt = new TransactionSplitFilter_BF();
+		flt.acctID.set(ACCT_7_ID);
+		flt.valueFrom = BigFraction.of(4505, 2);
+		flt.valueTo = BigFraction.of(4507, 2);
+		flt.descrPart = "Aktie";
+		splt = gcshFile.getTransactionSplitByID(TRXSPLT_2_ID);
+
+		TransactionSplitFilterSpec_BF spec = flt.toSpec();
+		assertEquals(flt.matchesCriteria(splt), spec.matchesCriteria(splt));
+
+		// Snapshot: later changes of the filter do not affect the spec
+		flt.acctID.set(ACCT_1_ID);
+		assertEquals(false, spec.equals(flt.toSpec()));
+		assertEquals(ACCT_7_ID, spec.getAcctID());
+
+		// Value semantics: amounts are compared by value, regardless
+		// of their representation; descriptions trimmed and case-insensitively
+		TransactionSplitFilterSpec_BF spec2 = TransactionSplitFilterSpec_BF.builder()
+				.acctID(ACCT_7_ID)
+				.value(BigFraction.of(45050, 20), BigFraction.of(9014, 4), false)
+				.descrPart(" AKTIE ")
+				.build();
+		assertEquals(spec, spec2);
+		assertEquals(spec.hashCode(), spec2.hashCode());
+
+		assertEquals(false, spec.equals(spec2.toBuilder().value(BigFraction.of(4505, 2), BigFraction.of(4508, 2), false).build()));
+		assertEquals(false, spec.equals(spec2.toBuilder().value(BigFraction.of(4505, 2), BigFraction.of(4507, 2), true).build()));
+		assertEquals(false, spec.equals(spec2.toBuilder().descrPart("Aktien").build()));
+
+		// Unset bounds
+		assertEquals(TransactionSplitFilterSpec_BF.EMPTY, new TransactionSplitFilter_BF().toSpec());
+		assertEquals(TransactionSplitFilterSpec_BF.EMPTY,
+					 TransactionSplitFilterSpec_BF.builder().value(null, null, false).descrPart("  ").build());
+
+		// Round trip
+		assertEquals(spec, spec.toFilter().toSpec());
+		assertEquals(spec, spec.toBuilder().build());
+	}
+
+	// Split finder: same result as checking every single split
+	@Test
+	public void test10() throws Exception {
+		TransactionSplitFinder spltFinder = new TransactionSplitFinder(gcshFile);
+		TransactionSplitFinder spltFinderIdx = new TransactionSplitFinder(gcshFile);
+		spltFinderIdx.setUseDescrIndex(true);
+
+		flt = new TransactionSplitFilter_BF();
+		flt.acctID.set(ACCT_7_ID);
+		checkFinder(spltFinder, flt);
+
+		flt.quantityFrom = BigFraction.of(100);
+		flt.quantityTo = BigFraction.of(100);
+		checkFinder(spltFinder, flt);
+		assertEquals(true, spltFinder.find(flt.toSpec()).contains(gcshFile.getTransactionSplitByID(TRXSPLT_2_ID)));
+
+		flt.reset();
+		flt.valueFrom = BigFraction.of(-2253);
+		flt.valueTo = BigFraction.of(2253);
+		flt.valueAbs = true;
+		checkFinder(spltFinder, flt);
+
+		flt.reset();
+		flt.descrPart = " AKTIE ";
+		checkFinder(spltFinder, flt);
+		checkFinder(spltFinderIdx, flt);
+
+		flt.acctID.set(ACCT_7_ID);
+		checkFinder(spltFinderIdx, flt);
+	}
+
+	private void checkFinder(TransactionSplitFinder spltFinder, TransactionSplitFilter_BF flt) {
+		HashSet<GnuCashTransactionSplit> expected = new HashSet<GnuCashTransactionSplit>();
+		for ( GnuCashTransactionSplit elt : gcshFile.getTransactionSplits() ) {
+			if ( flt.matchesCriteria(elt) ) {
+				expected.add(elt);
+			}
+		}
+
+		ArrayList<GnuCashTransactionSplit> result = spltFinder.find(flt);
+		assertEquals(expected.size(), result.size());
+		assertEquals(expected, new HashSet<GnuCashTransactionSplit>(result));
+
+		// Specification: same result, same order
+		assertEquals(result, spltFinder.find(flt.toSpec()));
+	}
+
+	private void checkCompiled(TransactionSplitFilter_BF flt) {
+		CompiledSplitFilter fltComp = flt.compile();
+		for ( GnuCashTransactionSplit elt : gcshFile.getTransactionSplits() ) {
+			assertEquals(flt.matchesCriteria(elt), fltComp.matchesCriteria(elt));
+		}
+	}
 }
@@ -219,4 +219,114 @@ public class TestTransactionSplitFilter_FP {
 		flt.descrPart = "Poop";
 		assertEquals(false, flt.matchesCriteria(splt));
 	}
+
+	// The compiled form must decide exactly as the filter itself,
+	// for every single split
+	@Test
+	public void test06() throws Exception {
+		flt = new TransactionSplitFilter_FP();
+		checkCompiled(flt);
+
+		flt.acctID.set(ACCT_7_ID);
+		checkCompiled(flt);
+
+		flt.action = GnuCashTransactionSplit.Action.BUY;
+		checkCompiled(flt);
+
+		flt.reset();
+		flt.valueFrom = new FixedPointNumber("-2253.00");
+		flt.valueTo = new FixedPointNumber("2253.00");
+		checkCompiled(flt);
+
+		flt.valueAbs = true;
+		checkCompiled(flt);
+
+		// CAUTION: tolerance
+		flt.valueFrom = new FixedPointNumber("2253.0001");
+		flt.valueTo = new FixedPointNumber("2254");
+		checkCompiled(flt);
+
+		flt.reset();
+		flt.quantityFrom = new FixedPointNumber("99.99");
+		flt.quantityTo = new FixedPointNumber("100.0001");
+		checkCompiled(flt);
+
+		flt.reset();
+		flt.descrPart = " Poop ";
+		checkCompiled(flt);
+	}
+
+	// Bounds close to the actual values (fast path vs. exact fallback)
+	@Test
+	public void test07() throws Exception {
+		flt = new TransactionSplitFilter_FP();
+
+		String[] deltas = { "0", "0.004", "-0.004", "0.005", "-0.005", "0.006", "-0.006", "0.000001", "-0.000001" };
+
+		for ( GnuCashTransactionSplit splt : gcshFile.getTransactionSplits() ) {
+			for ( String delta : deltas ) {
+				flt.reset();
+				flt.valueFrom = splt.getValue().add(new FixedPointNumber(delta));
+				checkCompiled(flt);
+
+				flt.reset();
+				flt.valueTo = splt.getValue().add(new FixedPointNumber(delta));
+				checkCompiled(flt);
+
+				flt.reset();
+				flt.quantityFrom = splt.getQuantity().abs().add(new FixedPointNumber(delta));
+				flt.quantityAbs = true;
+				checkCompiled(flt);
+			}
+		}
+	}
+
+	// Specification: snapshot, value semantics, round trip
+	@Test
+	public void test08() throws Exception {
+		flt = new TransactionSplitFilter_FP();
+		flt.acctID.set(ACCT_7_ID);
+		flt.valueFrom = new FixedPointNumber("2252.5");
+		flt.valueTo = new FixedPointNumber("2253.5");
+		flt.descrPart = "Aktie";
+		splt = gcshFile.getTransactionSplitByID(TRXSPLT_2_ID);
+
+		TransactionSplitFilterSpec_FP spec = flt.toSpec();
+		assertEquals(flt.matchesCriteria(splt), spec.matchesCriteria(splt));
+
+		// Snapshot: later changes of the filter do not affect the spec
+		flt.acctID.set(ACCT_1_ID);
+		assertEquals(false, spec.equals(flt.toSpec()));
+		assertEquals(ACCT_7_ID, spec.getAcctID());
+
+		// Value semantics: amounts are compared by value, regardless
+		// of their scale; descriptions trimmed and case-insensitively
+		TransactionSplitFilterSpec_FP spec2 = TransactionSplitFilterSpec_FP.builder()
+				.acctID(ACCT_7_ID)
+				.value(new FixedPointNumber("2252.50"), new FixedPointNumber("2253.500"), false)
+				.descrPart(" AKTIE ")
+				.build();
+		assertEquals(spec, spec2);
+		assertEquals(spec.hashCode(), spec2.hashCode());
+
+		assertEquals(false, spec.equals(spec2.toBuilder().value(new FixedPointNumber("2252.5"), new FixedPointNumber("2253.51"), false).build()));
+		assertEquals(false, spec.equals(spec2.toBuilder().value(new FixedPointNumber("2252.5"), new FixedPointNumber("2253.5"), true).build()));
+		assertEquals(false, spec.equals(spec2.toBuilder().descrPart("Aktien").build()));
+
+		// Unset bounds
+		assertEquals(TransactionSplitFilterSpec_FP.EMPTY, new TransactionSplitFilter_FP().toSpec());
+		assertEquals(TransactionSplitFilterSpec_FP.EMPTY,
+					 TransactionSplitFilterSpec_FP.builder().value(null, null, false).descrPart("  ").build());
+
+		// Round trip
+		assertEquals(spec, spec.toFilter().toSpec());
+		assertEquals(spec, spec.toBuilder().build());
+	}
+
+	private void checkCompiled(TransactionSplitFilter_FP flt) {
+		CompiledSplitFilter fltComp = flt.compile();
+		for ( GnuCashTransactionSplit elt : gcshFile.getTransactionSplits() ) {
+			assertEquals(flt.matchesCriteria(elt), fltComp.matchesCriteria(elt));
+		}
+	}
 }